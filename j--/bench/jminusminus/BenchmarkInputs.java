@@ -0,0 +1,185 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The inputs the benchmarks compile, by input set:
+ * <ul>
+ *   <li>"jvm": the programs in tests/jvm;</li>
+ *   <li>"project": the programs in tests/project1 through tests/project5;</li>
+ *   <li>"large": programs generated for the purpose (see SourceGenerator), with many methods.</li>
+ * </ul>
+ * Files are found relative to the directory named by the jminusminus.home system property (the
+ * j-- directory), which defaults to the current directory.
+ */
+class BenchmarkInputs {
+    // Number of methods in the "large" input set.
+    private static final int LARGE_METHODS = 512;
+
+    // Directory the "large" input set was generated in, or null if it hasn't been yet.
+    private static File largeDir;
+
+    /**
+     * Returns the names of the source files in the given input set, in a fixed order.
+     *
+     * @param set the input set: "jvm", "project", or "large".
+     * @return the names of the source files.
+     */
+    public static ArrayList<String> files(String set) {
+        File home = new File(System.getProperty("jminusminus.home", "."));
+        ArrayList<String> files = new ArrayList<String>();
+        if (set.equals("jvm")) {
+            addSources(new File(home, "tests/jvm"), files);
+        } else if (set.equals("project")) {
+            for (int i = 1; new File(home, "tests/project" + i).isDirectory(); i++) {
+                addSources(new File(home, "tests/project" + i), files);
+            }
+        } else if (set.equals("large")) {
+            addSources(large(), files);
+        } else {
+            throw new IllegalArgumentException("unknown input set " + set);
+        }
+        if (files.isEmpty()) {
+            throw new IllegalStateException("no inputs for input set " + set + " under " + home
+                    + "; set jminusminus.home to the j-- directory");
+        }
+        return files;
+    }
+
+    /**
+     * Returns a session whose output and diagnostics are discarded, for compiling benchmark
+     * inputs without cluttering the benchmark's own output.
+     *
+     * @return a quiet session.
+     */
+    public static Session quietSession() {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        return new Session(discard, discard);
+    }
+
+    /**
+     * Parses the given source file in the session bound to the calling thread, and returns its
+     * AST, or null if the file cannot be read or has syntax errors.
+     *
+     * @param file the source file.
+     * @return the AST, or null.
+     */
+    public static JCompilationUnit parse(String file) {
+        return parse(file, FrontEnd.HANDWRITTEN);
+    }
+
+    /**
+     * Parses the given source file with the named front end (see FrontEnd), as above.
+     *
+     * @param file     the source file.
+     * @param frontEnd the name of the front end.
+     * @return the AST, or null.
+     */
+    public static JCompilationUnit parse(String file, String frontEnd) {
+        try {
+            FrontEnd parser = FrontEnd.create(frontEnd, file, false, 1);
+            JCompilationUnit ast = parser.compilationUnit();
+            return parser.errorHasOccurred() ? null : ast;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compiles the given source file to JVM code, in memory, in the session bound to the calling
+     * thread (which must be a fresh one), and returns its AST, or null if the file cannot be read
+     * or has errors.
+     *
+     * @param file the source file.
+     * @return the AST, with the class files generated from it, or null.
+     */
+    public static JCompilationUnit compile(String file) {
+        JCompilationUnit ast = parse(file);
+        if (ast == null) {
+            return null;
+        }
+        ast.preAnalyze();
+        if (ast.errorHasOccurred()) {
+            return null;
+        }
+        ast.analyze(null);
+        if (ast.errorHasOccurred()) {
+            return null;
+        }
+        CLEmitter clEmitter = new CLEmitter(false);
+        ast.codegen(clEmitter);
+        return clEmitter.errorHasOccurred() ? null : ast;
+    }
+
+    /**
+     * Returns the number of methods (including constructors) in the given class files.
+     *
+     * @param clFiles the class files.
+     * @return the number of methods.
+     */
+    public static int methodCount(ArrayList<CLFile> clFiles) {
+        int count = 0;
+        for (CLFile clFile : clFiles) {
+            count += clFile.methodsCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of nodes in the given AST.
+     *
+     * @param ast the AST.
+     * @return the number of nodes in the AST.
+     */
+    public static int nodeCount(JCompilationUnit ast) {
+        JSONElement json = new JSONElement();
+        ast.toJSON(json);
+        int count = 0;
+        for (String line : json.toString().split("\n")) {
+            if (line.trim().matches("\"J[A-Za-z]+:[0-9]+\":")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Adds the names of the .java files in the given directory, sorted, to files.
+    private static void addSources(File dir, ArrayList<String> files) {
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        Arrays.sort(names);
+        for (String name : names) {
+            if (name.endsWith(".java")) {
+                files.add(new File(dir, name).getPath());
+            }
+        }
+    }
+
+    // Returns the directory holding the "large" input set, generating it first if need be.
+    private static synchronized File large() {
+        if (largeDir != null) {
+            return largeDir;
+        }
+        try {
+            File dir = File.createTempFile("j--bench", "");
+            dir.delete();
+            for (String file : new SourceGenerator("methods", LARGE_METHODS).generate(dir)) {
+                new File(file).deleteOnExit();
+            }
+            dir.deleteOnExit();
+            largeDir = dir;
+            return dir;
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot generate the large input set", e);
+        }
+    }
+}
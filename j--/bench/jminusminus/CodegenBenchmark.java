@@ -0,0 +1,115 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures compilation to JVM code: methods emitted per second (the "methods" counter),
+ * compiling every file of an input set (see BenchmarkInputs) per operation, each in a session of
+ * its own as bin/j-- would. Analysis rewrites the AST and code generation adds to it, so neither
+ * can be repeated on the same AST; an operation therefore runs the whole front end as well, and
+ * the figures for the scanner and parser (see ScannerBenchmark and ParserBenchmark) tell how much
+ * of it is theirs. Files with errors, or that the compiler fails on, are left out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodegenBenchmark {
+    /**
+     * The input set.
+     */
+    @Param({"jvm", "project", "large"})
+    public String inputs;
+
+    // The source files of the input set that compile without errors.
+    private ArrayList<String> files;
+
+    // Number of methods emitted for the files.
+    private long methods;
+
+    /**
+     * Methods emitted during an iteration.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        /**
+         * Number of methods emitted.
+         */
+        public long methods;
+
+        /**
+         * Resets the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            methods = 0;
+        }
+    }
+
+    /**
+     * Finds the input files that compile, and counts the methods emitted for them.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        files = new ArrayList<String>();
+        methods = 0;
+        for (String file : BenchmarkInputs.files(inputs)) {
+            try {
+                JCompilationUnit ast = compile(file);
+                if (ast != null) {
+                    files.add(file);
+                    methods += BenchmarkInputs.methodCount(ast.clFiles());
+                }
+            } catch (RuntimeException e) {
+                // The compiler cannot handle the file.
+            }
+        }
+    }
+
+    /**
+     * Compiles every file of the input set to JVM code.
+     *
+     * @param counters the counters.
+     * @return the ASTs, with the class files generated from them.
+     */
+    @Benchmark
+    public ArrayList<JCompilationUnit> codegen(Counters counters) {
+        ArrayList<JCompilationUnit> asts = new ArrayList<JCompilationUnit>();
+        for (String file : files) {
+            asts.add(compile(file));
+        }
+        counters.methods += methods;
+        return asts;
+    }
+
+    // Compiles the given file in a fresh session, and returns its AST, or null if it has errors.
+    private static JCompilationUnit compile(String file) {
+        Session session = BenchmarkInputs.quietSession();
+        Session previous = session.bind();
+        try {
+            return BenchmarkInputs.compile(file);
+        } finally {
+            session.unbind(previous);
+        }
+    }
+}
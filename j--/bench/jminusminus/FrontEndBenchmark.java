@@ -0,0 +1,293 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Compares the front ends (see FrontEnd) head to head, on each of the input sets of the
+ * benchmarks (see BenchmarkInputs).
+ * <p>
+ * First, every file of an input set is parsed with each front end, and the ASTs are compared (in
+ * their JSON form, lines and all, but for empty lists, such as those of the interfaces a class
+ * implements and the exceptions a method throws, which one front end builds and another leaves
+ * out). A file is "equal" if the front ends build the same AST for it without errors,
+ * "different" if they build different ones (and the first line of JSON they differ in is
+ * reported), and otherwise it fails with one front end or both.
+ * <p>
+ * Then the files that every front end parses without errors are parsed, in a fresh session, by
+ * each front end in turn, a number of times, and the fastest run of each is kept: its wall time,
+ * CPU time, and allocation, and the throughput this makes in AST nodes and in source bytes per
+ * second. The runs are not timed with -timings, which would time the hand-written scanner token
+ * by token, and so slow it down. The results are printed, and written to a JSON file.
+ * <p>
+ * Usage: java jminusminus.FrontEndBenchmark [options], where the options are
+ * <pre>
+ *   -inputs &lt;s1,s2,...&gt;     input sets (default: jvm,project,large)
+ *   -frontends &lt;f1,f2,...&gt;  front ends (default: handwritten,javacc)
+ *   -runs &lt;n&gt;               runs per front end, the fastest of which is kept (default: 10)
+ *   -o &lt;file&gt;              JSON results file (default: frontend-results.json)
+ * </pre>
+ * Files are found relative to the directory named by the jminusminus.home system property, as
+ * for the other benchmarks.
+ */
+class FrontEndBenchmark {
+    // The outcomes of comparing the ASTs of a file.
+    private static final String EQUAL = "equal", DIFFERENT = "different", FAILED = "failed";
+
+    // For measuring CPU time and allocation of the current thread.
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Entry point.
+     *
+     * @param args the command-line arguments.
+     * @throws IOException if the results cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        String[] inputs = {"jvm", "project", "large"};
+        String[] frontEnds = {FrontEnd.HANDWRITTEN, FrontEnd.JAVACC};
+        int runs = 10;
+        String jsonFile = "frontend-results.json";
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-inputs") && i + 1 < args.length) {
+                inputs = args[++i].split(",");
+            } else if (args[i].equals("-frontends") && i + 1 < args.length) {
+                frontEnds = args[++i].split(",");
+            } else if (args[i].equals("-runs") && i + 1 < args.length) {
+                runs = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                jsonFile = args[++i];
+            } else {
+                System.err.println("Usage: java jminusminus.FrontEndBenchmark " +
+                        "[-inputs <s1,...>] [-frontends <f1,...>] [-runs <n>] [-o <file>]");
+                System.exit(1);
+            }
+        }
+        for (String frontEnd : frontEnds) {
+            if (!FrontEnd.exists(frontEnd)) {
+                System.err.println("Unknown front end " + frontEnd);
+                System.exit(1);
+            }
+        }
+
+        ArrayList<Comparison> comparisons = new ArrayList<Comparison>();
+        for (String set : inputs) {
+            Comparison comparison = new Comparison(set, frontEnds);
+            comparison.compareASTs(BenchmarkInputs.files(set));
+
+            // Warm the front ends up, so the first measurements are not mostly class loading
+            // and interpretation; then measure them in turn, so that any drift in the speed of
+            // the machine affects them alike.
+            for (String frontEnd : frontEnds) {
+                for (int r = 0; r < runs; r++) {
+                    parse(comparison.files, frontEnd);
+                }
+            }
+            for (int r = 0; r < runs; r++) {
+                for (String frontEnd : frontEnds) {
+                    long[] figures = parse(comparison.files, frontEnd);
+                    long[] best = comparison.figures.get(frontEnd);
+                    if (best == null || figures[0] < best[0]) {
+                        comparison.figures.put(frontEnd, figures);
+                    }
+                }
+            }
+            comparison.report(System.out);
+            comparisons.add(comparison);
+        }
+        writeJSON(comparisons, jsonFile);
+        System.out.println("Results written to " + jsonFile);
+    }
+
+    // Parses the given files with the named front end in a fresh session, and returns the wall
+    // time (ns), CPU time (ns), and bytes allocated.
+    private static long[] parse(ArrayList<String> files, String frontEnd) {
+        Session session = BenchmarkInputs.quietSession();
+        Session previous = session.bind();
+        long wallTime = System.nanoTime();
+        long cpuTime = threadMXBean.getCurrentThreadCpuTime();
+        long allocated = allocatedBytes();
+        try {
+            for (String file : files) {
+                BenchmarkInputs.parse(file, frontEnd);
+            }
+        } finally {
+            session.unbind(previous);
+        }
+        return new long[] {System.nanoTime() - wallTime,
+                threadMXBean.getCurrentThreadCpuTime() - cpuTime, allocatedBytes() - allocated};
+    }
+
+    // Returns the bytes allocated by the calling thread so far, or 0 if it cannot be measured.
+    private static long allocatedBytes() {
+        return threadMXBean instanceof com.sun.management.ThreadMXBean ?
+                ((com.sun.management.ThreadMXBean) threadMXBean).getCurrentThreadAllocatedBytes()
+                : 0;
+    }
+
+    // Writes the given comparisons to the given file in JSON format.
+    private static void writeJSON(ArrayList<Comparison> comparisons, String file)
+            throws IOException {
+        PrintWriter out = new PrintWriter(file);
+        out.printf("{\n    \"inputs\": [");
+        String separator = "\n";
+        for (Comparison comparison : comparisons) {
+            out.printf("%s        {\n", separator);
+            out.printf("            \"set\": \"%s\",\n", comparison.set);
+            out.printf("            \"files\": %d,\n", comparison.outcomes.size());
+            out.printf("            \"outcomes\": {");
+            String itemSeparator = "";
+            for (String outcome : comparison.outcomeCounts().keySet()) {
+                out.printf("%s\"%s\": %d", itemSeparator, outcome,
+                        comparison.outcomeCounts().get(outcome));
+                itemSeparator = ", ";
+            }
+            out.printf("},\n");
+            out.printf("            \"measured\": {\"files\": %d, \"nodes\": %d, \"bytes\": %d},\n",
+                    comparison.files.size(), comparison.nodes, comparison.bytes);
+            out.printf("            \"frontEnds\": {");
+            itemSeparator = "";
+            for (String frontEnd : comparison.frontEnds) {
+                long[] figures = comparison.figures.get(frontEnd);
+                out.printf("%s\"%s\": {\"wallNanos\": %d, \"cpuNanos\": %d, " +
+                        "\"allocatedBytes\": %d, \"nodesPerSecond\": %.0f, " +
+                        "\"bytesPerSecond\": %.0f}", itemSeparator, frontEnd, figures[0],
+                        figures[1], figures[2], comparison.nodes * 1e9 / figures[0],
+                        comparison.bytes * 1e9 / figures[0]);
+                itemSeparator = ", ";
+            }
+            out.printf("}\n        }");
+            separator = ",\n";
+        }
+        out.printf("\n    ]\n}\n");
+        out.close();
+    }
+
+    // The comparison of the front ends on an input set.
+    private static class Comparison {
+        // The input set, and the front ends compared.
+        private String set;
+        private String[] frontEnds;
+
+        // Maps the files of the input set to the outcomes of comparing their ASTs.
+        private LinkedHashMap<String, String> outcomes = new LinkedHashMap<String, String>();
+
+        // Maps the files whose ASTs differ to the first difference.
+        private LinkedHashMap<String, String> differences = new LinkedHashMap<String, String>();
+
+        // The files every front end parses without errors, and their AST nodes and bytes.
+        private ArrayList<String> files = new ArrayList<String>();
+        private long nodes, bytes;
+
+        // Maps the front ends to the fastest of their runs: wall time (ns), CPU time (ns), and
+        // bytes allocated.
+        private LinkedHashMap<String, long[]> figures = new LinkedHashMap<String, long[]>();
+
+        // Constructs a comparison of the given front ends on the given input set.
+        private Comparison(String set, String[] frontEnds) {
+            this.set = set;
+            this.frontEnds = frontEnds;
+        }
+
+        // Parses each of the given files with every front end, and records the outcome of
+        // comparing the ASTs, and the files parsed without errors.
+        private void compareASTs(ArrayList<String> allFiles) {
+            for (String file : allFiles) {
+                String outcome = EQUAL;
+                String json = null;
+                long fileNodes = 0;
+                ArrayList<String> failed = new ArrayList<String>();
+                for (String frontEnd : frontEnds) {
+                    Session session = BenchmarkInputs.quietSession();
+                    Session previous = session.bind();
+                    try {
+                        JCompilationUnit ast = BenchmarkInputs.parse(file, frontEnd);
+                        if (ast == null) {
+                            failed.add(frontEnd);
+                            continue;
+                        }
+                        JSONElement element = new JSONElement();
+                        ast.toJSON(element);
+                        String astJSON = withoutEmptyLists(element.toString());
+                        if (json == null) {
+                            json = astJSON;
+                            fileNodes = BenchmarkInputs.nodeCount(ast);
+                        } else if (outcome == EQUAL && !json.equals(astJSON)) {
+                            outcome = DIFFERENT;
+                            differences.put(file, firstDifference(json, astJSON));
+                        }
+                    } finally {
+                        session.unbind(previous);
+                    }
+                }
+                if (!failed.isEmpty()) {
+                    outcome = FAILED + " (" + String.join(",", failed) + ")";
+                } else {
+                    files.add(file);
+                    nodes += fileNodes;
+                    bytes += new File(file).length();
+                }
+                outcomes.put(file, outcome);
+            }
+        }
+
+        // Returns the given JSON document without its empty lists, and without the commas after
+        // the last remaining attributes, so that a list left empty and one left out compare equal.
+        private static String withoutEmptyLists(String json) {
+            return json.replaceAll("(?m)^[ \\t]*\"[^\"]*\": \\[\\],?\n", "")
+                    .replaceAll("(?m),$", "");
+        }
+
+        // Returns the first line in which the given JSON documents differ, with its number.
+        private static String firstDifference(String json1, String json2) {
+            String[] lines1 = json1.split("\n"), lines2 = json2.split("\n");
+            int i = 0;
+            while (i < lines1.length && i < lines2.length && lines1[i].equals(lines2[i])) {
+                i++;
+            }
+            return String.format("line %d: %s / %s", i + 1,
+                    i < lines1.length ? lines1[i].trim() : "(end)",
+                    i < lines2.length ? lines2[i].trim() : "(end)");
+        }
+
+        // Returns the number of files with each outcome.
+        private LinkedHashMap<String, Integer> outcomeCounts() {
+            LinkedHashMap<String, Integer> counts = new LinkedHashMap<String, Integer>();
+            for (String outcome : outcomes.values()) {
+                Integer count = counts.get(outcome);
+                counts.put(outcome, count == null ? 1 : count + 1);
+            }
+            return counts;
+        }
+
+        // Prints the comparison: the outcomes, the files whose ASTs differ, and a table with a
+        // row per front end.
+        private void report(PrintStream out) {
+            out.printf("\n%s: %d files\n", set, outcomes.size());
+            for (String outcome : outcomeCounts().keySet()) {
+                out.printf("  %-30s %6d\n", outcome, outcomeCounts().get(outcome));
+            }
+            for (String file : differences.keySet()) {
+                out.printf("  ASTs differ: %s, %s\n", file, differences.get(file));
+            }
+            out.printf("measured on %d files (%d AST nodes, %d bytes)\n", files.size(), nodes,
+                    bytes);
+            out.printf("%-14s %10s %10s %14s %14s %12s\n", "front end", "wall (ms)", "CPU (ms)",
+                    "allocated (KB)", "nodes/s", "KB/s");
+            for (String frontEnd : frontEnds) {
+                long[] figures = this.figures.get(frontEnd);
+                out.printf("%-14s %10.2f %10.2f %14d %14.0f %12.0f\n", frontEnd, figures[0] / 1e6,
+                        figures[1] / 1e6, figures[2] / 1024, nodes * 1e9 / figures[0],
+                        bytes * 1e9 / figures[0] / 1024);
+            }
+        }
+    }
+}
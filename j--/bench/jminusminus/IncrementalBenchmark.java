@@ -0,0 +1,230 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Checks the incremental compiler (see IncrementalCompiler) against full compilations, on each of
+ * the input sets of the benchmarks (see BenchmarkInputs), and measures what it saves.
+ * <p>
+ * Each file is given to an IncrementalCompiler, which is then given a number of random edits:
+ * deleting a range of the text, inserting a snippet of j-- (a bracket, an operator, a keyword, a
+ * quote, the start or end of a comment, and the like), or replacing a range by a copy of another
+ * one. Each edit is followed by the edit that undoes it, so that the text stays close to the
+ * program, and its members are parsed and analyzed again on their own as often as not. After
+ * every edit, the errors the incremental compiler reports must be those a full compilation of the
+ * text (see JMinusMinusCompiler) reports, but for those found while generating code, in the same
+ * order within each line; the edits they differ after are reported. The compiler itself fails on
+ * some erroneous programs (in analysis, mostly); an edit that leaves a text a full compilation
+ * fails on is not counted against the incremental compiler, but the rest of the edits to the
+ * file are given up, and so they are if the incremental compiler fails on an edit.
+ * <p>
+ * The time each edit takes is measured, and so is the time of the full compilation after it
+ * (which includes generating code), and their means are printed for each input set.
+ * <p>
+ * Usage: java jminusminus.IncrementalBenchmark [options], where the options are
+ * <pre>
+ *   -inputs &lt;s1,s2,...&gt;  input sets (default: jvm,project)
+ *   -edits &lt;n&gt;           edits (each then undone) per file (default: 50)
+ *   -seed &lt;n&gt;            seed for the random edits (default: 1)
+ * </pre>
+ * Files are found relative to the directory named by the jminusminus.home system property, as
+ * for the other benchmarks. The exit status is 1 if the errors differed after any edit.
+ */
+class IncrementalBenchmark {
+    // Snippets inserted by the edits.
+    private static final String[] SNIPPETS = {" ", "\n", ";", ",", ".", "{", "}", "(", ")", "[",
+            "]", "=", "+", "-", "*", "/", "<", ">", "!", "&&", "'", "\"", "/*", "*/", "//", "x",
+            "1", "1.5", "'c'", "\"s\"", "int ", "return ", "if (x) ", "while (true) ", "new ",
+            "public ", "static ", "void f() {}\n", "int x;\n", "class C {}\n", "import x;\n"};
+
+    // Longest range deleted, or copied, by an edit.
+    private static final int MAX_RANGE = 40;
+
+    // Most edits whose errors differed that are reported in full.
+    private static final int MAX_REPORTED = 10;
+
+    // Orders diagnostics by line, and those on the same line by the part of the compiler that
+    // found them.
+    private static final Comparator<Diagnostic> BY_LINE = new Comparator<Diagnostic>() {
+        public int compare(Diagnostic d1, Diagnostic d2) {
+            int byLine = Integer.compare(d1.line(), d2.line());
+            return byLine != 0 ? byLine : d1.kind().compareTo(d2.kind());
+        }
+    };
+
+    // Number of edits whose errors differed so far.
+    private static int mismatches;
+
+    // Number of edits that left a text a full compilation fails on so far.
+    private static int failures;
+
+    /**
+     * Entry point.
+     *
+     * @param args the command-line arguments.
+     * @throws IOException if an input cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        String[] inputs = {"jvm", "project"};
+        int edits = 50;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-inputs") && i + 1 < args.length) {
+                inputs = args[++i].split(",");
+            } else if (args[i].equals("-edits") && i + 1 < args.length) {
+                edits = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("Usage: java jminusminus.IncrementalBenchmark " +
+                        "[-inputs <s1,...>] [-edits <n>] [-seed <n>]");
+                System.exit(1);
+            }
+        }
+
+        Random random = new Random(seed);
+        for (String set : inputs) {
+            ArrayList<String> files = BenchmarkInputs.files(set);
+            long editTime = 0, compileTime = 0;
+            int count = 0;
+            for (String file : files) {
+                String source = new String(Files.readAllBytes(Paths.get(file)));
+                IncrementalCompiler compiler = new IncrementalCompiler(file, source);
+                if (check(compiler, file, "the file as it is") < 0) {
+                    continue;
+                }
+                for (int e = 0; e < edits; e++) {
+                    String text = compiler.text();
+                    int offset = random.nextInt(text.length() + 1);
+                    int length = 0;
+                    String replacement = "";
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            length = Math.min(random.nextInt(MAX_RANGE) + 1,
+                                    text.length() - offset);
+                            break;
+                        case 1:
+                            replacement = SNIPPETS[random.nextInt(SNIPPETS.length)];
+                            break;
+                        default:
+                            int from = random.nextInt(text.length() + 1);
+                            replacement = text.substring(from,
+                                    Math.min(from + random.nextInt(MAX_RANGE) + 1, text.length()));
+                            length = Math.min(random.nextInt(MAX_RANGE), text.length() - offset);
+                            break;
+                    }
+                    String replaced = text.substring(offset, offset + length);
+
+                    // The edit, and then the one that undoes it.
+                    String edit = describe(offset, length, replacement);
+                    long time = edit(compiler, file, offset, length, replacement, edit);
+                    long fullTime = time < 0 ? -1 : check(compiler, file, edit);
+                    if (fullTime < 0) {
+                        break;
+                    }
+                    editTime += time;
+                    compileTime += fullTime;
+                    edit = "undoing " + edit;
+                    time = edit(compiler, file, offset, replacement.length(), replaced, edit);
+                    fullTime = time < 0 ? -1 : check(compiler, file, edit);
+                    if (fullTime < 0) {
+                        break;
+                    }
+                    editTime += time;
+                    compileTime += fullTime;
+                    count += 2;
+                }
+            }
+            System.out.printf("%s: %d files, %d edits, %.3f ms per edit, %.3f ms per full " +
+                            "compilation%n", set, files.size(), count,
+                    editTime / 1e6 / Math.max(1, count), compileTime / 1e6 / Math.max(1, count));
+        }
+        if (failures > 0) {
+            System.out.println("The compiler itself failed after " + failures + " edit(s)");
+        }
+        if (mismatches > 0) {
+            System.out.println("Errors differed from those of a full compilation after " +
+                    mismatches + " edit(s)");
+            System.exit(1);
+        }
+        System.out.println("Errors matched those of a full compilation after every edit");
+    }
+
+    // Makes the given edit (described by the given string) with the given incremental compiler,
+    // and returns the time it took (ns); or returns -1 if the incremental compiler fails, and
+    // reports the edit unless a full compilation of the text fails too.
+    private static long edit(IncrementalCompiler compiler, String file, int offset, int length,
+                             String replacement, String edit) {
+        long start = System.nanoTime();
+        try {
+            compiler.edit(offset, length, replacement);
+        } catch (RuntimeException e) {
+            if (compile(file, compiler.text()) == null) {
+                failures++;
+            } else {
+                mismatches++;
+                if (mismatches <= MAX_REPORTED) {
+                    System.out.println(file + ": incremental compiler failed on " + edit);
+                    e.printStackTrace(System.out);
+                }
+            }
+            return -1;
+        }
+        return System.nanoTime() - start;
+    }
+
+    // Compiles the text of the given incremental compiler in full, reports the edit just made to
+    // it (described by the given string) if the errors differ from its own, and returns the time
+    // the full compilation took (ns); or returns -1 if the full compilation fails.
+    private static long check(IncrementalCompiler compiler, String file, String edit) {
+        long start = System.nanoTime();
+        JMinusMinusCompiler.Result result = compile(file, compiler.text());
+        long time = System.nanoTime() - start;
+        if (result == null) {
+            failures++;
+            return -1;
+        }
+        ArrayList<Diagnostic> expected = new ArrayList<Diagnostic>();
+        for (Diagnostic diagnostic : result.diagnostics()) {
+            if (diagnostic.kind() != Diagnostic.Kind.CODEGEN) {
+                expected.add(diagnostic);
+            }
+        }
+        ArrayList<Diagnostic> actual = compiler.diagnostics();
+        Collections.sort(expected, BY_LINE);
+        Collections.sort(actual, BY_LINE);
+        if (!expected.toString().equals(actual.toString())) {
+            mismatches++;
+            if (mismatches <= MAX_REPORTED) {
+                System.out.println(file + ": errors differ after " + edit);
+                System.out.println("  full compilation: " + expected);
+                System.out.println("  incremental:      " + actual);
+            }
+        }
+        return time;
+    }
+
+    // Compiles the given text of the named file in full, and returns the result, or null if the
+    // compiler fails.
+    private static JMinusMinusCompiler.Result compile(String file, String text) {
+        try {
+            return new JMinusMinusCompiler().compile(file, text);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Returns a description of the edit replacing the given range by the given string.
+    private static String describe(int offset, int length, String replacement) {
+        return "replacing [" + offset + ", " + (offset + length) + ") by \"" +
+                replacement.replace("\n", "\\n") + "\"";
+    }
+}
@@ -0,0 +1,120 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parser (and the scanner feeding it) of each front end (see FrontEnd): AST nodes
+ * built per second (the "nodes" counter), parsing every file of an input set (see
+ * BenchmarkInputs) per operation. Files with syntax errors are left out. FrontEndBenchmark
+ * compares the front ends on the same files.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+    /**
+     * The input set.
+     */
+    @Param({"jvm", "project", "large"})
+    public String inputs;
+
+    /**
+     * The front end.
+     */
+    @Param({"handwritten", "javacc"})
+    public String frontEnd;
+
+    // The source files of the input set that parse without errors.
+    private ArrayList<String> files;
+
+    // Number of AST nodes in the files.
+    private long nodes;
+
+    // The session the files are parsed in.
+    private Session session;
+
+    /**
+     * AST nodes built during an iteration.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        /**
+         * Number of AST nodes built.
+         */
+        public long nodes;
+
+        /**
+         * Resets the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    /**
+     * Finds the input files that parse, and counts the nodes in their ASTs.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        files = new ArrayList<String>();
+        nodes = 0;
+        session = BenchmarkInputs.quietSession();
+        Session previous = session.bind();
+        try {
+            for (String file : BenchmarkInputs.files(inputs)) {
+                JCompilationUnit ast = BenchmarkInputs.parse(file, frontEnd);
+                if (ast != null) {
+                    files.add(file);
+                    nodes += BenchmarkInputs.nodeCount(ast);
+                }
+            }
+        } finally {
+            session.unbind(previous);
+        }
+    }
+
+    /**
+     * Parses every file of the input set.
+     *
+     * @param counters the counters.
+     * @return the ASTs.
+     * @throws FileNotFoundException if an input file cannot be found.
+     */
+    @Benchmark
+    public ArrayList<JCompilationUnit> parse(Counters counters) throws FileNotFoundException {
+        Session previous = session.bind();
+        try {
+            ArrayList<JCompilationUnit> asts = new ArrayList<JCompilationUnit>();
+            for (String file : files) {
+                asts.add(FrontEnd.create(frontEnd, file, false, 1).compilationUnit());
+            }
+            counters.nodes += nodes;
+            return asts;
+        } finally {
+            session.unbind(previous);
+        }
+    }
+}
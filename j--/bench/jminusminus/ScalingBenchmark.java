@@ -0,0 +1,580 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Measures how compile time and peak heap grow with the size of the input, for programs of each
+ * of the shapes SourceGenerator generates, on the JVM path and on the SPIM path with each of the
+ * register allocators. For each shape, target, and size, the program is compiled (in memory for
+ * the SPIM path, to a scratch directory) a number of times, and the fastest run is kept: its
+ * wall time, CPU time, and allocation for each phase (as -timings reports them), and the peak
+ * heap during each step of the compilation.
+ * <p>
+ * For each shape and target, a line is fitted to each figure against the size on a log-log
+ * scale; its slope (the growth exponent) is about 1 for a phase that scales linearly, and about
+ * 2 for one that is quadratic. Phases whose time grows with an exponent above SUPERLINEAR are
+ * flagged. The results are printed, written to a JSON file, and plotted (as SVG, one plot per
+ * shape and target) to a directory.
+ * <p>
+ * Usage: java jminusminus.ScalingBenchmark [options], where the options are
+ * <pre>
+ *   -shapes &lt;s1,s2,...&gt;   shapes to generate (default: methods,long,nesting,switch)
+ *   -sizes &lt;n1,n2,...&gt;    sizes to generate (default: a doubling series for each shape)
+ *   -targets &lt;t1,t2,...&gt;  jvm, naive, linear, and/or graph (default: all four)
+ *   -runs &lt;n&gt;             runs per measurement, the fastest of which is kept (default: 3)
+ *   -o &lt;file&gt;            JSON results file (default: scaling-results.json)
+ *   -plots &lt;directory&gt;   directory for the SVG plots (default: scaling-plots)
+ * </pre>
+ * The SPIM path reads the SPIM runtime through the j environment variable, as bin/j-- does.
+ */
+class ScalingBenchmark {
+    /**
+     * Growth exponent above which a phase is flagged as superlinear.
+     */
+    public static final double SUPERLINEAR = 1.3;
+
+    // Figures below this (1 ms, or 1 MB) are too small to fit a growth exponent to.
+    private static final double NOISE_FLOOR = 1e6;
+
+    // Maps shapes to the sizes generated for them by default.
+    private static final HashMap<String, int[]> DEFAULT_SIZES = new HashMap<String, int[]>();
+
+    static {
+        DEFAULT_SIZES.put("methods", new int[] {500, 1000, 2000, 4000});
+        DEFAULT_SIZES.put("long", new int[] {500, 1000, 2000, 4000});
+        DEFAULT_SIZES.put("nesting", new int[] {25, 50, 100, 200});
+        DEFAULT_SIZES.put("switch", new int[] {500, 1000, 2000, 4000});
+    }
+
+    // The heap memory pools, for measuring peak heap.
+    private static final ArrayList<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+
+    static {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args the command-line arguments.
+     * @throws IOException if the programs or the results cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        String[] shapes = SourceGenerator.SHAPES;
+        int[] sizes = null;
+        String[] targets = {"jvm", "naive", "linear", "graph"};
+        int runs = 3;
+        String jsonFile = "scaling-results.json";
+        String plotDir = "scaling-plots";
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-shapes") && i + 1 < args.length) {
+                shapes = args[++i].split(",");
+            } else if (args[i].equals("-sizes") && i + 1 < args.length) {
+                String[] values = args[++i].split(",");
+                sizes = new int[values.length];
+                for (int j = 0; j < values.length; j++) {
+                    sizes[j] = Integer.parseInt(values[j]);
+                }
+            } else if (args[i].equals("-targets") && i + 1 < args.length) {
+                targets = args[++i].split(",");
+            } else if (args[i].equals("-runs") && i + 1 < args.length) {
+                runs = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                jsonFile = args[++i];
+            } else if (args[i].equals("-plots") && i + 1 < args.length) {
+                plotDir = args[++i];
+            } else {
+                System.err.println("Usage: java jminusminus.ScalingBenchmark [-shapes <s1,...>] " +
+                        "[-sizes <n1,...>] [-targets <t1,...>] [-runs <n>] [-o <file>] " +
+                        "[-plots <directory>]");
+                System.exit(1);
+            }
+        }
+
+        File work = Files.createTempDirectory("j--scaling").toFile();
+        ArrayList<Series> allSeries = new ArrayList<Series>();
+        for (String shape : shapes) {
+            int[] shapeSizes = sizes != null ? sizes : DEFAULT_SIZES.get(shape);
+            if (shapeSizes == null) {
+                System.err.println("Unknown shape " + shape);
+                System.exit(1);
+            }
+            ArrayList<ArrayList<String>> programs = new ArrayList<ArrayList<String>>();
+            for (int size : shapeSizes) {
+                File dir = new File(work, shape + size);
+                programs.add(new SourceGenerator(shape, size).generate(dir));
+            }
+            for (String target : targets) {
+                // Warm the compiler up on the smallest program, so the first measurement is not
+                // mostly class loading and interpretation.
+                for (int r = 0; r < runs; r++) {
+                    compile(programs.get(0), target, work);
+                }
+                Series series = new Series(shape, target);
+                for (int s = 0; s < shapeSizes.length; s++) {
+                    Measurement best = null;
+                    for (int r = 0; r < runs; r++) {
+                        Measurement m = compile(programs.get(s), target, work);
+                        if (best == null || m.failure != null || m.total() < best.total()) {
+                            best = m;
+                        }
+                        if (m.failure != null) {
+                            break;
+                        }
+                    }
+                    best.size = shapeSizes[s];
+                    best.lines = lines(programs.get(s));
+                    series.measurements.add(best);
+                    System.err.printf("%s %s %d: %s\n", shape, target, shapeSizes[s],
+                            best.failure != null ? best.failure :
+                                    String.format("%.1f ms", best.total() / 1e6));
+                }
+                allSeries.add(series);
+            }
+        }
+        delete(work);
+
+        for (Series series : allSeries) {
+            series.report(System.out);
+        }
+        writeJSON(allSeries, jsonFile);
+        new File(plotDir).mkdirs();
+        for (Series series : allSeries) {
+            series.plot(new File(plotDir, series.shape + "-" + series.target + ".svg"));
+        }
+        System.out.println("Results written to " + jsonFile + ", plots to " + plotDir);
+    }
+
+    // Compiles the given program for the given target (jvm, or a register allocation scheme for
+    // SPIM) in a fresh session, writing the output to the given directory, and returns the
+    // measurement.
+    private static Measurement compile(ArrayList<String> files, String target, File outputDir) {
+        Measurement m = new Measurement();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Session session = new Session(new PrintStream(OutputStream.nullOutputStream()),
+                new PrintStream(errors, true));
+        session.setTimings(new Timings(null));
+        Session previous = session.bind();
+        try {
+            boolean spim = !target.equals("jvm");
+            ArrayList<JCompilationUnit> asts = new ArrayList<JCompilationUnit>();
+            m.beginStep();
+            for (String file : files) {
+                LookaheadScanner scanner = new LookaheadScanner(file);
+                Timings.begin("parse");
+                Parser parser = new Parser(scanner);
+                asts.add(parser.compilationUnit());
+                Timings.end();
+                session.reportErrors(parser.errorHasOccurred());
+            }
+            m.endStep("parse");
+            if (!session.errorHasOccurred()) {
+                m.beginStep();
+                Timings.begin("preAnalyze");
+                JCompilationUnit.preAnalyze(asts);
+                Timings.end();
+                m.endStep("preAnalyze");
+            }
+            if (!session.errorHasOccurred()) {
+                m.beginStep();
+                for (JCompilationUnit ast : asts) {
+                    Timings.begin("analyze");
+                    ast.analyze(null);
+                    Timings.end();
+                    session.reportErrors(ast.errorHasOccurred());
+                }
+                m.endStep("analyze");
+            }
+            if (!session.errorHasOccurred()) {
+                m.beginStep();
+                for (JCompilationUnit ast : asts) {
+                    CLEmitter clEmitter = new CLEmitter(!spim);
+                    clEmitter.destinationDir(outputDir.getPath());
+                    Timings.begin("codegen");
+                    ast.codegen(clEmitter);
+                    Timings.end();
+                    session.reportErrors(clEmitter.errorHasOccurred());
+                }
+                m.endStep("codegen");
+            }
+            if (spim && !session.errorHasOccurred()) {
+                ArrayList<NEmitter> nEmitters = new ArrayList<NEmitter>();
+                m.beginStep();
+                for (JCompilationUnit ast : asts) {
+                    nEmitters.add(new NEmitter(ast.fileName(), ast.clFiles(), target));
+                }
+                m.endStep("spim");
+                m.beginStep();
+                for (NEmitter nEmitter : nEmitters) {
+                    nEmitter.destinationDir(outputDir.getPath());
+                    nEmitter.write();
+                    session.reportErrors(nEmitter.errorHasOccurred());
+                }
+                m.endStep("spim write");
+            }
+            if (session.errorHasOccurred()) {
+                m.failure = errors.toString().split("\n")[0];
+            }
+        } catch (IOException | RuntimeException | StackOverflowError | OutOfMemoryError e) {
+            m.failure = e.toString();
+        } finally {
+            session.unbind(previous);
+        }
+        m.phases = session.timings().phases();
+        return m;
+    }
+
+    // Returns the total number of lines in the given source files.
+    private static int lines(ArrayList<String> files) throws IOException {
+        int lines = 0;
+        for (String file : files) {
+            lines += Files.readAllLines(new File(file).toPath()).size();
+        }
+        return lines;
+    }
+
+    // Deletes the given file or directory, and everything in it.
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    // Writes the measurements of the given series to the given file in JSON format.
+    private static void writeJSON(ArrayList<Series> allSeries, String file) throws IOException {
+        PrintWriter out = new PrintWriter(file);
+        out.printf("{\n    \"series\": [");
+        String separator = "\n";
+        for (Series series : allSeries) {
+            out.printf("%s        {\n", separator);
+            out.printf("            \"shape\": \"%s\",\n", series.shape);
+            out.printf("            \"target\": \"%s\",\n", series.target);
+            out.printf("            \"exponents\": {");
+            String itemSeparator = "";
+            for (String phase : series.phases()) {
+                double exponent = series.exponent(phase, 0);
+                if (!Double.isNaN(exponent)) {
+                    out.printf("%s\"%s\": %.3f", itemSeparator, phase, exponent);
+                    itemSeparator = ", ";
+                }
+            }
+            out.printf("},\n            \"measurements\": [");
+            String measurementSeparator = "\n";
+            for (Measurement m : series.measurements) {
+                out.printf("%s                {\"size\": %d, \"lines\": %d, ", measurementSeparator,
+                        m.size, m.lines);
+                if (m.failure != null) {
+                    out.printf("\"failure\": \"%s\", ",
+                            m.failure.replace("\\", "\\\\").replace("\"", "\\\""));
+                }
+                out.printf("\"phases\": {");
+                itemSeparator = "";
+                for (String phase : m.phases.keySet()) {
+                    long[] figures = m.phases.get(phase);
+                    out.printf("%s\"%s\": {\"wallNanos\": %d, \"cpuNanos\": %d, " +
+                            "\"allocatedBytes\": %d}", itemSeparator, phase, figures[0],
+                            figures[1], figures[2]);
+                    itemSeparator = ", ";
+                }
+                out.printf("}, \"peakHeapBytes\": {");
+                itemSeparator = "";
+                for (String step : m.peakHeap.keySet()) {
+                    out.printf("%s\"%s\": %d", itemSeparator, step, m.peakHeap.get(step));
+                    itemSeparator = ", ";
+                }
+                out.printf("}}");
+                measurementSeparator = ",\n";
+            }
+            out.printf("\n            ]\n        }");
+            separator = ",\n";
+        }
+        out.printf("\n    ]\n}\n");
+        out.close();
+    }
+
+    // The figures for one compilation of a program.
+    private static class Measurement {
+        // Size of the program, and its number of lines.
+        private int size, lines;
+
+        // Maps phases to their wall time (ns), CPU time (ns), and bytes allocated.
+        private LinkedHashMap<String, long[]> phases = new LinkedHashMap<String, long[]>();
+
+        // Maps steps of the compilation to the peak heap (bytes) during them.
+        private LinkedHashMap<String, Long> peakHeap = new LinkedHashMap<String, Long>();
+
+        // Why the compilation failed, or null if it didn't.
+        private String failure;
+
+        // Returns the total wall time (ns) of the phases.
+        private long total() {
+            long total = 0;
+            for (long[] figures : phases.values()) {
+                total += figures[0];
+            }
+            return total;
+        }
+
+        // Collects garbage and resets the peak heap, at the beginning of a step.
+        private void beginStep() {
+            System.gc();
+            for (MemoryPoolMXBean pool : heapPools) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        // Records the peak heap during the given step, at its end.
+        private void endStep(String step) {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+            peakHeap.put(step, peak);
+        }
+    }
+
+    // The measurements for a shape and target, by size.
+    private static class Series {
+        // The shape and the target.
+        private String shape, target;
+
+        // The measurements, by increasing size.
+        private ArrayList<Measurement> measurements = new ArrayList<Measurement>();
+
+        // Constructs an empty series for the given shape and target.
+        private Series(String shape, String target) {
+            this.shape = shape;
+            this.target = target;
+        }
+
+        // Returns the names of the phases in the series (in the order they were first timed),
+        // followed by "total".
+        private ArrayList<String> phases() {
+            ArrayList<String> phases = new ArrayList<String>();
+            for (Measurement m : measurements) {
+                for (String phase : m.phases.keySet()) {
+                    if (!phases.contains(phase)) {
+                        phases.add(phase);
+                    }
+                }
+            }
+            phases.add("total");
+            return phases;
+        }
+
+        // Returns the names of the steps in the series.
+        private ArrayList<String> steps() {
+            ArrayList<String> steps = new ArrayList<String>();
+            for (Measurement m : measurements) {
+                for (String step : m.peakHeap.keySet()) {
+                    if (!steps.contains(step)) {
+                        steps.add(step);
+                    }
+                }
+            }
+            return steps;
+        }
+
+        // Returns the wall time (ns) of the given phase in the given measurement (0 if the phase
+        // did not run), or, for "total", that of all the phases.
+        private static double wallTime(Measurement m, String phase) {
+            if (phase.equals("total")) {
+                return m.total();
+            }
+            long[] figures = m.phases.get(phase);
+            return figures == null ? 0 : figures[0];
+        }
+
+        // Returns the peak heap (bytes) during the given step in the given measurement, or 0
+        // if the step did not run.
+        private static double peakHeap(Measurement m, String step) {
+            Long peak = m.peakHeap.get(step);
+            return peak == null ? 0 : peak;
+        }
+
+        // Returns the given figure (0 for the wall time of a phase, 1 for the peak heap during a
+        // step) in the given measurement.
+        private static double figure(Measurement m, String name, int kind) {
+            return kind == 0 ? wallTime(m, name) : peakHeap(m, name);
+        }
+
+        // Returns the growth exponent of the given figure (see figure()): the slope of the
+        // least-squares line through the log of the figure against the log of the size, over
+        // the measurements that succeeded and where the figure is above the noise floor; or NaN
+        // if there are fewer than two such measurements.
+        private double exponent(String name, int kind) {
+            int n = 0;
+            double sx = 0, sy = 0, sxx = 0, sxy = 0;
+            for (Measurement m : measurements) {
+                double y = figure(m, name, kind);
+                if (m.failure == null && y >= NOISE_FLOOR) {
+                    double lx = Math.log(m.size);
+                    double ly = Math.log(y);
+                    n++;
+                    sx += lx;
+                    sy += ly;
+                    sxx += lx * lx;
+                    sxy += lx * ly;
+                }
+            }
+            double d = n * sxx - sx * sx;
+            return n < 2 || d == 0 ? Double.NaN : (n * sxy - sx * sy) / d;
+        }
+
+        // Prints the series as a table: a column per size, a row per phase (wall time) and per
+        // step (peak heap), and the growth exponent of each row.
+        private void report(PrintStream out) {
+            out.printf("\n%s, %s\n", shape, target);
+            out.printf("%-22s", "size");
+            for (Measurement m : measurements) {
+                out.printf(" %10d", m.size);
+            }
+            out.printf(" %10s\n", "exponent");
+            out.printf("%-22s", "lines");
+            for (Measurement m : measurements) {
+                out.printf(" %10d", m.lines);
+            }
+            out.println();
+            boolean failed = true;
+            for (Measurement m : measurements) {
+                failed &= m.failure != null;
+            }
+            for (int kind = 0; kind < 2 && !failed; kind++) {
+                for (String name : kind == 0 ? phases() : steps()) {
+                    out.printf("%-22s", kind == 0 ? name + " (ms)" : "heap " + name + " (MB)");
+                    for (Measurement m : measurements) {
+                        if (m.failure != null) {
+                            out.printf(" %10s", "failed");
+                        } else {
+                            out.printf(" %10.1f", figure(m, name, kind) / (kind == 0 ? 1e6 :
+                                    1 << 20));
+                        }
+                    }
+                    double exponent = exponent(name, kind);
+                    if (!Double.isNaN(exponent)) {
+                        out.printf(" %10.2f", exponent);
+                        if (kind == 0 && exponent > SUPERLINEAR) {
+                            out.printf("  superlinear");
+                        }
+                    }
+                    out.println();
+                }
+            }
+            for (Measurement m : measurements) {
+                if (m.failure != null) {
+                    out.printf("size %d failed: %s\n", m.size, m.failure);
+                }
+            }
+        }
+
+        // Plots the series to the given SVG file: the wall time of each phase against the size
+        // on log-log axes, and below it, the peak heap during each step.
+        private void plot(File file) throws IOException {
+            PrintWriter out = new PrintWriter(file);
+            int width = 720, height = 360;
+            out.printf("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" " +
+                    "font-family=\"sans-serif\" font-size=\"11\">\n", width, 2 * height);
+            out.printf("<rect width=\"100%%\" height=\"100%%\" fill=\"white\"/>\n");
+            plotPanel(out, 0, width, height, 0, phases(), shape + ", " + target +
+                    ": wall time (ms) against size");
+            plotPanel(out, height, width, height, 1, steps(), shape + ", " + target +
+                    ": peak heap (MB) against size");
+            out.printf("</svg>\n");
+            out.close();
+        }
+
+        // Plots the given figures (see figure()) of the series to a panel at the given vertical
+        // offset.
+        private void plotPanel(PrintWriter out, int top, int width, int height, int kind,
+                               ArrayList<String> names, String title) {
+            String[] colors = {"#1f77b4", "#ff7f0e", "#2ca02c", "#d62728", "#9467bd", "#8c564b",
+                    "#e377c2", "#7f7f7f", "#bcbd22", "#17becf", "#000000", "#aec7e8"};
+            double scale = kind == 0 ? 1e6 : 1 << 20;
+            int left = 60, right = 170, margin = 30;
+            double minX = Double.MAX_VALUE, maxX = 0, minY = Double.MAX_VALUE, maxY = 0;
+            for (Measurement m : measurements) {
+                if (m.failure != null) {
+                    continue;
+                }
+                minX = Math.min(minX, m.size);
+                maxX = Math.max(maxX, m.size);
+                for (String name : names) {
+                    double y = figure(m, name, kind) / scale;
+                    if (y > 0) {
+                        minY = Math.min(minY, y);
+                        maxY = Math.max(maxY, y);
+                    }
+                }
+            }
+            out.printf("<text x=\"%d\" y=\"%d\" font-size=\"13\">%s</text>\n", left, top + 18,
+                    title);
+            if (maxX == 0 || maxY == 0) {
+                return;
+            }
+            double x0 = Math.floor(Math.log10(minX)), x1 = Math.ceil(Math.log10(maxX));
+            double y0 = Math.floor(Math.log10(minY)), y1 = Math.ceil(Math.log10(maxY));
+            x1 = Math.max(x1, x0 + 1);
+            y1 = Math.max(y1, y0 + 1);
+            double plotWidth = width - left - right, plotHeight = height - 2 * margin - 20;
+            double plotTop = top + margin + 10;
+            out.printf("<rect x=\"%d\" y=\"%.1f\" width=\"%.1f\" height=\"%.1f\" fill=\"none\" " +
+                    "stroke=\"#999\"/>\n", left, plotTop, plotWidth, plotHeight);
+            for (double d = x0; d <= x1; d++) {
+                double x = left + (d - x0) / (x1 - x0) * plotWidth;
+                out.printf("<text x=\"%.1f\" y=\"%.1f\" text-anchor=\"middle\">%s</text>\n", x,
+                        plotTop + plotHeight + 14, label(Math.pow(10, d)));
+            }
+            for (double d = y0; d <= y1; d++) {
+                double y = plotTop + plotHeight - (d - y0) / (y1 - y0) * plotHeight;
+                out.printf("<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%s</text>\n", left - 4,
+                        y + 4, label(Math.pow(10, d)));
+            }
+            for (int i = 0; i < names.size(); i++) {
+                String color = colors[i % colors.length];
+                String points = "";
+                for (Measurement m : measurements) {
+                    double y = figure(m, names.get(i), kind) / scale;
+                    if (m.failure == null && y > 0) {
+                        points += String.format("%.1f,%.1f ",
+                                left + (Math.log10(m.size) - x0) / (x1 - x0) * plotWidth,
+                                plotTop + plotHeight - (Math.log10(y) - y0) / (y1 - y0) *
+                                        plotHeight);
+                    }
+                }
+                out.printf("<polyline points=\"%s\" fill=\"none\" stroke=\"%s\" " +
+                        "stroke-width=\"2\"/>\n", points.trim(), color);
+                double exponent = exponent(names.get(i), kind);
+                out.printf("<text x=\"%.1f\" y=\"%.1f\" fill=\"%s\">%s%s</text>\n",
+                        left + plotWidth + 10, plotTop + 12 + 14 * i, color, names.get(i),
+                        Double.isNaN(exponent) ? "" : String.format(" (n^%.2f)", exponent));
+            }
+        }
+
+        // Returns a short label for the given power of 10.
+        private static String label(double value) {
+            return value >= 1 ? String.format("%.0f", value) : String.format("%s", value);
+        }
+    }
+}
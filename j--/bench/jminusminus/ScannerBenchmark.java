@@ -0,0 +1,102 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static jminusminus.TokenKind.*;
+
+/**
+ * Measures the scanner: tokens scanned per second (the "tokens" counter), scanning every file of
+ * an input set (see BenchmarkInputs) per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScannerBenchmark {
+    /**
+     * The input set.
+     */
+    @Param({"jvm", "project", "large"})
+    public String inputs;
+
+    // The source files of the input set.
+    private ArrayList<String> files;
+
+    // The session the files are scanned in.
+    private Session session;
+
+    /**
+     * Tokens scanned during an iteration.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        /**
+         * Number of tokens scanned.
+         */
+        public long tokens;
+
+        /**
+         * Resets the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    /**
+     * Finds the input files.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        files = BenchmarkInputs.files(inputs);
+        session = BenchmarkInputs.quietSession();
+    }
+
+    /**
+     * Scans every file of the input set.
+     *
+     * @param counters the counters.
+     * @return the number of tokens scanned.
+     * @throws FileNotFoundException if an input file cannot be found.
+     */
+    @Benchmark
+    public long scan(Counters counters) throws FileNotFoundException {
+        Session previous = session.bind();
+        try {
+            long tokens = 0;
+            for (String file : files) {
+                Scanner scanner = new Scanner(file);
+                while (scanner.getNextToken().kind() != EOF) {
+                    tokens++;
+                }
+                tokens++;
+            }
+            counters.tokens += tokens;
+            return tokens;
+        } finally {
+            session.unbind(previous);
+        }
+    }
+}
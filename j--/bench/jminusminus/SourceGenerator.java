@@ -0,0 +1,218 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/**
+ * Generates j-- programs of a given shape and size, for seeing how the compiler scales. The
+ * shapes are:
+ * <ul>
+ *   <li>"methods": size methods of moderate length, 64 to a class and a class to a file;</li>
+ *   <li>"long": a single method of size statements;</li>
+ *   <li>"nesting": a single method of loops nested size deep;</li>
+ *   <li>"switch": a single method with a switch statement of size cases.</li>
+ * </ul>
+ * The programs compile (with bin/j--, or with -s naive|linear|graph) and run, printing a number.
+ * Their statements are kept to the shapes the SPIM back end handles: it fails on conditionals
+ * with an else part, or nested in others, within loops.
+ * <p>
+ * Usage: java jminusminus.SourceGenerator &lt;shape&gt; &lt;size&gt; &lt;directory&gt;
+ */
+class SourceGenerator {
+    /**
+     * The shapes of programs that can be generated.
+     */
+    public static final String[] SHAPES = {"methods", "long", "nesting", "switch"};
+
+    // Number of methods per class for the "methods" shape.
+    private static final int METHODS_PER_CLASS = 64;
+
+    // Number of levels indented for the "nesting" shape; deeper levels are not indented
+    // further, so the program grows linearly with the depth.
+    private static final int MAX_INDENT = 8;
+
+    // The shape of the programs generated.
+    private String shape;
+
+    // The size of the programs generated.
+    private int size;
+
+    /**
+     * Constructs a generator of programs of the given shape and size.
+     *
+     * @param shape the shape: one of SHAPES.
+     * @param size  the size: the number of methods, statements, nesting levels, or cases.
+     */
+    public SourceGenerator(String shape, int size) {
+        boolean known = false;
+        for (String s : SHAPES) {
+            known |= s.equals(shape);
+        }
+        if (!known) {
+            throw new IllegalArgumentException("unknown shape " + shape);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        this.shape = shape;
+        this.size = size;
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args the command-line arguments: the shape, the size, and the directory to write
+     *             the program to.
+     * @throws IOException if the program cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: java jminusminus.SourceGenerator <shape> <size> " +
+                    "<directory>");
+            System.err.println("Where shape is one of: methods, long, nesting, switch");
+            System.exit(1);
+        }
+        SourceGenerator generator = new SourceGenerator(args[0], Integer.parseInt(args[1]));
+        for (String file : generator.generate(new File(args[2]))) {
+            System.out.println(file);
+        }
+    }
+
+    /**
+     * Writes the program to the given directory (creating it if need be), and returns the names
+     * of the source files written, in an order they can be compiled in.
+     *
+     * @param dir the directory.
+     * @return the names of the source files written.
+     * @throws IOException if the program cannot be written.
+     */
+    public ArrayList<String> generate(File dir) throws IOException {
+        dir.mkdirs();
+        ArrayList<String> files = new ArrayList<String>();
+        if (shape.equals("methods")) {
+            for (int i = 0; i * METHODS_PER_CLASS < size; i++) {
+                int methods = Math.min(METHODS_PER_CLASS, size - i * METHODS_PER_CLASS);
+                files.add(write(dir, "Methods" + i, methods, 0));
+            }
+        } else {
+            files.add(write(dir, Character.toUpperCase(shape.charAt(0)) + shape.substring(1), 1,
+                    size));
+        }
+        return files;
+    }
+
+    // Writes a class with the given name and number of methods to the given directory, and
+    // returns the name of the file written. For shapes other than "methods", the single method
+    // is of the given size.
+    private String write(File dir, String name, int methods, int size) throws IOException {
+        File file = new File(dir, name + ".java");
+        PrintWriter out = new PrintWriter(file);
+        out.printf("import jminusminus.SPIM;\n\n");
+        out.printf("public class %s {\n", name);
+        out.printf("    public static void main(String[] args) {\n");
+        out.printf("        SPIM.printInt(%s.m%d(10, 3));\n", name, methods - 1);
+        out.printf("    }\n");
+        for (int m = 0; m < methods; m++) {
+            out.printf("\n    private static int m%d(int n, int k) {\n", m);
+            out.printf("        int a = n;\n        int b = k;\n        int c = 0;\n");
+            out.printf("        int d = 1;\n        int e = n * k;\n        int i = 0;\n");
+            if (shape.equals("methods")) {
+                writeLoop(out, m);
+            } else if (shape.equals("long")) {
+                writeStatements(out, size);
+            } else if (shape.equals("nesting")) {
+                writeNesting(out, 0, size);
+            } else {
+                writeSwitch(out, size);
+            }
+            if (m > 0) {
+                out.printf("        return a + b + c + d + e + m%d(n - 1, k);\n", m - 1);
+            } else {
+                out.printf("        return a + b + c + d + e;\n");
+            }
+            out.printf("    }\n");
+        }
+        out.printf("}\n");
+        out.close();
+        return file.getPath();
+    }
+
+    // Writes the body of the m-th method of the "methods" shape: a conditional, then a loop
+    // with enough live locals to keep register allocation busy.
+    private static void writeLoop(PrintWriter out, int m) {
+        out.printf("        if (n == k) {\n");
+        out.printf("            c = a * b - d;\n");
+        out.printf("        } else {\n");
+        out.printf("            d = d + c * %d;\n", m + 1);
+        out.printf("        }\n");
+        out.printf("        while (n > i) {\n");
+        out.printf("            if (i == k) {\n");
+        out.printf("                c = c + a * b - d;\n");
+        out.printf("            }\n");
+        out.printf("            if (c > e) {\n");
+        out.printf("                e = e - a + b * c;\n");
+        out.printf("            }\n");
+        out.printf("            a = a + b + c + d + e;\n");
+        out.printf("            b = b * 2 - a;\n");
+        out.printf("            i = i + 1;\n");
+        out.printf("        }\n");
+    }
+
+    // Writes the given number of statements, cycling through assignments, conditionals, and
+    // short loops, for the "long" shape.
+    private static void writeStatements(PrintWriter out, int count) {
+        for (int s = 0; s < count; s++) {
+            switch (s % 4) {
+                case 0:
+                    out.printf("        a = a + b * %d;\n", s % 100);
+                    break;
+                case 1:
+                    out.printf("        if (a > b) {\n            b = b + %d;\n        }\n",
+                            s % 100);
+                    break;
+                case 2:
+                    out.printf("        i = k;\n        while (i > 0) {\n");
+                    out.printf("            c = c + a - i;\n            i = i - 1;\n");
+                    out.printf("        }\n");
+                    break;
+                default:
+                    out.printf("        e = e - c + d;\n");
+            }
+        }
+    }
+
+    // Writes loops nested the given number of levels deep, starting at the given level, for the
+    // "nesting" shape.
+    private static void writeNesting(PrintWriter out, int level, int depth) {
+        String indent = "        ";
+        for (int l = 0; l < Math.min(level, MAX_INDENT); l++) {
+            indent += "    ";
+        }
+        if (level == depth) {
+            out.printf("%sc = c + a * b;\n", indent);
+            return;
+        }
+        out.printf("%swhile (a > k) {\n", indent);
+        out.printf("%s    a = a - 1;\n", indent);
+        writeNesting(out, level + 1, depth);
+        out.printf("%s    b = b + a;\n", indent);
+        out.printf("%s}\n", indent);
+    }
+
+    // Writes a switch statement with the given number of cases, for the "switch" shape.
+    private static void writeSwitch(PrintWriter out, int cases) {
+        out.printf("        switch (n) {\n");
+        for (int c = 0; c < cases; c++) {
+            out.printf("            case %d:\n", c);
+            out.printf("                a = a + b * %d;\n", c % 100);
+            out.printf("                break;\n");
+        }
+        out.printf("            default:\n");
+        out.printf("                a = 0;\n");
+        out.printf("        }\n");
+    }
+}
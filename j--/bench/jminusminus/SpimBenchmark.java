@@ -0,0 +1,123 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the SPIM back end: methods translated and register allocated per second (the
+ * "methods" counter), with each of the register allocators. The JVM code for every file of an
+ * input set (see BenchmarkInputs) is generated once, up front; an operation translates all of it
+ * to SPIM, in memory. Files with errors, or that the back end fails on, are left out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpimBenchmark {
+    /**
+     * The input set.
+     */
+    @Param({"jvm", "project", "large"})
+    public String inputs;
+
+    /**
+     * The register allocation scheme.
+     */
+    @Param({"naive", "linear", "graph"})
+    public String allocator;
+
+    // The ASTs of the input files the back end succeeds on, with their class files.
+    private ArrayList<JCompilationUnit> asts;
+
+    // The session the class files are translated in.
+    private Session session;
+
+    // Number of methods in the class files.
+    private long methods;
+
+    /**
+     * Methods allocated during an iteration.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        /**
+         * Number of methods translated and register allocated.
+         */
+        public long methods;
+
+        /**
+         * Resets the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            methods = 0;
+        }
+    }
+
+    /**
+     * Generates the JVM code for the input files, and keeps that of the files the back end
+     * succeeds on.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        asts = new ArrayList<JCompilationUnit>();
+        methods = 0;
+        for (String file : BenchmarkInputs.files(inputs)) {
+            Session fileSession = BenchmarkInputs.quietSession();
+            Session previous = fileSession.bind();
+            try {
+                JCompilationUnit ast = BenchmarkInputs.compile(file);
+                if (ast != null && !new NEmitter(file, ast.clFiles(), allocator)
+                        .errorHasOccurred()) {
+                    asts.add(ast);
+                    methods += BenchmarkInputs.methodCount(ast.clFiles());
+                }
+            } catch (RuntimeException e) {
+                // The back end cannot handle the file.
+            } finally {
+                fileSession.unbind(previous);
+            }
+        }
+        session = BenchmarkInputs.quietSession();
+    }
+
+    /**
+     * Translates the JVM code for every file of the input set to SPIM.
+     *
+     * @param counters the counters.
+     * @return the emitters holding the SPIM code.
+     */
+    @Benchmark
+    public ArrayList<NEmitter> spim(Counters counters) {
+        Session previous = session.bind();
+        try {
+            ArrayList<NEmitter> emitters = new ArrayList<NEmitter>();
+            for (JCompilationUnit ast : asts) {
+                emitters.add(new NEmitter(ast.fileName(), ast.clFiles(), allocator));
+            }
+            counters.methods += methods;
+            return emitters;
+        } finally {
+            session.unbind(previous);
+        }
+    }
+}
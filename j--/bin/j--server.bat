@@ -0,0 +1,19 @@
+@echo off
+
+REM Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+REM
+REM Wrapper script for running the jminusminus.Server program, the j-- compile server.
+
+set BASE_DIR=%~dp0
+set j="%BASE_DIR%\..\..\"
+set JAVA=java
+set CPATH="%BASE_DIR%\..\lib\j--.jar;%BASE_DIR%\..\lib\spim.jar"
+if "%CLASSPATH%" == "" goto runApp
+set CPATH=%CPATH%;"%CLASSPATH%"
+
+:runApp
+%JAVA% -classpath %CPATH% jminusminus.Server %*
+
+set JAVA=
+set BASE_DIR=
+set CPATH=
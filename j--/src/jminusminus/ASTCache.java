@@ -0,0 +1,868 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A cache of parsed ASTs (Main's -cache option), kept in a directory across runs. The AST of a
+ * source file is kept (in the binary form written by ASTWriter) in a file named after a hash of
+ * the file's contents and of the compiler itself, so a later run compiling the same contents
+ * with the same compiler reads the AST back (with ASTReader) rather than scanning and parsing
+ * the file again. Any change to the source file or to the compiler makes for a different name;
+ * stale entries are simply never read again.
+ * <p>
+ * Only ASTs parsed without syntax errors are kept, as reading a cached AST reports nothing.
+ */
+class ASTCache {
+    // Version of the format of the cached ASTs. It is part of every hash, so bumping it (as
+    // must be done whenever the format or the ASTs the parser builds change) invalidates all the
+    // entries.
+    private static final int FORMAT_VERSION = 2;
+
+    // Magic number that cached ASTs start with.
+    private static final int MAGIC = 0x4a2d2d41;
+
+    // Suffix of the names of the files that cached ASTs are kept in.
+    private static final String SUFFIX = ".jast";
+
+    // Hash of the compiler's version, computed once.
+    private static byte[] compilerVersion;
+
+    // The directory the ASTs are kept in.
+    private String directory;
+
+    /**
+     * Constructs an ASTCache keeping ASTs in the given directory, which is created when the
+     * first AST is stored.
+     *
+     * @param directory the directory.
+     */
+    public ASTCache(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the key the AST of the given source file is cached under, or null if the file
+     * cannot be read. The session holds the contents the key is computed from (see
+     * Session.holdSource()), and the front end parses those, so that an AST is never cached under
+     * the key of contents it was not parsed from, even if the file changes in the meantime.
+     *
+     * @param fileName name of the source file.
+     * @return the key for the source file, or null.
+     */
+    public String key(String fileName) {
+        byte[] bytes;
+        try {
+            bytes = Session.current().holdSource(fileName).toString()
+                    .getBytes(StandardCharsets.UTF_8);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(compilerVersion());
+            digest.update(bytes);
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the AST cached under the given key, for the given source file, or null if there is
+     * none (or it cannot be read).
+     *
+     * @param key      the key (see key()), or null.
+     * @param fileName name of the source file.
+     * @return the AST, or null.
+     */
+    public JCompilationUnit load(String key, String fileName) {
+        if (key == null) {
+            return null;
+        }
+        File file = file(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            ASTReader in = new ASTReader(Files.readAllBytes(file.toPath()), fileName);
+            return in.readInt() == MAGIC ? in.compilationUnit() : null;
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // A damaged entry; it is parsed over and replaced.
+            return null;
+        }
+    }
+
+    /**
+     * Caches the given AST under the given key, unless a syntax error has occurred in it. A
+     * skimmed AST is parsed in full in the process.
+     *
+     * @param key the key (see key()), or null.
+     * @param ast the AST.
+     */
+    public void store(String key, JCompilationUnit ast) {
+        if (key == null || ast.errorHasOccurred()) {
+            return;
+        }
+        ASTWriter out = new ASTWriter();
+        out.writeInt(MAGIC);
+        out.writeNode(ast);
+        if (ast.errorHasOccurred()) {
+            return;
+        }
+
+        // Write to a file of its own first, so that runs sharing the cache never read an entry
+        // that is only partly written.
+        File file = file(key);
+        File temporary = null;
+        try {
+            file.getParentFile().mkdirs();
+            temporary = File.createTempFile(key, ".tmp", file.getParentFile());
+            FileOutputStream stream = new FileOutputStream(temporary);
+            stream.write(out.toByteArray());
+            stream.close();
+            if (!temporary.renameTo(file)) {
+                temporary.delete();
+            }
+        } catch (IOException e) {
+            if (temporary != null) {
+                temporary.delete();
+            }
+            Session.current().err().printf("Error: Cannot write to file %s\n", file);
+        }
+    }
+
+    // Returns the file the AST with the given key is cached in.
+    private File file(String key) {
+        return Session.current().file(directory + File.separator + key + SUFFIX);
+    }
+
+    // Returns a hash of the format version and the code of the compiler classes that decide the
+    // ASTs cached.
+    private static synchronized byte[] compilerVersion() throws NoSuchAlgorithmException {
+        if (compilerVersion == null) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) FORMAT_VERSION);
+            for (File file : compilerFiles()) {
+                try {
+                    digest.update(file.getName().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(file.toPath()));
+                } catch (IOException e) {
+                    // Leave the file out.
+                }
+            }
+            compilerVersion = digest.digest();
+        }
+        return compilerVersion;
+    }
+
+    // Returns the files the compiler is loaded from, in a fixed order: the jar file, or, if it is
+    // loaded from a directory, all the class files of this package. Every class takes part in
+    // deciding the ASTs cached (the parser builds them, and their constructors and writeTo()
+    // methods make up the format), so any change to any of them must make for a new version.
+    private static ArrayList<File> compilerFiles() {
+        ArrayList<File> files = new ArrayList<File>();
+        try {
+            File location = new File(ASTCache.class.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI());
+            if (location.isFile()) {
+                files.add(location);
+            } else {
+                File[] classFiles = new File(location, "jminusminus").listFiles();
+                if (classFiles != null) {
+                    Arrays.sort(classFiles);
+                    for (File file : classFiles) {
+                        if (file.getName().endsWith(".class")) {
+                            files.add(file);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // The compiler's location is unknown (or not a file); only the format version then
+            // tells versions apart.
+        }
+        return files;
+    }
+}
+
+/**
+ * A writer of ASTs in a compact binary form, for ASTReader to rebuild them from; see
+ * JAST.writeTo(). Ints are written in as few bytes as they fit in, and each distinct string
+ * (identifier, literal, or the name of an AST node class) in full only once, and as a reference
+ * to the first occurrence after that.
+ */
+class ASTWriter {
+    /**
+     * The (shared) types the parser builds ASTs with, written as their index in this array.
+     */
+    static final Type[] BUILTIN_TYPES = {Type.INT, Type.LONG, Type.DOUBLE, Type.CHAR,
+            Type.BOOLEAN, Type.STRING, Type.OBJECT, Type.VOID, Type.ANY, Type.CONSTRUCTOR,
+            Type.NULLTYPE};
+
+    // Kinds of the types written.
+    static final int NO_TYPE = 0, TYPE_NAME = 1, ARRAY_TYPE_NAME = 2, BUILTIN_TYPE = 3;
+
+    // The bytes written.
+    private ByteArrayOutputStream out;
+
+    // Maps the strings written to their indices, in the order of their first occurrence.
+    private HashMap<String, Integer> strings;
+
+    /**
+     * Constructs an empty ASTWriter.
+     */
+    public ASTWriter() {
+        out = new ByteArrayOutputStream(1 << 12);
+        strings = new HashMap<String, Integer>();
+    }
+
+    /**
+     * Returns the bytes written.
+     *
+     * @return the bytes written.
+     */
+    public byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes an int.
+     *
+     * @param value the int.
+     */
+    public void writeInt(int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes a boolean.
+     *
+     * @param value the boolean.
+     */
+    public void writeBoolean(boolean value) {
+        out.write(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a string, which may be null.
+     *
+     * @param value the string.
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeInt(0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeInt(index + 2);
+            return;
+        }
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(1);
+        writeInt(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes a list of strings, which may be null.
+     *
+     * @param values the strings.
+     */
+    public void writeStrings(ArrayList<String> values) {
+        if (values == null) {
+            writeInt(0);
+            return;
+        }
+        writeInt(values.size() + 1);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    /**
+     * Writes a type, which may be null, as the parser builds it.
+     *
+     * @param type the type.
+     */
+    public void writeType(Type type) {
+        if (type == null) {
+            writeInt(NO_TYPE);
+        } else if (type instanceof TypeName) {
+            writeInt(TYPE_NAME);
+            writeInt(((TypeName) type).line());
+            writeString(type.toString());
+        } else if (type instanceof ArrayTypeName) {
+            writeInt(ARRAY_TYPE_NAME);
+            writeType(type.componentType());
+        } else {
+            for (int i = 0; i < BUILTIN_TYPES.length; i++) {
+                if (type == BUILTIN_TYPES[i]) {
+                    writeInt(BUILTIN_TYPE + i);
+                    return;
+                }
+            }
+            throw new IllegalStateException("Type " + type + " cannot be cached");
+        }
+    }
+
+    /**
+     * Writes a list of types, which may be null.
+     *
+     * @param types the types.
+     */
+    public void writeTypes(ArrayList<? extends Type> types) {
+        if (types == null) {
+            writeInt(0);
+            return;
+        }
+        writeInt(types.size() + 1);
+        for (Type type : types) {
+            writeType(type);
+        }
+    }
+
+    /**
+     * Writes an ambiguous name, which may be null.
+     *
+     * @param name the ambiguous name.
+     */
+    public void writeAmbiguousName(AmbiguousName name) {
+        if (name == null) {
+            writeString(null);
+            return;
+        }
+        writeString(name.toString());
+        writeInt(name.line());
+    }
+
+    /**
+     * Writes the tag that starts an AST node: the name of the node's class, and its line.
+     *
+     * @param name name of the node's class.
+     * @param line line of the node.
+     */
+    public void writeTag(String name, int line) {
+        writeString(name);
+        writeInt(line);
+    }
+
+    /**
+     * Writes an AST node, which may be null.
+     *
+     * @param node the node.
+     */
+    public void writeNode(JAST node) {
+        if (node == null) {
+            writeString(null);
+        } else {
+            node.writeTo(this);
+        }
+    }
+
+    /**
+     * Writes a list of AST nodes, which may be null. The nodes may be null, too.
+     *
+     * @param nodes the nodes.
+     */
+    public void writeNodes(ArrayList<?> nodes) {
+        if (nodes == null) {
+            writeInt(0);
+            return;
+        }
+        writeInt(nodes.size() + 1);
+        for (Object node : nodes) {
+            writeNode((JAST) node);
+        }
+    }
+}
+
+/**
+ * A reader of ASTs written by ASTWriter, which rebuilds them just as the parser builds them.
+ */
+class ASTReader {
+    // The bytes read from.
+    private byte[] bytes;
+
+    // Offset of the next byte to read.
+    private int pos;
+
+    // Name of the source file the AST was parsed from.
+    private String fileName;
+
+    // The strings read, in the order of their first occurrence.
+    private ArrayList<String> strings;
+
+    /**
+     * Constructs an ASTReader reading from the given bytes the AST of the given source file.
+     *
+     * @param bytes    the bytes.
+     * @param fileName name of the source file.
+     */
+    public ASTReader(byte[] bytes, String fileName) {
+        this.bytes = bytes;
+        this.fileName = fileName;
+        pos = 0;
+        strings = new ArrayList<String>();
+    }
+
+    /**
+     * Reads and returns a compilation unit, which must make up the rest of the bytes.
+     *
+     * @return the compilation unit.
+     */
+    public JCompilationUnit compilationUnit() {
+        JAST ast = readNode();
+        if (!(ast instanceof JCompilationUnit) || pos != bytes.length) {
+            throw new IllegalStateException("Not a compilation unit");
+        }
+        return (JCompilationUnit) ast;
+    }
+
+    /**
+     * Reads and returns an int.
+     *
+     * @return the int.
+     */
+    public int readInt() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = bytes[pos++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Reads and returns a boolean.
+     *
+     * @return the boolean.
+     */
+    public boolean readBoolean() {
+        return bytes[pos++] != 0;
+    }
+
+    /**
+     * Reads and returns a string, which may be null. Strings are interned, as the scanner's
+     * identifiers are (see NameTable).
+     *
+     * @return the string.
+     */
+    public String readString() {
+        int index = readInt();
+        if (index == 0) {
+            return null;
+        }
+        if (index > 1) {
+            return strings.get(index - 2);
+        }
+        int length = readInt();
+        String value = new String(bytes, pos, length, StandardCharsets.UTF_8).intern();
+        pos += length;
+        strings.add(value);
+        return value;
+    }
+
+    /**
+     * Reads and returns a list of strings, which may be null.
+     *
+     * @return the strings.
+     */
+    public ArrayList<String> readStrings() {
+        int size = readInt() - 1;
+        if (size < 0) {
+            return null;
+        }
+        ArrayList<String> values = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    /**
+     * Reads and returns a type, which may be null.
+     *
+     * @return the type.
+     */
+    public Type readType() {
+        int kind = readInt();
+        switch (kind) {
+            case ASTWriter.NO_TYPE:
+                return null;
+            case ASTWriter.TYPE_NAME:
+                int line = readInt();
+                return new TypeName(line, readString());
+            case ASTWriter.ARRAY_TYPE_NAME:
+                return new ArrayTypeName(readType());
+            default:
+                return ASTWriter.BUILTIN_TYPES[kind - ASTWriter.BUILTIN_TYPE];
+        }
+    }
+
+    /**
+     * Reads and returns a list of types, which may be null.
+     *
+     * @param <T> the type of the types.
+     * @return the types.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Type> ArrayList<T> readTypes() {
+        int size = readInt() - 1;
+        if (size < 0) {
+            return null;
+        }
+        ArrayList<T> types = new ArrayList<T>(size);
+        for (int i = 0; i < size; i++) {
+            types.add((T) readType());
+        }
+        return types;
+    }
+
+    /**
+     * Reads and returns an ambiguous name, which may be null.
+     *
+     * @return the ambiguous name.
+     */
+    public AmbiguousName readAmbiguousName() {
+        String name = readString();
+        return name == null ? null : new AmbiguousName(readInt(), name);
+    }
+
+    /**
+     * Reads and returns a list of AST nodes, which may be null.
+     *
+     * @param <T> the type of the nodes.
+     * @return the nodes.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ArrayList<T> readNodes() {
+        int size = readInt() - 1;
+        if (size < 0) {
+            return null;
+        }
+        ArrayList<T> nodes = new ArrayList<T>(size);
+        for (int i = 0; i < size; i++) {
+            nodes.add((T) readNode());
+        }
+        return nodes;
+    }
+
+    /**
+     * Reads and returns an AST node, which may be null.
+     *
+     * @return the node.
+     */
+    public JAST readNode() {
+        String name = readString();
+        if (name == null) {
+            return null;
+        }
+        int line = readInt();
+        switch (name) {
+            case "JCompilationUnit": {
+                TypeName packageName = (TypeName) readType();
+                ArrayList<TypeName> imports = readTypes();
+                ArrayList<JAST> typeDeclarations = readNodes();
+                return new JCompilationUnit(fileName, line, packageName, imports,
+                        typeDeclarations);
+            }
+            case "JClassDeclaration": {
+                ArrayList<String> mods = readStrings();
+                String className = readString();
+                Type superType = readType();
+                ArrayList<JMember> classBlock = readNodes();
+                ArrayList<Type> impl = readTypes();
+                return new JClassDeclaration(line, mods, className, superType, classBlock, impl);
+            }
+            case "JInterfaceDeclaration": {
+                ArrayList<String> mods = readStrings();
+                String interfaceName = readString();
+                ArrayList<Type> identifiers = readTypes();
+                ArrayList<JMember> interfaceBlocks = readNodes();
+                return new JInterfaceDeclaration(line, mods, interfaceName, identifiers,
+                        interfaceBlocks);
+            }
+            case "JMethodDeclaration": {
+                ArrayList<String> mods = readStrings();
+                String methodName = readString();
+                Type returnType = readType();
+                ArrayList<JFormalParameter> params = readNodes();
+                JBlock body = (JBlock) readNode();
+                ArrayList<Type> exceptions = readTypes();
+                return new JMethodDeclaration(line, mods, methodName, returnType, params, body,
+                        exceptions);
+            }
+            case "JConstructorDeclaration": {
+                ArrayList<String> mods = readStrings();
+                String constructorName = readString();
+                ArrayList<JFormalParameter> params = readNodes();
+                JBlock body = (JBlock) readNode();
+                ArrayList<Type> exceptions = readTypes();
+                return new JConstructorDeclaration(line, mods, constructorName, params, body,
+                        exceptions);
+            }
+            case "JFieldDeclaration": {
+                ArrayList<String> mods = readStrings();
+                ArrayList<JVariableDeclarator> decls = readNodes();
+                return new JFieldDeclaration(line, mods, decls);
+            }
+            case "JFormalParameter": {
+                String parameterName = readString();
+                return new JFormalParameter(line, parameterName, readType());
+            }
+            case "JBlock":
+                return new JBlock(line, this.<JStatement>readNodes());
+            case "JVariableDeclaration":
+                return new JVariableDeclaration(line, this.<JVariableDeclarator>readNodes());
+            case "JVariableDeclarator": {
+                String variableName = readString();
+                Type type = readType();
+                return new JVariableDeclarator(line, variableName, type,
+                        (JExpression) readNode());
+            }
+            case "JIfStatement": {
+                JExpression condition = (JExpression) readNode();
+                JStatement thenPart = (JStatement) readNode();
+                return new JIfStatement(line, condition, thenPart, (JStatement) readNode());
+            }
+            case "JWhileStatement": {
+                JExpression condition = (JExpression) readNode();
+                return new JWhileStatement(line, condition, (JStatement) readNode());
+            }
+            case "JDoStatement": {
+                JExpression condition = (JExpression) readNode();
+                return new JDoStatement(line, condition, (JStatement) readNode());
+            }
+            case "JForStatement": {
+                ArrayList<JStatement> inits = readNodes();
+                JExpression condition = (JExpression) readNode();
+                ArrayList<JStatement> updates = readNodes();
+                return new JForStatement(line, inits, condition, updates,
+                        (JStatement) readNode());
+            }
+            case "JSwitchStatement": {
+                JExpression condition = (JExpression) readNode();
+                int size = readInt();
+                ArrayList<SwitchBlockStatementGroup> switchGroups =
+                        new ArrayList<SwitchBlockStatementGroup>(size);
+                for (int i = 0; i < size; i++) {
+                    ArrayList<JExpression> switchLabels = readNodes();
+                    switchGroups.add(new SwitchBlockStatementGroup(switchLabels,
+                            this.<JStatement>readNodes()));
+                }
+                return new JSwitchStatement(line, condition, switchGroups);
+            }
+            case "JTryStatement": {
+                JBlock tryBlock = (JBlock) readNode();
+                ArrayList<JFormalParameter> catchParams = readNodes();
+                ArrayList<JBlock> catchBlocks = readNodes();
+                return new JTryStatement(line, tryBlock, catchParams, catchBlocks,
+                        (JBlock) readNode());
+            }
+            case "JReturnStatement":
+                return new JReturnStatement(line, (JExpression) readNode());
+            case "JThrowStatement":
+                return new JThrowStatement(line, (JExpression) readNode());
+            case "JBreakStatement":
+                return new JBreakStatement(line);
+            case "JContinueStatement":
+                return new JContinueStatement(line);
+            case "JEmptyStatement":
+                return new JEmptyStatement(line);
+            case "JStatementExpression": {
+                JExpression expr = (JExpression) readNode();
+                expr.isStatementExpression = readBoolean();
+                return new JStatementExpression(line, expr);
+            }
+            case "JConditionalExpression": {
+                JExpression condition = (JExpression) readNode();
+                JExpression thenPart = (JExpression) readNode();
+                return new JConditionalExpression(line, condition, thenPart,
+                        (JExpression) readNode());
+            }
+            case "JInstanceOfOp": {
+                JExpression expr = (JExpression) readNode();
+                return new JInstanceOfOp(line, expr, readType());
+            }
+            case "JCastOp": {
+                Type cast = readType();
+                return new JCastOp(line, cast, (JExpression) readNode());
+            }
+            case "JArrayExpression": {
+                JExpression theArray = (JExpression) readNode();
+                return new JArrayExpression(line, theArray, (JExpression) readNode());
+            }
+            case "JArrayInitializer": {
+                Type type = readType();
+                return new JArrayInitializer(line, type, this.<JExpression>readNodes());
+            }
+            case "JFieldSelection": {
+                AmbiguousName ambiguousPart = readAmbiguousName();
+                JExpression target = (JExpression) readNode();
+                return new JFieldSelection(line, ambiguousPart, target, readString());
+            }
+            case "JMessageExpression": {
+                JExpression target = (JExpression) readNode();
+                AmbiguousName ambiguousPart = readAmbiguousName();
+                String messageName = readString();
+                return new JMessageExpression(line, target, ambiguousPart, messageName,
+                        this.<JExpression>readNodes());
+            }
+            case "JNewOp": {
+                Type type = readType();
+                return new JNewOp(line, type, this.<JExpression>readNodes());
+            }
+            case "JNewArrayOp": {
+                Type typeSpec = readType();
+                return new JNewArrayOp(line, typeSpec, this.<JExpression>readNodes());
+            }
+            case "JSuperConstruction":
+                return new JSuperConstruction(line, this.<JExpression>readNodes());
+            case "JThisConstruction":
+                return new JThisConstruction(line, this.<JExpression>readNodes());
+            case "JSuper":
+                return new JSuper(line);
+            case "JThis":
+                return new JThis(line);
+            case "JVariable":
+                return new JVariable(line, readString());
+            case "JWildExpression":
+                return new JWildExpression(line);
+            case "JLiteralBoolean":
+                return new JLiteralBoolean(line, readString());
+            case "JLiteralChar":
+                return new JLiteralChar(line, readString());
+            case "JLiteralDouble":
+                return new JLiteralDouble(line, readString());
+            case "JLiteralInt":
+                return new JLiteralInt(line, readString());
+            case "JLiteralLong":
+                return new JLiteralLong(line, readString());
+            case "JLiteralNull":
+                return new JLiteralNull(line);
+            case "JLiteralString":
+                return new JLiteralString(line, readString());
+            default:
+                return unaryOrBinaryExpression(name, line);
+        }
+    }
+
+    // Reads and returns the unary or binary expression (including assignment) whose node class
+    // has the given name.
+    private JExpression unaryOrBinaryExpression(String name, int line) {
+        JExpression operand = (JExpression) readNode();
+        switch (name) {
+            case "JLogicalNotOp":
+                return new JLogicalNotOp(line, operand);
+            case "JUnaryPlusOp":
+                return new JUnaryPlusOp(line, operand);
+            case "JComplementOp":
+                return new JComplementOp(line, operand);
+            case "JNegateOp":
+                return new JNegateOp(line, operand);
+            case "JPreIncrementOp":
+                return new JPreIncrementOp(line, operand);
+            case "JPreDecrementOp":
+                return new JPreDecrementOp(line, operand);
+            case "JPostIncrementOp":
+                return new JPostIncrementOp(line, operand);
+            case "JPostDecrementOp":
+                return new JPostDecrementOp(line, operand);
+        }
+        JExpression lhs = operand;
+        JExpression rhs = (JExpression) readNode();
+        switch (name) {
+            case "JAssignOp":
+                return new JAssignOp(line, lhs, rhs);
+            case "JPlusAssignOp":
+                return new JPlusAssignOp(line, lhs, rhs);
+            case "JMinusAssignOp":
+                return new JMinusAssignOp(line, lhs, rhs);
+            case "JStarAssignOp":
+                return new JStarAssignOp(line, lhs, rhs);
+            case "JDivAssignOp":
+                return new JDivAssignOp(line, lhs, rhs);
+            case "JRemAssignOp":
+                return new JRemAssignOp(line, lhs, rhs);
+            case "JOrAssignOp":
+                return new JOrAssignOp(line, lhs, rhs);
+            case "JAndAssignOp":
+                return new JAndAssignOp(line, lhs, rhs);
+            case "JXorAssignOp":
+                return new JXorAssignOp(line, lhs, rhs);
+            case "JALeftShiftAssignOp":
+                return new JALeftShiftAssignOp(line, lhs, rhs);
+            case "JARightShiftAssignOp":
+                return new JARightShiftAssignOp(line, lhs, rhs);
+            case "JLRightShiftAssignOp":
+                return new JLRightShiftAssignOp(line, lhs, rhs);
+            case "JLogicalOrOp":
+                return new JLogicalOrOp(line, lhs, rhs);
+            case "JLogicalAndOp":
+                return new JLogicalAndOp(line, lhs, rhs);
+            case "JOrOp":
+                return new JOrOp(line, lhs, rhs);
+            case "JXorOp":
+                return new JXorOp(line, lhs, rhs);
+            case "JAndOp":
+                return new JAndOp(line, lhs, rhs);
+            case "JEqualOp":
+                return new JEqualOp(line, lhs, rhs);
+            case "JNotEqualOp":
+                return new JNotEqualOp(line, lhs, rhs);
+            case "JGreaterThanOp":
+                return new JGreaterThanOp(line, lhs, rhs);
+            case "JGreaterEqualOp":
+                return new JGreaterEqualOp(line, lhs, rhs);
+            case "JLessThanOp":
+                return new JLessThanOp(line, lhs, rhs);
+            case "JLessEqualOp":
+                return new JLessEqualOp(line, lhs, rhs);
+            case "JALeftShiftOp":
+                return new JALeftShiftOp(line, lhs, rhs);
+            case "JARightShiftOp":
+                return new JARightShiftOp(line, lhs, rhs);
+            case "JLRightShiftOp":
+                return new JLRightShiftOp(line, lhs, rhs);
+            case "JPlusOp":
+                return new JPlusOp(line, lhs, rhs);
+            case "JSubtractOp":
+                return new JSubtractOp(line, lhs, rhs);
+            case "JMultiplyOp":
+                return new JMultiplyOp(line, lhs, rhs);
+            case "JDivideOp":
+                return new JDivideOp(line, lhs, rhs);
+            case "JRemainderOp":
+                return new JRemainderOp(line, lhs, rhs);
+            default:
+                throw new IllegalStateException("Unknown AST node " + name);
+        }
+    }
+}
@@ -27,6 +27,15 @@ class AmbiguousName {
         this.name = name;
     }
 
+    /**
+     * Returns the line in which the ambiguous name occurs in the source file.
+     *
+     * @return the line in which the ambiguous name occurs in the source file.
+     */
+    public int line() {
+        return line;
+    }
+
     /**
      * Reclassifies the name according to the rules in the Java Language Specification, and
      * returns an AST for it.
@@ -48,7 +57,7 @@ class AmbiguousName {
                 break;
             } else if (!st.hasMoreTokens()) {
                 // Nothing found. :(
-                JAST.compilationUnit.reportSemanticError(line, "Cannot find name " + newName);
+                JAST.compilationUnit().reportSemanticError(line, "Cannot find name " + newName);
                 return null;
             } else {
                 newName += "." + st.nextToken();
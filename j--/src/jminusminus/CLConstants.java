@@ -166,6 +166,36 @@ public class CLConstants {
      */
     public static final short CONSTANT_NameAndType = 12;
 
+    /**
+     * Identifies CONSTANT_MethodHandle_info constant pool structure.
+     */
+    public static final short CONSTANT_MethodHandle = 15;
+
+    /**
+     * Identifies CONSTANT_MethodType_info constant pool structure.
+     */
+    public static final short CONSTANT_MethodType = 16;
+
+    /**
+     * Identifies CONSTANT_Dynamic_info constant pool structure.
+     */
+    public static final short CONSTANT_Dynamic = 17;
+
+    /**
+     * Identifies CONSTANT_InvokeDynamic_info constant pool structure.
+     */
+    public static final short CONSTANT_InvokeDynamic = 18;
+
+    /**
+     * Identifies CONSTANT_Module_info constant pool structure.
+     */
+    public static final short CONSTANT_Module = 19;
+
+    /**
+     * Identifies CONSTANT_Package_info constant pool structure.
+     */
+    public static final short CONSTANT_Package = 20;
+
     /**
      * Identifies ConstantValue attribute.
      */
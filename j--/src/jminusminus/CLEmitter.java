@@ -3,7 +3,6 @@
 package jminusminus;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -23,10 +22,9 @@ import static jminusminus.CLConstants.*;
  * This class provides a high level interface for creating (in-memory and file based)
  * representation of Java classes.
  * <p>
- * j-- uses this interface to produce target JVM bytecode from a j-- source program. During the
- * pre-analysis and analysis phases, j-- produces partial (in-memory) classes for the type
- * declarations within the compilation unit, and during the code generation phase, it produces
- * file-based classes for the declarations.
+ * j-- uses this interface to produce target JVM bytecode from a j-- source program: during the
+ * code generation phase, it produces file-based classes for the type declarations within the
+ * compilation unit.
  */
 public class CLEmitter {
     // Name of the class.
@@ -115,9 +113,6 @@ public class CLEmitter {
     // Whether an error occurred while creating/writing the class.
     private boolean errorHasOccurred;
 
-    // Class loader to use for creating in-memory representation of classes from byte streams.
-    private static ByteClassLoader byteClassLoader;
-
     /**
      * Constructs a CLEmitter instance given a boolean on whether or not the class file will be
      * written to the file system.
@@ -952,13 +947,6 @@ public class CLEmitter {
         return constantPool;
     }
 
-    /**
-     * Sets a new ByteClassLoader for loading classes from byte streams.
-     */
-    public static void initializeByteClassLoader() {
-        byteClassLoader = new ByteClassLoader();
-    }
-
     /**
      * Returns the CLFile instance corresponding to the class built by this emitter.
      *
@@ -968,57 +956,44 @@ public class CLEmitter {
         return clFile;
     }
 
-    /**
-     * Returns the class being constructed as a Java Class instance.
-     *
-     * @return Java Class instance.
-     */
-    public Class toClass() {
-        endOpenMethodIfAny();
-        Class theClass = null;
-        try {
-            // Extract the bytes from the class representation in memory into an array of bytes.
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            CLOutputStream out = new CLOutputStream(new BufferedOutputStream(byteStream));
-            clFile.write(out);
-            out.close();
-            byte[] classBytes = byteStream.toByteArray();
-            byteStream.close();
-
-            // Load a Java Class instance from its byte representation.
-            byteClassLoader.setClassBytes(classBytes);
-            theClass = byteClassLoader.loadClass(name, true);
-        } catch (IOException e) {
-            reportEmitterError("Cannot write class to byte stream");
-        } catch (ClassNotFoundException e) {
-            reportEmitterError("Cannot load class from byte stream");
-        }
-        return theClass;
-    }
-
     /**
      * Writes out the class to the file system as a .class file if toFile is true. The
-     * destination directory for the file can be set using the destinationDir() method.
+     * destination directory for the file can be set using the destinationDir() method. If the
+     * session is writing the classes into a JAR file (see Session.jarWriter()), the class goes
+     * there instead.
      */
     public void write() {
         endOpenMethodIfAny();
         if (!toFile) {
             return;
         }
+        Timings.begin("class write");
+        JarWriter jarWriter = Session.current().jarWriter();
+        if (jarWriter != null) {
+            try {
+                jarWriter.write(clFile);
+            } catch (IOException e) {
+                reportEmitterError("Cannot write to file %s", jarWriter.file());
+            }
+            Timings.end();
+            return;
+        }
         String outFile = destDir + File.separator + name + ".class";
         try {
-            File file = new File(destDir + File.separator +
+            File file = Session.current().file(destDir + File.separator +
                     name.substring(0, name.lastIndexOf("/") + 1));
             file.mkdirs();
-            CLOutputStream out =
-                    new CLOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+            CLOutputStream out = new CLOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(Session.current().file(outFile))));
             clFile.write(out);
             out.close();
+            Session.current().addOutputFile(Session.current().file(outFile));
         } catch (FileNotFoundException e) {
             reportEmitterError("File %s not found", outFile);
         } catch (IOException e) {
             reportEmitterError("Cannot write to file %s", outFile);
         }
+        Timings.end();
     }
 
     // Initializes all variables used for adding a method to the ClassFile structure to their
@@ -1532,8 +1507,11 @@ public class CLEmitter {
 
     // Used to report any error that occurs while creating/writing the class, to STDERR.
     private void reportEmitterError(String message, Object... args) {
-        System.err.printf(message, args);
-        System.err.println();
+        Session.current().err().printf(message, args);
+        Session.current().err().println();
+        JCompilationUnit unit = Session.current().compilationUnit();
+        Session.current().addDiagnostic(new Diagnostic(Diagnostic.Kind.CODEGEN,
+                unit == null ? null : unit.fileName(), 0, String.format(message, args)));
         errorHasOccurred = true;
     }
 }
@@ -1703,64 +1681,6 @@ class CLBranchStack {
     }
 }
 
-/**
- * A class loader to be able to load a class from a byte stream.
- */
-class ByteClassLoader extends ClassLoader {
-    // Bytes representing the class.
-    private byte[] bytes;
-
-    // Has a package been defined for this class loader?
-    private boolean pkgDefined = false;
-
-    /**
-     * Sets the bytes representing the class.
-     *
-     * @param bytes bytes representing the class.
-     */
-    public void setClassBytes(byte[] bytes) {
-        this.bytes = bytes;
-    }
-
-    /**
-     * Loads the class with the specified fully qualified name.
-     *
-     * @param name    the fully qualified name of the class.
-     * @param resolve if true then resolve the class.
-     * @throws ClassNotFoundException if the class could not be found.
-     */
-    public Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-        Class cls = findLoadedClass(name);
-        if (cls == null) {
-            try {
-                cls = findSystemClass(name);
-            } catch (Exception e) {
-                // Ignore these.
-            } catch (NoClassDefFoundError e) {
-                // If we get here we know the class exists, so change the name to its binary name
-                // as defined in the Java Language Specifications.
-                cls = findSystemClass(name.replace("/", "."));
-            }
-        }
-        if (cls == null) {
-            name = name.replace("/", ".");
-            String pkg = name.lastIndexOf('.') == -1 ? "" : name.substring(0,
-                    name.lastIndexOf('.'));
-            if (!pkgDefined) {
-                // Packages must be created before the class is defined, and package names must
-                // be unique within a class loader and cannot be redefined or changed once created.
-                definePackage(pkg, "", "", "", "", "", "", null);
-                pkgDefined = true;
-            }
-            cls = defineClass(name, bytes, 0, bytes.length);
-            if (resolve && cls != null) {
-                resolveClass(cls);
-            }
-        }
-        return cls;
-    }
-}
-
 /**
  * Inherits from java.out.DataOutputStream and provides an extra function for writing unsigned
  * int to the output stream, which is required for writing Java class files.
@@ -2,6 +2,8 @@
 
 package jminusminus;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -130,6 +132,30 @@ class CLFile {
         }
     }
 
+    /**
+     * Returns the contents of this class as they would be written to a .class file.
+     *
+     * @return the bytes of the class file.
+     * @throws IOException if an error occurs while writing.
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        CLOutputStream out = new CLOutputStream(new BufferedOutputStream(byteStream));
+        write(out);
+        out.close();
+        return byteStream.toByteArray();
+    }
+
+    /**
+     * Returns the fully qualified name of this class in internal form.
+     *
+     * @return the fully qualified name of this class in internal form.
+     */
+    public String name() {
+        int nameIndex = ((CLConstantClassInfo) constantPool.cpItem(thisClass)).nameIndex;
+        return new String(((CLConstantUtf8Info) constantPool.cpItem(nameIndex)).b);
+    }
+
     /**
      * Returns a string identifying the inner class access permissions and properties contained in
      * the specified mask of flags.
@@ -3,48 +3,48 @@
 package jminusminus;
 
 import java.io.*;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.StringTokenizer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 /**
  * This class can be used to locate and load system, extension, and user-defined class files from
- * directories and zip (jar) files.
+ * directories, zip (jar) files, and the run-time image of the JDK (the jrt:/ file system).
+ * <p>
+ * Classes are looked up, by their internal names (eg, java/util/ArrayList), in an index from the
+ * names to the class path entries holding them. The index is filled a package at a time: the
+ * first lookup of a class in a package lists that package in every entry, in order, so that a
+ * class in more than one entry is found in the first, as the JVM finds it; every later lookup in
+ * the package is a hash-table lookup. Zip and jar files are opened and indexed once, and so is
+ * each package of the run-time image; they are then shared by all the CLPath objects (see
+ * ClassArchive and RuntimeImage).
+ * <p>
+ * The compiler reads the symbols for the classes it uses (see ClassSymbol) from the class path of
+ * its session (see Session.classPath()); those read from zip and jar files and from the run-time
+ * image are kept with them, and so are read once however many compilations use them. Directories,
+ * whose classes may come and go while the compiler runs (as when one compilation writes the
+ * classes another one imports), are listed afresh, and read afresh, by each session.
  */
 class CLPath {
-    // Stores the individual directories, zip, and jar files from the class path.
-    private ArrayList<String> dirs;
+    // The entries of the class path: directories, zip and jar files, and the run-time image.
+    private ArrayList<ClassPathEntry> entries;
 
-    /**
-     * Returns a list of conceptual directories defining the class path.
-     *
-     * @param classPath the directory names defining the class path.
-     * @return a list of conceptual directories defining the class path.
-     */
-    private ArrayList<String> loadClassPath(String classPath) {
-        ArrayList<String> container = new ArrayList<String>();
-
-        // Add directories/jars/zips from the classpath.
-        StringTokenizer entries = new StringTokenizer(classPath, File.pathSeparator);
-        while (entries.hasMoreTokens()) {
-            container.add(entries.nextToken());
-        }
+    // Maps the internal names of the classes in the packages indexed so far to the entries
+    // holding them.
+    private HashMap<String, ClassPathEntry> classes;
 
-        // Add system directories.
-        if (System.getProperty("sun.boot.class.path") != null) {
-            entries = new StringTokenizer(System.getProperty("sun.boot.class.path"),
-                    File.pathSeparator);
-            while (entries.hasMoreTokens()) {
-                container.add(entries.nextToken());
-            }
-        } else {
-            String dir = System.getProperty("java.home") + File.separatorChar + "lib" +
-                    File.separatorChar + "rt.jar";
-            container.add(dir);
-        }
-        return container;
-    }
+    // The packages indexed so far, by internal name ("" for the unnamed package).
+    private HashSet<String> packages;
 
     /**
      * Constructs a CLPath object.
@@ -69,7 +69,10 @@ class CLPath {
             // Last resort, use current directory.
             path = ".";
         }
-        dirs = loadClassPath(path);
+        entries = new ArrayList<ClassPathEntry>();
+        classes = new HashMap<String, ClassPathEntry>();
+        packages = new HashSet<String>();
+        loadClassPath(path);
         if (extdir == null) {
             // Java extension classes.
             extdir = System.getProperty("java.ext.dirs");
@@ -81,7 +84,7 @@ class CLPath {
                 for (File file : extFiles) {
                     if (file.isFile() &&
                             (file.getName().endsWith(".zip") || file.getName().endsWith(".jar"))) {
-                        dirs.add(file.getName());
+                        addEntry(file.getPath());
                     } else {
                         // Wrong suffix; ignore.
                     }
@@ -98,36 +101,427 @@ class CLPath {
      * @return a CLInputStream instance for the class with specified name or null if the class
      * was not found.
      */
-    public CLInputStream loadClass(String name) {
-        CLInputStream reader = null;
-        for (int i = 0; i < dirs.size(); i++) {
-            String dir = dirs.get(i);
-            File file = new File(dir);
-            if (file.isDirectory()) {
-                File theClass = new File(dir, name.replace('/', File.separatorChar) + ".class");
-                if (theClass.canRead()) {
-                    try {
-                        reader = new CLInputStream(new BufferedInputStream(new
-                                FileInputStream(theClass)));
-                    } catch (FileNotFoundException e) {
-                        // Ignore
+    public synchronized CLInputStream loadClass(String name) {
+        ClassPathEntry entry = find(name);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return new CLInputStream(new BufferedInputStream(entry.open(name)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if the class with the specified name (fully-qualified; tokens separated by
+     * '/') is on the class path, and false otherwise.
+     *
+     * @param name the fully-qualified name of the class (eg, java/util/ArrayList).
+     * @return true if the class is on the class path, and false otherwise.
+     */
+    public synchronized boolean contains(String name) {
+        return find(name) != null;
+    }
+
+    /**
+     * Returns the symbol for the class with the specified name (fully-qualified; tokens separated
+     * by '/'), read from its class file, or null if the class was not found or its class file
+     * cannot be read.
+     *
+     * @param name the fully-qualified name of the class (eg, java/util/ArrayList).
+     * @return the symbol for the class, or null.
+     */
+    public ClassSymbol symbol(String name) {
+        ClassPathEntry entry;
+        synchronized (this) {
+            entry = find(name);
+        }
+        return entry == null ? null : entry.symbol(name);
+    }
+
+    // Adds the directories/jars/zips of the given class path, and then the system classes, to
+    // the entries.
+    private void loadClassPath(String classPath) {
+        // Add directories/jars/zips from the classpath.
+        StringTokenizer tokens = new StringTokenizer(classPath, File.pathSeparator);
+        while (tokens.hasMoreTokens()) {
+            addEntry(tokens.nextToken());
+        }
+
+        // Add system directories: the boot class path of JDKs up to 8, or the run-time image of
+        // later ones (or, failing that, rt.jar).
+        if (System.getProperty("sun.boot.class.path") != null) {
+            tokens = new StringTokenizer(System.getProperty("sun.boot.class.path"),
+                    File.pathSeparator);
+            while (tokens.hasMoreTokens()) {
+                addEntry(tokens.nextToken());
+            }
+        } else if (RuntimeImage.instance() != null) {
+            entries.add(RuntimeImage.instance());
+        } else {
+            addEntry(System.getProperty("java.home") + File.separatorChar + "lib" +
+                    File.separatorChar + "rt.jar");
+        }
+    }
+
+    // Adds the directory, or zip or jar file, with the given name to the entries; bogus entries
+    // are ignored.
+    private void addEntry(String name) {
+        File file = new File(name);
+        if (file.isDirectory()) {
+            entries.add(new ClassDirectory(file));
+        } else if (file.isFile()) {
+            ClassArchive archive = ClassArchive.open(file);
+            if (archive != null) {
+                entries.add(archive);
+            }
+        }
+    }
+
+    // Returns the entry holding the class with the given internal name, or null if there is
+    // none, indexing the class's package first if it has not been yet.
+    private ClassPathEntry find(String name) {
+        int i = name.lastIndexOf('/');
+        String packageName = i < 0 ? "" : name.substring(0, i);
+        if (packages.add(packageName)) {
+            ArrayList<String> names = new ArrayList<String>();
+            for (ClassPathEntry entry : entries) {
+                names.clear();
+                entry.list(packageName, names);
+                for (String className : names) {
+                    if (!classes.containsKey(className)) {
+                        classes.put(className, entry);
                     }
                 }
-            } else if (file.isFile()) {
-                try {
-                    ZipFile zip = new ZipFile(dir);
-                    ZipEntry entry = zip.getEntry(name + ".class");
-                    if (entry != null) {
-                        reader = new CLInputStream(zip.getInputStream(entry));
+            }
+        }
+        return classes.get(name);
+    }
+}
+
+/**
+ * An entry of the class path, which holds class files by package.
+ */
+abstract class ClassPathEntry {
+    /**
+     * Adds the internal names of the classes in the package with the given internal name ("" for
+     * the unnamed package), which this entry holds, to names.
+     *
+     * @param packageName the internal name of the package (eg, java/util).
+     * @param names       the names of the classes.
+     */
+    public abstract void list(String packageName, ArrayList<String> names);
+
+    /**
+     * Returns a stream for reading the class file of the class with the given internal name,
+     * which this entry holds.
+     *
+     * @param name the internal name of the class.
+     * @return a stream for reading the class file.
+     * @throws IOException if the class file cannot be read.
+     */
+    public abstract InputStream open(String name) throws IOException;
+
+    /**
+     * Returns the symbol for the class with the given internal name, which this entry holds,
+     * read from its class file, or null if the class file cannot be read.
+     *
+     * @param name the internal name of the class.
+     * @return the symbol for the class, or null.
+     */
+    public ClassSymbol symbol(String name) {
+        try (InputStream in = open(name)) {
+            return new ClassFileSymbol(in.readAllBytes());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
+
+/**
+ * A directory on the class path.
+ */
+class ClassDirectory extends ClassPathEntry {
+    // The directory.
+    private File directory;
+
+    /**
+     * Constructs a ClassDirectory for the given directory.
+     *
+     * @param directory the directory.
+     */
+    public ClassDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void list(String packageName, ArrayList<String> names) {
+        String[] files = new File(directory, packageName.replace('/', File.separatorChar)).list();
+        if (files == null) {
+            return;
+        }
+        String prefix = packageName.isEmpty() ? "" : packageName + "/";
+        for (String file : files) {
+            if (file.endsWith(".class")) {
+                names.add(prefix + file.substring(0, file.length() - ".class".length()));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream open(String name) throws IOException {
+        return new FileInputStream(new File(directory, name.replace('/', File.separatorChar) +
+                ".class"));
+    }
+}
+
+/**
+ * A zip or jar file on the class path. The archive is opened, and its class files are listed by
+ * package, once, when it is first put on a class path; the archive then stays open, shared by all
+ * the class paths it is on, for the life of the program, as with the JVM's own class loaders.
+ * An archive that changes is opened afresh when it is next put on a class path, and the old one
+ * is closed; class paths still holding the old one no longer find the classes they have not read
+ * from it.
+ */
+class ClassArchive extends ClassPathEntry {
+    // Maps the canonical paths of the archives opened to them.
+    private static final HashMap<String, ClassArchive> archives =
+            new HashMap<String, ClassArchive>();
+
+    // The archive.
+    private ZipFile zip;
+
+    // When the archive was last modified, and its length, when it was opened.
+    private long lastModified, length;
+
+    // Maps the internal names of the packages in the archive to the names of their classes.
+    private HashMap<String, ArrayList<String>> packages;
+
+    // Maps the internal names of the classes read from the archive to their symbols.
+    private HashMap<String, ClassSymbol> symbols;
+
+    // Constructs a ClassArchive for the given (open) archive, listing its class files.
+    private ClassArchive(ZipFile zip, File file) {
+        this.zip = zip;
+        lastModified = file.lastModified();
+        length = file.length();
+        packages = new HashMap<String, ArrayList<String>>();
+        symbols = new HashMap<String, ClassSymbol>();
+        Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+        while (zipEntries.hasMoreElements()) {
+            String entryName = zipEntries.nextElement().getName();
+            if (entryName.endsWith(".class")) {
+                String name = entryName.substring(0, entryName.length() - ".class".length());
+                int i = name.lastIndexOf('/');
+                String packageName = i < 0 ? "" : name.substring(0, i);
+                ArrayList<String> names = packages.get(packageName);
+                if (names == null) {
+                    names = new ArrayList<String>();
+                    packages.put(packageName, names);
+                }
+                names.add(name);
+            }
+        }
+    }
+
+    /**
+     * Returns the ClassArchive for the given zip or jar file, opening the file if it has not been
+     * opened yet (or has changed since), or null if it cannot be read.
+     *
+     * @param file the zip or jar file.
+     * @return the ClassArchive for the file, or null.
+     */
+    public static synchronized ClassArchive open(File file) {
+        try {
+            String path = file.getCanonicalPath();
+            ClassArchive archive = archives.get(path);
+            if (archive == null || archive.lastModified != file.lastModified() ||
+                    archive.length != file.length()) {
+                if (archive != null) {
+                    archive.zip.close();
+                }
+                archive = new ClassArchive(new ZipFile(file), file);
+                archives.put(path, archive);
+            }
+            return archive;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void list(String packageName, ArrayList<String> names) {
+        ArrayList<String> classes = packages.get(packageName);
+        if (classes != null) {
+            names.addAll(classes);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream open(String name) throws IOException {
+        try {
+            ZipEntry entry = zip.getEntry(name + ".class");
+            if (entry == null) {
+                throw new FileNotFoundException(name + ".class");
+            }
+            return zip.getInputStream(entry);
+        } catch (IllegalStateException e) {
+            // The archive has changed, and has been closed, since it was put on the class path.
+            throw new FileNotFoundException(name + ".class");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The symbols are kept, and shared by all the class paths the archive is on, for as long as
+     * the archive is.
+     */
+    public synchronized ClassSymbol symbol(String name) {
+        ClassSymbol symbol = symbols.get(name);
+        if (symbol == null) {
+            symbol = super.symbol(name);
+            if (symbol != null) {
+                symbols.put(name, symbol);
+            }
+        }
+        return symbol;
+    }
+}
+
+/**
+ * The run-time image of the JDK (from JDK 9 on), read through the jrt:/ file system. The image
+ * lists, for each package, the modules that hold it, so the classes of a package are found by
+ * listing its directory in just those modules.
+ */
+class RuntimeImage extends ClassPathEntry {
+    // The run-time image, or null if there is none; looked up once.
+    private static RuntimeImage instance;
+
+    // Whether the run-time image has been looked up.
+    private static boolean isLookedUp;
+
+    // The jrt:/ file system.
+    private FileSystem jrt;
+
+    // Maps the internal names of the packages listed to the names of their classes.
+    private HashMap<String, ArrayList<String>> packages;
+
+    // Maps the internal names of the classes listed to their class files.
+    private HashMap<String, Path> classFiles;
+
+    // Maps the internal names of the classes read from the image to their symbols.
+    private HashMap<String, ClassSymbol> symbols;
+
+    // Constructs a RuntimeImage reading the given jrt:/ file system.
+    private RuntimeImage(FileSystem jrt) {
+        this.jrt = jrt;
+        packages = new HashMap<String, ArrayList<String>>();
+        classFiles = new HashMap<String, Path>();
+        symbols = new HashMap<String, ClassSymbol>();
+    }
+
+    /**
+     * Returns the run-time image of the JDK that runs the compiler, or null if there is none.
+     *
+     * @return the run-time image, or null.
+     */
+    public static synchronized RuntimeImage instance() {
+        if (!isLookedUp) {
+            isLookedUp = true;
+            try {
+                instance = new RuntimeImage(FileSystems.getFileSystem(URI.create("jrt:/")));
+            } catch (RuntimeException e) {
+                // No run-time image (a JDK up to 8).
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The image does not change while the compiler runs, so each package is listed once, for all
+     * the class paths.
+     */
+    public synchronized void list(String packageName, ArrayList<String> names) {
+        ArrayList<String> classes = packages.get(packageName);
+        if (classes == null) {
+            classes = new ArrayList<String>();
+            listPackage(packageName, classes);
+            packages.put(packageName, classes);
+        }
+        names.addAll(classes);
+    }
+
+    // Adds the internal names of the classes in the package with the given internal name, as
+    // found in the image, to names.
+    private void listPackage(String packageName, ArrayList<String> names) {
+        Path modules = jrt.getPath("/packages", packageName.replace('/', '.'));
+        if (packageName.isEmpty() || !Files.isDirectory(modules)) {
+            return;
+        }
+        try (DirectoryStream<Path> moduleLinks = Files.newDirectoryStream(modules)) {
+            for (Path moduleLink : moduleLinks) {
+                Path directory = jrt.getPath("/modules", moduleLink.getFileName().toString(),
+                        packageName);
+                if (!Files.isDirectory(directory)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                    for (Path file : files) {
+                        String fileName = file.getFileName().toString();
+                        if (fileName.endsWith(".class")) {
+                            String name = packageName + "/" + fileName.substring(0,
+                                    fileName.length() - ".class".length());
+                            if (!classFiles.containsKey(name)) {
+                                classFiles.put(name, file);
+                            }
+                            names.add(name);
+                        }
                     }
-                } catch (IOException e) {
-                    // Ignore
                 }
-            } else {
-                // Bogus entry; ignore
+            }
+        } catch (IOException e) {
+            // Unreadable; list what was found.
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized InputStream open(String name) throws IOException {
+        Path file = classFiles.get(name);
+        if (file == null) {
+            throw new FileNotFoundException(name + ".class");
+        }
+        return Files.newInputStream(file);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The image does not change while the compiler runs, so the symbols are kept, and shared by
+     * all the class paths, for the life of the program.
+     */
+    public synchronized ClassSymbol symbol(String name) {
+        ClassSymbol symbol = symbols.get(name);
+        if (symbol == null) {
+            symbol = super.symbol(name);
+            if (symbol != null) {
+                symbols.put(name, symbol);
             }
         }
-        return reader;
+        return symbol;
     }
 }
 
@@ -0,0 +1,209 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static jminusminus.CLConstants.*;
+
+/**
+ * This class reads class files, the counterpart of CLFile, which writes them. It reads only what
+ * the compiler needs to know of a class to compile code that uses it: the class header (the
+ * access flags, the class, its super class, and its interfaces), and the access flags, names,
+ * and descriptors of its fields and methods.
+ * <p>
+ * Nothing else is parsed. The constant pool is only indexed, and the entries of it that are used
+ * are decoded when they are first asked for; and the attributes of the class and its members
+ * (code and all) are skipped over.
+ */
+class CLReader {
+    // The bytes of the class file.
+    private byte[] bytes;
+
+    // Offsets of the constant pool entries, by index; 0 for the unusable ones.
+    private int[] offsets;
+
+    // The CONSTANT_Utf8 entries decoded so far, by index.
+    private String[] strings;
+
+    // Offset of ClassFile.access_flags, which follows the constant pool.
+    private int header;
+
+    /**
+     * Constructs a CLReader for the given bytes of a class file, indexing its constant pool.
+     *
+     * @param bytes the bytes of the class file.
+     * @throws IOException if the bytes are not those of a class file.
+     */
+    public CLReader(byte[] bytes) throws IOException {
+        this.bytes = bytes;
+        if (bytes.length < 10 || u4(0) != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        int count = u2(8);
+        offsets = new int[count];
+        strings = new String[count];
+        int offset = 10;
+        for (int i = 1; i < count; i++) {
+            if (offset >= bytes.length) {
+                throw new IOException("Truncated class file");
+            }
+            offsets[i] = offset;
+            switch (bytes[offset]) {
+                case CONSTANT_Utf8:
+                    offset += 3 + u2(offset + 1);
+                    break;
+                case CONSTANT_Integer:
+                case CONSTANT_Float:
+                case CONSTANT_Fieldref:
+                case CONSTANT_Methodref:
+                case CONSTANT_InterfaceMethodref:
+                case CONSTANT_NameAndType:
+                case CONSTANT_Dynamic:
+                case CONSTANT_InvokeDynamic:
+                    offset += 5;
+                    break;
+                case CONSTANT_Long:
+                case CONSTANT_Double:
+                    // These take up two entries.
+                    offset += 9;
+                    i++;
+                    break;
+                case CONSTANT_Class:
+                case CONSTANT_String:
+                case CONSTANT_MethodType:
+                case CONSTANT_Module:
+                case CONSTANT_Package:
+                    offset += 3;
+                    break;
+                case CONSTANT_MethodHandle:
+                    offset += 4;
+                    break;
+                default:
+                    throw new IOException("Bad constant pool tag " + bytes[offset]);
+            }
+        }
+        header = offset;
+        if (header + 8 > bytes.length) {
+            throw new IOException("Truncated class file");
+        }
+    }
+
+    /**
+     * Returns the access flags of the class.
+     *
+     * @return the access flags of the class.
+     */
+    public int accessFlags() {
+        return u2(header);
+    }
+
+    /**
+     * Returns the internal name of the class (eg, java/util/ArrayList).
+     *
+     * @return the internal name of the class.
+     */
+    public String className() {
+        return classNameAt(u2(header + 2));
+    }
+
+    /**
+     * Returns the internal name of the super class, or null if there is none (for
+     * java.lang.Object).
+     *
+     * @return the internal name of the super class, or null.
+     */
+    public String superClassName() {
+        int index = u2(header + 4);
+        return index == 0 ? null : classNameAt(index);
+    }
+
+    /**
+     * Returns the internal names of the interfaces the class implements (or the interface
+     * extends).
+     *
+     * @return the internal names of the interfaces.
+     */
+    public ArrayList<String> interfaceNames() {
+        int count = u2(header + 6);
+        ArrayList<String> names = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(classNameAt(u2(header + 8 + 2 * i)));
+        }
+        return names;
+    }
+
+    /**
+     * Reads the field and method tables, adding a symbol for each field to fields, and for each
+     * method (constructors and class initializer included) to methods.
+     *
+     * @param fields  the symbols for the fields.
+     * @param methods the symbols for the methods.
+     */
+    public void readMembers(ArrayList<MemberSymbol> fields, ArrayList<MemberSymbol> methods) {
+        int offset = header + 8 + 2 * u2(header + 6);
+        offset = readMembers(offset, fields);
+        readMembers(offset, methods);
+    }
+
+    // Reads the member table (of fields or of methods) at the given offset, adding a symbol for
+    // each member to members, and returns the offset just past the table.
+    private int readMembers(int offset, ArrayList<MemberSymbol> members) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            members.add(new MemberSymbol(u2(offset), utf8(u2(offset + 2)),
+                    utf8(u2(offset + 4))));
+            int attributes = u2(offset + 6);
+            offset += 8;
+            for (int j = 0; j < attributes; j++) {
+                offset += 6 + (int) u4(offset + 2);
+            }
+        }
+        return offset;
+    }
+
+    // Returns the class name held by the CONSTANT_Class entry at the given index.
+    private String classNameAt(int index) {
+        return utf8(u2(offsets[index] + 1));
+    }
+
+    // Returns the string held by the CONSTANT_Utf8 entry at the given index, decoding it (from
+    // the modified UTF-8 of class files) the first time it is asked for.
+    private String utf8(int index) {
+        String string = strings[index];
+        if (string == null) {
+            int offset = offsets[index];
+            int length = u2(offset + 1);
+            char[] chars = new char[length];
+            int n = 0;
+            int i = offset + 3;
+            int end = i + length;
+            while (i < end) {
+                int b = bytes[i++] & 0xFF;
+                if (b < 0x80) {
+                    chars[n++] = (char) b;
+                } else if (b < 0xE0) {
+                    chars[n++] = (char) ((b & 0x1F) << 6 | bytes[i++] & 0x3F);
+                } else {
+                    chars[n++] = (char) ((b & 0x0F) << 12 | (bytes[i++] & 0x3F) << 6 |
+                            bytes[i++] & 0x3F);
+                }
+            }
+            string = new String(chars, 0, n);
+            strings[index] = string;
+        }
+        return string;
+    }
+
+    // Returns the unsigned 16-bit value at the given offset.
+    private int u2(int offset) {
+        return (bytes[offset] & 0xFF) << 8 | bytes[offset + 1] & 0xFF;
+    }
+
+    // Returns the unsigned 32-bit value at the given offset.
+    private long u4(int offset) {
+        return (long) u2(offset) << 16 | u2(offset + 2);
+    }
+}
@@ -0,0 +1,397 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static jminusminus.CLConstants.*;
+
+/**
+ * The symbol for a class or interface: what the compiler knows of it to compile code that uses
+ * it, which is its modifiers, its super types, and the signatures of its members. Types (see
+ * Type) are backed by symbols, read from class files for the classes on the class path, and
+ * built from the AST for the classes being compiled; the compiler never loads the classes
+ * themselves.
+ * <p>
+ * Names are internal names (eg, java/util/ArrayList), and members are known by their JVM
+ * descriptors, so a symbol does not refer to the types it mentions, and these need not be looked
+ * up until they are used.
+ */
+abstract class ClassSymbol {
+    /**
+     * Returns the internal name of the class.
+     *
+     * @return the internal name of the class.
+     */
+    public abstract String name();
+
+    /**
+     * Returns the modifiers of the class, as access flags.
+     *
+     * @return the modifiers of the class.
+     */
+    public abstract int modifiers();
+
+    /**
+     * Returns the internal name of the super class, or null if there is none.
+     *
+     * @return the internal name of the super class, or null.
+     */
+    public abstract String superName();
+
+    /**
+     * Returns the internal names of the interfaces the class implements (or the interface
+     * extends).
+     *
+     * @return the internal names of the interfaces.
+     */
+    public abstract ArrayList<String> interfaceNames();
+
+    /**
+     * Returns the symbols for the fields declared in the class.
+     *
+     * @return the symbols for the declared fields.
+     */
+    public abstract ArrayList<MemberSymbol> fields();
+
+    /**
+     * Returns the symbols for the methods declared in the class, other than its constructors.
+     *
+     * @return the symbols for the declared methods.
+     */
+    public abstract ArrayList<MemberSymbol> methods();
+
+    /**
+     * Returns the symbols for the constructors declared in the class.
+     *
+     * @return the symbols for the declared constructors.
+     */
+    public abstract ArrayList<MemberSymbol> constructors();
+}
+
+/**
+ * The symbol for a class read from its class file (see CLReader). The class header is read when
+ * the symbol is built; the member tables are read when the members are first asked for, and the
+ * bytes of the class file are then let go of.
+ * <p>
+ * The synthetic members that the Java compiler adds (bridge methods, accessors, and the like)
+ * are left out, as they cannot be referred to from source code.
+ */
+class ClassFileSymbol extends ClassSymbol {
+    // The header of the class.
+    private final String name;
+    private final int modifiers;
+    private final String superName;
+    private final ArrayList<String> interfaceNames;
+
+    // The reader of the class file, until the members are read; null after.
+    private CLReader reader;
+
+    // The symbols for the declared fields, methods, and constructors; null until they are read.
+    private ArrayList<MemberSymbol> fields, methods, constructors;
+
+    /**
+     * Constructs a ClassFileSymbol from the given bytes of a class file.
+     *
+     * @param bytes the bytes of the class file.
+     * @throws IOException if the bytes are not those of a class file.
+     */
+    public ClassFileSymbol(byte[] bytes) throws IOException {
+        reader = new CLReader(bytes);
+        try {
+            name = reader.className();
+            modifiers = reader.accessFlags();
+            superName = reader.superClassName();
+            interfaceNames = reader.interfaceNames();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int modifiers() {
+        return modifiers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String superName() {
+        return superName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<String> interfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized ArrayList<MemberSymbol> fields() {
+        readMembers();
+        return fields;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized ArrayList<MemberSymbol> methods() {
+        readMembers();
+        return methods;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized ArrayList<MemberSymbol> constructors() {
+        readMembers();
+        return constructors;
+    }
+
+    // Reads the members from the class file, if they have not been read yet.
+    private void readMembers() {
+        if (reader == null) {
+            return;
+        }
+        ArrayList<MemberSymbol> allFields = new ArrayList<MemberSymbol>();
+        ArrayList<MemberSymbol> allMethods = new ArrayList<MemberSymbol>();
+        try {
+            reader.readMembers(allFields, allMethods);
+        } catch (IndexOutOfBoundsException e) {
+            // A truncated class file; keep the members read from it.
+        }
+        reader = null;
+        fields = new ArrayList<MemberSymbol>();
+        for (MemberSymbol field : allFields) {
+            if ((field.modifiers() & ACC_SYNTHETIC) == 0) {
+                fields.add(field);
+            }
+        }
+        methods = new ArrayList<MemberSymbol>();
+        constructors = new ArrayList<MemberSymbol>();
+
+        // Of the synthetic methods, keep only the bridges that no other method takes the
+        // parameters of: those a public class has for the public methods it inherits from a
+        // class that is not public (as StringBuilder has for those of AbstractStringBuilder),
+        // which are the only ones accessible outside the package.
+        HashSet<String> declared = new HashSet<String>();
+        for (MemberSymbol method : allMethods) {
+            if ((method.modifiers() & ACC_SYNTHETIC) == 0) {
+                declared.add(method.name() + parametersOf(method));
+            }
+        }
+        for (MemberSymbol method : allMethods) {
+            if ((method.modifiers() & ACC_SYNTHETIC) != 0 &&
+                    ((method.modifiers() & ACC_BRIDGE) == 0 ||
+                            !declared.add(method.name() + parametersOf(method)))) {
+                continue;
+            }
+            if (method.name().equals("<clinit>")) {
+                continue;
+            }
+            if (method.name().equals("<init>")) {
+                constructors.add(method);
+            } else {
+                methods.add(method);
+            }
+        }
+    }
+
+    // Returns the parameter descriptors, in parentheses, from the descriptor of the given method.
+    private static String parametersOf(MemberSymbol method) {
+        String descriptor = method.descriptor();
+        return descriptor.substring(0, descriptor.indexOf(')') + 1);
+    }
+}
+
+/**
+ * The symbol for a class (or interface) declared in the source being compiled, built from its
+ * declaration rather than from a class file: the header is given when the symbol is built, and
+ * the members are added to it as they are pre-analyzed (see JMember).
+ */
+class DeclaredClassSymbol extends ClassSymbol {
+    // The header of the class.
+    private String name;
+    private int modifiers;
+    private String superName;
+    private ArrayList<String> interfaceNames;
+
+    // The symbols for the declared fields, methods, and constructors.
+    private ArrayList<MemberSymbol> fields, methods, constructors;
+
+    /**
+     * Constructs a DeclaredClassSymbol, with no members as yet.
+     *
+     * @param mods           the modifiers of the class.
+     * @param name           the internal name of the class.
+     * @param superName      the internal name of the super class.
+     * @param interfaceNames the internal names of the interfaces the class implements (or the
+     *                       interface extends), or null if there are none.
+     */
+    public DeclaredClassSymbol(ArrayList<String> mods, String name, String superName,
+                               ArrayList<String> interfaceNames) {
+        this.name = name;
+        this.modifiers = accessFlags(mods);
+        this.superName = superName;
+        this.interfaceNames =
+                interfaceNames == null ? new ArrayList<String>() : interfaceNames;
+        fields = new ArrayList<MemberSymbol>();
+        methods = new ArrayList<MemberSymbol>();
+        constructors = new ArrayList<MemberSymbol>();
+    }
+
+    /**
+     * Adds a field to the class.
+     *
+     * @param mods       the modifiers of the field.
+     * @param name       the name of the field.
+     * @param descriptor the JVM descriptor of the field.
+     */
+    public void addField(ArrayList<String> mods, String name, String descriptor) {
+        fields.add(new MemberSymbol(accessFlags(mods), name, descriptor));
+    }
+
+    /**
+     * Adds a method to the class, or a constructor if its name is "&lt;init&gt;".
+     *
+     * @param mods       the modifiers of the method.
+     * @param name       the name of the method.
+     * @param descriptor the JVM descriptor of the method.
+     */
+    public void addMethod(ArrayList<String> mods, String name, String descriptor) {
+        MemberSymbol method = new MemberSymbol(accessFlags(mods), name, descriptor);
+        if (name.equals("<init>")) {
+            constructors.add(method);
+        } else {
+            methods.add(method);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int modifiers() {
+        return modifiers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String superName() {
+        return superName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<String> interfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<MemberSymbol> fields() {
+        return fields;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<MemberSymbol> methods() {
+        return methods;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<MemberSymbol> constructors() {
+        return constructors;
+    }
+
+    // Returns the access flags for the given modifiers.
+    private static int accessFlags(ArrayList<String> mods) {
+        int flags = 0;
+        if (mods != null) {
+            for (String mod : mods) {
+                flags |= CLFile.accessFlagToInt(mod);
+            }
+        }
+        return flags;
+    }
+}
+
+/**
+ * The symbol for a field, method, or constructor: its modifiers, name, and JVM descriptor.
+ */
+class MemberSymbol {
+    // The modifiers of the member, as access flags.
+    private int modifiers;
+
+    // The name of the member; "<init>" for a constructor.
+    private String name;
+
+    // The JVM descriptor of the member.
+    private String descriptor;
+
+    /**
+     * Constructs a MemberSymbol.
+     *
+     * @param modifiers  the modifiers of the member, as access flags.
+     * @param name       the name of the member.
+     * @param descriptor the JVM descriptor of the member.
+     */
+    public MemberSymbol(int modifiers, String name, String descriptor) {
+        this.modifiers = modifiers;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * Returns the modifiers of the member, as access flags.
+     *
+     * @return the modifiers of the member.
+     */
+    public int modifiers() {
+        return modifiers;
+    }
+
+    /**
+     * Returns the name of the member.
+     *
+     * @return the name of the member.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the JVM descriptor of the member.
+     *
+     * @return the JVM descriptor of the member.
+     */
+    public String descriptor() {
+        return descriptor;
+    }
+}
@@ -75,7 +75,7 @@ class Context {
      */
     public void addEntry(int line, String name, IDefn definition) {
         if (entries.containsKey(name)) {
-            JAST.compilationUnit.reportSemanticError(line, "redefining name: " + name);
+            JAST.compilationUnit().reportSemanticError(line, "redefining name: " + name);
         } else {
             entries.put(name, definition);
         }
@@ -101,6 +101,9 @@ class Context {
      */
     public Type lookupType(String name) {
         TypeNameDefn defn = (TypeNameDefn) compilationUnitContext.lookup(name);
+        if (defn != null && JAST.compilationUnit() != null) {
+            JAST.compilationUnit().addDependency(defn.type());
+        }
         return defn == null ? null : defn.type();
     }
 
@@ -192,12 +195,45 @@ class Context {
  * locally defined types (classes) are declared.
  */
 class CompilationUnitContext extends Context {
+    // Package (in internal form) of the compilation unit, used for finding the types declared by
+    // other compilation units of the same package.
+    private String packageName;
+
     /**
      * Constructs a new compilation unit context.
      */
     public CompilationUnitContext() {
-        super(null, null, null);
+        this(null, "");
+    }
+
+    /**
+     * Constructs a new compilation unit context nested within the given context, which holds
+     * the types (by their fully qualified names) declared by all the compilation units being
+     * compiled together.
+     *
+     * @param surrounding the context of the types declared by the compilation units being
+     *                    compiled together, or null.
+     * @param packageName package (in internal form) of the compilation unit.
+     */
+    public CompilationUnitContext(Context surrounding, String packageName) {
+        super(surrounding, null, null);
         compilationUnitContext = this;
+        this.packageName = packageName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public IDefn lookup(String name) {
+        IDefn iDefn = entries.get(name);
+        if (iDefn == null && surroundingContext != null) {
+            iDefn = surroundingContext.lookup(name);
+            if (iDefn == null && !packageName.equals("")) {
+                // A type declared in the same package by another compilation unit.
+                iDefn = surroundingContext.lookup(packageName.replace('/', '.') + "." + name);
+            }
+        }
+        return iDefn;
     }
 
     /**
@@ -0,0 +1,288 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * What incremental compilation (Main's -i option) remembers about the source files between runs:
+ * for each source file, a hash of its contents, the files generated from it, and the types (from
+ * any of the source files) it depends on; and for each type declared in the source files, a hash
+ * of its member signatures. The graph is kept in a file (named .j--deps) in the output directory.
+ * <p>
+ * A source file has to be (re)compiled if it's new or its contents changed, if a file generated
+ * from it is missing, if the options the outputs were generated with changed, or if the member
+ * signatures of a type it depends on changed. Otherwise, the files generated from it the last
+ * time are still good. Pre-analysis needs all the source files, so they are all parsed and
+ * pre-analyzed; the savings are in analysis and code generation.
+ */
+class DependencyGraph {
+    /**
+     * Name of the file the graph is kept in, in the output directory.
+     */
+    public static final String FILE_NAME = ".j--deps";
+
+    // Options the generated files were generated with.
+    private String options;
+
+    // Maps source file names to hashes of their contents.
+    private HashMap<String, String> hashes;
+
+    // Maps source file names to hashes of the contents compiled in this run, as computed by
+    // staleUnits().
+    private HashMap<String, String> currentHashes;
+
+    // Maps source file names to the names of the files generated from them.
+    private HashMap<String, TreeSet<String>> outputs;
+
+    // Maps source file names to the names of the types they depend on.
+    private HashMap<String, TreeSet<String>> dependencies;
+
+    // Maps the (fully qualified) names of the types declared in the source files to hashes of
+    // their member signatures.
+    private HashMap<String, String> signatures;
+
+    /**
+     * Constructs an empty dependency graph.
+     */
+    public DependencyGraph() {
+        options = "";
+        hashes = new HashMap<String, String>();
+        currentHashes = new HashMap<String, String>();
+        outputs = new HashMap<String, TreeSet<String>>();
+        dependencies = new HashMap<String, TreeSet<String>>();
+        signatures = new HashMap<String, String>();
+    }
+
+    /**
+     * Reads and returns the dependency graph kept in the given output directory, or an empty one
+     * if there is none (or it cannot be read).
+     *
+     * @param outputDir the output directory.
+     * @return the dependency graph.
+     */
+    public static DependencyGraph read(String outputDir) {
+        DependencyGraph graph = new DependencyGraph();
+        File file = Session.current().file(outputDir + File.separator + FILE_NAME);
+        if (!file.exists()) {
+            return graph;
+        }
+        try {
+            BufferedReader in = new BufferedReader(new FileReader(file));
+            String source = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields[0].equals("options") && fields.length == 2) {
+                    graph.options = fields[1];
+                } else if (fields[0].equals("type") && fields.length == 3) {
+                    graph.signatures.put(fields[1], fields[2]);
+                } else if (fields[0].equals("source") && fields.length == 3) {
+                    source = fields[1];
+                    graph.hashes.put(source, fields[2]);
+                    graph.outputs.put(source, new TreeSet<String>());
+                    graph.dependencies.put(source, new TreeSet<String>());
+                } else if (fields[0].equals("output") && fields.length == 2 && source != null) {
+                    graph.outputs.get(source).add(fields[1]);
+                } else if (fields[0].equals("depends") && fields.length == 2 && source != null) {
+                    graph.dependencies.get(source).add(fields[1]);
+                }
+            }
+            in.close();
+        } catch (IOException e) {
+            return new DependencyGraph();
+        }
+        return graph;
+    }
+
+    /**
+     * Writes this dependency graph to the given output directory.
+     *
+     * @param outputDir the output directory.
+     */
+    public void write(String outputDir) {
+        File file = Session.current().file(outputDir + File.separator + FILE_NAME);
+        try {
+            file.getParentFile().mkdirs();
+            PrintWriter out = new PrintWriter(file);
+            out.printf("options\t%s\n", options);
+            for (String type : new TreeSet<String>(signatures.keySet())) {
+                out.printf("type\t%s\t%s\n", type, signatures.get(type));
+            }
+            for (String source : new TreeSet<String>(hashes.keySet())) {
+                out.printf("source\t%s\t%s\n", source, hashes.get(source));
+                for (String output : outputs.get(source)) {
+                    out.printf("output\t%s\n", output);
+                }
+                for (String dependency : dependencies.get(source)) {
+                    out.printf("depends\t%s\n", dependency);
+                }
+            }
+            out.close();
+        } catch (IOException e) {
+            Session.current().err().printf("Error: Cannot write to file %s\n", file);
+        }
+    }
+
+    /**
+     * Returns those of the given (pre-analyzed) compilation units that have to be compiled for
+     * generating the given outputs with the given options, in their original order.
+     *
+     * @param compilationUnits the compilation units.
+     * @param outputs          maps the compilation units to the files to be generated from them.
+     * @param options          the options the files are to be generated with.
+     * @return the compilation units that have to be compiled.
+     */
+    public ArrayList<JCompilationUnit> staleUnits(ArrayList<JCompilationUnit> compilationUnits,
+                                                 HashMap<JCompilationUnit, TreeSet<String>>
+                                                         outputs, String options) {
+        HashMap<String, String> signatures = signatures(compilationUnits);
+        ArrayList<JCompilationUnit> stale = new ArrayList<JCompilationUnit>();
+        for (JCompilationUnit unit : compilationUnits) {
+            currentHashes.put(unit.fileName(), hash(unit.fileName()));
+            if (isStale(unit, outputs.get(unit), options, signatures)) {
+                stale.add(unit);
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Updates this dependency graph after the given compilation units were compiled, the stale
+     * ones among them (see staleUnits()) for generating the given outputs with the given options.
+     *
+     * @param compilationUnits the compilation units.
+     * @param stale            the compilation units that were analyzed and generated code for.
+     * @param outputs          maps the compilation units to the files generated from them.
+     * @param options          the options the files were generated with.
+     */
+    public void update(ArrayList<JCompilationUnit> compilationUnits,
+                       ArrayList<JCompilationUnit> stale,
+                       HashMap<JCompilationUnit, TreeSet<String>> outputs, String options) {
+        if (!options.equals(this.options)) {
+            this.options = options;
+            hashes.clear();
+            this.outputs.clear();
+            dependencies.clear();
+        }
+        signatures.putAll(signatures(compilationUnits));
+        for (JCompilationUnit unit : compilationUnits) {
+            String source = unit.fileName();
+            hashes.put(source, currentHashes.containsKey(source) ? currentHashes.get(source) :
+                    hash(source));
+            this.outputs.put(source, outputs.get(unit));
+            if (stale.contains(unit) || !dependencies.containsKey(source)) {
+                TreeSet<String> batchDependencies = new TreeSet<String>();
+                for (String dependency : unit.dependencies()) {
+                    if (signatures.containsKey(dependency)) {
+                        batchDependencies.add(dependency);
+                    }
+                }
+                dependencies.put(source, batchDependencies);
+            }
+        }
+    }
+
+    // Returns true if the given compilation unit has to be compiled for generating the given
+    // outputs with the given options, given the current member signatures of the types declared
+    // in the batch, and false otherwise.
+    private boolean isStale(JCompilationUnit unit, TreeSet<String> outputs, String options,
+                            HashMap<String, String> signatures) {
+        String source = unit.fileName();
+        if (!options.equals(this.options) || !hashes.containsKey(source) ||
+                !hashes.get(source).equals(currentHashes.get(source)) ||
+                !outputs.equals(this.outputs.get(source))) {
+            return true;
+        }
+        for (String output : outputs) {
+            if (!Session.current().file(output).exists()) {
+                return true;
+            }
+        }
+        for (String dependency : dependencies.get(source)) {
+            if (!signatures.containsKey(dependency) ||
+                    !signatures.get(dependency).equals(this.signatures.get(dependency))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns a map from the names of the types declared by the given compilation units to
+    // hashes of their member signatures.
+    private static HashMap<String, String> signatures(ArrayList<JCompilationUnit> compilationUnits) {
+        HashMap<String, String> signatures = new HashMap<String, String>();
+        for (JCompilationUnit unit : compilationUnits) {
+            for (Type type : unit.declaredTypes()) {
+                if (type != null && type.symbol() != null) {
+                    signatures.put(type.toString(), signature(type.symbol()));
+                }
+            }
+        }
+        return signatures;
+    }
+
+    // Returns a hash of the member signatures of the given class: its modifiers, super types,
+    // fields, constructors, and methods.
+    private static String signature(ClassSymbol symbol) {
+        ArrayList<String> members = new ArrayList<String>();
+        for (MemberSymbol field : symbol.fields()) {
+            members.add(field.modifiers() + " " + field.name() + " " + field.descriptor());
+        }
+        for (MemberSymbol constructor : symbol.constructors()) {
+            members.add(constructor.modifiers() + " <init> " + constructor.descriptor());
+        }
+        for (MemberSymbol method : symbol.methods()) {
+            members.add(method.modifiers() + " " + method.name() + " " + method.descriptor());
+        }
+        Collections.sort(members);
+        String signature = symbol.modifiers() + " " + symbol.name();
+        if (symbol.superName() != null) {
+            signature += " extends " + symbol.superName();
+        }
+        for (String superInterface : symbol.interfaceNames()) {
+            signature += " implements " + superInterface;
+        }
+        for (String member : members) {
+            signature += "\n" + member;
+        }
+        return hash(signature.getBytes());
+    }
+
+    // Returns a hash of the contents of the given source file, or "" if it cannot be read. They
+    // are the contents the session holds (see Session.holdSource()), which are those the file was
+    // parsed from, however the file has changed since.
+    private static String hash(String source) {
+        try {
+            return hash(Session.current().holdSource(source).toString()
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (FileNotFoundException e) {
+            return "";
+        }
+    }
+
+    // Returns a (SHA-256) hash of the given bytes, in hexadecimal.
+    private static String hash(byte[] bytes) {
+        try {
+            String hash = "";
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                hash += String.format("%02x", b);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+/**
+ * An error reported by the compiler: where it occurred, which part of the compiler found it, and
+ * what it is. Diagnostics are written to the session's stream for diagnostics as they are
+ * reported, and also kept, in the order they were reported, by the session (see
+ * Session.diagnostics()) for programs that embed the compiler (see JMinusMinusCompiler).
+ */
+public class Diagnostic {
+    /**
+     * The part of the compiler that found an error.
+     */
+    public enum Kind {
+        /**
+         * A lexical error, found by the scanner.
+         */
+        LEXICAL,
+
+        /**
+         * A syntax error, found by the parser.
+         */
+        SYNTAX,
+
+        /**
+         * A semantic error, found during (pre-)analysis.
+         */
+        SEMANTIC,
+
+        /**
+         * An error found while generating code.
+         */
+        CODEGEN
+    }
+
+    // The kind of error.
+    private Kind kind;
+
+    // Name of the source file the error is in, or null if it's not known.
+    private String fileName;
+
+    // Line the error is on, or 0 if it's not known.
+    private int line;
+
+    // Description of the error.
+    private String message;
+
+    /**
+     * Constructs a Diagnostic.
+     *
+     * @param kind     the kind of error.
+     * @param fileName name of the source file the error is in, or null if it's not known.
+     * @param line     line the error is on, or 0 if it's not known.
+     * @param message  description of the error.
+     */
+    public Diagnostic(Kind kind, String fileName, int line, String message) {
+        this.kind = kind;
+        this.fileName = fileName;
+        this.line = line;
+        this.message = message;
+    }
+
+    /**
+     * Returns the kind of error.
+     *
+     * @return the kind of error.
+     */
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Returns the name of the source file the error is in, or null if it's not known.
+     *
+     * @return the name of the source file, or null.
+     */
+    public String fileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the line the error is on, or 0 if it's not known.
+     *
+     * @return the line, or 0.
+     */
+    public int line() {
+        return line;
+    }
+
+    /**
+     * Returns the description of the error.
+     *
+     * @return the description of the error.
+     */
+    public String message() {
+        return message;
+    }
+
+    /**
+     * Returns the diagnostic as the compiler writes it: "file:line: error: message".
+     *
+     * @return the diagnostic as a string.
+     */
+    public String toString() {
+        if (fileName == null) {
+            return "error: " + message;
+        }
+        return String.format("%s:%d: error: %s", fileName, line, message);
+    }
+}
@@ -0,0 +1,260 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.CharArrayReader;
+import java.io.FileNotFoundException;
+
+import static jminusminus.TokenKind.EOF;
+
+/**
+ * The front end of the compiler for a source file, which scans and parses the file into an AST.
+ * There are two: the hand-written one (LookaheadScanner and Parser), and the one JavaCC generates
+ * from j--.jj (JavaCCParserTokenManager and JavaCCParser). The driver (Main) works with either,
+ * and reports the errors of both to the current session.
+ */
+abstract class FrontEnd {
+    /**
+     * Name of the hand-written front end.
+     */
+    public static final String HANDWRITTEN = "handwritten";
+
+    /**
+     * Name of the JavaCC front end.
+     */
+    public static final String JAVACC = "javacc";
+
+    /**
+     * Name of the source file.
+     */
+    protected String fileName;
+
+    /**
+     * Constructs a FrontEnd for the given source file.
+     *
+     * @param fileName the name of the source file.
+     */
+    protected FrontEnd(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Returns true if the given name is that of a front end, and false otherwise.
+     *
+     * @param name the name.
+     * @return true if the given name is that of a front end, and false otherwise.
+     */
+    public static boolean exists(String name) {
+        return name.equals(HANDWRITTEN) || name.equals(JAVACC);
+    }
+
+    /**
+     * Returns the named front end for the given source file. The hand-written front end skims
+     * over method bodies if so asked (see Parser), and scans the file in parallel chunks with more
+     * than one scan thread (see ParallelScanner); the JavaCC one does neither.
+     *
+     * @param name        the name of the front end.
+     * @param fileName    the name of the source file.
+     * @param skim        whether method bodies are skimmed over.
+     * @param scanThreads number of threads the file is scanned with.
+     * @return the front end.
+     * @throws FileNotFoundException when the named file cannot be found.
+     */
+    public static FrontEnd create(String name, String fileName, boolean skim, int scanThreads)
+            throws FileNotFoundException {
+        if (name.equals(JAVACC)) {
+            return new JavaCCFrontEnd(fileName);
+        }
+        return new HandWrittenFrontEnd(fileName, skim, scanThreads);
+    }
+
+    /**
+     * Returns the name of the source file.
+     *
+     * @return the name of the source file.
+     */
+    public String fileName() {
+        return fileName;
+    }
+
+    /**
+     * Scans the source file, printing its tokens to the output of the current session, one per
+     * line.
+     */
+    public abstract void printTokens();
+
+    /**
+     * Parses the source file and returns its AST, or null if it could not be built.
+     *
+     * @return the AST of the source file, or null.
+     */
+    public abstract JCompilationUnit compilationUnit();
+
+    /**
+     * Parses the method bodies skimmed over by compilationUnit(), if any, reporting their syntax
+     * errors. This front end does not skim, so there are none.
+     */
+    public void parseSkimmedBodies() {
+        // Nothing to do.
+    }
+
+    /**
+     * Returns true if a (lexical or syntax) error has occurred, and false otherwise.
+     *
+     * @return true if an error has occurred, and false otherwise.
+     */
+    public abstract boolean errorHasOccurred();
+}
+
+/**
+ * The hand-written front end: LookaheadScanner and Parser.
+ */
+class HandWrittenFrontEnd extends FrontEnd {
+    // The scanner.
+    private LookaheadScanner scanner;
+
+    // Whether method bodies are skimmed over.
+    private boolean skim;
+
+    // The parser; null if the file has only been scanned.
+    private Parser parser;
+
+    /**
+     * Constructs a HandWrittenFrontEnd for the given source file.
+     *
+     * @param fileName    the name of the source file.
+     * @param skim        whether method bodies are skimmed over.
+     * @param scanThreads number of threads the file is scanned with.
+     * @throws FileNotFoundException when the named file cannot be found.
+     */
+    public HandWrittenFrontEnd(String fileName, boolean skim, int scanThreads)
+            throws FileNotFoundException {
+        super(fileName);
+        this.skim = skim;
+        scanner = scanThreads > 1 ? new LookaheadScanner(fileName,
+                ParallelScanner.scan(fileName, scanThreads)) : new LookaheadScanner(fileName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void printTokens() {
+        Session session = Session.current();
+        TokenInfo token;
+        do {
+            scanner.next();
+            token = scanner.token();
+            session.out().printf("%d\t : %s = %s\n", token.line(), token.tokenRep(),
+                    token.image());
+        } while (token.kind() != EOF);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public JCompilationUnit compilationUnit() {
+        parser = new Parser(scanner, skim);
+        return parser.compilationUnit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void parseSkimmedBodies() {
+        if (parser != null) {
+            parser.parseSkimmedBlocks();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean errorHasOccurred() {
+        return parser != null ? parser.errorHasOccurred() : scanner.errorHasOccured();
+    }
+}
+
+/**
+ * The front end JavaCC generates from j--.jj: JavaCCParserTokenManager and JavaCCParser.
+ */
+class JavaCCFrontEnd extends FrontEnd {
+    // The scanner.
+    private JavaCCParserTokenManager scanner;
+
+    // The parser; null if the file has only been scanned.
+    private JavaCCParser parser;
+
+    // Whether an error has occurred that the parser did not report itself.
+    private boolean errorHasOccurred;
+
+    /**
+     * Constructs a JavaCCFrontEnd for the given source file.
+     *
+     * @param fileName the name of the source file.
+     * @throws FileNotFoundException when the named file cannot be found.
+     */
+    public JavaCCFrontEnd(String fileName) throws FileNotFoundException {
+        super(fileName);
+        CharReader input = new CharReader(fileName);
+        scanner = new JavaCCParserTokenManager(new SimpleCharStream(
+                new CharArrayReader(input.chars(), 0, input.length()), 1, 1));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void printTokens() {
+        Session session = Session.current();
+        Token token;
+        try {
+            do {
+                token = scanner.getNextToken();
+                if (token.kind == JavaCCParserConstants.ERROR) {
+                    reportError(Diagnostic.Kind.LEXICAL, token.beginLine,
+                            String.format("Unidentified input token: '%s'", token.image));
+                } else {
+                    session.out().printf("%d\t : %s = %s\n", token.beginLine,
+                            JavaCCParserConstants.tokenImage[token.kind], token.image);
+                }
+            } while (token.kind != JavaCCParserConstants.EOF);
+        } catch (TokenMgrError e) {
+            reportError(Diagnostic.Kind.LEXICAL, 0, e.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public JCompilationUnit compilationUnit() {
+        parser = new JavaCCParser(scanner);
+        parser.fileName(fileName);
+        try {
+            return parser.compilationUnit();
+        } catch (ParseException e) {
+            reportError(Diagnostic.Kind.SYNTAX, 0, e.getMessage());
+        } catch (TokenMgrError e) {
+            reportError(Diagnostic.Kind.LEXICAL, 0, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean errorHasOccurred() {
+        return errorHasOccurred || parser != null && parser.errorHasOccurred();
+    }
+
+    // Reports an error of the given kind, in the given line (0 if it is not known, when the
+    // message says where it is), to the current session.
+    private void reportError(Diagnostic.Kind kind, int line, String message) {
+        errorHasOccurred = true;
+        if (line > 0) {
+            Session.current().err().printf("%s:%d: %s\n", fileName, line, message);
+        } else {
+            Session.current().err().println(message);
+        }
+        Session.current().addDiagnostic(new Diagnostic(kind, line > 0 ? fileName : null, line,
+                message));
+    }
+}
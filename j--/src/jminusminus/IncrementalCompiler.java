@@ -0,0 +1,449 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import static jminusminus.TokenKind.*;
+
+/**
+ * A compiler for a j-- source file that is being edited, as in an editor or behind a language
+ * server: it is given the source once, and then the edits made to it, each the replacement of a
+ * range of the text by a string, and keeps the errors in the source (see diagnostics()) up to
+ * date, doing as little work for each edit as it can:
+ * <ul>
+ *   <li>Only the tokens the edit damaged are scanned again: scanning starts just past the token
+ *   before the edit, and stops at the first token past the edit that starts where an old token
+ *   did; the new tokens replace the old ones up to that one, and those after it are shifted.</li>
+ *   <li>If the damaged tokens all lie within a member of a class, and the parser found no errors
+ *   outside that member, only the member is parsed again, provided it still ends where it did,
+ *   so that the rest of the parse is as it was. Otherwise the whole file is parsed again, from
+ *   the tokens.</li>
+ *   <li>If the member is a method (or constructor) with an unchanged signature, and pre-analysis
+ *   of the source found no errors, only the method is analyzed again. Otherwise the whole file
+ *   is parsed again and analyzed, as analysis rewrites the AST.</li>
+ * </ul>
+ * The errors are those a compilation of the edited source would report (see
+ * JMinusMinusCompiler), except for those found while generating code, which is not done. As
+ * with bin/j--, a source with syntax errors is not analyzed, nor is one with errors in
+ * pre-analysis analyzed any further.
+ * <p>
+ * The text is the source with its new lines ("\r\n", "\r" or "\n") mapped to '\n', and the
+ * offsets and lengths of edits are into it. The AST nodes of members not parsed again after an
+ * edit keep the lines they were parsed with; the errors reported for them are shifted with the
+ * text. An IncrementalCompiler is not safe for use by several threads at once.
+ * <p>
+ * The bench-incremental target of build.xml (see bench/jminusminus/IncrementalBenchmark.java)
+ * checks the errors against those of full compilations, over random edits to the test programs.
+ */
+public class IncrementalCompiler {
+    // The stream diagnostics are written to; they are kept by the sessions instead.
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    // Name of the source file, for diagnostics.
+    private String fileName;
+
+    // The text; only the first length characters belong to it.
+    private char[] chars;
+
+    // Number of characters of the text.
+    private int length;
+
+    // The tokens of the text, up to and including EOF.
+    private TokenBuffer tokens;
+
+    // Lexical errors, in the order of the tokens whose scanning found them.
+    private ArrayList<Diagnostic> lexicalErrors;
+
+    // Positions of the tokens whose scanning found the lexical errors.
+    private ArrayList<Integer> lexicalErrorTokens;
+
+    // AST for the text.
+    private JCompilationUnit ast;
+
+    // Extents of the class members in the AST, in source order.
+    private ArrayList<MemberSpan> memberSpans;
+
+    // Syntax errors, in the order they were found.
+    private ArrayList<Diagnostic> syntaxErrors;
+
+    // Semantic errors; empty if the AST has not been analyzed.
+    private ArrayList<Diagnostic> semanticErrors;
+
+    // Whether the AST is as the parser built it: not analyzed, and with no member replaced.
+    private boolean isFresh;
+
+    // Session in which the AST was analyzed, if it was and pre-analysis found no errors; null
+    // otherwise.
+    private Session analysis;
+
+    /**
+     * Constructs an IncrementalCompiler for the given source file, and compiles it.
+     *
+     * @param fileName the name of the source file, for diagnostics.
+     * @param source   the contents of the source file.
+     */
+    public IncrementalCompiler(String fileName, CharSequence source) {
+        this.fileName = fileName;
+        chars = source.toString().toCharArray();
+        length = CharReader.mapNewLines(chars);
+        Session session = new Session(DISCARD, DISCARD);
+        Session previous = session.bind();
+        try {
+            tokens = new TokenBuffer(null);
+            lexicalErrors = new ArrayList<Diagnostic>();
+            lexicalErrorTokens = new ArrayList<Integer>();
+            scan(0, tokens, lexicalErrors, lexicalErrorTokens, -1, 0, 0);
+            parse();
+            analyze();
+        } finally {
+            session.unbind(previous);
+        }
+    }
+
+    /**
+     * Replaces the given range of the text by the given string, and brings the errors in the
+     * source up to date.
+     *
+     * @param offset      offset in the text of the range replaced.
+     * @param length      length of the range replaced.
+     * @param replacement the string replacing it.
+     * @throws IndexOutOfBoundsException if the range is not within the text.
+     */
+    public void edit(int offset, int length, String replacement) {
+        if (offset < 0 || length < 0 || offset + length > this.length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) +
+                    ") out of bounds for length " + this.length);
+        }
+        char[] inserted = replacement.toCharArray();
+        int insertedLength = CharReader.mapNewLines(inserted);
+        int delta = insertedLength - length;
+        int lineDelta = newLines(inserted, 0, insertedLength) -
+                newLines(chars, offset, offset + length);
+        Session session = new Session(DISCARD, DISCARD);
+        Session previous = session.bind();
+        try {
+            // Scan the damaged tokens again: from just past the last token that ends before the
+            // edit, up to the first token past it that starts where an old token did.
+            int first = firstTokenEndingAtOrAfter(offset);
+            int restart = first == 0 ? 0 : tokens.start(first - 1) + tokens.length(first - 1);
+            replaceText(offset, length, inserted, insertedLength);
+            TokenBuffer scanned = new TokenBuffer(null);
+            ArrayList<Diagnostic> errors = new ArrayList<Diagnostic>();
+            ArrayList<Integer> errorTokens = new ArrayList<Integer>();
+            int last = scan(restart, scanned, errors, errorTokens, first, offset + insertedLength,
+                    delta);
+
+            // Find the class member the damaged tokens lie in, and the lines it spans if no
+            // other tokens are in them, before the tokens are replaced.
+            int index = memberSpanIndex(first, last);
+            int firstLine = 0, lastLine = -1;
+            if (index >= 0 && hasLinesOfItsOwn(memberSpans.get(index))) {
+                firstLine = tokens.line(memberSpans.get(index).start());
+                lastLine = tokens.line(memberSpans.get(index).end() - 1);
+            }
+            tokens.splice(first, last, scanned, delta, lineDelta);
+            spliceLexicalErrors(first, last, scanned.size(), errors, errorTokens, lineDelta);
+
+            // Parse the member again, or else the whole file.
+            JMember member = index < 0 ? null : memberSpans.get(index).member();
+            int tokenDelta = scanned.size() - (last - first);
+            MemberSpan span = index < 0 ? null : parseMember(index, tokenDelta);
+            if (span == null) {
+                parse();
+            } else if (syntaxErrors.isEmpty() && analysis != null && lastLine >= firstLine &&
+                    hasLinesOfItsOwn(span) &&
+                    reanalyze(member, span.member(), firstLine, lastLine, lineDelta)) {
+                return;
+            }
+            analyze();
+        } finally {
+            session.unbind(previous);
+        }
+    }
+
+    /**
+     * Returns the text, as edited so far.
+     *
+     * @return the text.
+     */
+    public String text() {
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Returns the errors in the source as it stands, ordered by line.
+     *
+     * @return the errors in the source.
+     */
+    public ArrayList<Diagnostic> diagnostics() {
+        ArrayList<Diagnostic> diagnostics = new ArrayList<Diagnostic>(lexicalErrors);
+        diagnostics.addAll(syntaxErrors);
+        diagnostics.addAll(semanticErrors);
+        Collections.sort(diagnostics, new Comparator<Diagnostic>() {
+            public int compare(Diagnostic d1, Diagnostic d2) {
+                return Integer.compare(d1.line(), d2.line());
+            }
+        });
+        return diagnostics;
+    }
+
+    // Scans the text from the given offset, which must be that of a token or of the white space
+    // or comments before one, adding the tokens to scanned, and the lexical errors found to
+    // errors (and the positions in scanned of the tokens whose scanning found them to
+    // errorTokens). Scanning stops at EOF, and then returns the number of old tokens; or, if
+    // from is not negative, at the first token starting at or after the given offset (after)
+    // that starts where an old token with position from or more did (shifted by delta), and then
+    // returns the position just past that old token.
+    private int scan(int offset, TokenBuffer scanned, ArrayList<Diagnostic> errors,
+                     ArrayList<Integer> errorTokens, int from, int after, int delta) {
+        Scanner scanner = new Scanner(fileName, chars, length, offset);
+        int old = from;
+        while (true) {
+            int errorCount = scanner.errorCount();
+            TokenInfo token = scanner.getNextToken();
+            int start = scanner.tokenStart();
+            scanned.add(token, start, scanner.tokenEnd());
+            if (scanner.errorCount() > errorCount) {
+                ArrayList<Diagnostic> reported = Session.current().diagnostics();
+                int n = reported.size();
+                for (int i = n - (scanner.errorCount() - errorCount); i < n; i++) {
+                    errors.add(reported.get(i));
+                    errorTokens.add(scanned.size() - 1);
+                }
+            }
+            if (token.kind() == EOF) {
+                return tokens.size();
+            }
+            if (from >= 0 && start >= after) {
+                // The old EOF is never matched, as its line depends on how the text ends.
+                while (old < tokens.size() - 1 && tokens.start(old) + delta < start) {
+                    old++;
+                }
+                if (old < tokens.size() - 1 && tokens.start(old) + delta == start) {
+                    return old + 1;
+                }
+            }
+        }
+    }
+
+    // Parses the tokens, building a fresh AST.
+    private void parse() {
+        int count = Session.current().diagnostics().size();
+        Parser parser = new Parser(new LookaheadScanner(fileName, tokens));
+        ast = parser.compilationUnit();
+        memberSpans = parser.memberSpans();
+        syntaxErrors = diagnosticsSince(count);
+        isFresh = true;
+    }
+
+    // Parses the class member with the given index in memberSpans again, now that its tokens
+    // were edited (which changed their number by tokenDelta), replaces it in the AST, and
+    // returns its new extent. Returns null, having done nothing, if the parser found errors
+    // outside the member, or did not recover from those in it, or the member does not parse to
+    // where it ended before, as the rest of the parse may then differ.
+    private MemberSpan parseMember(int index, int tokenDelta) {
+        MemberSpan span = memberSpans.get(index);
+        if (span.errorsBefore() > 0 || span.errors() < syntaxErrors.size() ||
+                !span.isRecovered()) {
+            return null;
+        }
+        int count = Session.current().diagnostics().size();
+        Parser parser = new Parser(new LookaheadScanner(fileName, tokens));
+        MemberSpan replacement = parser.parseMember(span.start());
+        if (replacement == null || replacement.end() != span.end() + tokenDelta ||
+                !replacement.isRecovered()) {
+            return null;
+        }
+        owner(span.member()).replaceMember(span.member(), replacement.member());
+        memberSpans.set(index, replacement);
+        for (int i = index + 1; i < memberSpans.size(); i++) {
+            memberSpans.set(i, memberSpans.get(i).shift(tokenDelta, replacement.errors()));
+        }
+        syntaxErrors = diagnosticsSince(count);
+        isFresh = false;
+        return replacement;
+    }
+
+    // Analyzes the AST, unless it has syntax errors, parsing the tokens again first unless the AST
+    // is fresh.
+    private void analyze() {
+        semanticErrors = new ArrayList<Diagnostic>();
+        analysis = null;
+        if (!syntaxErrors.isEmpty()) {
+            return;
+        }
+        Session session = new Session(DISCARD, DISCARD);
+        Session previous = session.bind();
+        try {
+            if (!isFresh) {
+                parse();
+            }
+            isFresh = false;
+            ast.preAnalyze();
+            semanticErrors = session.diagnostics();
+            if (!semanticErrors.isEmpty()) {
+                return;
+            }
+            ast.analyze(null);
+            semanticErrors = session.diagnostics();
+            analysis = session;
+        } finally {
+            session.unbind(previous);
+        }
+    }
+
+    // Analyzes the given method (replacement) again, now that it has replaced the other
+    // (member) in the analyzed AST, and updates the semantic errors: those in the lines of the
+    // member replaced (firstLine to lastLine) go, those after them shift by lineDelta, and those
+    // found in the method come in. Returns false, having analyzed nothing, if either member is not
+    // a method, or the signature of the method changed, or pre-analysis of it found errors.
+    private boolean reanalyze(JMember member, JMember replacement, int firstLine, int lastLine,
+                              int lineDelta) {
+        if (!(member instanceof JMethodDeclaration) ||
+                !(replacement instanceof JMethodDeclaration)) {
+            return false;
+        }
+        JClassDeclaration owner = owner(replacement);
+        Session previous = analysis.bind();
+        try {
+            int count = analysis.diagnostics().size();
+            if (!owner.preAnalyzeReplacement((JMethodDeclaration) member,
+                    (JMethodDeclaration) replacement) || analysis.diagnostics().size() > count) {
+                return false;
+            }
+            owner.analyzeMember(replacement);
+            ArrayList<Diagnostic> errors = new ArrayList<Diagnostic>();
+            for (Diagnostic error : semanticErrors) {
+                if (error.line() < firstLine) {
+                    errors.add(error);
+                }
+            }
+            errors.addAll(diagnosticsSince(count));
+            for (Diagnostic error : semanticErrors) {
+                if (error.line() > lastLine) {
+                    errors.add(shift(error, lineDelta));
+                }
+            }
+            semanticErrors = errors;
+            return true;
+        } finally {
+            analysis.unbind(previous);
+        }
+    }
+
+    // Returns the class that declares the given member.
+    private JClassDeclaration owner(JMember member) {
+        for (JAST typeDeclaration : ast.typeDeclarations()) {
+            if (typeDeclaration instanceof JClassDeclaration &&
+                    ((JClassDeclaration) typeDeclaration).declares(member)) {
+                return (JClassDeclaration) typeDeclaration;
+            }
+        }
+        throw new IllegalStateException("No class declares " + member);
+    }
+
+    // Returns the index in memberSpans of the class member the tokens with positions from first
+    // up to last lie in, or -1 if there is none.
+    private int memberSpanIndex(int first, int last) {
+        for (int i = 0; i < memberSpans.size(); i++) {
+            MemberSpan span = memberSpans.get(i);
+            if (span.start() <= first && last <= span.end()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Returns true if no token outside the given member is in any of the lines it spans, and
+    // false otherwise.
+    private boolean hasLinesOfItsOwn(MemberSpan span) {
+        return tokens.line(span.start() - 1) < tokens.line(span.start()) &&
+                tokens.line(span.end() - 1) < tokens.line(span.end());
+    }
+
+    // Returns the position of the first token that ends at or after the given offset.
+    private int firstTokenEndingAtOrAfter(int offset) {
+        int low = 0, high = tokens.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.start(mid) + tokens.length(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Replaces the given range of the text by the first insertedLength characters of inserted.
+    private void replaceText(int offset, int length, char[] inserted, int insertedLength) {
+        int newLength = this.length - length + insertedLength;
+        char[] newChars = chars;
+        if (newLength > chars.length) {
+            newChars = new char[Math.max(newLength, chars.length * 2)];
+            System.arraycopy(chars, 0, newChars, 0, offset);
+        }
+        System.arraycopy(chars, offset + length, newChars, offset + insertedLength,
+                this.length - offset - length);
+        System.arraycopy(inserted, 0, newChars, offset, insertedLength);
+        chars = newChars;
+        this.length = newLength;
+    }
+
+    // Updates the lexical errors once the tokens with positions from first up to last are
+    // replaced by count others, whose scanning found the given errors (in the tokens with the
+    // given positions among them), and those after them shift by lineDelta lines.
+    private void spliceLexicalErrors(int first, int last, int count, ArrayList<Diagnostic> errors,
+                                     ArrayList<Integer> errorTokens, int lineDelta) {
+        ArrayList<Diagnostic> newErrors = new ArrayList<Diagnostic>();
+        ArrayList<Integer> newErrorTokens = new ArrayList<Integer>();
+        for (int i = 0; i < lexicalErrors.size() && lexicalErrorTokens.get(i) < first; i++) {
+            newErrors.add(lexicalErrors.get(i));
+            newErrorTokens.add(lexicalErrorTokens.get(i));
+        }
+        for (int i = 0; i < errors.size(); i++) {
+            newErrors.add(errors.get(i));
+            newErrorTokens.add(first + errorTokens.get(i));
+        }
+        for (int i = 0; i < lexicalErrors.size(); i++) {
+            if (lexicalErrorTokens.get(i) >= last) {
+                newErrors.add(shift(lexicalErrors.get(i), lineDelta));
+                newErrorTokens.add(lexicalErrorTokens.get(i) - (last - first) + count);
+            }
+        }
+        lexicalErrors = newErrors;
+        lexicalErrorTokens = newErrorTokens;
+    }
+
+    // Returns the errors reported in the session bound to the calling thread after the first
+    // count of them.
+    private static ArrayList<Diagnostic> diagnosticsSince(int count) {
+        ArrayList<Diagnostic> reported = Session.current().diagnostics();
+        return new ArrayList<Diagnostic>(reported.subList(count, reported.size()));
+    }
+
+    // Returns the given error, shifted by the given number of lines.
+    private static Diagnostic shift(Diagnostic error, int lineDelta) {
+        if (lineDelta == 0) {
+            return error;
+        }
+        return new Diagnostic(error.kind(), error.fileName(), error.line() + lineDelta,
+                error.message());
+    }
+
+    // Returns the number of new lines among the given range of characters.
+    private static int newLines(char[] chars, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if (chars[i] == '\n') {
+                n++;
+            }
+        }
+        return n;
+    }
+}
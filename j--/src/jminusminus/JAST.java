@@ -2,6 +2,7 @@
 
 package jminusminus;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 
 /**
@@ -9,9 +10,14 @@ import java.util.ArrayList;
  */
 abstract class JAST {
     /**
-     * Current compilation unit (set in JCompilationUnit()).
+     * Returns the current compilation unit (set in JCompilationUnit()) of the session bound to
+     * the calling thread.
+     *
+     * @return the current compilation unit.
      */
-    public static JCompilationUnit compilationUnit;
+    public static JCompilationUnit compilationUnit() {
+        return Session.current().compilationUnit();
+    }
 
     /**
      * Line in which the source for the AST was found.
@@ -44,17 +50,6 @@ abstract class JAST {
      */
     public abstract JAST analyze(Context context);
 
-    /**
-     * Generates a partial class for a type, reflecting only the member information required to
-     * do analysis.
-     *
-     * @param context the parent (class) context.
-     * @param partial the code emitter.
-     */
-    public void partialCodegen(Context context, CLEmitter partial) {
-        // A dummy -- redefined where necessary.
-    }
-
     /**
      * Performs code generation for this AST.
      *
@@ -71,6 +66,16 @@ abstract class JAST {
         // Nothing here.
     }
 
+    /**
+     * Writes this AST, as the parser built it, for an ASTReader to rebuild it from (see
+     * ASTCache). Only the ASTs the parser builds can be written.
+     *
+     * @param out the AST writer.
+     */
+    public void writeTo(ASTWriter out) {
+        throw new IllegalStateException(getClass().getName() + " cannot be cached");
+    }
+
     /**
      * Unescapes the escaped characters in the specified string and returns the unescaped string.
      *
@@ -122,9 +127,18 @@ abstract class JAST {
 }
 
 /**
- * Representation of an element with a JSON document.
+ * Representation of an element with a JSON document. An element is built in memory, and
+ * rendered by toString(), unless it is (a descendant of) one constructed to write to a stream,
+ * in which case the document goes to the stream as it is built: an element is written once its
+ * first child is added (its attributes having been added before), and each child once the next
+ * child is added or the element is closed. Only the elements on the path to the one being built
+ * are kept, so a document of any size can be written in a bounded amount of memory. Elements
+ * written to a stream must not be changed once they have been written.
  */
 class JSONElement {
+    // Spaces to indent elements written to a stream with.
+    private static final String SPACES = " ".repeat(64);
+
     // List of attribute names.
     private ArrayList<String> attrNames;
 
@@ -140,6 +154,21 @@ class JSONElement {
     // Indentation level.
     private int indentation;
 
+    // Stream the element is written to, or null if it is built in memory.
+    private PrintWriter out;
+
+    // Whether the element's opening brace (and what it held in memory) has been written.
+    private boolean isWritten;
+
+    // Whether the element is closed, and so written in full.
+    private boolean isClosed;
+
+    // Whether an attribute or child of the element has been written.
+    private boolean hasItems;
+
+    // The child of the element being written, or null.
+    private JSONElement openChild;
+
     /**
      * Constructs an empty JSON element.
      */
@@ -151,6 +180,17 @@ class JSONElement {
         indentation = 0;
     }
 
+    /**
+     * Constructs an empty JSON element, the root of a document to be written to the given stream
+     * as it is built. The document is complete once the element is closed.
+     *
+     * @param out the stream.
+     */
+    public JSONElement(PrintWriter out) {
+        this();
+        this.out = out;
+    }
+
     /**
      * Adds an attribute to this JSON element with the given name and value.
      *
@@ -158,6 +198,7 @@ class JSONElement {
      * @param value value of the attribute.
      */
     public void addAttribute(String name, String value) {
+        checkNotWritten();
         attrNames.add(name);
         attrValues.add(value);
     }
@@ -169,6 +210,7 @@ class JSONElement {
      * @param value value of the attribute as a list of strings.
      */
     public void addAttribute(String name, ArrayList<String> value) {
+        checkNotWritten();
         attrNames.add(name);
         attrValues.add(value.toString());
     }
@@ -181,8 +223,40 @@ class JSONElement {
      */
     public void addChild(String name, JSONElement child) {
         child.indentation = indentation + 4;
-        childrenNames.add(name);
-        children.add(child);
+        if (out == null) {
+            childrenNames.add(name);
+            children.add(child);
+            return;
+        }
+        if (isClosed) {
+            throw new IllegalStateException("JSON element changed after it was written");
+        }
+        write();
+        closeOpenChild();
+        startItem();
+        indent(indentation + 4);
+        out.print("\"" + name + "\":\n");
+        child.out = out;
+        openChild = child;
+    }
+
+    /**
+     * Closes this JSON element, which is written to a stream, writing what remains of it. This
+     * need only be done for the root of a document; other elements are closed as they are done
+     * with.
+     */
+    public void close() {
+        if (out == null || isClosed) {
+            return;
+        }
+        write();
+        closeOpenChild();
+        if (hasItems) {
+            out.print("\n");
+        }
+        indent(indentation);
+        out.print("}");
+        isClosed = true;
     }
 
     /**
@@ -192,19 +266,11 @@ class JSONElement {
      */
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        if (indentation > 0) {
-            sb.append(String.format("%" + indentation + "s", " "));
-        }
+        sb.append(spaces(indentation));
         sb.append("{\n");
         for (int i = 0; i < attrNames.size(); i++) {
-            String name = attrNames.get(i);
-            String value = attrValues.get(i);
-            sb.append(String.format("%" + (indentation + 4) + "s", " "));
-            if (value.startsWith("[") && value.endsWith("]")) {
-                sb.append(String.format("\"%s\": %s", name, value));
-            } else {
-                sb.append(String.format("\"%s\": \"%s\"", name, value));
-            }
+            sb.append(spaces(indentation + 4));
+            sb.append(attribute(attrNames.get(i), attrValues.get(i)));
             if (i < attrNames.size() - 1 || childrenNames.size() > 0) {
                 sb.append(",\n");
             } else {
@@ -214,7 +280,7 @@ class JSONElement {
         for (int i = 0; i < childrenNames.size(); i++) {
             String name = childrenNames.get(i);
             JSONElement child = children.get(i);
-            sb.append(String.format("%" + (indentation + 4) + "s", " "));
+            sb.append(spaces(indentation + 4));
             sb.append(String.format("\"%s\":\n", name));
             sb.append(child.toString());
             if (i < childrenNames.size() - 1) {
@@ -223,10 +289,79 @@ class JSONElement {
                 sb.append("\n");
             }
         }
-        if (indentation > 0) {
-            sb.append(String.format("%" + indentation + "s", " "));
-        }
+        sb.append(spaces(indentation));
         sb.append("}");
         return sb.toString();
     }
+
+    // Writes the opening brace of this element, and the attributes and children it holds in
+    // memory, if they have not been written yet.
+    private void write() {
+        if (isWritten) {
+            return;
+        }
+        indent(indentation);
+        out.print("{\n");
+        for (int i = 0; i < attrNames.size(); i++) {
+            startItem();
+            indent(indentation + 4);
+            out.print(attribute(attrNames.get(i), attrValues.get(i)));
+        }
+        for (int i = 0; i < childrenNames.size(); i++) {
+            startItem();
+            indent(indentation + 4);
+            out.print("\"" + childrenNames.get(i) + "\":\n");
+            out.print(children.get(i).toString());
+        }
+        attrNames.clear();
+        attrValues.clear();
+        childrenNames.clear();
+        children.clear();
+        isWritten = true;
+    }
+
+    // Closes the child of this element being written, if any.
+    private void closeOpenChild() {
+        if (openChild != null) {
+            openChild.close();
+            openChild = null;
+        }
+    }
+
+    // Writes the separator before an attribute or child of this element.
+    private void startItem() {
+        if (hasItems) {
+            out.print(",\n");
+        }
+        hasItems = true;
+    }
+
+    // Throws an IllegalStateException if this element has been written to a stream.
+    private void checkNotWritten() {
+        if (isWritten) {
+            throw new IllegalStateException("JSON element changed after it was written");
+        }
+    }
+
+    // Writes the given number of spaces to the stream.
+    private void indent(int n) {
+        while (n > SPACES.length()) {
+            out.write(SPACES);
+            n -= SPACES.length();
+        }
+        out.write(SPACES, 0, n);
+    }
+
+    // Returns the given attribute as a JSON member.
+    private static String attribute(String name, String value) {
+        if (value.startsWith("[") && value.endsWith("]")) {
+            return "\"" + name + "\": " + value;
+        }
+        return "\"" + name + "\": \"" + value + "\"";
+    }
+
+    // Returns the given number of spaces (none if the number is 0, as for the root).
+    private static String spaces(int n) {
+        return n > 0 ? String.format("%" + n + "s", " ") : "";
+    }
 }
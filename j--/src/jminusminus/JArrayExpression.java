@@ -35,7 +35,7 @@ class JArrayExpression extends JExpression implements JLhs {
         theArray = (JExpression) theArray.analyze(context);
         indexExpr = (JExpression) indexExpr.analyze(context);
         if (!(theArray.type().isArray())) {
-            JAST.compilationUnit.reportSemanticError(line(), "attempt to index a non-array object");
+            JAST.compilationUnit().reportSemanticError(line(), "attempt to index a non-array object");
             this.type = Type.ANY;
         } else {
             this.type = theArray.type().componentType();
@@ -144,4 +144,13 @@ class JArrayExpression extends JExpression implements JLhs {
         e.addChild("TheIndex", e2);
         indexExpr.toJSON(e2);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JArrayExpression", line);
+        out.writeNode(theArray);
+        out.writeNode(indexExpr);
+    }
 }
@@ -32,7 +32,7 @@ class JArrayInitializer extends JExpression {
     public JExpression analyze(Context context) {
         type = type.resolve(context);
         if (!type.isArray()) {
-            JAST.compilationUnit.reportSemanticError(line, "Cannot initialize a " + type.toString()
+            JAST.compilationUnit().reportSemanticError(line, "Cannot initialize a " + type.toString()
                     + " with an array sequence {...}");
             return this;
         }
@@ -98,4 +98,13 @@ class JArrayInitializer extends JExpression {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JArrayInitializer", line);
+        out.writeType(type);
+        out.writeNodes(initials);
+    }
 }
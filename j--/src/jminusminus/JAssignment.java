@@ -41,7 +41,7 @@ class JAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
         }
@@ -91,7 +91,7 @@ class JPlusAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -110,7 +110,7 @@ class JPlusAssignOp extends JAssignment {
             rhs = (new JStringConcatenationOp(line, lhs, rhs)).analyze(context);
             type = Type.STRING;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for +=: " + lhs.type());
         }
         return this;
@@ -163,7 +163,7 @@ class JMinusAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -179,7 +179,7 @@ class JMinusAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.DOUBLE);
             type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for -=: " + lhs.type());
         }
         return this;
@@ -226,7 +226,7 @@ class JStarAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -242,7 +242,7 @@ class JStarAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.DOUBLE);
             type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for *=: " + lhs.type());
         }
         return this;
@@ -289,7 +289,7 @@ class JDivAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -305,7 +305,7 @@ class JDivAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.DOUBLE);
             type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for /=: " + lhs.type());
         }
         return this;
@@ -354,7 +354,7 @@ class JRemAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -370,7 +370,7 @@ class JRemAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.DOUBLE);
             type = Type.INT;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for %=: " + lhs.type());
         }
         return this;
@@ -417,7 +417,7 @@ class JOrAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -430,7 +430,7 @@ class JOrAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.LONG);
             type = Type.LONG;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for |=: " + lhs.type());
         }
         return this;
@@ -475,7 +475,7 @@ class JAndAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -488,7 +488,7 @@ class JAndAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.LONG);
             type = Type.LONG;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for &=: " + lhs.type());
         }
         return this;
@@ -533,7 +533,7 @@ class JXorAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -546,7 +546,7 @@ class JXorAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.LONG);
             type = Type.LONG;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for ^=: " + lhs.type());
         }
         return this;
@@ -591,7 +591,7 @@ class JALeftShiftAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -604,7 +604,7 @@ class JALeftShiftAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.LONG);
             type = Type.LONG;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for <<=: " + lhs.type());
         }
         return this;
@@ -649,7 +649,7 @@ class JARightShiftAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -662,7 +662,7 @@ class JARightShiftAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.LONG);
             type = Type.LONG;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for >>=: " + lhs.type());
         }
         return this;
@@ -707,7 +707,7 @@ class JLRightShiftAssignOp extends JAssignment {
      */
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(), "Illegal lhs for assignment");
+            JAST.compilationUnit().reportSemanticError(line(), "Illegal lhs for assignment");
             return this;
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -720,7 +720,7 @@ class JLRightShiftAssignOp extends JAssignment {
             rhs.type().mustMatchExpected(line(), Type.LONG);
             type = Type.LONG;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for >>>=: " + lhs.type());
         }
         return this;
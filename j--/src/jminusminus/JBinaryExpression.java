@@ -54,6 +54,15 @@ abstract class JBinaryExpression extends JExpression {
         e.addChild("Operand2", e2);
         rhs.toJSON(e2);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag(getClass().getSimpleName(), line);
+        out.writeNode(lhs);
+        out.writeNode(rhs);
+    }
 }
 
 /**
@@ -85,7 +94,7 @@ class JMultiplyOp extends JBinaryExpression {
             type = Type.LONG;
         } else {
             type = Type.ANY;
-            JAST.compilationUnit.reportSemanticError(line(), "Invalid operand types for *");
+            JAST.compilationUnit().reportSemanticError(line(), "Invalid operand types for *");
         }
         return this;
     }
@@ -135,7 +144,7 @@ class JDivideOp extends JBinaryExpression {
             type = Type.LONG;
         } else {
             type = Type.ANY;
-            JAST.compilationUnit.reportSemanticError(line(), "Invalid operand types for /");
+            JAST.compilationUnit().reportSemanticError(line(), "Invalid operand types for /");
         }
         return this;
     }
@@ -225,7 +234,7 @@ class JPlusOp extends JBinaryExpression {
             type = Type.LONG;
         } else {
             type = Type.ANY;
-            JAST.compilationUnit.reportSemanticError(line(), "Invalid operand types for +");
+            JAST.compilationUnit().reportSemanticError(line(), "Invalid operand types for +");
         }
         return this;
     }
@@ -275,7 +284,7 @@ class JSubtractOp extends JBinaryExpression {
             type = Type.LONG;
         } else {
             type = Type.ANY;
-            JAST.compilationUnit.reportSemanticError(line(), "Invalid operand types for -");
+            JAST.compilationUnit().reportSemanticError(line(), "Invalid operand types for -");
         }
         return this;
     }
@@ -34,6 +34,17 @@ class JBlock extends JStatement {
         return statements;
     }
 
+    /**
+     * Returns true if there are syntax errors in this block, and false otherwise. The body of a
+     * method (or constructor) with syntax errors is neither analyzed nor generated code for, as
+     * the AST the parser builds in recovering from them need not make sense.
+     *
+     * @return true if there are syntax errors in this block, and false otherwise.
+     */
+    public boolean hasSyntaxErrors() {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -69,4 +80,12 @@ class JBlock extends JStatement {
             statement.toJSON(e);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JBlock", line);
+        out.writeNodes(statements);
+    }
 }
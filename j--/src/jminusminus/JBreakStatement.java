@@ -27,11 +27,11 @@ class JBreakStatement extends JStatement {
      * {@inheritDoc}
      */
     public JBreakStatement analyze(Context context) {
-        Stack<JStatement> stack = JMember.memberStack;
+        Stack<JStatement> stack = JMember.memberStack();
         if (stack.size() > 0) {
             statement = stack.pop();
             if (statement instanceof JIfStatement)
-                JAST.compilationUnit.reportSemanticError(line(), "Found break inside an if statement.");
+                JAST.compilationUnit().reportSemanticError(line(), "Found break inside an if statement.");
         }
         return this;
     }
@@ -51,4 +51,11 @@ class JBreakStatement extends JStatement {
         JSONElement e = new JSONElement();
         json.addChild("JBreakStatement:" + line, e);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JBreakStatement", line);
+    }
 }
@@ -78,17 +78,16 @@ class JClassDeclaration extends JAST implements JTypeDecl {
      * {@inheritDoc}
      */
     public void declareThisType(Context context) {
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ?
-                name : JAST.compilationUnit.packageName() + "/" + name;
-        CLEmitter partial = new CLEmitter(false);
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ?
+                name : JAST.compilationUnit().packageName() + "/" + name;
         if (impl != null) {
             implNames = new ArrayList<String>();
             for (Type implType : impl) {
                 implNames.add(implType.jvmName());
             }
         }
-        partial.addClass(mods, qualifiedName, Type.OBJECT.jvmName(), implNames, false);
-        thisType = Type.typeFor(partial.toClass());
+        thisType = Type.typeFor(new DeclaredClassSymbol(mods, qualifiedName,
+                Type.OBJECT.jvmName(), implNames));
         context.addType(line, thisType);
     }
 
@@ -106,38 +105,48 @@ class JClassDeclaration extends JAST implements JTypeDecl {
         // Resolve superclass.
         superType = superType.resolve(this.context);
 
-        // Creating a partial class in memory can result in a java.lang.VerifyError if the
-        // semantics below are violated, so we can't defer these checks to analyze().
-        thisType.checkAccess(line, superType);
-        if (superType.isFinal()) {
-            JAST.compilationUnit.reportSemanticError(line, "Cannot extend a final type: %s",
-                    superType.toString());
+        // The superclass must not be this class, or extend it.
+        for (Type type = superType; type != null; type = type.superClass()) {
+            if (type == thisType) {
+                JAST.compilationUnit().reportSemanticError(line,
+                        "Cyclic inheritance involving %s", thisType.toString());
+                break;
+            }
         }
 
-        // Create the (partial) class.
-        CLEmitter partial = new CLEmitter(false);
+        // A superclass that could not be resolved has already been reported.
+        if (superType != Type.ANY) {
+            thisType.checkAccess(line, superType);
+            if (superType.isFinal()) {
+                JAST.compilationUnit().reportSemanticError(line, "Cannot extend a final type: %s",
+                        superType.toString());
+            }
+        }
 
-        // Add the class header to the partial class
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ?
-                name : JAST.compilationUnit.packageName() + "/" + name;
-        partial.addClass(mods, qualifiedName, superType.jvmName(), implNames, false);
+        // Build the symbol for the class, from its header.
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ?
+                name : JAST.compilationUnit().packageName() + "/" + name;
+        DeclaredClassSymbol symbol =
+                new DeclaredClassSymbol(mods, qualifiedName, superType.jvmName(), implNames);
 
-        // Pre-analyze the members and add them to the partial class.
+        // Pre-analyze the members and add them to the symbol.
         for (JMember member : classBlock) {
-            member.preAnalyze(this.context, partial);
+            member.preAnalyze(this.context, symbol);
             hasExplicitConstructor =
                     hasExplicitConstructor || member instanceof JConstructorDeclaration;
         }
 
         // Add the implicit empty constructor?
         if (!hasExplicitConstructor) {
-            codegenPartialImplicitConstructor(partial);
+            ArrayList<String> mods = new ArrayList<String>();
+            mods.add("public");
+            symbol.addMethod(mods, "<init>", "()V");
         }
 
-        // Get the ClassRep for the (partial) class and make it the representation for this type.
+        // Make the symbol the representation for this type.
         Type id = this.context.lookupType(name);
-        if (id != null && !JAST.compilationUnit.errorHasOccurred()) {
-            id.setClassRep(partial.toClass());
+        if (id != null) {
+            id.setSymbol(symbol);
         }
     }
 
@@ -162,6 +171,13 @@ class JClassDeclaration extends JAST implements JTypeDecl {
         return superType;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<Type> superInterfaces() {
+        return impl;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -189,19 +205,70 @@ class JClassDeclaration extends JAST implements JTypeDecl {
             for (Method method : thisType.abstractMethods()) {
                 methods += "\n" + method;
             }
-            JAST.compilationUnit.reportSemanticError(line,
+            JAST.compilationUnit().reportSemanticError(line,
                     "Class must be abstract since it defines abstract methods: %s", methods);
         }
         return this;
     }
 
+    /**
+     * Returns true if the given member is one of this class's, and false otherwise.
+     *
+     * @param member the member.
+     * @return whether the member is one of this class's.
+     */
+    public boolean declares(JMember member) {
+        return classBlock.contains(member);
+    }
+
+    /**
+     * Replaces one of this class's members by another, parsed from its edited tokens (see
+     * IncrementalCompiler).
+     *
+     * @param member      the member replaced.
+     * @param replacement the member replacing it.
+     */
+    public void replaceMember(JMember member, JMember replacement) {
+        classBlock.set(classBlock.indexOf(member), replacement);
+    }
+
+    /**
+     * Pre-analyzes the given method, which has replaced a method of this (analyzed) class, and
+     * returns true if it has the signature of the method it replaced, and false otherwise. Only the
+     * replacement is pre-analyzed, into a symbol of its own; when its signature is unchanged, the
+     * symbol built for this class by preAnalyze() still holds for it, and so does the analysis of
+     * the other members.
+     *
+     * @param member      the (pre-analyzed) method replaced.
+     * @param replacement the method replacing it.
+     * @return whether the replacement has the signature of the method it replaced.
+     */
+    public boolean preAnalyzeReplacement(JMethodDeclaration member,
+                                         JMethodDeclaration replacement) {
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ?
+                name : JAST.compilationUnit().packageName() + "/" + name;
+        replacement.preAnalyze(this.context,
+                new DeclaredClassSymbol(mods, qualifiedName, superType.jvmName(), implNames));
+        return replacement.signature().equals(member.signature());
+    }
+
+    /**
+     * Analyzes the given member of this (analyzed) class, one that has replaced another (see
+     * preAnalyzeReplacement()).
+     *
+     * @param member the member.
+     */
+    public void analyzeMember(JMember member) {
+        ((JAST) member).analyze(this.context);
+    }
+
     /**
      * {@inheritDoc}
      */
     public void codegen(CLEmitter output) {
         // The class header.
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ?
-                name : JAST.compilationUnit.packageName() + "/" + name;
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ?
+                name : JAST.compilationUnit().packageName() + "/" + name;
         output.addClass(mods, qualifiedName, superType.jvmName(), implNames, false);
 
         // The implicit empty constructor?
@@ -252,15 +319,16 @@ class JClassDeclaration extends JAST implements JTypeDecl {
         }
     }
 
-    // Generates code for an implicit empty constructor (necessary only if there is not already
-    // an explicit one).
-    private void codegenPartialImplicitConstructor(CLEmitter partial) {
-        ArrayList<String> mods = new ArrayList<String>();
-        mods.add("public");
-        partial.addMethod(mods, "<init>", "()V", null, false);
-        partial.addNoArgInstruction(ALOAD_0);
-        partial.addMemberAccessInstruction(INVOKESPECIAL, superType.jvmName(), "<init>", "()V");
-        partial.addNoArgInstruction(RETURN);
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JClassDeclaration", line);
+        out.writeStrings(mods);
+        out.writeString(name);
+        out.writeType(superType);
+        out.writeNodes(classBlock);
+        out.writeTypes(impl);
     }
 
     // Generates code for an implicit empty constructor (necessary only if there is not already
@@ -28,7 +28,7 @@ abstract class JComparisonExpression extends JBooleanBinaryExpression {
         rhs = (JExpression) rhs.analyze(context);
         lhs.type().mustMatchExpected(line(), rhs.type());
         if (lhs.type() == Type.BOOLEAN && rhs.type() == Type.BOOLEAN) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for " + rhs.type() + " " + operator + " " + lhs.type());
         }
 
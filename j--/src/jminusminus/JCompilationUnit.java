@@ -3,6 +3,8 @@
 package jminusminus;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 
 /**
  * The abstract syntax tree (AST) node representing a compilation unit, and so the root of the AST.
@@ -12,8 +14,8 @@ import java.util.ArrayList;
  * <ol>
  *   <li>Method preAnalyze() is invoked for making a first pass at type analysis, recursively
  *   reaching down to the member headers for declaring types and member interfaces in the
- *   environment (contexts). preAnalyze() also creates a partial class file (in memory) for
- *   recording member header information.</li>
+ *   environment (contexts). preAnalyze() also builds a symbol (see DeclaredClassSymbol) for
+ *   each type, recording member header information.</li>
  *
  *   <li>Method analyze() is invoked for type-checking field initializations and method bodies,
  *   and determining the types of all expressions. A certain amount of tree surgery is also done
@@ -50,6 +52,9 @@ class JCompilationUnit extends JAST {
     // Whether a semantic error has been found.
     private boolean isInError;
 
+    // Names of the types this compilation unit depends on (for incremental compilation).
+    private HashSet<String> dependencies;
+
     /**
      * Constructs an AST node for a compilation unit.
      *
@@ -67,7 +72,17 @@ class JCompilationUnit extends JAST {
         this.imports = imports;
         this.typeDeclarations = typeDeclarations;
         clFiles = new ArrayList<CLFile>();
-        compilationUnit = this;
+        dependencies = new HashSet<String>();
+        Session.current().setCompilationUnit(this);
+    }
+
+    /**
+     * Returns the name of the source file.
+     *
+     * @return the name of the source file.
+     */
+    public String fileName() {
+        return fileName;
     }
 
     /**
@@ -79,6 +94,15 @@ class JCompilationUnit extends JAST {
         return packageName == null ? "" : packageName.toString().replace(".", "/");
     }
 
+    /**
+     * Returns the type declarations in this compilation unit.
+     *
+     * @return the type declarations in this compilation unit.
+     */
+    public ArrayList<JAST> typeDeclarations() {
+        return typeDeclarations;
+    }
+
     /**
      * Returns the list of CLFile objects corresponding to the type declarations in this
      * compilation unit.
@@ -90,6 +114,49 @@ class JCompilationUnit extends JAST {
         return clFiles;
     }
 
+    /**
+     * Returns the types declared in this compilation unit.
+     *
+     * @return the types declared in this compilation unit.
+     */
+    public ArrayList<Type> declaredTypes() {
+        ArrayList<Type> declaredTypes = new ArrayList<Type>();
+        for (JAST typeDeclaration : typeDeclarations) {
+            declaredTypes.add(((JTypeDecl) typeDeclaration).thisType());
+        }
+        return declaredTypes;
+    }
+
+    /**
+     * Records that this compilation unit depends on the given type, and so on its super types:
+     * that it has resolved the type, or looked up one of its members.
+     *
+     * @param type the type.
+     */
+    public void addDependency(Type type) {
+        while (type.isArray()) {
+            type = type.componentType();
+        }
+        if (type.isPrimitive() || type.symbol() == null || !dependencies.add(type.toString())) {
+            return;
+        }
+        if (type.superClass() != null) {
+            addDependency(type.superClass());
+        }
+        for (Type superInterface : type.interfaces()) {
+            addDependency(superInterface);
+        }
+    }
+
+    /**
+     * Returns the (fully qualified) names of the types this compilation unit depends on.
+     *
+     * @return the names of the types this compilation unit depends on.
+     */
+    public HashSet<String> dependencies() {
+        return dependencies;
+    }
+
     /**
      * Returns true if a semantic error has occurred up to now, and false otherwise.
      *
@@ -99,6 +166,14 @@ class JCompilationUnit extends JAST {
         return isInError;
     }
 
+    /**
+     * Records that a syntax error has occurred in a method or constructor body parsed after the
+     * rest of the compilation unit (see JSkimmedBlock). The parser has reported the error.
+     */
+    public void recordSyntaxError() {
+        isInError = true;
+    }
+
     /**
      * Reports a semantic error.
      *
@@ -108,9 +183,11 @@ class JCompilationUnit extends JAST {
      */
     public void reportSemanticError(int line, String message, Object... arguments) {
         isInError = true;
-        System.err.printf("%s:%d: error: ", fileName, line);
-        System.err.printf(message, arguments);
-        System.err.println();
+        Session.current().err().printf("%s:%d: error: ", fileName, line);
+        Session.current().err().printf(message, arguments);
+        Session.current().err().println();
+        Session.current().addDiagnostic(new Diagnostic(Diagnostic.Kind.SEMANTIC, fileName, line,
+                String.format(message, arguments)));
     }
 
     /**
@@ -118,34 +195,90 @@ class JCompilationUnit extends JAST {
      * pre-analyzes the unit's type declarations, adding their types to the context.
      */
     public void preAnalyze() {
-        context = new CompilationUnitContext();
+        ArrayList<JCompilationUnit> compilationUnits = new ArrayList<JCompilationUnit>();
+        compilationUnits.add(this);
+        preAnalyze(compilationUnits);
+    }
 
-        // Declare the two implicit types java.lang.Object and java.lang.String.
-        context.addType(0, Type.OBJECT);
-        context.addType(0, Type.STRING);
+    /**
+     * Pre-analyzes the given compilation units together, so that a type declared in any one of
+     * them can be referenced from the others: by its simple name from the compilation units of
+     * the same package, and by its fully qualified name (or an import) from the rest.
+     * <p>
+     * The type declarations are visited so that a type extending or implementing another type
+     * declared in the batch comes after it, so that the symbols for its super types are
+     * complete (see ClassSymbol) by the time it is pre-analyzed.
+     *
+     * @param compilationUnits the compilation units to pre-analyze.
+     */
+    public static void preAnalyze(ArrayList<JCompilationUnit> compilationUnits) {
+        // Context for the types declared by all the compilation units.
+        CompilationUnitContext batchContext = new CompilationUnitContext();
+        for (JCompilationUnit unit : compilationUnits) {
+            unit.context = new CompilationUnitContext(batchContext, unit.packageName());
 
-        // Declare any imported types.
-        for (TypeName imported : imports) {
-            try {
-                Class<?> classRep = Class.forName(imported.toString());
-                context.addType(imported.line(), Type.typeFor(classRep));
-            } catch (Exception e) {
-                JAST.compilationUnit.reportSemanticError(imported.line(), "Unable to find %s",
-                        imported.toString());
+            // Declare the two implicit types java.lang.Object and java.lang.String.
+            unit.context.addType(0, Type.OBJECT);
+            unit.context.addType(0, Type.STRING);
+        }
+        HashMap<String, JAST> batchTypes = batchTypes(compilationUnits);
+        ArrayList<JAST> typeDeclarations = new ArrayList<JAST>();
+        ArrayList<JCompilationUnit> declaringUnits = new ArrayList<JCompilationUnit>();
+        orderTypeDeclarations(compilationUnits, batchTypes, typeDeclarations, declaringUnits);
+
+        // Declare any imported types, other than those declared by the compilation units.
+        for (JCompilationUnit unit : compilationUnits) {
+            Session.current().setCompilationUnit(unit);
+            for (TypeName imported : unit.imports) {
+                if (batchTypes.containsKey(imported.toString())) {
+                    continue;
+                }
+                Type type = Type.classTypeFor(imported.toString());
+                if (type != null) {
+                    unit.context.addType(imported.line(), type);
+                } else {
+                    JAST.compilationUnit().reportSemanticError(imported.line(),
+                            "Unable to find %s", imported.toString());
+                }
             }
         }
 
         // Declare the locally declared type(s).
-        CLEmitter.initializeByteClassLoader();
-        for (JAST typeDeclaration : typeDeclarations) {
-            ((JTypeDecl) typeDeclaration).declareThisType(context);
+        HashMap<String, JCompilationUnit> declaredBy = new HashMap<String, JCompilationUnit>();
+        for (int i = 0; i < typeDeclarations.size(); i++) {
+            JCompilationUnit unit = declaringUnits.get(i);
+            JTypeDecl typeDeclaration = (JTypeDecl) typeDeclarations.get(i);
+            String name = unit.qualifiedName(typeDeclaration.name());
+            Session.current().setCompilationUnit(unit);
+            typeDeclaration.declareThisType(unit.context);
+            if (!declaredBy.containsKey(name)) {
+                declaredBy.put(name, unit);
+                batchContext.addEntry(typeDeclarations.get(i).line(), name,
+                        new TypeNameDefn(typeDeclaration.thisType()));
+            } else if (declaredBy.get(name) != unit) {
+                // Redefinitions within a compilation unit are reported by its own context.
+                unit.reportSemanticError(typeDeclarations.get(i).line(),
+                        "Type %s is already declared in %s", name, declaredBy.get(name).fileName);
+            }
         }
 
-        // Pre-analyze the locally declared type(s). Generate (partial) Class instances,
-        // reflecting only the member declaration information.
-        CLEmitter.initializeByteClassLoader();
-        for (JAST typeDeclaration : typeDeclarations) {
-            ((JTypeDecl) typeDeclaration).preAnalyze(context);
+        // Declare the imported types that are declared by the compilation units.
+        for (JCompilationUnit unit : compilationUnits) {
+            Session.current().setCompilationUnit(unit);
+            for (TypeName imported : unit.imports) {
+                if (batchTypes.containsKey(imported.toString())) {
+                    TypeNameDefn defn = (TypeNameDefn) batchContext.lookup(imported.toString());
+                    unit.context.addType(imported.line(), defn.type());
+                }
+            }
+        }
+
+        // Pre-analyze the locally declared type(s), building their symbols from the member
+        // declaration information.
+        for (int i = 0; i < typeDeclarations.size(); i++) {
+            JCompilationUnit unit = declaringUnits.get(i);
+            Session.current().setCompilationUnit(unit);
+            ((JTypeDecl) typeDeclarations.get(i)).preAnalyze(unit.context);
         }
     }
 
@@ -153,6 +286,7 @@ class JCompilationUnit extends JAST {
      * {@inheritDoc}
      */
     public JAST analyze(Context context) {
+        Session.current().setCompilationUnit(this);
         for (JAST typeDeclaration : typeDeclarations) {
             typeDeclaration.analyze(this.context);
         }
@@ -163,6 +297,7 @@ class JCompilationUnit extends JAST {
      * {@inheritDoc}
      */
     public void codegen(CLEmitter output) {
+        Session.current().setCompilationUnit(this);
         for (JAST typeDeclaration : typeDeclarations) {
             typeDeclaration.codegen(output);
             output.write();
@@ -196,4 +331,106 @@ class JCompilationUnit extends JAST {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JCompilationUnit", line);
+        out.writeType(packageName);
+        out.writeTypes(imports);
+        out.writeNodes(typeDeclarations);
+    }
+
+    // Returns the fully qualified name of the given type declared in this compilation unit.
+    private String qualifiedName(String name) {
+        return packageName().equals("") ? name : packageName().replace('/', '.') + "." + name;
+    }
+
+    // Returns the fully qualified name denoted by a (possibly simple) type name referenced from
+    // this compilation unit, if it names one of the given batch types, and null otherwise.
+    private String qualifiedName(Type type, HashMap<String, JAST> batchTypes) {
+        if (!(type instanceof TypeName)) {
+            return null;
+        }
+        String name = type.toString();
+        for (TypeName imported : imports) {
+            if (imported.simpleName().equals(name) &&
+                    batchTypes.containsKey(imported.toString())) {
+                return imported.toString();
+            }
+        }
+        if (batchTypes.containsKey(qualifiedName(name))) {
+            return qualifiedName(name);
+        }
+        return batchTypes.containsKey(name) ? name : null;
+    }
+
+    // Returns a map from the fully qualified names of the types declared by the given compilation
+    // units to their declarations.
+    private static HashMap<String, JAST> batchTypes(ArrayList<JCompilationUnit> compilationUnits) {
+        HashMap<String, JAST> batchTypes = new HashMap<String, JAST>();
+        for (JCompilationUnit unit : compilationUnits) {
+            for (JAST typeDeclaration : unit.typeDeclarations) {
+                String name = unit.qualifiedName(((JTypeDecl) typeDeclaration).name());
+                if (!batchTypes.containsKey(name)) {
+                    batchTypes.put(name, typeDeclaration);
+                }
+            }
+        }
+        return batchTypes;
+    }
+
+    // Orders the type declarations of the given compilation units so that every type declared
+    // in the batch precedes the types that extend or implement it, and stores them (along with
+    // the compilation units declaring them) in the given lists. Types on an inheritance cycle
+    // are left in source order.
+    private static void orderTypeDeclarations(ArrayList<JCompilationUnit> compilationUnits,
+                                              HashMap<String, JAST> batchTypes,
+                                              ArrayList<JAST> typeDeclarations,
+                                              ArrayList<JCompilationUnit> declaringUnits) {
+        HashMap<JAST, JCompilationUnit> units = new HashMap<JAST, JCompilationUnit>();
+        for (JCompilationUnit unit : compilationUnits) {
+            for (JAST typeDeclaration : unit.typeDeclarations) {
+                units.put(typeDeclaration, unit);
+            }
+        }
+        HashSet<JAST> visited = new HashSet<JAST>();
+        for (JCompilationUnit unit : compilationUnits) {
+            for (JAST typeDeclaration : unit.typeDeclarations) {
+                orderTypeDeclaration(typeDeclaration, batchTypes, units, visited,
+                        typeDeclarations, declaringUnits);
+            }
+        }
+    }
+
+    // Adds the given type declaration to the ordered lists, after the batch types it extends or
+    // implements.
+    private static void orderTypeDeclaration(JAST typeDeclaration, HashMap<String, JAST> batchTypes,
+                                             HashMap<JAST, JCompilationUnit> units,
+                                             HashSet<JAST> visited,
+                                             ArrayList<JAST> typeDeclarations,
+                                             ArrayList<JCompilationUnit> declaringUnits) {
+        if (!visited.add(typeDeclaration)) {
+            return;
+        }
+        JCompilationUnit unit = units.get(typeDeclaration);
+        JTypeDecl decl = (JTypeDecl) typeDeclaration;
+        ArrayList<Type> superTypes = new ArrayList<Type>();
+        if (decl.superType() != null) {
+            superTypes.add(decl.superType());
+        }
+        if (decl.superInterfaces() != null) {
+            superTypes.addAll(decl.superInterfaces());
+        }
+        for (Type superType : superTypes) {
+            String name = unit.qualifiedName(superType, batchTypes);
+            if (name != null) {
+                orderTypeDeclaration(batchTypes.get(name), batchTypes, units, visited,
+                        typeDeclarations, declaringUnits);
+            }
+        }
+        typeDeclarations.add(typeDeclaration);
+        declaringUnits.add(unit);
+    }
 }
@@ -43,7 +43,7 @@ public class JConditionalExpression extends JExpression {
         thenPart = (JExpression) thenPart.analyze(context);
         elsePart = (JExpression) elsePart.analyze(context);
         elsePart.type().mustMatchExpected(line(), thenPart.type());
-        type = thenPart.type();
+        type = thenPart.type() == Type.NULLTYPE ? elsePart.type() : thenPart.type();
         return this;
     }
 
@@ -78,4 +78,14 @@ public class JConditionalExpression extends JExpression {
         elsePart.toJSON(e3);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JConditionalExpression", line);
+        out.writeNode(condition);
+        out.writeNode(thenPart);
+        out.writeNode(elsePart);
+    }
+
 }
\ No newline at end of file
@@ -40,12 +40,12 @@ class JConstructorDeclaration extends JMethodDeclaration implements JMember {
     /**
      * {@inheritDoc}
      */
-    public void preAnalyze(Context context, CLEmitter partial) {
-        super.preAnalyze(context, partial);
+    public void preAnalyze(Context context, DeclaredClassSymbol symbol) {
+        super.preAnalyze(context, symbol);
         if (isStatic) {
-            JAST.compilationUnit.reportSemanticError(line(), "Constructor cannot be static");
+            JAST.compilationUnit().reportSemanticError(line(), "Constructor cannot be static");
         } else if (isAbstract) {
-            JAST.compilationUnit.reportSemanticError(line(), "Constructor cannot be abstract");
+            JAST.compilationUnit().reportSemanticError(line(), "Constructor cannot be abstract");
         }
 
         if (exceptions != null) {
@@ -97,25 +97,18 @@ class JConstructorDeclaration extends JMethodDeclaration implements JMember {
             this.context.addEntry(param.line(), param.name(), defn);
         }
 
-        if (body != null) {
+        if (body != null && !body.hasSyntaxErrors()) {
             body = body.analyze(this.context);
         }
-        memberStack.clear();
+        JMember.memberStack().clear();
         return this;
     }
 
     /**
      * {@inheritDoc}
      */
-    public void partialCodegen(Context context, CLEmitter partial) {
-        partial.addMethod(mods, "<init>", descriptor, exceptionNames, false);
-        if (!invokesConstructor) {
-            partial.addNoArgInstruction(ALOAD_0);
-            partial.addMemberAccessInstruction(INVOKESPECIAL,
-                    ((JClassDeclaration) context.classContext().definition()).superType().jvmName(),
-                    "<init>", "()V");
-        }
-        partial.addNoArgInstruction(RETURN);
+    public void addTo(DeclaredClassSymbol symbol) {
+        symbol.addMethod(mods, "<init>", descriptor);
     }
 
     /**
@@ -176,4 +169,18 @@ class JConstructorDeclaration extends JMethodDeclaration implements JMember {
             body.toJSON(e);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JConstructorDeclaration", line);
+        // The modifiers of a constructor without a body end with the "abstract" added for it.
+        out.writeStrings(body == null ? new ArrayList<String>(mods.subList(0, mods.size() - 1)) :
+                mods);
+        out.writeString(name);
+        out.writeNodes(params);
+        out.writeNode(body);
+        out.writeTypes(super.exceptions);
+    }
 }
@@ -25,11 +25,11 @@ class JContinueStatement extends JStatement {
      * {@inheritDoc}
      */
     public JContinueStatement analyze(Context context) {
-        Stack<JStatement> stack = JMember.memberStack;
+        Stack<JStatement> stack = JMember.memberStack();
         if (stack.size() > 0) {
             statement = stack.pop();
             if (statement instanceof JIfStatement)
-                JAST.compilationUnit.reportSemanticError(line(), "Found continue inside an if statement.");
+                JAST.compilationUnit().reportSemanticError(line(), "Found continue inside an if statement.");
         }
         return this;
     }
@@ -49,4 +49,11 @@ class JContinueStatement extends JStatement {
         JSONElement e = new JSONElement();
         json.addChild("JContinueStatement:" + line, e);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JContinueStatement", line);
+    }
 }
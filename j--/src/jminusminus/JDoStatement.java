@@ -33,11 +33,11 @@ class JDoStatement extends JStatement {
      * {@inheritDoc}
      */
     public JDoStatement analyze(Context context) {
-        JMember.memberStack.push(this);
+        JMember.memberStack().push(this);
         body = (JStatement) body.analyze(context);
         condition = condition.analyze(context);
         condition.type().mustMatchExpected(line(), Type.BOOLEAN);
-        JMember.memberStack.push(this);
+        JMember.memberStack().push(this);
         return this;
     }
 
@@ -68,4 +68,13 @@ class JDoStatement extends JStatement {
         e.addChild("Condition", e2);
         condition.toJSON(e2);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JDoStatement", line);
+        out.writeNode(condition);
+        out.writeNode(body);
+    }
 }
\ No newline at end of file
@@ -36,4 +36,11 @@ class JEmptyStatement extends JStatement {
         JSONElement e = new JSONElement();
         json.addChild("JEmptyStatement:" + line, e);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JEmptyStatement", line);
+    }
 }
@@ -65,6 +65,6 @@ abstract class JExpression extends JStatement {
     public void codegen(CLEmitter output, String targetLabel, boolean onTrue) {
         // We should never reach here, since all boolean (including identifier) expressions must
         // override this method.
-        System.err.println("Error in short-circuit code generation");
+        Session.current().err().println("Error in short-circuit code generation");
     }
 }
@@ -44,13 +44,13 @@ class JFieldDeclaration extends JAST implements JMember {
     /**
      * {@inheritDoc}
      */
-    public void preAnalyze(Context context, CLEmitter partial) {
+    public void preAnalyze(Context context, DeclaredClassSymbol symbol) {
         if (mods.contains("abstract")) {
-            JAST.compilationUnit.reportSemanticError(line(), "Field cannot be declared abstract");
+            JAST.compilationUnit().reportSemanticError(line(), "Field cannot be declared abstract");
         }
         for (JVariableDeclarator decl : decls) {
             decl.setType(decl.type().resolve(context));
-            partial.addField(mods, decl.name(), decl.type().toDescriptor(), false);
+            symbol.addField(mods, decl.name(), decl.type().toDescriptor());
         }
     }
 
@@ -112,4 +112,13 @@ class JFieldDeclaration extends JAST implements JMember {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JFieldDeclaration", line);
+        out.writeStrings(mods);
+        out.writeNodes(decls);
+    }
 }
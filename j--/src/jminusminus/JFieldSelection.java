@@ -62,7 +62,7 @@ class JFieldSelection extends JExpression implements JLhs {
                     target = expr;
                 } else {
                     // Can't even happen syntactically.
-                    JAST.compilationUnit.reportSemanticError(line(), "Badly formed suffix");
+                    JAST.compilationUnit().reportSemanticError(line(), "Badly formed suffix");
                 }
             }
         }
@@ -75,14 +75,14 @@ class JFieldSelection extends JExpression implements JLhs {
         } else {
             // Other than that, targetType has to be a reference type.
             if (targetType.isPrimitive()) {
-                JAST.compilationUnit.reportSemanticError(line(),
+                JAST.compilationUnit().reportSemanticError(line(),
                         "Target of a field selection must be a reference type");
                 type = Type.ANY;
                 return this;
             }
             field = targetType.fieldFor(fieldName);
             if (field == null) {
-                JAST.compilationUnit.reportSemanticError(line(),
+                JAST.compilationUnit().reportSemanticError(line(),
                         "Cannot find a field: " + fieldName);
                 type = Type.ANY;
             } else {
@@ -93,7 +93,7 @@ class JFieldSelection extends JExpression implements JLhs {
                 if (!field.isStatic()) {
                     if (target instanceof JVariable &&
                             ((JVariable) target).iDefn() instanceof TypeNameDefn) {
-                        JAST.compilationUnit.reportSemanticError(line(), "Non-static field " +
+                        JAST.compilationUnit().reportSemanticError(line(), "Non-static field " +
                                 fieldName + " cannot be referenced from a static context");
                     }
                 }
@@ -108,7 +108,7 @@ class JFieldSelection extends JExpression implements JLhs {
     public JExpression analyzeLhs(Context context) {
         JExpression result = analyze(context);
         if (field.isFinal()) {
-            JAST.compilationUnit.reportSemanticError(line, "The field " + fieldName + " in type " +
+            JAST.compilationUnit().reportSemanticError(line, "The field " + fieldName + " in type " +
                     target.type.toString() + " is final");
         }
         return result;
@@ -205,4 +205,14 @@ class JFieldSelection extends JExpression implements JLhs {
             target.toJSON(e1);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JFieldSelection", line);
+        out.writeAmbiguousName(ambiguousPart);
+        out.writeNode(target);
+        out.writeString(fieldName);
+    }
 }
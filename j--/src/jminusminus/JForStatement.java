@@ -43,7 +43,7 @@ class JForStatement extends JStatement {
      */
     public JForStatement analyze(Context context) {
         LocalContext forLoopContext = new LocalContext(context);
-        JMember.memberStack.push(this);
+        JMember.memberStack().push(this);
         if (inits != null)
             for (int i = 0; i < inits.size(); i++) {
                 inits.set(i, (JStatement) inits.get(i).analyze(forLoopContext));
@@ -117,4 +117,15 @@ class JForStatement extends JStatement {
         e.addChild("Body", e4);
         body.toJSON(e4);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JForStatement", line);
+        out.writeNodes(inits);
+        out.writeNode(condition);
+        out.writeNodes(updates);
+        out.writeNode(body);
+    }
 }
\ No newline at end of file
@@ -67,4 +67,13 @@ class JFormalParameter extends JAST {
     public void codegen(CLEmitter output) {
         // Nothing here.
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JFormalParameter", line);
+        out.writeString(name);
+        out.writeType(type);
+    }
 }
@@ -42,7 +42,7 @@ class JIfStatement extends JStatement {
         if (elsePart != null) {
             elsePart = (JStatement) elsePart.analyze(context);
         }
-        JMember.memberStack.push(this);
+        JMember.memberStack().push(this);
         return this;
     }
 
@@ -82,4 +82,14 @@ class JIfStatement extends JStatement {
             elsePart.toJSON(e3);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JIfStatement", line);
+        out.writeNode(condition);
+        out.writeNode(thenPart);
+        out.writeNode(elsePart);
+    }
 }
@@ -75,15 +75,21 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
         return superType;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<Type> superInterfaces() {
+        return identifiers;
+    }
+
     /**
      * {@inheritDoc}
      */
   	public void declareThisType(Context context) {
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ?
-                name : JAST.compilationUnit.packageName() + "/" + name;
-        CLEmitter partial = new CLEmitter(false);
-        partial.addClass(mods, qualifiedName, Type.OBJECT.jvmName(), null, false);
-        thisType = Type.typeFor(partial.toClass());
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ?
+                name : JAST.compilationUnit().packageName() + "/" + name;
+        thisType = Type.typeFor(new DeclaredClassSymbol(mods, qualifiedName,
+                Type.OBJECT.jvmName(), null));
         context.addType(line, thisType);
   	}
 
@@ -99,23 +105,20 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
             }
         }
 
-        // Create the (partial) class.
-        CLEmitter partial = new CLEmitter(false);
-
-        // Add the class header to the partial class
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ?
-                name : JAST.compilationUnit.packageName() + "/" + name;
-        partial.addClass(mods, qualifiedName, Type.OBJECT.jvmName(), null, false);
+        // Build the symbol for the interface, from its header.
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ?
+                name : JAST.compilationUnit().packageName() + "/" + name;
+        DeclaredClassSymbol symbol =
+                new DeclaredClassSymbol(mods, qualifiedName, Type.OBJECT.jvmName(), null);
 
-        // Pre-analyze the members and add them to the partial class.
+        // Pre-analyze the members and add them to the symbol.
         for (JMember member : interfaceBlocks)
-            member.preAnalyze(this.context, partial);
+            member.preAnalyze(this.context, symbol);
 
-
-        // Get the ClassRep for the (partial) class and make it the representation for this type.
+        // Make the symbol the representation for this type.
         Type id = this.context.lookupType(name);
-        if (id != null && !JAST.compilationUnit.errorHasOccurred()) {
-            id.setClassRep(partial.toClass());
+        if (id != null) {
+            id.setSymbol(symbol);
         }
     }
 
@@ -144,8 +147,8 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
      */
     public void codegen(CLEmitter output) {
         // The class header.
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ?
-                name : JAST.compilationUnit.packageName() + "/" + name;
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ?
+                name : JAST.compilationUnit().packageName() + "/" + name;
         output.addClass(mods, qualifiedName, Type.OBJECT.jvmName(), null, false);
 
         // The members.
@@ -190,4 +193,16 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
                 ((JAST) member).toJSON(e);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JInterfaceDeclaration", line);
+        // The modifiers end with the "interface" and "abstract" added for all interfaces.
+        out.writeStrings(new ArrayList<String>(mods.subList(0, mods.size() - 2)));
+        out.writeString(name);
+        out.writeTypes(identifiers);
+        out.writeNodes(interfaceBlocks);
+    }
+
 }
\ No newline at end of file
@@ -65,4 +65,12 @@ class JLiteralBoolean extends JExpression {
         e.addAttribute("type", type == null ? "" : type.toString());
         e.addAttribute("value", text);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JLiteralBoolean", line);
+        out.writeString(text);
+    }
 }
@@ -81,4 +81,12 @@ class JLiteralChar extends JExpression {
         e.addAttribute("type", type == null ? "" : type.toString());
         e.addAttribute("value", text.substring(1, text.length() - 1));
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JLiteralChar", line);
+        out.writeString(text);
+    }
 }
@@ -53,4 +53,12 @@ class JLiteralDouble extends JExpression {
         e.addAttribute("type", type == null ? "" : type.toString());
         e.addAttribute("value", text);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JLiteralDouble", line);
+        out.writeString(text);
+    }
 }
@@ -80,4 +80,12 @@ class JLiteralInt extends JExpression {
         e.addAttribute("type", type == null ? "" : type.toString());
         e.addAttribute("value", text);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JLiteralInt", line);
+        out.writeString(text);
+    }
 }
@@ -56,4 +56,13 @@ class JLiteralLong extends JExpression {
         e.addAttribute("type", type == null ? "" : type.toString());
         e.addAttribute("value", text);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JLiteralLong", line);
+        // The constructor takes the literal with its suffix.
+        out.writeString(text + "L");
+    }
 }
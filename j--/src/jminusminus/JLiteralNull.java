@@ -41,4 +41,11 @@ class JLiteralNull extends JExpression {
         e.addAttribute("type", type == null ? "" : type.toString());
         e.addAttribute("value", "null");
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JLiteralNull", line);
+    }
 }
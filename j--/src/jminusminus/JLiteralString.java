@@ -50,4 +50,12 @@ class JLiteralString extends JExpression {
         e.addAttribute("type", type == null ? "" : type.toString());
         e.addAttribute("value", text.substring(1, text.length() - 1));
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JLiteralString", line);
+        out.writeString(text);
+    }
 }
@@ -8,13 +8,21 @@ import java.util.Stack;
  */
 interface JMember {
     /**
-     * Declares the member names in the specified (class) context and generates the member headers
-     * in the partial class.
+     * Returns the stack of statements enclosing the one being analyzed, within its member, of the
+     * session bound to the calling thread.
+     *
+     * @return the stack of enclosing statements.
+     */
+    public static Stack<JStatement> memberStack() {
+        return Session.current().memberStack();
+    }
+
+    /**
+     * Declares the member names in the specified (class) context and adds the members to the
+     * symbol for the class.
      *
      * @param context class context in which names are resolved.
-     * @param partial the code emitter.
+     * @param symbol  the symbol for the class.
      */
-    
-    public static Stack<JStatement> memberStack = new Stack<JStatement>();
-    public void preAnalyze(Context context, CLEmitter partial);
+    public void preAnalyze(Context context, DeclaredClassSymbol symbol);
 }
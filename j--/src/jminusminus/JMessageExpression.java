@@ -72,7 +72,7 @@ class JMessageExpression extends JExpression {
                     target = expr;
                 } else {
                     // Can't even happen syntactically.
-                    JAST.compilationUnit.reportSemanticError(line(), "Badly formed suffix");
+                    JAST.compilationUnit().reportSemanticError(line(), "Badly formed suffix");
                 }
             }
         }
@@ -98,7 +98,7 @@ class JMessageExpression extends JExpression {
         } else {
             target = (JExpression) target.analyze(context);
             if (target.type().isPrimitive()) {
-                JAST.compilationUnit.reportSemanticError(line(),
+                JAST.compilationUnit().reportSemanticError(line(),
                         "Cannot invoke a message on a primitive type: " + target.type());
             }
         }
@@ -106,8 +106,16 @@ class JMessageExpression extends JExpression {
         // Find appropriate Method for this message expression.
         method = target.type().methodFor(messageName, argTypes);
         if (method == null) {
-            JAST.compilationUnit.reportSemanticError(line(),
-                    "Cannot find method for: " + Type.signatureFor(messageName, argTypes));
+            ArrayList<Method> candidates =
+                    target.type().ambiguousMethodsFor(messageName, argTypes);
+            if (candidates.size() > 1) {
+                JAST.compilationUnit().reportSemanticError(line(),
+                        "Ambiguous call to " + Type.signatureFor(messageName, argTypes) +
+                                "; it matches " + Type.signaturesOf(candidates));
+            } else {
+                JAST.compilationUnit().reportSemanticError(line(),
+                        "Cannot find method for: " + Type.signatureFor(messageName, argTypes));
+            }
             type = Type.ANY;
         } else {
             context.definingType().checkAccess(line, (Member) method);
@@ -117,7 +125,7 @@ class JMessageExpression extends JExpression {
             if (!method.isStatic()) {
                 if (target instanceof JVariable &&
                         ((JVariable) target).iDefn() instanceof TypeNameDefn) {
-                    JAST.compilationUnit.reportSemanticError(line(),
+                    JAST.compilationUnit().reportSemanticError(line(),
                             "Non-static method " + Type.signatureFor(messageName, argTypes) +
                                     " cannot be referenced from a static context");
                 }
@@ -179,4 +187,15 @@ class JMessageExpression extends JExpression {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JMessageExpression", line);
+        out.writeNode(target);
+        out.writeAmbiguousName(ambiguousPart);
+        out.writeString(messageName);
+        out.writeNodes(arguments);
+    }
 }
@@ -98,7 +98,7 @@ class JMethodDeclaration extends JAST implements JMember {
     /**
      * {@inheritDoc}
      */
-    public void preAnalyze(Context context, CLEmitter partial) {
+    public void preAnalyze(Context context, DeclaredClassSymbol symbol) {
         // Resolve types of the formal parameters.
         for (JFormalParameter param : params) {
             param.setType(param.type().resolve(context));
@@ -116,14 +116,14 @@ class JMethodDeclaration extends JAST implements JMember {
 
         // Check proper local use of abstract
         if (isAbstract && body != null) {
-            JAST.compilationUnit.reportSemanticError(line(), "abstract method cannot have a body");
+            JAST.compilationUnit().reportSemanticError(line(), "abstract method cannot have a body");
         } else if (body == null && !isAbstract) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Method without body must be abstract");
         } else if (isAbstract && isPrivate) {
-            JAST.compilationUnit.reportSemanticError(line(), "private method cannot be abstract");
+            JAST.compilationUnit().reportSemanticError(line(), "private method cannot be abstract");
         } else if (isAbstract && isStatic) {
-            JAST.compilationUnit.reportSemanticError(line(), "static method cannot be abstract");
+            JAST.compilationUnit().reportSemanticError(line(), "static method cannot be abstract");
         }
 
         // Compute descriptor.
@@ -133,8 +133,8 @@ class JMethodDeclaration extends JAST implements JMember {
         }
         descriptor += ")" + returnType.toDescriptor();
 
-        // Generate the method with an empty body (for now).
-        partialCodegen(context, partial);
+        // Add the method to the symbol for the class.
+        addTo(symbol);
     }
 
     /**
@@ -162,38 +162,37 @@ class JMethodDeclaration extends JAST implements JMember {
             this.context.addEntry(param.line(), param.name(), defn);
         }
         
-        if (body != null) {
+        if (body != null && !body.hasSyntaxErrors()) {
             body = body.analyze(this.context);
             if (returnType != Type.VOID && !methodContext.methodHasReturn()) {
-                JAST.compilationUnit.reportSemanticError(line(),
+                JAST.compilationUnit().reportSemanticError(line(),
                         "Non-void method must have a return statement");
             }
         }
-        memberStack.clear();
+        JMember.memberStack().clear();
         return this;
     }
 
     /**
-     * {@inheritDoc}
+     * Adds this method (its modifiers, name, and descriptor) to the specified symbol for its
+     * class.
+     *
+     * @param symbol the symbol for the class.
      */
-    public void partialCodegen(Context context, CLEmitter partial) {
-        partial.addMethod(mods, name, descriptor, exceptionNames, false);
-        if (returnType == Type.VOID) {
-            partial.addNoArgInstruction(RETURN);
-        } else if (returnType == Type.INT || returnType == Type.BOOLEAN ||
-                returnType == Type.CHAR) {
-            partial.addNoArgInstruction(ICONST_0);
-            partial.addNoArgInstruction(IRETURN);
-        } else if (returnType == Type.DOUBLE) {
-            partial.addNoArgInstruction(DCONST_0);
-            partial.addNoArgInstruction(DRETURN);
-        } else if (returnType == Type.LONG) {
-            partial.addNoArgInstruction(LCONST_0);
-            partial.addNoArgInstruction(LRETURN);
-        } else {
-            partial.addNoArgInstruction(ACONST_NULL);
-            partial.addNoArgInstruction(ARETURN);
-        }
+    public void addTo(DeclaredClassSymbol symbol) {
+        symbol.addMethod(mods, name, descriptor);
+    }
+
+    /**
+     * Returns the signature of this method as pre-analysis left it: its kind (method or
+     * constructor), modifiers, name, descriptor, and the exceptions it throws. Methods with the
+     * same signature contribute the same member to the symbol for their class.
+     *
+     * @return the signature of this method.
+     */
+    public String signature() {
+        return getClass().getSimpleName() + " " + mods + " " + name + descriptor + " throws " +
+                exceptionNames;
     }
 
     /**
@@ -246,4 +245,19 @@ class JMethodDeclaration extends JAST implements JMember {
             body.toJSON(e);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JMethodDeclaration", line);
+        // The modifiers of a method without a body end with the "abstract" added for it.
+        out.writeStrings(body == null ? new ArrayList<String>(mods.subList(0, mods.size() - 1)) :
+                mods);
+        out.writeString(name);
+        out.writeType(returnType);
+        out.writeNodes(params);
+        out.writeNode(body);
+        out.writeTypes(exceptions);
+    }
 }
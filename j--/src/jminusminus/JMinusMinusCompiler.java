@@ -0,0 +1,176 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An API for compiling j-- programs in memory, for programs that embed the compiler. Sources are
+ * given as strings (or other character sequences) keyed by file name, and the result holds the
+ * bytes of the class files generated from them, keyed by class name, together with the errors
+ * reported; nothing is read from or written to the file system, apart from the classes the
+ * programs import, which are loaded from the class path as usual.
+ * <p>
+ * Each call to compile() is a compilation of its own, in a session of its own (see Session), so
+ * a JMinusMinusCompiler may be used for any number of compilations, including at the same time
+ * from different threads.
+ */
+public class JMinusMinusCompiler {
+    /**
+     * Constructs a JMinusMinusCompiler.
+     */
+    public JMinusMinusCompiler() {
+        // Nothing to set up; each compilation has a session of its own.
+    }
+
+    /**
+     * Compiles the given source file.
+     *
+     * @param fileName the name of the source file, for diagnostics.
+     * @param source   the contents of the source file.
+     * @return the result of the compilation.
+     */
+    public Result compile(String fileName, CharSequence source) {
+        LinkedHashMap<String, CharSequence> sources = new LinkedHashMap<String, CharSequence>();
+        sources.put(fileName, source);
+        return compile(sources);
+    }
+
+    /**
+     * Compiles the given source files together, as bin/j-- does the source files named on its
+     * command line.
+     *
+     * @param sources maps the names of the source files (for diagnostics) to their contents.
+     * @return the result of the compilation.
+     */
+    public Result compile(Map<String, ? extends CharSequence> sources) {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        Session session = new Session(discard, discard);
+        for (String fileName : sources.keySet()) {
+            session.addSource(fileName, sources.get(fileName));
+        }
+        LinkedHashMap<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        Session previous = session.bind();
+        try {
+            compile(session, sources.keySet(), classes);
+        } finally {
+            session.unbind(previous);
+        }
+        if (session.errorHasOccurred()) {
+            classes.clear();
+        }
+        return new Result(!session.errorHasOccurred(), classes, session.diagnostics());
+    }
+
+    // Compiles the named source files in the given session (bound to the calling thread), adding
+    // the bytes of the classes generated to classes.
+    private static void compile(Session session, Iterable<String> fileNames,
+                                LinkedHashMap<String, byte[]> classes) {
+        // Scan and parse each source file.
+        ArrayList<JCompilationUnit> asts = new ArrayList<JCompilationUnit>();
+        for (String fileName : fileNames) {
+            try {
+                Parser parser = new Parser(new LookaheadScanner(fileName));
+                asts.add(parser.compilationUnit());
+                session.reportErrors(parser.errorHasOccurred());
+            } catch (FileNotFoundException e) {
+                // Cannot happen, since the sources are held in memory by the session.
+                throw new IllegalStateException(e);
+            }
+        }
+        if (session.errorHasOccurred()) {
+            return;
+        }
+
+        // Do pre-analysis, with the types declared in any of the source files visible to all.
+        JCompilationUnit.preAnalyze(asts);
+        for (JCompilationUnit ast : asts) {
+            session.reportErrors(ast.errorHasOccurred());
+        }
+        if (session.errorHasOccurred()) {
+            return;
+        }
+
+        // Do analysis.
+        for (JCompilationUnit ast : asts) {
+            ast.analyze(null);
+            session.reportErrors(ast.errorHasOccurred());
+        }
+        if (session.errorHasOccurred()) {
+            return;
+        }
+
+        // Generate JVM code, in memory.
+        for (JCompilationUnit ast : asts) {
+            CLEmitter clEmitter = new CLEmitter(false);
+            ast.codegen(clEmitter);
+            session.reportErrors(clEmitter.errorHasOccurred());
+            for (CLFile clFile : ast.clFiles()) {
+                try {
+                    classes.put(clFile.name().replace('/', '.'), clFile.toByteArray());
+                } catch (IOException e) {
+                    // Cannot happen, since the class is written to memory.
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The result of a compilation: the classes generated, and the errors reported.
+     */
+    public static class Result {
+        // Whether the compilation succeeded.
+        private boolean success;
+
+        // Maps the names of the classes generated to the bytes of their class files.
+        private LinkedHashMap<String, byte[]> classes;
+
+        // Errors reported, in the order they were reported.
+        private ArrayList<Diagnostic> diagnostics;
+
+        // Constructs the result of a compilation.
+        private Result(boolean success, LinkedHashMap<String, byte[]> classes,
+                       ArrayList<Diagnostic> diagnostics) {
+            this.success = success;
+            this.classes = classes;
+            this.diagnostics = diagnostics;
+        }
+
+        /**
+         * Returns true if the compilation succeeded (no errors were reported), and false
+         * otherwise.
+         *
+         * @return true if the compilation succeeded, and false otherwise.
+         */
+        public boolean success() {
+            return success;
+        }
+
+        /**
+         * Returns a map from the (binary) names of the classes generated, such as pkg.Main, to
+         * the bytes of their class files, in the order they were generated. The map is empty if
+         * the compilation failed.
+         *
+         * @return the classes generated.
+         */
+        public LinkedHashMap<String, byte[]> classes() {
+            return classes;
+        }
+
+        /**
+         * Returns the errors reported, in the order they were reported.
+         *
+         * @return the errors reported.
+         */
+        public ArrayList<Diagnostic> diagnostics() {
+            return diagnostics;
+        }
+    }
+}
@@ -75,4 +75,13 @@ class JNewArrayOp extends JExpression {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JNewArrayOp", line);
+        out.writeType(typeSpec);
+        out.writeNodes(dimExprs);
+    }
 }
@@ -49,7 +49,7 @@ class JNewOp extends JExpression {
 
         // Can't instantiate an abstract type.
         if (type.isAbstract()) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Cannot instantiate an abstract type: " + type.toString());
         }
 
@@ -57,8 +57,15 @@ class JNewOp extends JExpression {
         constructor = type.constructorFor(argTypes);
 
         if (constructor == null) {
-            JAST.compilationUnit.reportSemanticError(line(),
-                    "Cannot find constructor: " + Type.signatureFor(type.toString(), argTypes));
+            ArrayList<Constructor> candidates = type.ambiguousConstructorsFor(argTypes);
+            if (candidates.size() > 1) {
+                JAST.compilationUnit().reportSemanticError(line(),
+                        "Ambiguous call to " + Type.signatureFor(type.toString(), argTypes) +
+                                "; it matches " + Type.signaturesOf(candidates));
+            } else {
+                JAST.compilationUnit().reportSemanticError(line(), "Cannot find constructor: " +
+                        Type.signatureFor(type.toString(), argTypes));
+            }
         }
         return this;
     }
@@ -93,4 +100,13 @@ class JNewOp extends JExpression {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JNewOp", line);
+        out.writeType(type);
+        out.writeNodes(arguments);
+    }
 }
@@ -36,7 +36,7 @@ class JReturnStatement extends JStatement {
         if (methodContext.methodReturnType() == Type.CONSTRUCTOR) {
             if (expr != null) {
                 // Can't return a value from a constructor.
-                JAST.compilationUnit.reportSemanticError(line(),
+                JAST.compilationUnit().reportSemanticError(line(),
                         "Cannot return a value from a constructor");
             }
         } else {
@@ -46,7 +46,7 @@ class JReturnStatement extends JStatement {
             if (expr != null) {
                 if (returnType == Type.VOID) {
                     // Can't return a value from void method.
-                    JAST.compilationUnit.reportSemanticError(line(),
+                    JAST.compilationUnit().reportSemanticError(line(),
                             "Cannot return a value from a void method");
                 } else {
                     // There's a (non-void) return value. Its type must match the return type of
@@ -57,7 +57,7 @@ class JReturnStatement extends JStatement {
             } else {
                 // The method better have void as return type.
                 if (returnType != Type.VOID) {
-                    JAST.compilationUnit.reportSemanticError(line(), "Missing return value");
+                    JAST.compilationUnit().reportSemanticError(line(), "Missing return value");
                 }
             }
         }
@@ -97,4 +97,12 @@ class JReturnStatement extends JStatement {
             expr.toJSON(e1);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JReturnStatement", line);
+        out.writeNode(expr);
+    }
 }
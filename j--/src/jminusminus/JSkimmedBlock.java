@@ -0,0 +1,107 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.util.ArrayList;
+
+/**
+ * The AST node for a method or constructor body that the parser skimmed over (see
+ * Parser(LookaheadScanner, boolean)): it stands in for the block, which is parsed, from the
+ * tokens the parser kept, when it is first needed --- its statements are asked for, or it is
+ * analyzed or generated code for --- after which the block takes over.
+ */
+class JSkimmedBlock extends JBlock {
+    // The parser that skimmed over the block.
+    private Parser parser;
+
+    // Position of the block's LCURLY among the parser's tokens.
+    private int position;
+
+    // The block, once parsed; an empty one if it has syntax errors.
+    private JBlock block;
+
+    // Whether the block has syntax errors.
+    private boolean hasSyntaxErrors;
+
+    /**
+     * Constructs an AST node for a skimmed block.
+     *
+     * @param line     line in which the block occurs in the source file.
+     * @param parser   the parser that skimmed over the block.
+     * @param position position of the block's LCURLY among the parser's tokens.
+     */
+    public JSkimmedBlock(int line, Parser parser, int position) {
+        super(line, new ArrayList<JStatement>());
+        this.parser = parser;
+        this.position = position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<JStatement> statements() {
+        return block().statements();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasSyntaxErrors() {
+        block();
+        return hasSyntaxErrors;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public JBlock analyze(Context context) {
+        return hasSyntaxErrors() ? this : block().analyze(context);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void codegen(CLEmitter output) {
+        if (!hasSyntaxErrors()) {
+            block().codegen(output);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void toJSON(JSONElement json) {
+        if (block != null) {
+            block.toJSON(json);
+            return;
+        }
+        JSONElement e = new JSONElement();
+        json.addChild("JBlock:" + line, e);
+        e.addAttribute("skimmed", "true");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        block().writeTo(out);
+    }
+
+    // Returns the block, parsing it if it has not been parsed yet. Syntax errors in it are
+    // reported as it is parsed, and make the compilation unit in error; the block is then
+    // replaced by an empty one.
+    private JBlock block() {
+        if (block == null) {
+            Timings.begin("parse");
+            block = parser.parseSkimmedBlock(position);
+            Timings.end();
+            if (block == null) {
+                JAST.compilationUnit().recordSyntaxError();
+                block = new JBlock(line, new ArrayList<JStatement>());
+                hasSyntaxErrors = true;
+            }
+            parser = null;
+        }
+        return block;
+    }
+}
@@ -48,4 +48,13 @@ class JStatementExpression extends JStatement {
         json.addChild("JStatementExpression:" + line, e);
         expr.toJSON(e);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JStatementExpression", line);
+        out.writeNode(expr);
+        out.writeBoolean(expr.isStatementExpression);
+    }
 }
@@ -39,4 +39,11 @@ class JSuper extends JExpression {
         JSONElement e = new JSONElement();
         json.addChild("JSuper:" + line, e);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JSuper", line);
+    }
 }
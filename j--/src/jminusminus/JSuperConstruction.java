@@ -55,7 +55,7 @@ class JSuperConstruction extends JExpression {
         }
 
         if (!properUseOfConstructor) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "super" + Type.argTypesAsString(argTypes)
                     + " must be first statement in the constructor's body");
             return this;
@@ -64,14 +64,21 @@ class JSuperConstruction extends JExpression {
         // Get the Constructor super(...) refers to.
         Type superClass = ((JTypeDecl) context.classContext.definition()).thisType().superClass();
         if (superClass == null) {
-            JAST.compilationUnit.reportSemanticError(line,
+            JAST.compilationUnit().reportSemanticError(line,
                     ((JTypeDecl) context.classContext.definition()).thisType() +
                             " has no super class");
         }
         constructor = superClass.constructorFor(argTypes);
         if (constructor == null) {
-            JAST.compilationUnit.reportSemanticError(line(),
-                    "No such constructor: super" + Type.argTypesAsString(argTypes));
+            ArrayList<Constructor> candidates = superClass.ambiguousConstructorsFor(argTypes);
+            if (candidates.size() > 1) {
+                JAST.compilationUnit().reportSemanticError(line(),
+                        "Ambiguous call to super" + Type.argTypesAsString(argTypes) +
+                                "; it matches " + Type.signaturesOf(candidates));
+            } else {
+                JAST.compilationUnit().reportSemanticError(line(),
+                        "No such constructor: super" + Type.argTypesAsString(argTypes));
+            }
         }
 
         return this;
@@ -103,4 +110,12 @@ class JSuperConstruction extends JExpression {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JSuperConstruction", line);
+        out.writeNodes(arguments);
+    }
 }
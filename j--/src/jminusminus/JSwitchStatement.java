@@ -60,7 +60,7 @@ class JSwitchStatement extends JStatement {
             for (int i = 0; i < group.getStatements().size(); i++) {
                 JStatement statement = group.getStatements().get(i);
                 if (statement instanceof JBreakStatement)
-                    JMember.memberStack.push(this);
+                    JMember.memberStack().push(this);
                 group.getStatements().set(i, (JStatement) statement.analyze(switchContext));
             }
         }
@@ -204,6 +204,19 @@ class JSwitchStatement extends JStatement {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JSwitchStatement", line);
+        out.writeNode(condition);
+        out.writeInt(switchGroups.size());
+        for (SwitchBlockStatementGroup switchGroup : switchGroups) {
+            out.writeNodes(switchGroup.getSwitchLabels());
+            out.writeNodes(switchGroup.getStatements());
+        }
+    }
 }
 
 class SwitchBlockStatementGroup {
@@ -39,4 +39,11 @@ class JThis extends JExpression {
         JSONElement e = new JSONElement();
         json.addChild("JThis:" + line, e);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JThis", line);
+    }
 }
@@ -55,20 +55,26 @@ class JThisConstruction extends JExpression {
         }
 
         if (!properUseOfConstructor) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "this" + Type.argTypesAsString(argTypes)
                     + " must be first statement in the constructor's body");
             return this;
         }
 
         // Get the constructor this(...) refers to..
-        constructor =
-                ((JTypeDecl) context.classContext.definition()).thisType().constructorFor(argTypes);
+        Type thisType = ((JTypeDecl) context.classContext.definition()).thisType();
+        constructor = thisType.constructorFor(argTypes);
 
         if (constructor == null) {
-            JAST.compilationUnit.reportSemanticError(line(),
-                    "No such constructor: this" + Type.argTypesAsString(argTypes));
-
+            ArrayList<Constructor> candidates = thisType.ambiguousConstructorsFor(argTypes);
+            if (candidates.size() > 1) {
+                JAST.compilationUnit().reportSemanticError(line(),
+                        "Ambiguous call to this" + Type.argTypesAsString(argTypes) +
+                                "; it matches " + Type.signaturesOf(candidates));
+            } else {
+                JAST.compilationUnit().reportSemanticError(line(),
+                        "No such constructor: this" + Type.argTypesAsString(argTypes));
+            }
         }
         return this;
     }
@@ -99,4 +105,12 @@ class JThisConstruction extends JExpression {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JThisConstruction", line);
+        out.writeNodes(arguments);
+    }
 }
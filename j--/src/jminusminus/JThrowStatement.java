@@ -49,4 +49,12 @@ class JThrowStatement extends JStatement {
         e.addChild("Expression", e1);
         throwExpression.toJSON(e1);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JThrowStatement", line);
+        out.writeNode(throwExpression);
+    }
 }
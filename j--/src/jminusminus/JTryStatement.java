@@ -144,4 +144,15 @@ class JTryStatement extends JStatement {
             finallyBlock.toJSON(e3);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JTryStatement", line);
+        out.writeNode(tryBlock);
+        out.writeNodes(catchParams);
+        out.writeNodes(catchBlocks);
+        out.writeNode(finallyBlock);
+    }
 }
@@ -2,6 +2,8 @@
 
 package jminusminus;
 
+import java.util.ArrayList;
+
 /**
  * An interface supported by class (or later, interface) declarations.
  */
@@ -41,4 +43,12 @@ interface JTypeDecl {
      * @return the super class' type.
      */
     public Type superType();
+
+    /**
+     * Returns the types of the interfaces this type declaration implements (or, for an interface,
+     * extends), or null.
+     *
+     * @return the types of the super interfaces, or null.
+     */
+    public ArrayList<Type> superInterfaces();
 }
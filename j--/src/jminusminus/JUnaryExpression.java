@@ -44,6 +44,14 @@ abstract class JUnaryExpression extends JExpression {
         e.addChild("Operand", e1);
         operand.toJSON(e1);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag(getClass().getSimpleName(), line);
+        out.writeNode(operand);
+    }
 }
 
 /**
@@ -185,7 +193,7 @@ class JNegateOp extends JUnaryExpression {
             type = Type.LONG;
         } else {
             type = Type.ANY;
-            JAST.compilationUnit.reportSemanticError(line(), "Invalid operand types for -");
+            JAST.compilationUnit().reportSemanticError(line(), "Invalid operand types for -");
         }
         return this;
     }
@@ -224,7 +232,7 @@ class JPreDecrementOp extends JUnaryExpression {
      */
     public JExpression analyze(Context context) {
         if (!(operand instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line, "Operand to -- must have an LValue.");
+            JAST.compilationUnit().reportSemanticError(line, "Operand to -- must have an LValue.");
             type = Type.ANY;
         } else {
             operand = (JExpression) operand.analyze(context);
@@ -294,7 +302,7 @@ class JPostDecrementOp extends JUnaryExpression {
      */
     public JExpression analyze(Context context) {
         if (!(operand instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line, "Operand to -- must have an LValue.");
+            JAST.compilationUnit().reportSemanticError(line, "Operand to -- must have an LValue.");
             type = Type.ANY;
         } else {
             operand = (JExpression) operand.analyze(context);
@@ -364,7 +372,7 @@ class JPreIncrementOp extends JUnaryExpression {
      */
     public JExpression analyze(Context context) {
         if (!(operand instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line, "Operand to ++ must have an LValue.");
+            JAST.compilationUnit().reportSemanticError(line, "Operand to ++ must have an LValue.");
             type = Type.ANY;
         } else {
             operand = (JExpression) operand.analyze(context);
@@ -434,7 +442,7 @@ class JPostIncrementOp extends JUnaryExpression {
      */
     public JExpression analyze(Context context) {
         if (!(operand instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line, "Operand to ++ must have an LValue.");
+            JAST.compilationUnit().reportSemanticError(line, "Operand to ++ must have an LValue.");
             type = Type.ANY;
         } else {
             operand = (JExpression) operand.analyze(context);
@@ -57,7 +57,7 @@ class JVariable extends JExpression implements JLhs {
             Field field = definingType.fieldFor(name);
             if (field == null) {
                 type = Type.ANY;
-                JAST.compilationUnit.reportSemanticError(line, "Cannot find name: " + name);
+                JAST.compilationUnit().reportSemanticError(line, "Cannot find name: " + name);
             } else {
                 // Rewrite a variable denoting a field as an explicit field selection.
                 type = field.type();
@@ -71,7 +71,7 @@ class JVariable extends JExpression implements JLhs {
         } else {
             if (!analyzeLhs && iDefn instanceof LocalVariableDefn &&
                     !((LocalVariableDefn) iDefn).isInitialized()) {
-                JAST.compilationUnit.reportSemanticError(line, "Variable " + name +
+                JAST.compilationUnit().reportSemanticError(line, "Variable " + name +
                         " might not have been initialized");
             }
             type = iDefn.type();
@@ -88,7 +88,7 @@ class JVariable extends JExpression implements JLhs {
         if (newTree instanceof JVariable) {
             // Could (now) be a JFieldSelection, but if it's (still) a JVariable...
             if (iDefn != null && !(iDefn instanceof LocalVariableDefn)) {
-                JAST.compilationUnit.reportSemanticError(line(), name + " is a bad LHS to a =");
+                JAST.compilationUnit().reportSemanticError(line(), name + " is a bad LHS to a =");
             }
         }
         return newTree;
@@ -315,4 +315,12 @@ class JVariable extends JExpression implements JLhs {
         json.addChild("JVariable:" + line, e);
         e.addAttribute("name", name());
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JVariable", line);
+        out.writeString(name);
+    }
 }
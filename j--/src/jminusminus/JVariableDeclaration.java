@@ -44,7 +44,7 @@ class JVariableDeclaration extends JStatement {
             // First, check for shadowing.
             IDefn previousDefn = context.lookup(decl.name());
             if (previousDefn != null && previousDefn instanceof LocalVariableDefn) {
-                JAST.compilationUnit.reportSemanticError(decl.line(),
+                JAST.compilationUnit().reportSemanticError(decl.line(),
                         "The name " + decl.name() + " overshadows another local variable");
             }
 
@@ -85,4 +85,12 @@ class JVariableDeclaration extends JStatement {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JVariableDeclaration", line);
+        out.writeNodes(decls);
+    }
 }
@@ -105,4 +105,14 @@ class JVariableDeclarator extends JAST {
             initializer.toJSON(e1);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JVariableDeclarator", line);
+        out.writeString(name);
+        out.writeType(type);
+        out.writeNode(initializer);
+    }
 }
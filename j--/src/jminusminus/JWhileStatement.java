@@ -31,11 +31,11 @@ class JWhileStatement extends JStatement {
      * {@inheritDoc}
      */
     public JWhileStatement analyze(Context context) {
-        JMember.memberStack.push(this);
+        JMember.memberStack().push(this);
         condition = condition.analyze(context);
         condition.type().mustMatchExpected(line(), Type.BOOLEAN);
         body = (JStatement) body.analyze(context);
-        JMember.memberStack.push(this);
+        JMember.memberStack().push(this);
         return this;
     }
 
@@ -69,4 +69,13 @@ class JWhileStatement extends JStatement {
         e.addChild("Body", e2);
         body.toJSON(e2);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JWhileStatement", line);
+        out.writeNode(condition);
+        out.writeNode(body);
+    }
 }
@@ -39,4 +39,11 @@ class JWildExpression extends JExpression {
         JSONElement e = new JSONElement();
         json.addChild("JWildExpression:" + line, e);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeTo(ASTWriter out) {
+        out.writeTag("JWildExpression", line);
+    }
 }
@@ -0,0 +1,110 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes the classes generated by a compilation straight into a JAR file (Main's -jar option),
+ * rather than into a .class file each: the class files are streamed into the JAR as they are
+ * generated, so there are no per-class files to create and no separate step to bundle them. The
+ * JAR starts with a manifest, naming the main class if there is one. Entries are compressed
+ * unless they are to be stored, which is faster to write and to load from.
+ */
+class JarWriter {
+    // The JAR file.
+    private File file;
+
+    // The stream the JAR file is written through.
+    private JarOutputStream out;
+
+    // Whether entries are stored rather than compressed.
+    private boolean stored;
+
+    /**
+     * Constructs a JarWriter, creating the JAR file and writing its manifest.
+     *
+     * @param file      the JAR file.
+     * @param mainClass the (binary) name of the class with the main() method, for the Main-Class
+     *                  entry of the manifest, or null for no such entry.
+     * @param stored    whether entries are stored rather than compressed.
+     * @throws IOException if the JAR file cannot be written.
+     */
+    public JarWriter(File file, String mainClass, boolean stored) throws IOException {
+        this.file = file;
+        this.stored = stored;
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        out = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(new Attributes.Name("Created-By"), "j--");
+        if (mainClass != null) {
+            attributes.put(Attributes.Name.MAIN_CLASS, mainClass);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        manifest.write(bytes);
+        writeEntry(JarFile.MANIFEST_NAME, bytes.toByteArray());
+    }
+
+    /**
+     * Returns the JAR file.
+     *
+     * @return the JAR file.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Adds the given class to the JAR file. This method may be called from several threads.
+     *
+     * @param clFile the class.
+     * @throws IOException if the class cannot be written.
+     */
+    public void write(CLFile clFile) throws IOException {
+        byte[] bytes = clFile.toByteArray();
+        synchronized (this) {
+            writeEntry(clFile.name() + ".class", bytes);
+        }
+    }
+
+    /**
+     * Finishes writing the JAR file, and closes it.
+     *
+     * @throws IOException if the JAR file cannot be written.
+     */
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    // Writes an entry with the given name and contents.
+    private void writeEntry(String name, byte[] bytes) throws IOException {
+        JarEntry entry = new JarEntry(name);
+        if (stored) {
+            // A stored entry needs its size and checksum up front.
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            entry.setCompressedSize(bytes.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+}
@@ -43,9 +43,11 @@ class JavaCCParser implements JavaCCParserConstants {
     // Reports a syntax error.
     private void reportParserError(String message, Object... args) {
         errorHasOccurred = true;
-        System.err.printf("%s:%d: error: ", fileName, token.beginLine);
-        System.err.printf(message, args);
-        System.err.println();
+        Session.current().err().printf("%s:%d: error: ", fileName, token.beginLine);
+        Session.current().err().printf(message, args);
+        Session.current().err().println();
+        Session.current().addDiagnostic(new Diagnostic(Diagnostic.Kind.SYNTAX, fileName,
+                token.beginLine, String.format(message, args)));
     }
 
     // Recover from the parser error that occurred by skipping to any of the specified tokens.
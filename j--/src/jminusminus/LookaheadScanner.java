@@ -3,35 +3,32 @@
 package jminusminus;
 
 import java.io.FileNotFoundException;
-import java.util.Stack;
-import java.util.Vector;
+import java.util.Arrays;
 
 /**
  * A lexical analyzer for j-- that interfaces with the hand-written parser (Parser). It
  * provides a backtracking mechanism, and makes use of the underlying hand-written scanner
- * (Scanner).
+ * (Scanner). The tokens scanned are kept in a TokenBuffer, so recording a position and returning
+ * to it only save and restore the index of the current token.
  */
 class LookaheadScanner {
-    // The underlying hand-written scanner.
+    // The underlying hand-written scanner; null if the tokens were scanned by another.
     private Scanner scanner;
 
-    // Backtracking queue.
-    private Vector<TokenInfo> backtrackingQueue;
+    // Name of the source file.
+    private String fileName;
 
-    // Token queue.
-    private Vector<TokenInfo> nextQueue;
+    // The tokens scanned so far.
+    private TokenBuffer tokens;
 
-    // Stack of token queues for nested lookahead.
-    private Stack<Vector<TokenInfo>> queueStack;
+    // Index of the current token; -1 before the first token is scanned.
+    private int cursor;
 
-    // Whether we are looking ahead.
-    public boolean isLookingAhead;
+    // Indices of the current tokens at the positions recorded for nested lookahead.
+    private int[] marks;
 
-    // Previous token.
-    private TokenInfo previousToken;
-
-    // Current token.
-    private TokenInfo token;
+    // Number of positions recorded.
+    private int markCount;
 
     /**
      * Constructs a LookaheadScanner.
@@ -41,54 +38,73 @@ class LookaheadScanner {
      */
     public LookaheadScanner(String fileName) throws FileNotFoundException {
         scanner = new Scanner(fileName);
-        backtrackingQueue = new Vector<TokenInfo>();
-        nextQueue = new Vector<TokenInfo>();
-        queueStack = new Stack<Vector<TokenInfo>>();
-        isLookingAhead = false;
+        this.fileName = fileName;
+        tokens = new TokenBuffer(scanner);
+        cursor = -1;
+        marks = new int[16];
+        markCount = 0;
+    }
+
+    /**
+     * Constructs a LookaheadScanner over tokens that have already been scanned, up to and
+     * including EOF. Lexical errors in them are not its business, but that of whoever scanned them,
+     * unless they were deferred to the tokens (see TokenBuffer).
+     *
+     * @param fileName the name of the file containing the source.
+     * @param tokens   the tokens of the source.
+     */
+    public LookaheadScanner(String fileName, TokenBuffer tokens) {
+        this.fileName = fileName;
+        this.tokens = tokens;
+        cursor = -1;
+        marks = new int[16];
+        markCount = 0;
     }
 
     /**
      * Scans to the next token in the input.
      */
     public void next() {
-        previousToken = token;
-        if (backtrackingQueue.size() == 0) {
-            token = scanner.getNextToken();
-        } else {
-            token = backtrackingQueue.remove(0);
-        }
-        if (isLookingAhead) {
-            nextQueue.add(token);
-        }
+        cursor++;
+        tokens.fill(cursor);
     }
 
     /**
      * Records the current position in the input, so that we can start looking ahead in the input
-     * (and later return to this position) --- the current and subsequent tokens are queued until
-     * returnToPosition() is invoked.
+     * (and later return to this position). Positions may be recorded within lookahead, and are
+     * returned to in the reverse order.
      */
     public void recordPosition() {
-        isLookingAhead = true;
-        queueStack.push(nextQueue);
-        nextQueue = new Vector<TokenInfo>();
-        nextQueue.add(previousToken);
-        nextQueue.add(token);
+        if (markCount == marks.length) {
+            marks = Arrays.copyOf(marks, markCount * 2);
+        }
+        marks[markCount++] = cursor;
     }
 
     /**
      * Returns to the previously recorded position in the input stream of tokens.
      */
     public void returnToPosition() {
-        while (backtrackingQueue.size() > 0) {
-            nextQueue.add(backtrackingQueue.remove(0));
-        }
-        backtrackingQueue = nextQueue;
-        nextQueue = queueStack.pop();
-        isLookingAhead = !(queueStack.empty());
+        cursor = marks[--markCount];
+    }
+
+    /**
+     * Returns the position of the current token: its index among the tokens of the file.
+     *
+     * @return the position of the current token.
+     */
+    public int position() {
+        return cursor;
+    }
 
-        // Restore previous and current tokens
-        previousToken = backtrackingQueue.remove(0);
-        token = backtrackingQueue.remove(0);
+    /**
+     * Goes to the given position in the input stream of tokens, which must be that of a token
+     * already scanned; the token there becomes the current token.
+     *
+     * @param position the position of a token already scanned.
+     */
+    public void seek(int position) {
+        cursor = position;
     }
 
     /**
@@ -97,16 +113,54 @@ class LookaheadScanner {
      * @return the current token.
      */
     public TokenInfo token() {
-        return token;
+        return tokens.token(cursor);
     }
 
     /**
      * Returns the previous token.
      *
-     * @return the previous token.
+     * @return the previous token, or null if there is none.
      */
     public TokenInfo previousToken() {
-        return previousToken;
+        return cursor > 0 ? tokens.token(cursor - 1) : null;
+    }
+
+    /**
+     * Returns the kind of the current token. Unlike token().kind(), this creates no TokenInfo.
+     *
+     * @return the kind of the current token.
+     */
+    public TokenKind kind() {
+        return tokens.kind(cursor);
+    }
+
+    /**
+     * Returns the image of the current token. Unlike token().image(), this creates no
+     * TokenInfo.
+     *
+     * @return the image of the current token.
+     */
+    public String image() {
+        return tokens.image(cursor);
+    }
+
+    /**
+     * Returns the line of the current token. Unlike token().line(), this creates no TokenInfo.
+     *
+     * @return the line of the current token.
+     */
+    public int line() {
+        return tokens.line(cursor);
+    }
+
+    /**
+     * Returns the image of the previous token. Unlike previousToken().image(), this creates no
+     * TokenInfo.
+     *
+     * @return the image of the previous token.
+     */
+    public String previousImage() {
+        return tokens.image(cursor - 1);
     }
 
     /**
@@ -115,7 +169,7 @@ class LookaheadScanner {
      * @return true if an error has occurred, and false otherwise.
      */
     public boolean errorHasOccured() {
-        return scanner.errorHasOccurred();
+        return scanner != null ? scanner.errorHasOccurred() : tokens.errorHasOccurred();
     }
 
     /**
@@ -124,6 +178,6 @@ class LookaheadScanner {
      * @return the name of the source file.
      */
     public String fileName() {
-        return scanner.fileName();
+        return fileName;
     }
 }
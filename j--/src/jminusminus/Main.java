@@ -2,13 +2,21 @@
 
 package jminusminus;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileNotFoundException;
-
-import static jminusminus.TokenKind.EOF;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.TreeSet;
 
 /**
- * Driver class for j-- compiler using hand-written front-end. This is the main entry point for
- * the compiler. The compiler proceeds as follows:
+ * Driver class for j-- compiler, using either the hand-written front-end or the one JavaCC
+ * generates (see FrontEnd). This is the main entry point for the compiler. The compiler proceeds
+ * as follows:
  * <ol>
  *   <li>It reads arguments that affects its behavior.</li>
  *
@@ -32,27 +40,64 @@ import static jminusminus.TokenKind.EOF;
  * </ol>
  */
 public class Main {
-    // Whether an error occurred during compilation.
-    private static boolean errorHasOccurred;
-
     /**
      * Entry point.
      *
      * @param args the command-line arguments.
      */
     public static void main(String args[]) {
+        compile(args, new Session());
+    }
+
+    /**
+     * Compiles as the main() method does for the given command-line arguments, but in the given
+     * session: the session's directory stands for the current directory, and the output and
+     * diagnostics go to the session's streams.
+     *
+     * @param args    the command-line arguments.
+     * @param session the compilation session.
+     */
+    static void compile(String args[], Session session) {
+        Session previous = session.bind();
+        try {
+            compile(args);
+            if (session.timings() != null) {
+                session.timings().report(session.err());
+            }
+        } finally {
+            session.unbind(previous);
+        }
+    }
+
+    // Compiles for the given command-line arguments, in the session bound to the calling thread.
+    private static void compile(String args[]) {
         String caller = "java jminusminus.Main";
-        String sourceFile = "";
+        ArrayList<String> sourceFiles = new ArrayList<String>();
         String debugOption = "";
         String outputDir = ".";
         boolean spimOutput = false;
         String registerAllocation = "";
-        errorHasOccurred = false;
+        int threads = 1;
+        int scanThreads = 1;
+        boolean incremental = false;
+        String jarFile = null;
+        boolean stored = false;
+        String mainClass = null;
+        boolean skim = false;
+        ASTCache cache = null;
+        String frontEnd = FrontEnd.HANDWRITTEN;
+        Session session = Session.current();
+        args = expandArgFiles(args);
+        if (args == null) {
+            return;
+        }
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("j--")) {
                 caller = "j--";
+            } else if (args[i].equals("javaccj--")) {
+                caller = "javaccj--";
             } else if (args[i].endsWith(".java")) {
-                sourceFile = args[i];
+                sourceFiles.add(args[i]);
             } else if (args[i].equals("-t") || args[i].equals("-p") || args[i].equals("-pa") ||
                     args[i].equals("-a")) {
                 debugOption = args[i];
@@ -67,102 +112,381 @@ public class Main {
                     return;
                 }
             } else if (args[i].endsWith("-r") && (i + 1) < args.length) {
-                NPhysicalRegister.MAX_COUNT = Math.min(18, Integer.parseInt(args[++i]));
-                NPhysicalRegister.MAX_COUNT = Math.max(1, NPhysicalRegister.MAX_COUNT);
+                session.setPhysicalRegisterCount(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-j") && (i + 1) < args.length) {
+                try {
+                    threads = Math.max(1, Integer.parseInt(args[++i]));
+                } catch (NumberFormatException e) {
+                    printUsage(caller);
+                    return;
+                }
+            } else if (args[i].equals("-scanj") && (i + 1) < args.length) {
+                try {
+                    scanThreads = Math.max(1, Integer.parseInt(args[++i]));
+                } catch (NumberFormatException e) {
+                    printUsage(caller);
+                    return;
+                }
+            } else if (args[i].equals("-i")) {
+                incremental = true;
+            } else if (args[i].equals("-jar") && (i + 1) < args.length) {
+                jarFile = args[++i];
+            } else if (args[i].equals("-stored")) {
+                stored = true;
+            } else if (args[i].equals("-main") && (i + 1) < args.length) {
+                mainClass = args[++i];
+            } else if (args[i].equals("-skim")) {
+                skim = true;
+            } else if (args[i].equals("-cache") && (i + 1) < args.length) {
+                cache = new ASTCache(args[++i]);
+            } else if (args[i].equals("-frontend") && (i + 1) < args.length) {
+                frontEnd = args[++i];
+                if (!FrontEnd.exists(frontEnd)) {
+                    printUsage(caller);
+                    return;
+                }
+            } else if (args[i].equals("-timings")) {
+                session.setTimings(new Timings(null));
+            } else if (args[i].startsWith("-timings=")) {
+                session.setTimings(new Timings(args[i].substring("-timings=".length())));
             } else {
                 printUsage(caller);
                 return;
             }
         }
-        if (sourceFile.equals("")) {
+        if (sourceFiles.isEmpty()) {
             printUsage(caller);
             return;
         }
-
-        LookaheadScanner scanner = null;
-        try {
-            scanner = new LookaheadScanner(sourceFile);
-        } catch (FileNotFoundException e) {
-            System.err.println("Error: file " + sourceFile + " not found.");
-            return;
+        if (!frontEnd.equals(FrontEnd.HANDWRITTEN)) {
+            // The cached ASTs are those the hand-written front end builds (see ASTCache).
+            cache = null;
         }
 
-        if (debugOption.equals("-t")) {
-            // Just tokenize input and print the tokens to STDOUT.
-            TokenInfo token;
-            do {
-                scanner.next();
-                token = scanner.token();
-                System.out.printf("%d\t : %s = %s\n", token.line(), token.tokenRep(),
-                        token.image());
-            } while (token.kind() != EOF);
-            errorHasOccurred |= scanner.errorHasOccured();
-            return;
-        }
+        // With -i, the source files whose outputs from the last run are still good are left out
+        // after pre-analysis. A JAR file is written from scratch, so -jar compiles everything.
+        jarFile = spimOutput ? null : jarFile;
+        incremental &= debugOption.equals("") && jarFile == null;
 
-        // Parse input.
-        Parser parser = new Parser(scanner);
-        JCompilationUnit ast = parser.compilationUnit();
-        errorHasOccurred |= parser.errorHasOccurred();
-        if (debugOption.equals("-p")) {
-            JSONElement json = new JSONElement();
-            ast.toJSON(json);
-            System.out.println(json.toString());
-            return;
+        // Scan and parse each source file.
+        JCompilationUnit[] parsed = new JCompilationUnit[sourceFiles.size()];
+        ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < sourceFiles.size(); i++) {
+            tasks.add(parseTask(sourceFiles.get(i), frontEnd, debugOption, skim, cache, scanThreads,
+                    incremental, parsed, i));
         }
-        if (errorHasOccurred) {
+        session.runAll(threads, tasks);
+        if (debugOption.equals("-t") || debugOption.equals("-p") || session.errorHasOccurred()) {
             return;
         }
+        ArrayList<JCompilationUnit> asts = new ArrayList<JCompilationUnit>();
+        for (JCompilationUnit ast : parsed) {
+            asts.add(ast);
+        }
 
-        // Do pre-analysis.
-        ast.preAnalyze();
-        errorHasOccurred |= JAST.compilationUnit.errorHasOccurred();
-        if (debugOption.equals("-pa")) {
-            JSONElement json = new JSONElement();
-            ast.toJSON(json);
-            System.out.println(json.toString());
-            return;
+        // Do pre-analysis, with the types declared in any of the source files visible to all.
+        Timings.begin("preAnalyze");
+        JCompilationUnit.preAnalyze(asts);
+        Timings.end();
+        for (JCompilationUnit ast : asts) {
+            session.reportErrors(ast.errorHasOccurred());
+            if (debugOption.equals("-pa")) {
+                printJSON(ast);
+            }
         }
-        if (errorHasOccurred) {
+        if (debugOption.equals("-pa") || session.errorHasOccurred()) {
             return;
         }
 
+        // With -i, leave out the source files whose outputs from the last run are still good.
+        DependencyGraph graph = null;
+        HashMap<JCompilationUnit, TreeSet<String>> outputs = null;
+        String options = spimOutput ?
+                "-s " + registerAllocation + " -r " + session.physicalRegisterCount() : "";
+        ArrayList<JCompilationUnit> stale = asts;
+        if (incremental) {
+            graph = DependencyGraph.read(outputDir);
+            outputs = new HashMap<JCompilationUnit, TreeSet<String>>();
+            for (JCompilationUnit ast : asts) {
+                outputs.put(ast, outputFiles(ast, outputDir, spimOutput));
+            }
+            stale = graph.staleUnits(asts, outputs, options);
+        }
+
         // Do analysis.
-        ast.analyze(null);
-        errorHasOccurred |= JAST.compilationUnit.errorHasOccurred();
-        if (debugOption.equals("-a")) {
-            JSONElement json = new JSONElement();
-            ast.toJSON(json);
-            System.out.println(json.toString());
-            return;
+        tasks.clear();
+        for (JCompilationUnit ast : stale) {
+            tasks.add(analyzeTask(ast, debugOption));
         }
-        if (errorHasOccurred) {
+        session.runAll(threads, tasks);
+        if (debugOption.equals("-a") || session.errorHasOccurred()) {
             return;
         }
 
-        // Generate JVM code.
-        CLEmitter clEmitter = new CLEmitter(!spimOutput);
-        clEmitter.destinationDir(outputDir);
-        ast.codegen(clEmitter);
-        errorHasOccurred |= clEmitter.errorHasOccurred();
-        if (errorHasOccurred) {
+        // Generate JVM code, into a JAR file with -jar.
+        if (jarFile != null) {
+            try {
+                session.setJarWriter(new JarWriter(session.file(jarFile),
+                        mainClass != null ? mainClass : mainClass(asts), stored));
+            } catch (IOException e) {
+                session.err().println("Error: Cannot write to file " + jarFile);
+                session.reportErrors(true);
+                return;
+            }
+        }
+        tasks.clear();
+        for (JCompilationUnit ast : stale) {
+            tasks.add(codegenTask(ast, outputDir, !spimOutput));
+        }
+        try {
+            session.runAll(threads, tasks);
+        } finally {
+            if (jarFile != null) {
+                closeJar(session);
+            }
+        }
+        if (session.errorHasOccurred()) {
             return;
         }
 
         // If SPIM output was asked for, convert the in-memory JVM instructions to SPIM using the
         // specified register allocation scheme.
         if (spimOutput) {
-            NEmitter nEmitter = new NEmitter(sourceFile, ast.clFiles(), registerAllocation);
-            nEmitter.destinationDir(outputDir);
-            nEmitter.write();
-            errorHasOccurred |= nEmitter.errorHasOccurred();
+            tasks.clear();
+            for (JCompilationUnit ast : stale) {
+                tasks.add(spimTask(ast, outputDir, registerAllocation));
+            }
+            session.runAll(threads, tasks);
+        }
+
+        // Remember what was generated from what, for the next run with -i.
+        if (incremental && !session.errorHasOccurred()) {
+            graph.update(asts, stale, outputs, options);
+            graph.write(outputDir);
+        }
+    }
+
+    // Returns a task that scans and parses the given source file into asts[i] with the named
+    // front end, skimming over method bodies if so asked, or just prints its tokens (-t) or AST
+    // (-p) to STDOUT. With a cache, the AST is read from the cache if it's there, and is cached
+    // otherwise. With more than one scan thread, the file is scanned in chunks, in parallel,
+    // before it is parsed. With -i, the session holds the contents parsed, which the file's hash
+    // (see DependencyGraph) is then computed from.
+    private static Runnable parseTask(final String sourceFile, final String frontEndName,
+                                      final String debugOption, final boolean skim,
+                                      final ASTCache cache, final int scanThreads,
+                                      final boolean incremental, final JCompilationUnit[] asts,
+                                      final int i) {
+        return new Runnable() {
+            public void run() {
+                Session session = Session.current();
+                if (incremental) {
+                    try {
+                        session.holdSource(sourceFile);
+                    } catch (FileNotFoundException e) {
+                        // Reported when the front end is created, below.
+                    }
+                }
+                String key = null;
+                if (cache != null && !debugOption.equals("-t")) {
+                    Timings.begin("cache");
+                    key = cache.key(sourceFile);
+                    asts[i] = cache.load(key, sourceFile);
+                    Timings.end();
+                    if (asts[i] != null) {
+                        if (debugOption.equals("-p")) {
+                            printJSON(asts[i]);
+                        }
+                        return;
+                    }
+                }
+                FrontEnd frontEnd = null;
+                try {
+                    frontEnd = FrontEnd.create(frontEndName, sourceFile, skim, scanThreads);
+                } catch (FileNotFoundException e) {
+                    session.err().println("Error: file " + sourceFile + " not found.");
+                    session.reportErrors(true);
+                    return;
+                }
+
+                if (debugOption.equals("-t")) {
+                    // Just tokenize input and print the tokens to STDOUT.
+                    Timings.begin("scan");
+                    frontEnd.printTokens();
+                    Timings.end();
+                    session.reportErrors(frontEnd.errorHasOccurred());
+                    return;
+                }
+
+                // Parse input. Unless only the AST is asked for (-p, -pa), the skimmed bodies are
+                // needed anyway, and are parsed now, so that their syntax errors stop the
+                // compilation before analysis, as they do without -skim.
+                Timings.begin("parse");
+                asts[i] = frontEnd.compilationUnit();
+                if (!debugOption.equals("-p") && !debugOption.equals("-pa")) {
+                    frontEnd.parseSkimmedBodies();
+                }
+                Timings.end();
+                session.reportErrors(frontEnd.errorHasOccurred());
+                if (debugOption.equals("-p") && asts[i] != null) {
+                    printJSON(asts[i]);
+                }
+                if (cache != null && !frontEnd.errorHasOccurred()) {
+                    Timings.begin("cache");
+                    cache.store(key, asts[i]);
+                    Timings.end();
+                    session.reportErrors(asts[i].errorHasOccurred());
+                }
+            }
+        };
+    }
+
+    // Returns a task that analyzes the given AST, printing it to STDOUT afterwards for -a.
+    private static Runnable analyzeTask(final JCompilationUnit ast, final String debugOption) {
+        return new Runnable() {
+            public void run() {
+                Timings.begin("analyze");
+                ast.analyze(null);
+                Timings.end();
+                Session.current().reportErrors(ast.errorHasOccurred());
+                if (debugOption.equals("-a")) {
+                    printJSON(ast);
+                }
+            }
+        };
+    }
+
+    // Returns a task that generates JVM code for the given AST, writing the .class files to
+    // outputDir if toFile is true.
+    private static Runnable codegenTask(final JCompilationUnit ast, final String outputDir,
+                                        final boolean toFile) {
+        return new Runnable() {
+            public void run() {
+                CLEmitter clEmitter = new CLEmitter(toFile);
+                clEmitter.destinationDir(outputDir);
+                Timings.begin("codegen");
+                ast.codegen(clEmitter);
+                Timings.end();
+                Session.current().reportErrors(clEmitter.errorHasOccurred());
+            }
+        };
+    }
+
+    // Returns a task that converts the JVM code generated for the given AST to SPIM, using the
+    // given register allocation scheme.
+    private static Runnable spimTask(final JCompilationUnit ast, final String outputDir,
+                                     final String registerAllocation) {
+        return new Runnable() {
+            public void run() {
+                NEmitter nEmitter = new NEmitter(ast.fileName(), ast.clFiles(),
+                        registerAllocation);
+                nEmitter.destinationDir(outputDir);
+                nEmitter.write();
+                Session.current().reportErrors(nEmitter.errorHasOccurred());
+            }
+        };
+    }
+
+    // Returns the (binary) name of the first of the classes declared by the given (pre-analyzed)
+    // ASTs that has a public static void main(String[]) method, or null if there is none.
+    private static String mainClass(ArrayList<JCompilationUnit> asts) {
+        for (JCompilationUnit ast : asts) {
+            for (Type type : ast.declaredTypes()) {
+                if (type == null || type.symbol() == null) {
+                    continue;
+                }
+                for (Method method : type.declaredMethods()) {
+                    if (method.name().equals("main") &&
+                            method.toDescriptor().startsWith("([Ljava/lang/String;)")) {
+                        if (method.isPublic() && method.isStatic()) {
+                            return type.toString();
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Finishes the JAR file the session is writing the classes into, deleting it if an error
+    // occurred.
+    private static void closeJar(Session session) {
+        JarWriter jarWriter = session.jarWriter();
+        session.setJarWriter(null);
+        try {
+            jarWriter.close();
+        } catch (IOException e) {
+            session.err().println("Error: Cannot write to file " + jarWriter.file());
+            session.reportErrors(true);
+        }
+        if (session.errorHasOccurred()) {
+            jarWriter.file().delete();
+        } else {
+            session.addOutputFile(jarWriter.file());
+        }
+    }
+
+    // Returns the names of the files generated from the given (pre-analyzed) AST: a .class file
+    // for each type it declares, or a single .s file if spimOutput is true.
+    private static TreeSet<String> outputFiles(JCompilationUnit ast, String outputDir,
+                                               boolean spimOutput) {
+        TreeSet<String> outputFiles = new TreeSet<String>();
+        if (spimOutput) {
+            String sourceFile = ast.fileName();
+            sourceFile = sourceFile.substring(sourceFile.lastIndexOf(File.separator) + 1);
+            outputFiles.add(outputDir + File.separator + sourceFile.replace(".java", ".s"));
+        } else {
+            for (Type type : ast.declaredTypes()) {
+                outputFiles.add(outputDir + File.separator + type.jvmName() + ".class");
+            }
         }
+        return outputFiles;
+    }
+
+    // Returns the given command-line arguments with each argument of the form @file replaced by
+    // the (whitespace separated) arguments listed in that file, or null if an argument file
+    // cannot be read.
+    private static String[] expandArgFiles(String[] args) {
+        ArrayList<String> expanded = new ArrayList<String>();
+        for (String arg : args) {
+            if (!arg.startsWith("@")) {
+                expanded.add(arg);
+                continue;
+            }
+            String argFile = arg.substring(1);
+            try {
+                for (String line : Files.readAllLines(Session.current().file(argFile).toPath())) {
+                    for (String token : line.trim().split("\\s+")) {
+                        if (!token.equals("")) {
+                            expanded.add(token);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                Session.current().err().println("Error: file " + argFile + " not found.");
+                return null;
+            }
+        }
+        return expanded.toArray(new String[0]);
+    }
+
+    // Prints the given AST to STDOUT in JSON format, writing the document as it is built rather
+    // than building it in memory first.
+    private static void printJSON(JCompilationUnit ast) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(Session.current().out()), 1 << 16));
+        JSONElement json = new JSONElement(out);
+        ast.toJSON(json);
+        json.close();
+        out.println();
+        out.flush();
     }
 
     // Prints command usage to STDOUT.
     private static void printUsage(String caller) {
         String usage = "Usage: " + caller
-                + " <options> <source file>\n"
+                + " <options> <source files | @argfile>\n"
                 + "Where possible options include:\n"
                 + "  -t  Only tokenize input and print tokens to STDOUT\n"
                 + "  -p  Only parse input and print AST to STDOUT\n"
@@ -170,7 +494,25 @@ public class Main {
                 + "  -a  Only parse, pre-analyze, and analyze input and print AST to STDOUT\n"
                 + "  -s  <naive|linear|graph> Generate SPIM code\n"
                 + "  -r  <num> Physical registers (1-18) available for allocation; default = 8\n"
-                + "  -d  <dir> Specify where to place output files; default = .";
-        System.out.println(usage);
+                + "  -d  <dir> Specify where to place output files; default = .\n"
+                + "  -j  <num> Threads used for compiling the source files; default = 1\n"
+                + "  -scanj <num> Threads used for scanning each source file, in chunks;\n"
+                + "      default = 1\n"
+                + "  -i  Compile incrementally, only the files that changed or depend on changes\n"
+                + "  -jar <file> Write the classes into a JAR file rather than .class files\n"
+                + "  -stored Store the entries of the JAR file uncompressed\n"
+                + "  -main <class> Main-Class of the JAR file; default = the first class with a\n"
+                + "      main() method\n"
+                + "  -skim Parse method bodies only when they are needed; with -p or -pa, the\n"
+                + "      bodies not needed are printed as skimmed, and otherwise all are parsed\n"
+                + "      before analysis\n"
+                + "  -frontend <handwritten|javacc> Front end that scans and parses the source\n"
+                + "      files; default = handwritten\n"
+                + "  -cache <dir> Keep the ASTs of the source files in <dir>, and read them from\n"
+                + "      there rather than parse the files again while they are unchanged\n"
+                + "  -timings[=<file>] Report time and allocation per phase to STDERR (and to\n"
+                + "      <file> in JSON format)\n"
+                + "An @argfile lists further options and source files, separated by whitespace.";
+        Session.current().out().println(usage);
     }
 }
@@ -2,18 +2,44 @@
 
 package jminusminus;
 
+import java.util.ArrayList;
+
+import static jminusminus.CLConstants.*;
+
 /**
  * This abstract base class provides a wrapper for class members (ie, fields, methods, and
  * constructors).
  */
 abstract class Member {
+    // The type in which this member was declared.
+    private Type declaringType;
+
+    // Internal representation of this member.
+    protected MemberSymbol symbol;
+
+    // The JVM descriptors of the parameters of this method or constructor; null until they are
+    // first asked for.
+    private volatile String[] parameterDescriptors;
+
+    /**
+     * Constructs a member given the type in which it was declared and its internal
+     * representation.
+     *
+     * @param declaringType the type in which the member was declared.
+     * @param symbol        internal representation.
+     */
+    protected Member(Type declaringType, MemberSymbol symbol) {
+        this.declaringType = declaringType;
+        this.symbol = symbol;
+    }
+
     /**
      * Returns this member's (simple) name.
      *
      * @return this member's (simple) name.
      */
     public String name() {
-        return member().getName();
+        return symbol.name();
     }
 
     /**
@@ -22,7 +48,7 @@ abstract class Member {
      * @return the type in which this member was declared.
      */
     public Type declaringType() {
-        return Type.typeFor(member().getDeclaringClass());
+        return declaringType;
     }
 
     /**
@@ -31,7 +57,7 @@ abstract class Member {
      * @return true if this member is static, and false otherwise.
      */
     public boolean isStatic() {
-        return java.lang.reflect.Modifier.isStatic(member().getModifiers());
+        return (symbol.modifiers() & ACC_STATIC) != 0;
     }
 
     /**
@@ -40,7 +66,7 @@ abstract class Member {
      * @return true if this member is public, and false otherwise.
      */
     public boolean isPublic() {
-        return java.lang.reflect.Modifier.isPublic(member().getModifiers());
+        return (symbol.modifiers() & ACC_PUBLIC) != 0;
     }
 
     /**
@@ -49,7 +75,7 @@ abstract class Member {
      * @return true if this member is protected, and false otherwise.
      */
     public boolean isProtected() {
-        return java.lang.reflect.Modifier.isProtected(member().getModifiers());
+        return (symbol.modifiers() & ACC_PROTECTED) != 0;
     }
 
     /**
@@ -58,7 +84,7 @@ abstract class Member {
      * @return true if this member is private, and false otherwise.
      */
     public boolean isPrivate() {
-        return java.lang.reflect.Modifier.isPrivate(member().getModifiers());
+        return (symbol.modifiers() & ACC_PRIVATE) != 0;
     }
 
     /**
@@ -67,7 +93,7 @@ abstract class Member {
      * @return true if this member is abstract, and false otherwise.
      */
     public boolean isAbstract() {
-        return java.lang.reflect.Modifier.isAbstract(member().getModifiers());
+        return (symbol.modifiers() & ACC_ABSTRACT) != 0;
     }
 
     /**
@@ -76,7 +102,7 @@ abstract class Member {
      * @return true if this member is final, and false otherwise.
      */
     public boolean isFinal() {
-        return java.lang.reflect.Modifier.isFinal(member().getModifiers());
+        return (symbol.modifiers() & ACC_FINAL) != 0;
     }
 
     /**
@@ -84,49 +110,48 @@ abstract class Member {
      *
      * @return the JVM descriptor for this member.
      */
-    public abstract String toDescriptor();
+    public String toDescriptor() {
+        return symbol.descriptor();
+    }
 
     /**
-     * Returns this member's internal representation.
+     * Returns the JVM descriptors of the parameters of this member, which is a method or a
+     * constructor.
      *
-     * @return this member's internal representation.
-     */
-    protected abstract java.lang.reflect.Member member();
+     * @return the JVM descriptors of the parameters of this member.
+     */
+    public String[] parameterDescriptors() {
+        if (parameterDescriptors == null) {
+            String descriptor = symbol.descriptor();
+            ArrayList<String> parameters = new ArrayList<String>();
+            int i = 1;
+            while (descriptor.charAt(i) != ')') {
+                int start = i;
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+                parameters.add(descriptor.substring(start, i));
+            }
+            parameterDescriptors = parameters.toArray(new String[parameters.size()]);
+        }
+        return parameterDescriptors;
+    }
 }
 
 /**
  * This class provides a wrapper for constructors.
  */
 class Constructor extends Member {
-    // Internal representation of this constructor.
-    private java.lang.reflect.Constructor constructor;
-
     /**
-     * Constructs a constructor given its internal representation.
+     * Constructs a constructor given the type in which it was declared and its internal
+     * representation.
      *
-     * @param constructor internal representation.
-     */
-    public Constructor(java.lang.reflect.Constructor constructor) {
-        this.constructor = constructor;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    public String toDescriptor() {
-        String descriptor = "(";
-        for (Class paramType : constructor.getParameterTypes()) {
-            descriptor += Type.typeFor(paramType).toDescriptor();
-        }
-        descriptor += ")V";
-        return descriptor;
-    }
-
-    /**
-     * {@inheritDoc}
+     * @param declaringType the type in which the constructor was declared.
+     * @param symbol        internal representation.
      */
-    protected java.lang.reflect.Member member() {
-        return constructor;
+    public Constructor(Type declaringType, MemberSymbol symbol) {
+        super(declaringType, symbol);
     }
 }
 
@@ -134,16 +159,15 @@ class Constructor extends Member {
  * This class provides a wrapper for fields.
  */
 class Field extends Member {
-    // Internal representation of this field.
-    private java.lang.reflect.Field field;
-
     /**
-     * Constructs a field given its internal representation.
+     * Constructs a field given the type in which it was declared and its internal
+     * representation.
      *
-     * @param field internal representation.
+     * @param declaringType the type in which the field was declared.
+     * @param symbol        internal representation.
      */
-    public Field(java.lang.reflect.Field field) {
-        this.field = field;
+    public Field(Type declaringType, MemberSymbol symbol) {
+        super(declaringType, symbol);
     }
 
     /**
@@ -152,21 +176,7 @@ class Field extends Member {
      * @return this field's type.
      */
     public Type type() {
-        return Type.typeFor(field.getType());
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    public String toDescriptor() {
-        return type().toDescriptor();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    protected java.lang.reflect.Member member() {
-        return field;
+        return Type.typeFor(symbol.descriptor());
     }
 }
 
@@ -174,16 +184,15 @@ class Field extends Member {
  * This class provides a wrapper for methods.
  */
 class Method extends Member {
-    // Internal representation of this method.
-    private java.lang.reflect.Method method;
-
     /**
-     * Constructs a method given its internal representation.
+     * Constructs a method given the type in which it was declared and its internal
+     * representation.
      *
-     * @param method the internal representation.
+     * @param declaringType the type in which the method was declared.
+     * @param symbol        internal representation.
      */
-    public Method(java.lang.reflect.Method method) {
-        this.method = method;
+    public Method(Type declaringType, MemberSymbol symbol) {
+        super(declaringType, symbol);
     }
 
     /**
@@ -192,25 +201,7 @@ class Method extends Member {
      * @return this method's return type.
      */
     public Type returnType() {
-        return Type.typeFor(method.getReturnType());
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    public String toDescriptor() {
-        String descriptor = "(";
-        for (Class paramType : method.getParameterTypes()) {
-            descriptor += Type.typeFor(paramType).toDescriptor();
-        }
-        descriptor += ")" + Type.typeFor(method.getReturnType()).toDescriptor();
-        return descriptor;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    protected java.lang.reflect.Member member() {
-        return method;
+        String descriptor = symbol.descriptor();
+        return Type.typeFor(descriptor.substring(descriptor.indexOf(')') + 1));
     }
-}
\ No newline at end of file
+}
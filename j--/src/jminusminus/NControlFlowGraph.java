@@ -387,22 +387,22 @@ class NControlFlowGraph {
     /**
      * Block identifier.
      */
-    public static int blockId;
+    public int blockId;
 
     /**
      * HIR instruction identifier.
      */
-    public static int hirId;
+    public int hirId;
 
     /**
      * HIR instruction identifier.
      */
-    public static int lirId;
+    public int lirId;
 
     /**
      * Virtual register identifier.
      */
-    public static int regId;
+    public int regId;
 
     /**
      * Stack offset counter..
@@ -412,7 +412,7 @@ class NControlFlowGraph {
     /**
      * Loop identifier.
      */
-    public static int loopIndex;
+    public int loopIndex;
 
     /**
      * Name of the method this cfg corresponds to.
@@ -608,7 +608,7 @@ class NControlFlowGraph {
             block.isLoopHead = true;
             pred.isLoopTail = true;
             block.bwdBranches++;
-            block.loopIndex = NControlFlowGraph.loopIndex++;
+            block.loopIndex = loopIndex++;
         }
     }
 
@@ -1380,7 +1380,7 @@ class NControlFlowGraph {
                 ArrayList<Integer> args = new ArrayList<Integer>();
                 args.add(a.locals[i]);
                 args.add(b.locals[i]);
-                NHIRInstruction ins = new NHIRPhiFunction(a, NControlFlowGraph.hirId++, args, i);
+                NHIRInstruction ins = new NHIRPhiFunction(a, hirId++, args, i);
                 a.locals[i] = ins.id;
                 a.hir.add(ins.id);
                 a.cfg.hirMap.put(ins.id, ins);
@@ -51,6 +51,7 @@ public class NEmitter {
                 // Build a control flow graph (cfg) for this method. Each block in the cfg, at
                 // the end of this step, has the JVM bytecode translated into tuple
                 // representation.
+                Timings.begin("spim tuples");
                 NControlFlowGraph cfg = new NControlFlowGraph(cp, m);
 
                 // Write the tuples in cfg to standard output.
@@ -67,8 +68,10 @@ public class NEmitter {
 
                 // Compute the dominator of each block in the cfg.
                 cfg.computeDominators(cfg.basicBlocks.get(0), null);
+                Timings.end();
 
                 // Convert the tuples in each block in the cfg to high-level (HIR) instructions.
+                Timings.begin("spim HIR");
                 cfg.tuplesToHir();
 
                 // Eliminate redundant phi functions, i.e., replace phi functions of the form x =
@@ -80,9 +83,11 @@ public class NEmitter {
 
                 // Write the HIR instructions in cfg to standard output.
                 cfg.writeHirToStdOut(p);
+                Timings.end();
 
                 // Convert the HIR instructions in each block in the cfg to low-level (LIR)
                 // instructions.
+                Timings.begin("spim LIR");
                 cfg.hirToLir();
 
                 // Resolve phi functions;
@@ -96,12 +101,14 @@ public class NEmitter {
 
                 // Write the LIR instructions in cfg to standard output.
                 cfg.writeLirToStdOut(p);
+                Timings.end();
 
                 // Save the cfg for the method in a map keyed in by the CLMethodInfo object for
                 // the method.
                 methods.put(m, cfg);
 
                 // Perform register allocation.
+                Timings.begin("spim regalloc");
                 NRegisterAllocator regAllocator;
                 if (ra.equals("naive")) {
                     regAllocator = new NNaiveRegisterAllocator(cfg);
@@ -121,6 +128,7 @@ public class NEmitter {
 
                 // Write the liveness intervals in cfg to standard output.
                 cfg.writeIntervalsToStdOut(p);
+                Timings.end();
             }
 
             // Store the cfgs for the methods in this class in a map.
@@ -151,10 +159,11 @@ public class NEmitter {
      * set using the destinationDir() method.
      */
     public void write() {
+        Timings.begin("spim write");
         String file = "";
         try {
             file = destDir + File.separator + sourceFile.replace(".java", ".s");
-            PrintWriter out = new PrintWriter(file);
+            PrintWriter out = new PrintWriter(Session.current().file(file));
 
             // Header.
             out.printf("# %s\n", file);
@@ -220,17 +229,21 @@ public class NEmitter {
             in.close();
 
             out.close();
+            Session.current().addOutputFile(Session.current().file(file));
         } catch (FileNotFoundException e) {
             reportEmitterError("File %s not found", file);
         } catch (IOException e) {
             reportEmitterError("Cannot write to file %s", file);
         }
+        Timings.end();
     }
 
     // Reports any error that occurs while creating/writing the spim file, to standard error.
     private void reportEmitterError(String message, Object... args) {
-        System.err.printf("Error: " + message, args);
-        System.err.println();
+        Session.current().err().printf("Error: " + message, args);
+        Session.current().err().println();
+        Session.current().addDiagnostic(new Diagnostic(Diagnostic.Kind.CODEGEN, sourceFile, 0,
+                String.format(message, args)));
         errorHasOccurred = true;
     }
 
@@ -323,7 +336,7 @@ class PrettyPrinter {
      */
     public void println() {
         doIndent();
-        System.out.println();
+        Session.current().out().println();
     }
 
     /**
@@ -334,7 +347,7 @@ class PrettyPrinter {
 
     public void println(String s) {
         doIndent();
-        System.out.println(s);
+        Session.current().out().println(s);
     }
 
     /**
@@ -344,7 +357,7 @@ class PrettyPrinter {
      */
     public void print(String s) {
         doIndent();
-        System.out.print(s);
+        Session.current().out().print(s);
     }
 
     /**
@@ -355,13 +368,13 @@ class PrettyPrinter {
      */
     public void printf(String format, Object... args) {
         doIndent();
-        System.out.printf(format, args);
+        Session.current().out().printf(format, args);
     }
 
     // Indents by printing spaces to standard output.
     private void doIndent() {
         for (int i = 0; i < indent; i++) {
-            System.out.print(" ");
+            Session.current().out().print(" ");
         }
     }
 }
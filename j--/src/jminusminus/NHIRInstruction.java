@@ -167,7 +167,7 @@ class NHIRArithmetic extends NHIRInstruction {
         }
         NLIRInstruction ins1 = block.cfg.hirMap.get(lhs).toLir();
         NLIRInstruction ins2 = block.cfg.hirMap.get(rhs).toLir();
-        lir = new NLIRArithmetic(block, NControlFlowGraph.lirId++, opcode, ins1, ins2);
+        lir = new NLIRArithmetic(block, block.cfg.lirId++, opcode, ins1, ins2);
         block.lir.add(lir);
         return lir;
     }
@@ -207,7 +207,7 @@ class NHIRIntConstant extends NHIRInstruction {
         if (lir != null) {
             return lir;
         }
-        lir = new NLIRIntConstant(block, NControlFlowGraph.lirId++, value);
+        lir = new NLIRIntConstant(block, block.cfg.lirId++, value);
         block.lir.add(lir);
         return lir;
     }
@@ -248,7 +248,7 @@ class NHIRStringConstant extends NHIRInstruction {
         if (lir != null) {
             return lir;
         }
-        lir = new NLIRStringConstant(block, NControlFlowGraph.lirId++, value);
+        lir = new NLIRStringConstant(block, block.cfg.lirId++, value);
         block.lir.add(lir);
         return lir;
     }
@@ -310,7 +310,7 @@ class NHIRConditionalJump extends NHIRInstruction {
         }
         NLIRInstruction ins1 = block.cfg.hirMap.get(lhs).toLir();
         NLIRInstruction ins2 = block.cfg.hirMap.get(rhs).toLir();
-        lir = new NLIRConditionalJump(block, NControlFlowGraph.lirId++, ins1, ins2, opcode,
+        lir = new NLIRConditionalJump(block, block.cfg.lirId++, ins1, ins2, opcode,
                 onTrueDestination, onFalseDestination);
         block.lir.add(lir);
         return lir;
@@ -352,7 +352,7 @@ class NHIRGoto extends NHIRInstruction {
         if (lir != null) {
             return lir;
         }
-        lir = new NLIRGoto(block, NControlFlowGraph.lirId++, destination);
+        lir = new NLIRGoto(block, block.cfg.lirId++, destination);
         block.lir.add(lir);
         return lir;
     }
@@ -431,11 +431,11 @@ class NHIRInvoke extends NHIRInstruction {
                 String lType = block.cfg.hirMap.get(arg).lType;
                 NPhysicalRegister from = NPhysicalRegister.regInfo[A0 + i];
                 block.cfg.registers.set(A0 + i, from);
-                NVirtualRegister to = new NVirtualRegister(NControlFlowGraph.regId++, sType, lType);
+                NVirtualRegister to = new NVirtualRegister(block.cfg.regId++, sType, lType);
                 block.cfg.registers.add(to);
-                NLIRMove move1 = new NLIRMove(block, NControlFlowGraph.lirId++, from, to);
+                NLIRMove move1 = new NLIRMove(block, block.cfg.lirId++, from, to);
                 block.lir.add(move1);
-                NLIRMove move2 = new NLIRMove(block, NControlFlowGraph.lirId++, ins.write, from);
+                NLIRMove move2 = new NLIRMove(block, block.cfg.lirId++, ins.write, from);
                 block.lir.add(move2);
                 arguments.add(NPhysicalRegister.regInfo[A0 + i]);
 
@@ -443,21 +443,21 @@ class NHIRInvoke extends NHIRInstruction {
                 froms.add(from);
                 tos.add(to);
             } else {
-                NLIRStore store = new NLIRStore(block, NControlFlowGraph.lirId++, i - 4,
+                NLIRStore store = new NLIRStore(block, block.cfg.lirId++, i - 4,
                         OffsetFrom.SP, ins.write);
                 block.lir.add(store);
                 arguments.add(ins.write);
             }
         }
-        lir = new NLIRInvoke(block, NControlFlowGraph.lirId++, opcode, target, name, arguments,
+        lir = new NLIRInvoke(block, block.cfg.lirId++, opcode, target, name, arguments,
                 sType, lType);
         block.lir.add(lir);
 
         // If the function returns a value, generate an LIR move instruction to save away the 
         // value in the physical register v0 into a virtual register.
         if (lir.write != null) {
-            NVirtualRegister to = new NVirtualRegister(NControlFlowGraph.regId++, sType, lType);
-            NLIRMove move = new NLIRMove(block, NControlFlowGraph.lirId++,
+            NVirtualRegister to = new NVirtualRegister(block.cfg.regId++, sType, lType);
+            NLIRMove move = new NLIRMove(block, block.cfg.lirId++,
                     NPhysicalRegister.regInfo[V0], to);
             block.cfg.registers.add(to);
             block.lir.add(move);
@@ -466,7 +466,7 @@ class NHIRInvoke extends NHIRInstruction {
 
         // Generate LIR move instructions to restore the a0, ..., a3 instructions.
         for (int i = 0; i < tos.size(); i++) {
-            NLIRMove move = new NLIRMove(block, NControlFlowGraph.lirId++, tos.get(i),
+            NLIRMove move = new NLIRMove(block, block.cfg.lirId++, tos.get(i),
                     froms.get(i));
             block.lir.add(move);
         }
@@ -521,12 +521,12 @@ class NHIRReturn extends NHIRInstruction {
         NLIRInstruction result = null;
         if (value != -1) {
             result = block.cfg.hirMap.get(value).toLir();
-            NLIRMove move = new NLIRMove(block, NControlFlowGraph.lirId++, result.write,
+            NLIRMove move = new NLIRMove(block, block.cfg.lirId++, result.write,
                     NPhysicalRegister.regInfo[V0]);
             block.lir.add(move);
             block.cfg.registers.set(V0, NPhysicalRegister.regInfo[V0]);
         }
-        lir = new NLIRReturn(block, NControlFlowGraph.lirId++, opcode, result == null ? null :
+        lir = new NLIRReturn(block, block.cfg.lirId++, opcode, result == null ? null :
                 NPhysicalRegister.regInfo[V0]);
         block.lir.add(lir);
         return lir;
@@ -588,7 +588,7 @@ class NHIRPutField extends NHIRInstruction {
             return lir;
         }
         NLIRInstruction result = block.cfg.hirMap.get(value).toLir();
-        lir = new NLIRPutField(block, NControlFlowGraph.lirId++, opcode, target, name, sType,
+        lir = new NLIRPutField(block, block.cfg.lirId++, opcode, target, name, sType,
                 lType, result);
         block.lir.add(lir);
         return lir;
@@ -642,7 +642,7 @@ class NHIRGetField extends NHIRInstruction {
         if (lir != null) {
             return lir;
         }
-        lir = new NLIRGetField(block, NControlFlowGraph.lirId++, opcode, target, name, sType,
+        lir = new NLIRGetField(block, block.cfg.lirId++, opcode, target, name, sType,
                 lType);
         block.lir.add(lir);
         return lir;
@@ -690,7 +690,7 @@ class NHIRNewArray extends NHIRInstruction {
         if (lir != null) {
             return lir;
         }
-        lir = new NLIRNewArray(block, NControlFlowGraph.lirId++, opcode, dim, sType, lType);
+        lir = new NLIRNewArray(block, block.cfg.lirId++, opcode, dim, sType, lType);
         block.lir.add(lir);
         return lir;
     }
@@ -744,7 +744,7 @@ class NHIRALoad extends NHIRInstruction {
         }
         NLIRInstruction arrayRef = block.cfg.hirMap.get(this.arrayRef).toLir();
         NLIRInstruction index = block.cfg.hirMap.get(this.index).toLir();
-        lir = new NLIRALoad(block, NControlFlowGraph.lirId++, opcode, arrayRef, index, sType,
+        lir = new NLIRALoad(block, block.cfg.lirId++, opcode, arrayRef, index, sType,
                 lType);
         block.lir.add(lir);
         return lir;
@@ -806,7 +806,7 @@ class NHIRAStore extends NHIRInstruction {
         NLIRInstruction arrayRef = block.cfg.hirMap.get(this.arrayRef).toLir();
         NLIRInstruction index = block.cfg.hirMap.get(this.index).toLir();
         NLIRInstruction value = block.cfg.hirMap.get(this.value).toLir();
-        lir = new NLIRAStore(block, NControlFlowGraph.lirId++, opcode, arrayRef, index, value,
+        lir = new NLIRAStore(block, block.cfg.lirId++, opcode, arrayRef, index, value,
                 sType, lType);
         block.lir.add(lir);
         return lir;
@@ -884,7 +884,7 @@ class NHIRPhiFunction extends NHIRInstruction {
         if (lir != null) {
             return lir;
         }
-        lir = new NLIRPhiFunction(block, NControlFlowGraph.lirId++, sType, lType);
+        lir = new NLIRPhiFunction(block, block.cfg.lirId++, sType, lType);
         return lir;
     }
 
@@ -930,7 +930,7 @@ class NHIRLoadLocal extends NHIRInstruction {
         if (lir != null) {
             return lir;
         }
-        lir = new NLIRLoadLocal(block, NControlFlowGraph.lirId++, local, sType, lType);
+        lir = new NLIRLoadLocal(block, block.cfg.lirId++, local, sType, lType);
         block.lir.add(lir);
         return lir;
     }
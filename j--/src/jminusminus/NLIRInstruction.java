@@ -118,7 +118,7 @@ class NLIRArithmetic extends NLIRInstruction {
         this.opcode = opcode;
         reads.add(lhs.write);
         reads.add(rhs.write);
-        write = new NVirtualRegister(NControlFlowGraph.regId++, "I", "I");
+        write = new NVirtualRegister(block.cfg.regId++, "I", "I");
         block.cfg.registers.add((NVirtualRegister) write);
     }
 
@@ -177,7 +177,7 @@ class NLIRIntConstant extends NLIRInstruction {
     public NLIRIntConstant(NBasicBlock block, int id, int value) {
         super(block, id);
         this.value = value;
-        write = new NVirtualRegister(NControlFlowGraph.regId++, "I", "I");
+        write = new NVirtualRegister(block.cfg.regId++, "I", "I");
         block.cfg.registers.add((NVirtualRegister) write);
     }
 
@@ -211,9 +211,6 @@ class NLIRStringConstant extends NLIRInstruction {
     // The constant string value.
     private String value;
 
-    // For generating unique label for the string in the data segment.
-    private static int labelSuffix;
-
     /**
      * Constructs an NHIRStringConstant object.
      *
@@ -224,9 +221,9 @@ class NLIRStringConstant extends NLIRInstruction {
     public NLIRStringConstant(NBasicBlock block, int id, String value) {
         super(block, id);
         this.value = value;
-        write = new NVirtualRegister(NControlFlowGraph.regId++, "L", "Ljava/lang/String;");
+        write = new NVirtualRegister(block.cfg.regId++, "L", "Ljava/lang/String;");
         block.cfg.registers.add((NVirtualRegister) write);
-        labelSuffix = 0;
+        Session.current().resetLabelSuffix();
     }
 
     /**
@@ -235,7 +232,7 @@ class NLIRStringConstant extends NLIRInstruction {
      * @return the label for LIR code.
      */
     private String createLabel() {
-        return "Constant..String" + labelSuffix++;
+        return "Constant..String" + Session.current().nextLabelSuffix();
     }
 
     /**
@@ -573,7 +570,7 @@ class NLIRGetField extends NLIRInstruction {
         this.opcode = opcode;
         this.target = target;
         this.name = name;
-        write = new NVirtualRegister(NControlFlowGraph.regId++, sType, lType);
+        write = new NVirtualRegister(block.cfg.regId++, sType, lType);
         block.cfg.registers.add((NVirtualRegister) write);
     }
 
@@ -617,7 +614,7 @@ class NLIRNewArray extends NLIRInstruction {
         super(block, id);
         this.opcode = opcode;
         this.dim = dim;
-        write = new NVirtualRegister(NControlFlowGraph.regId++, sType, lType);
+        write = new NVirtualRegister(block.cfg.regId++, sType, lType);
         block.cfg.registers.add((NVirtualRegister) write);
     }
 
@@ -661,7 +658,7 @@ class NLIRALoad extends NLIRInstruction {
         this.opcode = opcode;
         reads.add(arrayRef.write);
         reads.add(index.write);
-        write = new NVirtualRegister(NControlFlowGraph.regId++, sType, lType);
+        write = new NVirtualRegister(block.cfg.regId++, sType, lType);
         block.cfg.registers.add((NVirtualRegister) write);
     }
 
@@ -741,7 +738,7 @@ class NLIRPhiFunction extends NLIRInstruction {
      */
     public NLIRPhiFunction(NBasicBlock block, int id, String sType, String lType) {
         super(block, id);
-        write = new NVirtualRegister(NControlFlowGraph.regId++, sType, lType);
+        write = new NVirtualRegister(block.cfg.regId++, sType, lType);
         block.cfg.registers.add((NVirtualRegister) write);
     }
 
@@ -833,7 +830,7 @@ class NLIRLoadLocal extends NLIRInstruction {
             write = NPhysicalRegister.regInfo[A0 + local];
             block.cfg.registers.set(A0 + local, NPhysicalRegister.regInfo[A0 + local]);
         } else {
-            write = new NVirtualRegister(NControlFlowGraph.regId++, sType, lType);
+            write = new NVirtualRegister(block.cfg.regId++, sType, lType);
             block.cfg.registers.add((NVirtualRegister) write);
         }
     }
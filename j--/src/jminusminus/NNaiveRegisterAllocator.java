@@ -37,11 +37,12 @@ public class NNaiveRegisterAllocator extends NRegisterAllocator {
         preprocess();
 
         // Allocate registers.
+        int maxCount = Session.current().physicalRegisterCount();
         Queue<NInterval> assigned = new LinkedList<NInterval>();
         for (int i = 32, j = 0; i < cfg.intervals.size(); i++) {
             NInterval interval = cfg.intervals.get(i);
             if (interval.pRegister == null) {
-                if (j >= MAX_COUNT) {
+                if (j >= maxCount) {
                     // Pull out (from a queue) a register that's already assigned to another
                     // interval and re-assign it to this interval. But then we have a spill
                     // situation, so create an offset for the spill.
@@ -83,7 +84,7 @@ public class NNaiveRegisterAllocator extends NRegisterAllocator {
                     NInterval input2 = cfg.intervals.get(lir.reads.get(1).number()).childAt(id);
                     if (input1.pRegister == input2.pRegister) {
                         input2.pRegister =
-                                regInfo[T0 + (input2.pRegister.number() + 1) % MAX_COUNT];
+                                regInfo[T0 + (input2.pRegister.number() + 1) % maxCount];
                     }
                 }
 
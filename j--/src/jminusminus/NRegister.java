@@ -84,9 +84,10 @@ class NVirtualRegister extends NRegister {
  */
 class NPhysicalRegister extends NRegister {
     /**
-     * Maximum number of physical registers used for allocation, starting at T0.
+     * Default number of physical registers used for allocation, starting at T0 (see
+     * Session.physicalRegisterCount()).
      */
-    public static int MAX_COUNT = 8;
+    public static final int DEFAULT_COUNT = 8;
 
     // Constants identifying the physical registers. These can be used as indices into the static
     // regInfo array to access the representations of the corresponding registers.
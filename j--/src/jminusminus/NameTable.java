@@ -0,0 +1,115 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+/**
+ * A table of the names (identifiers) scanned during a compilation, which hands out a single,
+ * canonical String for each name. Names are looked up by the range of source characters they
+ * occupy, so scanning a name that has been seen before creates no String at all. The canonical
+ * strings are also interned in the JVM's string pool (see String.intern()), so the names of the
+ * same entity, whether scanned from any of the source files or written as literals within the
+ * compiler, are the same object and may be compared by identity.
+ * <p>
+ * There is one table per compilation (see Session.names()), shared by the scanners of all its
+ * source files, which may run at the same time in different threads.
+ */
+class NameTable {
+    // Initial capacity of the table; always a power of two.
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // The canonical names, in an open-addressed hash table.
+    private String[] names;
+
+    // The hash codes of the names.
+    private int[] hashes;
+
+    // Number of names in the table.
+    private int size;
+
+    /**
+     * Constructs an empty NameTable.
+     */
+    public NameTable() {
+        names = new String[INITIAL_CAPACITY];
+        hashes = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Returns the canonical string for the name occupying the given range of characters.
+     *
+     * @param chars  the characters.
+     * @param start  offset of the name's first character.
+     * @param length length of the name.
+     * @return the canonical string for the name.
+     */
+    public synchronized String intern(char[] chars, int start, int length) {
+        // The same hash as String.hashCode().
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = names.length - 1;
+        int i = spread(hash) & mask;
+        while (names[i] != null) {
+            if (hashes[i] == hash && matches(names[i], chars, start, length)) {
+                return names[i];
+            }
+            i = (i + 1) & mask;
+        }
+        String name = new String(chars, start, length).intern();
+        names[i] = name;
+        hashes[i] = hash;
+        if (++size * 2 > names.length) {
+            grow();
+        }
+        return name;
+    }
+
+    /**
+     * Returns the number of names in the table.
+     *
+     * @return the number of names in the table.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    // Returns true if the given name consists of the given range of characters, and false
+    // otherwise.
+    private static boolean matches(String name, char[] chars, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Doubles the capacity of the table.
+    private void grow() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+        int mask = names.length - 1;
+        for (int j = 0; j < oldNames.length; j++) {
+            if (oldNames[j] != null) {
+                int i = spread(oldHashes[j]) & mask;
+                while (names[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                names[i] = oldNames[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    // Mixes the high bits of the given hash code into the low ones, which index the table.
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
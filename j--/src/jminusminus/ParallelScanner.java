@@ -0,0 +1,342 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jminusminus.TokenKind.*;
+
+/**
+ * A lexical analyzer for large j-- sources, which splits a source into chunks and scans them in
+ * parallel, and then stitches their tokens together into exactly those the hand-written scanner
+ * (Scanner) scans from the whole source, with the same lines and the same lexical errors.
+ * <p>
+ * The chunks start at new lines found, in a cheap pre-pass that follows only comments and
+ * literals, to be outside of both. The pre-pass does not mimic every quirk of the scanner, so the
+ * scanning of each chunk runs on to the first token that starts at or after the start of the next
+ * chunk, and the two chunks are stitched together only if the next one starts with that same
+ * token. Otherwise the next chunk is scanned again, in sequence with the tokens before it. So is
+ * a chunk whose scanning failed, since a chunk that starts inside a comment or literal the pre-pass
+ * missed may be scanned from a point the scanner never would have scanned it from.
+ * <p>
+ * The lexical errors found are not reported, but deferred to the tokens (see TokenBuffer), so that
+ * they are reported in the order the scanner would have reported them, interleaved with any
+ * syntax errors.
+ */
+class ParallelScanner {
+    // Fewest characters in a chunk.
+    private static final int MIN_CHUNK_LENGTH = 1 << 16;
+
+    // Chunks per thread, so that threads that are done early can take on more.
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Stream for the diagnostics of the sessions chunks are scanned in.
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    /**
+     * Scans the named source file, using the given number of threads, and returns its tokens, up
+     * to and including EOF, with the lexical errors found in them deferred to them.
+     *
+     * @param fileName the name of the source file.
+     * @param threads  number of threads to scan with.
+     * @return the tokens of the source file.
+     * @throws FileNotFoundException when the named file cannot be found.
+     */
+    public static TokenBuffer scan(final String fileName, int threads)
+            throws FileNotFoundException {
+        Timings.begin("scan");
+        try {
+            CharReader input = new CharReader(fileName);
+            final char[] chars = input.chars();
+            final int length = input.length();
+            int count = Math.max(1, Math.min(threads * CHUNKS_PER_THREAD,
+                    length / MIN_CHUNK_LENGTH));
+            int[] starts = new int[count + 1];
+            int[] lines = new int[count + 1];
+            count = split(chars, length, count, starts, lines);
+            ScannedChunk[] chunks = new ScannedChunk[count];
+            threads = Math.min(threads, count);
+            if (threads <= 1) {
+                for (int i = 0; i < count; i++) {
+                    chunks[i] = speculate(fileName, chars, length, starts[i], lines[i],
+                            starts[i + 1]);
+                }
+            } else {
+                ArrayList<Future<ScannedChunk>> futures = new ArrayList<Future<ScannedChunk>>();
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                try {
+                    for (int i = 0; i < count; i++) {
+                        final int start = starts[i];
+                        final int line = lines[i];
+                        final int end = starts[i + 1];
+                        futures.add(executor.submit(new Callable<ScannedChunk>() {
+                            public ScannedChunk call() {
+                                return speculate(fileName, chars, length, start, line, end);
+                            }
+                        }));
+                    }
+                    for (int i = 0; i < count; i++) {
+                        chunks[i] = result(futures.get(i));
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+            return stitch(fileName, chars, length, chunks, starts, lines);
+        } finally {
+            Timings.end();
+        }
+    }
+
+    // Splits the given characters into (at most) the given number of chunks of about the same
+    // length, at new lines outside of comments and literals, recording the offsets the chunks
+    // start at, and the lines of those offsets, in starts and lines (where starts[count], past the
+    // last chunk, is the number of characters), and returns the number of chunks.
+    private static int split(char[] chars, int length, int count, int[] starts, int[] lines) {
+        starts[0] = 0;
+        lines[0] = 1;
+        int chunks = 1;
+        int target = (int) ((long) length / count);
+        int line = 1;
+        int i = 0;
+        while (i < length && chunks < count) {
+            char ch = chars[i++];
+            if (ch == '\n') {
+                line++;
+                if (i >= target && i < length) {
+                    starts[chunks] = i;
+                    lines[chunks] = line;
+                    chunks++;
+                    target = (int) ((long) length * chunks / count);
+                }
+            } else if (ch == '/' && i < length && chars[i] == '/') {
+                while (i < length && chars[i] != '\n') {
+                    i++;
+                }
+            } else if (ch == '/' && i < length && chars[i] == '*') {
+                i++;
+                while (i < length && !(chars[i] == '*' && i + 1 < length && chars[i + 1] == '/')) {
+                    if (chars[i++] == '\n') {
+                        line++;
+                    }
+                }
+                i += 2;
+            } else if (ch == '"' || ch == '\'') {
+                while (i < length && chars[i] != ch && chars[i] != '\n') {
+                    if (chars[i] == '\\' && i + 1 < length && chars[i + 1] != '\n') {
+                        i++;
+                    }
+                    i++;
+                }
+                if (i < length && chars[i] == ch) {
+                    i++;
+                }
+            }
+        }
+        starts[chunks] = length;
+        return chunks;
+    }
+
+    // Scans the given characters from the given offset, which is in the given line, on to the
+    // first token that starts at or after the given end offset, in a session of its own.
+    private static ScannedChunk scanChunk(String fileName, char[] chars, int length, int start,
+                                          int line, int end) {
+        Session session = new Session(DISCARD, DISCARD);
+        Session previous = session.bind();
+        try {
+            ScannedChunk chunk = new ScannedChunk();
+            chunk.scan(new Scanner(fileName, chars, length, start, line), end);
+            return chunk;
+        } finally {
+            session.unbind(previous);
+        }
+    }
+
+    // Scans a chunk as scanChunk() does, but returns null if the scanning fails, unless the chunk
+    // is the first one, which the scanner would have scanned from the same point.
+    private static ScannedChunk speculate(String fileName, char[] chars, int length, int start,
+                                          int line, int end) {
+        try {
+            return scanChunk(fileName, chars, length, start, line, end);
+        } catch (RuntimeException e) {
+            if (start == 0) {
+                throw e;
+            }
+            return null;
+        }
+    }
+
+    // Stitches the tokens of the given chunks, which start at the given offsets (in the given
+    // lines), together into the tokens of the whole of the given characters, scanning again, in
+    // sequence, the chunks that failed to scan (null), and those that start with a token other
+    // than the one the chunk before them ran on to.
+    private static TokenBuffer stitch(String fileName, char[] chars, int length,
+                                      ScannedChunk[] chunks, int[] starts, int[] lines) {
+        TokenBuffer tokens = new TokenBuffer(null);
+        ArrayList<Diagnostic> errors = new ArrayList<Diagnostic>();
+        ArrayList<Integer> errorTokens = new ArrayList<Integer>();
+        ScannedChunk last = chunks[0];
+        last.appendTo(tokens, errors, errorTokens);
+        for (int i = 1; i < chunks.length && last.next() >= 0; i++) {
+            ScannedChunk chunk = chunks[i];
+            if (chunk == null || last.next() != chunk.first() || !last.isNextClean()) {
+                // Scan again from the end of the last token stitched, which is one the scanner
+                // would have scanned, since it ends where the scanner would be between tokens. Its
+                // line is counted from the start of its chunk, as the line of a token is not
+                // always that of its start.
+                int n = tokens.size();
+                int start = n > 0 ? tokens.start(n - 1) + tokens.length(n - 1) : 0;
+                int k = i - 1;
+                while (starts[k] > start) {
+                    k--;
+                }
+                int line = lines[k];
+                for (int j = starts[k]; j < start; j++) {
+                    if (chars[j] == '\n') {
+                        line++;
+                    }
+                }
+                chunk = scanChunk(fileName, chars, length, start, line, starts[i + 1]);
+            }
+            chunk.appendTo(tokens, errors, errorTokens);
+            last = chunk;
+        }
+        tokens.deferErrors(errors, errorTokens);
+        return tokens;
+    }
+
+    // Returns the result of the given task, rethrowing whatever it threw.
+    private static ScannedChunk result(Future<ScannedChunk> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
+
+/**
+ * The tokens scanned from a chunk of a source, and the lexical errors found in them, along with
+ * where the first token after the chunk starts.
+ */
+class ScannedChunk {
+    // The tokens of the chunk.
+    private TokenBuffer tokens;
+
+    // Errors found in scanning the tokens, and the indices of the tokens they were found in.
+    private ArrayList<Diagnostic> errors;
+    private ArrayList<Integer> errorTokens;
+
+    // Offset of the first token after the chunk; -1 if the chunk runs on to the end of the
+    // source, and ends with EOF.
+    private int next;
+
+    // Whether no error was found in scanning the first token after the chunk.
+    private boolean isNextClean;
+
+    /**
+     * Constructs an empty ScannedChunk.
+     */
+    public ScannedChunk() {
+        tokens = new TokenBuffer(null);
+        errors = new ArrayList<Diagnostic>();
+        errorTokens = new ArrayList<Integer>();
+    }
+
+    /**
+     * Scans tokens with the given scanner, whose errors are reported to the current session, on
+     * to EOF or to the first token that starts at or after the given offset, which is not kept.
+     *
+     * @param scanner the scanner.
+     * @param end     offset of the end of the chunk.
+     */
+    public void scan(Scanner scanner, int end) {
+        while (true) {
+            int errorCount = scanner.errorCount();
+            TokenInfo token = scanner.getNextToken();
+            int start = scanner.tokenStart();
+            if (token.kind() != EOF && start >= end) {
+                next = start;
+                isNextClean = scanner.errorCount() == errorCount;
+                return;
+            }
+            tokens.add(token, start, scanner.tokenEnd());
+            if (scanner.errorCount() > errorCount) {
+                ArrayList<Diagnostic> reported = Session.current().diagnostics();
+                int n = reported.size();
+                for (int i = n - (scanner.errorCount() - errorCount); i < n; i++) {
+                    errors.add(reported.get(i));
+                    errorTokens.add(tokens.size() - 1);
+                }
+            }
+            if (token.kind() == EOF) {
+                next = -1;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the offset of the first token after the chunk, or -1 if the chunk ends with EOF.
+     *
+     * @return the offset of the first token after the chunk, or -1.
+     */
+    public int next() {
+        return next;
+    }
+
+    /**
+     * Returns true if no error was found in scanning the first token after the chunk, and false
+     * otherwise.
+     *
+     * @return true if no error was found in scanning the first token after the chunk.
+     */
+    public boolean isNextClean() {
+        return isNextClean;
+    }
+
+    /**
+     * Returns the offset of the first token scanned from the chunk, or of the first token after
+     * it if there is none.
+     *
+     * @return the offset of the first token of the chunk.
+     */
+    public int first() {
+        return tokens.size() > 0 ? tokens.start(0) : next;
+    }
+
+    /**
+     * Appends the tokens of the chunk to the given tokens, and the errors found in them to the
+     * given errors (and the indices of the tokens they were found in to toErrorTokens).
+     *
+     * @param to            the tokens appended to.
+     * @param toErrors      the errors appended to.
+     * @param toErrorTokens the indices of the tokens of those errors.
+     */
+    public void appendTo(TokenBuffer to, ArrayList<Diagnostic> toErrors,
+                         ArrayList<Integer> toErrorTokens) {
+        int base = to.size();
+        to.splice(base, base, tokens, 0, 0);
+        toErrors.addAll(errors);
+        for (int index : errorTokens) {
+            toErrorTokens.add(base + index);
+        }
+    }
+}
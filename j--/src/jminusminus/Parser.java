@@ -12,24 +12,87 @@ import static jminusminus.TokenKind.*;
  * abstract syntax tree (AST) for it.
  */
 public class Parser {
+    // Precedences of the binary operators, from loosest to tightest binding.
+    private static final int LOR_PRECEDENCE = 1, LAND_PRECEDENCE = 2, OR_PRECEDENCE = 3,
+            XOR_PRECEDENCE = 4, AND_PRECEDENCE = 5, EQUALITY_PRECEDENCE = 6,
+            RELATIONAL_PRECEDENCE = 7, SHIFT_PRECEDENCE = 8, ADDITIVE_PRECEDENCE = 9,
+            MULTIPLICATIVE_PRECEDENCE = 10;
+
+    // Maps the ordinal of a token kind to its precedence as a binary operator, or to 0 if it is
+    // not one.
+    private static final int[] PRECEDENCE = new int[TokenKind.values().length];
+
+    static {
+        PRECEDENCE[LOR.ordinal()] = LOR_PRECEDENCE;
+        PRECEDENCE[LAND.ordinal()] = LAND_PRECEDENCE;
+        PRECEDENCE[OR.ordinal()] = OR_PRECEDENCE;
+        PRECEDENCE[XOR.ordinal()] = XOR_PRECEDENCE;
+        PRECEDENCE[AND.ordinal()] = AND_PRECEDENCE;
+        for (TokenKind kind : new TokenKind[] {EQUAL, NOT_EQUAL}) {
+            PRECEDENCE[kind.ordinal()] = EQUALITY_PRECEDENCE;
+        }
+        for (TokenKind kind : new TokenKind[] {GE, GT, LE, LT, INSTANCEOF}) {
+            PRECEDENCE[kind.ordinal()] = RELATIONAL_PRECEDENCE;
+        }
+        for (TokenKind kind : new TokenKind[] {ALSHIFT, ARSHIFT, LRSHIFT}) {
+            PRECEDENCE[kind.ordinal()] = SHIFT_PRECEDENCE;
+        }
+        for (TokenKind kind : new TokenKind[] {MINUS, PLUS}) {
+            PRECEDENCE[kind.ordinal()] = ADDITIVE_PRECEDENCE;
+        }
+        for (TokenKind kind : new TokenKind[] {STAR, DIV, REM}) {
+            PRECEDENCE[kind.ordinal()] = MULTIPLICATIVE_PRECEDENCE;
+        }
+    }
+
     // The lexical analyzer with which tokens are scanned.
     private LookaheadScanner scanner;
 
     // Whether a parser error has been found.
     private boolean isInError;
 
+    // Number of parser errors found.
+    private int errorCount;
+
     // Whether we have recovered from a parser error.
     private boolean isRecovered;
 
+    // Whether method and constructor bodies are skimmed over, to be parsed when they are needed.
+    private boolean isSkimming;
+
+    // Extents of the members of the classes parsed, in the order they were parsed.
+    private ArrayList<MemberSpan> memberSpans;
+
+    // Bodies skimmed over, in the order they were skimmed over.
+    private ArrayList<JSkimmedBlock> skimmedBlocks;
+
     /**
      * Constructs a parser from the given lexical analyzer.
      *
      * @param scanner the lexical analyzer with which tokens are scanned.
      */
     public Parser(LookaheadScanner scanner) {
+        this(scanner, false);
+    }
+
+    /**
+     * Constructs a parser from the given lexical analyzer, that skims over method and
+     * constructor bodies if so asked: rather than being parsed, a body is matched brace by brace
+     * and stood in for by a JSkimmedBlock, which parses it when (and if) it is first needed. That
+     * makes parsing much cheaper when only the headers of classes and their members are of
+     * interest.
+     *
+     * @param scanner    the lexical analyzer with which tokens are scanned.
+     * @param isSkimming whether method and constructor bodies are skimmed over.
+     */
+    public Parser(LookaheadScanner scanner, boolean isSkimming) {
         this.scanner = scanner;
+        this.isSkimming = isSkimming;
         isInError = false;
+        errorCount = 0;
         isRecovered = true;
+        memberSpans = new ArrayList<MemberSpan>();
+        skimmedBlocks = new ArrayList<JSkimmedBlock>();
         scanner.next(); // Prime the pump
     }
 
@@ -42,6 +105,28 @@ public class Parser {
         return isInError;
     }
 
+    /**
+     * Parses the method and constructor bodies skimmed over so far that have not been parsed
+     * yet, in the order they occur in the input, reporting their syntax errors. Once that is
+     * done, the errors reported are those a parser that does not skim would have reported.
+     */
+    public void parseSkimmedBlocks() {
+        for (JSkimmedBlock block : skimmedBlocks) {
+            block.hasSyntaxErrors();
+        }
+        skimmedBlocks.clear();
+    }
+
+    /**
+     * Returns the extents, among the tokens of the input, of the members of the classes parsed so
+     * far (but not of interfaces), in the order they were parsed.
+     *
+     * @return the extents of the class members parsed.
+     */
+    ArrayList<MemberSpan> memberSpans() {
+        return memberSpans;
+    }
+
     /**
      * Parses a compilation unit (a program file) and returns an AST for it.
      *
@@ -55,7 +140,7 @@ public class Parser {
      * @return an AST for a compilation unit.
      */
     public JCompilationUnit compilationUnit() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         String fileName = scanner.fileName();
         TypeName packageName = null;
         if (have(PACKAGE)) {
@@ -88,12 +173,12 @@ public class Parser {
      * @return a qualified identifier.
      */
     private TypeName qualifiedIdentifier() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         mustBe(IDENTIFIER);
-        String qualifiedIdentifier = scanner.previousToken().image();
+        String qualifiedIdentifier = scanner.previousImage();
         while (have(DOT)) {
             mustBe(IDENTIFIER);
-            qualifiedIdentifier += "." + scanner.previousToken().image();
+            qualifiedIdentifier += "." + scanner.previousImage();
         }
         return new TypeName(line, qualifiedIdentifier);
     }
@@ -192,10 +277,10 @@ public class Parser {
      * @return an AST for a class declaration.
      */
     private JClassDeclaration classDeclaration(ArrayList<String> mods) {
-        int line = scanner.token().line();
+        int line = scanner.line();
         mustBe(CLASS);
         mustBe(IDENTIFIER);
-        String name = scanner.previousToken().image();
+        String name = scanner.previousImage();
         Type superClass;
         ArrayList<Type> impl = null;
         if (have(EXTENDS)) {
@@ -223,10 +308,10 @@ public class Parser {
      * @return an AST for a interface declaration.
      */
     private JInterfaceDeclaration interfaceDeclaration(ArrayList<String> mods) {
-        int line = scanner.token().line();
+        int line = scanner.line();
         mustBe(INTERFACE);
         mustBe(IDENTIFIER);
-        String name = scanner.previousToken().image();
+        String name = scanner.previousImage();
         ArrayList<Type> identifiers = null;
         if (have(EXTENDS)) {
             identifiers = new ArrayList<Type>();
@@ -250,13 +335,43 @@ public class Parser {
         ArrayList<JMember> members = new ArrayList<JMember>();
         mustBe(LCURLY);
         while (!see(RCURLY) && !see(EOF)) {
-            ArrayList<String> mods = modifiers();
-            members.add(memberDecl(mods));
+            members.add(classMember().member());
         }
         mustBe(RCURLY);
         return members;
     }
 
+    /**
+     * Parses the class member at the given position, as classBody() would were it to get there
+     * without having found an error, and returns it along with its extent; this is how a member
+     * is parsed again after its tokens are edited (see IncrementalCompiler). The position must be
+     * that of the first token of a member within a class body; there is no member there, and
+     * null is returned, if the token is an RCURLY or EOF.
+     *
+     * @param position the position of the first token of the member.
+     * @return the member and its extent, or null.
+     */
+    MemberSpan parseMember(int position) {
+        scanner.seek(position);
+        isRecovered = true;
+        if (see(RCURLY) || see(EOF)) {
+            return null;
+        }
+        return classMember();
+    }
+
+    // Parses a class member (its modifiers, and then memberDecl), records its extent, and returns
+    // it along with the extent.
+    private MemberSpan classMember() {
+        int start = scanner.position();
+        int errors = errorCount;
+        JMember member = memberDecl(modifiers());
+        MemberSpan span = new MemberSpan(member, start, scanner.position(), errors,
+                errorCount - errors, isRecovered);
+        memberSpans.add(span);
+        return span;
+    }
+
     /**
      * Parses a interface body and returns a list of members in the body.
      *
@@ -292,12 +407,12 @@ public class Parser {
      * @return an AST for a member declaration.
      */
     private JMember memberDecl(ArrayList<String> mods) {
-        int line = scanner.token().line();
+        int line = scanner.line();
         JMember memberDecl = null;
         if (seeIdentLParen()) {
             // A constructor
             mustBe(IDENTIFIER);
-            String name = scanner.previousToken().image();
+            String name = scanner.previousImage();
             ArrayList<JFormalParameter> params = formalParameters();
             ArrayList<Type> exceptions = null; 
             if (have(THROWS)) {
@@ -306,7 +421,7 @@ public class Parser {
                     exceptions.add(qualifiedIdentifier());
                 } while (have(COMMA));
             }
-            JBlock body = block();
+            JBlock body = methodBody();
             memberDecl = new JConstructorDeclaration(line, mods, name, params, body, exceptions);
         } else {
             Type type = null;
@@ -314,7 +429,7 @@ public class Parser {
                 // void method
                 type = Type.VOID;
                 mustBe(IDENTIFIER);
-                String name = scanner.previousToken().image();
+                String name = scanner.previousImage();
                 ArrayList<JFormalParameter> params = formalParameters();
                 ArrayList<Type> exceptions = null; 
                 if (have(THROWS)) {
@@ -323,14 +438,14 @@ public class Parser {
                         exceptions.add(qualifiedIdentifier());
                     } while (have(COMMA));
                 }
-                JBlock body = have(SEMI) ? null : block();
+                JBlock body = have(SEMI) ? null : methodBody();
                 memberDecl = new JMethodDeclaration(line, mods, name, type, params, body, exceptions);
             } else {
                 type = type();
                 if (seeIdentLParen()) {
                     // Non void method
                     mustBe(IDENTIFIER);
-                    String name = scanner.previousToken().image();
+                    String name = scanner.previousImage();
                     ArrayList<JFormalParameter> params = formalParameters();
                     ArrayList<Type> exceptions = null; 
                     if (have(THROWS)) {
@@ -339,7 +454,7 @@ public class Parser {
                             exceptions.add(qualifiedIdentifier());
                         } while (have(COMMA));
                     }
-                    JBlock body = have(SEMI) ? null : block();
+                    JBlock body = have(SEMI) ? null : methodBody();
                     memberDecl = new JMethodDeclaration(line, mods, name, type, params, body, exceptions);
                 } else {
                     // Field
@@ -364,13 +479,13 @@ public class Parser {
      * @return an AST for a interface member declaration.
      */
     private JMember interfaceMemberDecl(ArrayList<String> mods) {
-        int line = scanner.token().line();
+        int line = scanner.line();
         JMember interfaceDecl = null;
         Type type = null;
         if (have(VOID)) {
             type = Type.VOID;
             mustBe(IDENTIFIER);
-            String name = scanner.previousToken().image();
+            String name = scanner.previousImage();
             ArrayList<JFormalParameter> params = formalParameters();
             ArrayList<Type> exceptions = null;
             if (have(THROWS)) {
@@ -385,7 +500,7 @@ public class Parser {
             type = type();
             if (seeIdentLParen()) { // Non voids
                 mustBe(IDENTIFIER);
-                String name = scanner.previousToken().image();
+                String name = scanner.previousImage();
                 ArrayList<JFormalParameter> params = formalParameters();
                 ArrayList<Type> exceptions = null;
                 if (have(THROWS)) {
@@ -414,7 +529,7 @@ public class Parser {
      * @return an AST for a block.
      */
     private JBlock block() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         ArrayList<JStatement> statements = new ArrayList<JStatement>();
         mustBe(LCURLY);
         while (!see(RCURLY) && !see(EOF)) {
@@ -424,6 +539,60 @@ public class Parser {
         return new JBlock(line, statements);
     }
 
+    /**
+     * Parses a method or constructor body and returns an AST for it. When skimming, the body is
+     * not parsed but matched brace by brace, and a JSkimmedBlock standing in for it is returned;
+     * a body whose braces do not match is parsed after all, so its errors are reported now.
+     *
+     * <pre>
+     *   methodBody ::= block
+     * </pre>
+     *
+     * @return an AST for a method or constructor body.
+     */
+    private JBlock methodBody() {
+        if (!isSkimming || !see(LCURLY)) {
+            return block();
+        }
+        int line = scanner.line();
+        int position = scanner.position();
+        int depth = 0;
+        do {
+            if (see(LCURLY)) {
+                depth++;
+            } else if (see(RCURLY)) {
+                depth--;
+            } else if (see(EOF)) {
+                scanner.seek(position);
+                return block();
+            }
+            scanner.next();
+        } while (depth > 0);
+        JSkimmedBlock block = new JSkimmedBlock(line, this, position);
+        skimmedBlocks.add(block);
+        return block;
+    }
+
+    /**
+     * Parses the block at the given position, one skimmed over earlier (see JSkimmedBlock), and
+     * returns an AST for it, or null if there are syntax errors in it (which are reported). The
+     * parser's position in its input is unchanged.
+     *
+     * @param position the position of the block's LCURLY among the tokens of the input.
+     * @return an AST for the block, or null.
+     */
+    JBlock parseSkimmedBlock(int position) {
+        int resume = scanner.position();
+        boolean wasRecovered = isRecovered;
+        int errors = errorCount;
+        scanner.seek(position);
+        isRecovered = true;
+        JBlock block = block();
+        scanner.seek(resume);
+        isRecovered = wasRecovered;
+        return errorCount > errors ? null : block;
+    }
+
     /**
      * Parses a block statement and returns an AST for it.
      *
@@ -466,7 +635,7 @@ public class Parser {
      * @return an AST for a statement.
      */
     private JStatement statement() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         if (see(LCURLY)) {
             return block();
         } else if (have(BREAK)) {
@@ -521,7 +690,7 @@ public class Parser {
             JExpression condition = parExpression();
             ArrayList<SwitchBlockStatementGroup> switchGroups = new ArrayList<SwitchBlockStatementGroup>();
             mustBe(LCURLY);
-            while (!see(RCURLY)) {
+            while (!see(RCURLY) && !see(EOF)) {
                 switchGroups.add(switchBlockStatementGroup());
             }
             mustBe(RCURLY);
@@ -585,10 +754,10 @@ public class Parser {
      * @return an AST for a formal parameter.
      */
     private JFormalParameter formalParameter() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         Type type = type();
         mustBe(IDENTIFIER);
-        String name = scanner.previousToken().image();
+        String name = scanner.previousImage();
         return new JFormalParameter(line, name, type);
     }
 
@@ -623,7 +792,7 @@ public class Parser {
                 statements.add(statementExpression());
             } while(have(COMMA));
         } else {
-            int line = scanner.token().line();
+            int line = scanner.line();
             ArrayList<JVariableDeclarator> decls = variableDeclarators(type());
             statements.add(new JVariableDeclaration(line, decls));
         }
@@ -662,7 +831,7 @@ public class Parser {
         while (see(CASE)) {
             switchLabels.add(switchLabel());
         }
-        while (!see(CASE) && !see(DEFAULT) && !see(RCURLY)) {
+        while (!see(CASE) && !see(DEFAULT) && !see(RCURLY) && !see(EOF)) {
             statements.add(blockStatement());
         }
         return new SwitchBlockStatementGroup(switchLabels, statements);
@@ -698,7 +867,7 @@ public class Parser {
      * @return an AST for a local variable declaration statement.
      */
     private JVariableDeclaration localVariableDeclarationStatement() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         Type type = type();
         ArrayList<JVariableDeclarator> vdecls = variableDeclarators(type);
         mustBe(SEMI);
@@ -734,9 +903,9 @@ public class Parser {
      * @return an AST for a variable declarator.
      */
     private JVariableDeclarator variableDeclarator(Type type) {
-        int line = scanner.token().line();
+        int line = scanner.line();
         mustBe(IDENTIFIER);
-        String name = scanner.previousToken().image();
+        String name = scanner.previousImage();
         JExpression initial = have(ASSIGN) ? variableInitializer(type) : null;
         return new JVariableDeclarator(line, name, type, initial);
     }
@@ -770,7 +939,7 @@ public class Parser {
      * @return an AST for an array initializer.
      */
     private JArrayInitializer arrayInitializer(Type type) {
-        int line = scanner.token().line();
+        int line = scanner.line();
         ArrayList<JExpression> initials = new ArrayList<JExpression>();
         mustBe(LCURLY);
         if (have(RCURLY)) {
@@ -843,7 +1012,7 @@ public class Parser {
         } else if (have(LONG)) {
             return Type.LONG;
         } else {
-            reportParserError("Type sought where %s found", scanner.token().image());
+            reportParserError("Type sought where %s found", scanner.image());
             return Type.ANY;
         }
     }
@@ -886,7 +1055,7 @@ public class Parser {
      * @return an AST for a statement expression.
      */
     private JStatement statementExpression() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         JExpression expr = expression();
         if (expr instanceof JAssignment
                 || expr instanceof JPreIncrementOp
@@ -932,7 +1101,7 @@ public class Parser {
      * @return an AST for an assignment expression.
      */
     private JExpression assignmentExpression() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         JExpression lhs = conditionalExpression();
         if (have(ALSHIFT_ASSIGN)) {
             return new JALeftShiftAssignOp(line, lhs, assignmentExpression());
@@ -974,8 +1143,8 @@ public class Parser {
      * @return an AST for a ternary-conditional expression.
      */
     private JExpression conditionalExpression() {
-        int line = scanner.token().line();
-        JExpression lhs = conditionalOrExpression();
+        int line = scanner.line();
+        JExpression lhs = binaryExpression(LOR_PRECEDENCE);
         if (have(QUESTION)) {
             JExpression consiquent = expression();
             mustBe(COLON);
@@ -986,258 +1155,63 @@ public class Parser {
     }
 
     /**
-     * Parses a conditional-or expression and returns an AST for it.
-     *
-     * <pre>
-     *   conditionalOrExpression ::= conditionalAndExpression
-     *                                    { LOR conditionalAndExpression }
-     * </pre>
-     *
-     * @return an AST for a conditional-or expression.
-     */
-    private JExpression conditionalOrExpression() {
-        int line = scanner.token().line();
-        boolean more = true;
-        JExpression lhs = conditionalAndExpression();
-        while (more) {
-            if (have(LOR)) {
-                lhs = new JLogicalOrOp(line, lhs, conditionalAndExpression());
-            } else {
-                more = false;
-            }
-        }
-        return lhs;
-    }
-
-    /**
-     * Parses a conditional-and expression and returns an AST for it.
-     *
-     * <pre>
-     *   conditionalAndExpression ::= inclusiveOrExpression
-     *                                    { LAND inclusiveOrExpression }
-     * </pre>
-     *
-     * @return an AST for a conditional-and expression.
-     */
-    private JExpression conditionalAndExpression() {
-        int line = scanner.token().line();
-        boolean more = true;
-        JExpression lhs = inclusiveOrExpression();
-        while (more) {
-            if (have(LAND)) {
-                lhs = new JLogicalAndOp(line, lhs, inclusiveOrExpression());
-            } else {
-                more = false;
-            }
-        }
-        return lhs;
-    }
-
-    /**
-     * Parses a inclusive-or expression and returns an AST for it.
+     * Parses a binary expression, all of whose operators have at least the given precedence (see
+     * PRECEDENCE), and returns an AST for it. Rather than descending through a method per level
+     * of precedence, the operands are parsed as unary expressions and combined by precedence
+     * climbing, building the same ASTs as the grammar below. The operators of the relational and
+     * shift levels do not associate: after one of them, the expression goes on only with an
+     * operator of lower precedence.
      *
      * <pre>
-     *  inclusiveOrExpression ::= exclusiveOrExpression 
-     *                              { OR exclusiveOrExpression }
-     * </pre>
-     *
-     * @return an AST for a inclusive-or expression.
-     */
-    private JExpression inclusiveOrExpression() {
-        int line = scanner.token().line();
-        boolean more = true;
-        JExpression lhs = exclusiveOrExpression();
-        while (more) {
-            if (have(OR)) {
-                lhs = new JOrOp(line, lhs, exclusiveOrExpression());
-            } else {
-                more = false;
-            }
-        }
-        return lhs;
-    }
- 
-    /**
-     * Parses a exclusive-or expression and returns an AST for it.
+     *   conditionalOrExpression ::= conditionalAndExpression { LOR conditionalAndExpression }
      *
-     * <pre>
-     * exclusiveOrExpression ::= andExpression 
-     *                              { XOR andExpression }
-     * </pre>
+     *   conditionalAndExpression ::= inclusiveOrExpression { LAND inclusiveOrExpression }
      *
-     * @return an AST for a exclusive-or expression.
-     */
-    private JExpression exclusiveOrExpression() {
-        int line = scanner.token().line();
-        boolean more = true;
-        JExpression lhs = andExpression();
-        while (more) {
-            if (have(XOR)) {
-                lhs = new JXorOp(line, lhs, andExpression());
-            } else {
-                more = false;
-            }
-        }
-        return lhs;
-    }
-
-    /**
-     * Parses a and expression and returns an AST for it.
+     *   inclusiveOrExpression ::= exclusiveOrExpression { OR exclusiveOrExpression }
      *
-     * <pre>
-     * andExpression ::= equalityExpression 
-     *                              { AND equalityExpression }
-     * </pre>
+     *   exclusiveOrExpression ::= andExpression { XOR andExpression }
      *
-     * @return an AST for a and expression.
-     */
-    private JExpression andExpression() {
-        int line = scanner.token().line();
-        boolean more = true;
-        JExpression lhs = equalityExpression();
-        while (more) {
-            if (have(AND)) {
-                lhs = new JAndOp(line, lhs, equalityExpression());
-            } else {
-                more = false;
-            }
-        }
-        return lhs;
-    }
-
-    /**
-     * Parses an equality expression and returns an AST for it.
+     *   andExpression ::= equalityExpression { AND equalityExpression }
      *
-     * <pre>
      *   equalityExpression ::= relationalExpression
-     *                            { (EQUAL | NOT_EQUAL) relationalExpression }
-     * </pre>
-     *
-     * @return an AST for an equality expression.
-     */
-    private JExpression equalityExpression() {
-        int line = scanner.token().line();
-        boolean more = true;
-        JExpression lhs = relationalExpression();
-        while (more) {
-            if (have(EQUAL)) {
-                lhs = new JEqualOp(line, lhs, relationalExpression());
-            } else if (have(NOT_EQUAL)) {
-                lhs = new JNotEqualOp(line, lhs, relationalExpression());
-
-            } else {
-                more = false;
-            }
-        }
-        return lhs;
-    }
-
-    /**
-     * Parses a relational expression and returns an AST for it.
+     *                            { ( EQUAL | NOT_EQUAL ) relationalExpression }
      *
-     * <pre>
      *   relationalExpression ::= shiftExpression
-     *                                [ ( GE | GT | LE | LT ) shiftExpression
-     *                                | INSTANCEOF referenceType ]
-     * </pre>
+     *                              [ ( GE | GT | LE | LT ) shiftExpression
+     *                              | INSTANCEOF referenceType ]
      *
-     * @return an AST for a relational expression.
-     */
-    private JExpression relationalExpression() {
-        int line = scanner.token().line();
-        JExpression lhs = shiftExpression();
-        if (have(GE)) {
-            return new JGreaterEqualOp(line, lhs, shiftExpression());
-        } else if (have(GT)) {
-            return new JGreaterThanOp(line, lhs, shiftExpression());
-        } else if (have(LE)) {
-            return new JLessEqualOp(line, lhs, shiftExpression());
-        } else if (have(LT)) {
-            return new JLessThanOp(line, lhs, shiftExpression());
-        } else if (have(INSTANCEOF)) {
-            return new JInstanceOfOp(line, lhs, referenceType());
-        } else {
-            return lhs;
-        }
-    }
-
-    /**
-     * Parses a shift expression and returns an AST for it.
-     *
-     * <pre>
-     *   shiftExpression ::= additiveExpression 
-     *      { ( ALSHIFT | ARSHIFT | LRSHIFT ) additiveExpression }
-     * 
-     * </pre>
-     *
-     * @return an AST for a shift expression.
-     */
-    private JExpression shiftExpression() {
-        int line = scanner.token().line();
-        JExpression lhs = additiveExpression();
-        if (have(ALSHIFT)) {
-            return new JALeftShiftOp(line, lhs, additiveExpression());
-        } else if (have(ARSHIFT)) {
-            return new JARightShiftOp(line, lhs, additiveExpression());
-        } else if (have(LRSHIFT)) {
-            return new JLRightShiftOp(line, lhs, additiveExpression());
-        } else {
-            return lhs;
-        }
-    }
-
-    /**
-     * Parses an additive expression and returns an AST for it.
+     *   shiftExpression ::= additiveExpression
+     *                         [ ( ALSHIFT | ARSHIFT | LRSHIFT ) additiveExpression ]
      *
-     * <pre>
      *   additiveExpression ::= multiplicativeExpression
-     *                              { (MINUS | PLUS) multiplicativeExpression }
-     * </pre>
-     *
-     * @return an AST for an additive expression.
-     */
-    private JExpression additiveExpression() {
-        int line = scanner.token().line();
-        boolean more = true;
-        JExpression lhs = multiplicativeExpression();
-        while (more) {
-            if (have(MINUS)) {
-                lhs = new JSubtractOp(line, lhs, multiplicativeExpression());
-            } else if (have(PLUS)) {
-                lhs = new JPlusOp(line, lhs, multiplicativeExpression());
-            } else {
-                more = false;
-            }
-        }
-        return lhs;
-    }
-
-    /**
-     * Parses a multiplicative expression and returns an AST for it.
+     *                            { ( MINUS | PLUS ) multiplicativeExpression }
      *
-     * <pre>
-     *   multiplicativeExpression ::= unaryExpression
-     *                                    { ( DIV | REM | STAR ) unaryExpression }
+     *   multiplicativeExpression ::= unaryExpression { ( DIV | REM | STAR ) unaryExpression }
      * </pre>
      *
-     * @return an AST for a multiplicative expression.
+     * @param minPrecedence the lowest precedence of the operators to parse.
+     * @return an AST for a binary expression.
      */
-    private JExpression multiplicativeExpression() {
-        int line = scanner.token().line();
-        boolean more = true;
+    private JExpression binaryExpression(int minPrecedence) {
+        int line = scanner.line();
         JExpression lhs = unaryExpression();
-        while (more) {
-            if (have(STAR)) {
-                lhs = new JMultiplyOp(line, lhs, unaryExpression());
-            } else if (have(DIV)) {
-                lhs = new JDivideOp(line, lhs, unaryExpression());
-            } else if (have(REM)) {
-                lhs = new JRemainderOp(line, lhs, unaryExpression());
+        int lastPrecedence = Integer.MAX_VALUE;
+        while (true) {
+            TokenKind operator = scanner.kind();
+            int precedence = PRECEDENCE[operator.ordinal()];
+            if (precedence < minPrecedence || precedence > lastPrecedence ||
+                    precedence == lastPrecedence && !isLeftAssociative(precedence)) {
+                // A precedence of 0 (not a binary operator) is always below minPrecedence.
+                return lhs;
+            }
+            scanner.next();
+            if (operator == INSTANCEOF) {
+                lhs = new JInstanceOfOp(line, lhs, referenceType());
             } else {
-                more = false;
+                lhs = binaryOp(line, operator, lhs, binaryExpression(precedence + 1));
             }
+            lastPrecedence = precedence;
         }
-        return lhs;
     }
 
     /**
@@ -1253,7 +1227,7 @@ public class Parser {
      * @return an AST for an unary expression.
      */
     private JExpression unaryExpression() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         if (have(DEC)) {
             return new JPreDecrementOp(line, unaryExpression());
         } else if (have(INC)) {
@@ -1281,7 +1255,7 @@ public class Parser {
      * @return an AST for a simple unary expression.
      */
     private JExpression simpleUnaryExpression() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         if (have(LNOT)) {
             return new JLogicalNotOp(line, unaryExpression());
         } else if (have(NOT)) {
@@ -1308,7 +1282,7 @@ public class Parser {
      * @return an AST for a postfix expression.
      */
     private JExpression postfixExpression() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         JExpression primaryExpr = primary();
         while (see(DOT) || see(LBRACK)) {
             primaryExpr = selector(primaryExpr);
@@ -1334,11 +1308,11 @@ public class Parser {
      * @return an AST for a selector.
      */
     private JExpression selector(JExpression target) {
-        int line = scanner.token().line();
+        int line = scanner.line();
         if (have(DOT)) {
             // target.selector
             mustBe(IDENTIFIER);
-            String name = scanner.previousToken().image();
+            String name = scanner.previousImage();
             if (see(LPAREN)) {
                 ArrayList<JExpression> args = arguments();
                 return new JMessageExpression(line, target, name, args);
@@ -1368,7 +1342,7 @@ public class Parser {
      * @return an AST for a primary expression.
      */
     private JExpression primary() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         if (see(LPAREN)) {
             return parExpression();
         } else if (have(THIS)) {
@@ -1384,7 +1358,7 @@ public class Parser {
                 return new JSuperConstruction(line, args);
             } else {
                 mustBe(IDENTIFIER);
-                String name = scanner.previousToken().image();
+                String name = scanner.previousImage();
                 JExpression newTarget = new JSuper(line);
                 if (see(LPAREN)) {
                     ArrayList<JExpression> args = arguments();
@@ -1427,7 +1401,7 @@ public class Parser {
      * @return an AST for a creator.
      */
     private JExpression creator() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         Type type = seeBasicType() ? basicType() : qualifiedIdentifier();
         if (see(LPAREN)) {
             ArrayList<JExpression> args = arguments();
@@ -1444,7 +1418,7 @@ public class Parser {
                 return newArrayDeclarator(line, type);
             }
         } else {
-            reportParserError("( or [ sought where %s found", scanner.token().image());
+            reportParserError("( or [ sought where %s found", scanner.image());
             return new JWildExpression(line);
         }
     }
@@ -1495,25 +1469,25 @@ public class Parser {
      * @return an AST for a literal.
      */
     private JExpression literal() {
-        int line = scanner.token().line();
+        int line = scanner.line();
         if (have(INT_LITERAL)) {
-            return new JLiteralInt(line, scanner.previousToken().image());
+            return new JLiteralInt(line, scanner.previousImage());
         } else if (have(DOUBLE_LITERAL)) {
-            return new JLiteralDouble(line, scanner.previousToken().image());
+            return new JLiteralDouble(line, scanner.previousImage());
         } else if (have(LONG_LITERAL)) {
-            return new JLiteralLong(line, scanner.previousToken().image());
+            return new JLiteralLong(line, scanner.previousImage());
         } else if (have(CHAR_LITERAL)) {
-            return new JLiteralChar(line, scanner.previousToken().image());
+            return new JLiteralChar(line, scanner.previousImage());
         } else if (have(STRING_LITERAL)) {
-            return new JLiteralString(line, scanner.previousToken().image());
+            return new JLiteralString(line, scanner.previousImage());
         } else if (have(TRUE)) {
-            return new JLiteralBoolean(line, scanner.previousToken().image());
+            return new JLiteralBoolean(line, scanner.previousImage());
         } else if (have(FALSE)) {
-            return new JLiteralBoolean(line, scanner.previousToken().image());
+            return new JLiteralBoolean(line, scanner.previousImage());
         } else if (have(NULL)) {
             return new JLiteralNull(line);
         } else {
-            reportParserError("Literal sought where %s found", scanner.token().image());
+            reportParserError("Literal sought where %s found", scanner.image());
             return new JWildExpression(line);
         }
     }
@@ -1524,7 +1498,7 @@ public class Parser {
 
     // Returns true if the current token equals sought, and false otherwise.
     private boolean see(TokenKind sought) {
-        return (sought == scanner.token().kind());
+        return (sought == scanner.kind());
     }
 
     // If the current token equals sought, scans it and returns true. Otherwise, returns false
@@ -1546,12 +1520,12 @@ public class Parser {
     // gives us a kind of poor man's syntactic error recovery, a strategy due to David Turner and
     // Ron Morrison.
     private void mustBe(TokenKind sought) {
-        if (scanner.token().kind() == sought) {
+        if (scanner.kind() == sought) {
             scanner.next();
             isRecovered = true;
         } else if (isRecovered) {
             isRecovered = false;
-            reportParserError("%s found where %s sought", scanner.token().image(), sought.image());
+            reportParserError("%s found where %s sought", scanner.image(), sought.image());
         } else {
             // Do not report the (possibly spurious) error, but rather attempt to recover by
             // forcing a match.
@@ -1572,13 +1546,67 @@ public class Parser {
         return i == -1 ? null : new AmbiguousName(name.line(), qualifiedName.substring(0, i));
     }
 
+    // Returns true if the binary operators of the given precedence associate to the left, and
+    // false if they do not associate.
+    private static boolean isLeftAssociative(int precedence) {
+        return precedence != RELATIONAL_PRECEDENCE && precedence != SHIFT_PRECEDENCE;
+    }
+
+    // Returns an AST for the given binary operator applied to the given operands.
+    private static JExpression binaryOp(int line, TokenKind operator, JExpression lhs,
+                                        JExpression rhs) {
+        switch (operator) {
+            case LOR:
+                return new JLogicalOrOp(line, lhs, rhs);
+            case LAND:
+                return new JLogicalAndOp(line, lhs, rhs);
+            case OR:
+                return new JOrOp(line, lhs, rhs);
+            case XOR:
+                return new JXorOp(line, lhs, rhs);
+            case AND:
+                return new JAndOp(line, lhs, rhs);
+            case EQUAL:
+                return new JEqualOp(line, lhs, rhs);
+            case NOT_EQUAL:
+                return new JNotEqualOp(line, lhs, rhs);
+            case GE:
+                return new JGreaterEqualOp(line, lhs, rhs);
+            case GT:
+                return new JGreaterThanOp(line, lhs, rhs);
+            case LE:
+                return new JLessEqualOp(line, lhs, rhs);
+            case LT:
+                return new JLessThanOp(line, lhs, rhs);
+            case ALSHIFT:
+                return new JALeftShiftOp(line, lhs, rhs);
+            case ARSHIFT:
+                return new JARightShiftOp(line, lhs, rhs);
+            case LRSHIFT:
+                return new JLRightShiftOp(line, lhs, rhs);
+            case MINUS:
+                return new JSubtractOp(line, lhs, rhs);
+            case PLUS:
+                return new JPlusOp(line, lhs, rhs);
+            case STAR:
+                return new JMultiplyOp(line, lhs, rhs);
+            case DIV:
+                return new JDivideOp(line, lhs, rhs);
+            default:
+                return new JRemainderOp(line, lhs, rhs);
+        }
+    }
+
     // Reports a syntax error.
     private void reportParserError(String message, Object... args) {
         isInError = true;
+        errorCount++;
         isRecovered = false;
-        System.err.printf("%s:%d: error: ", scanner.fileName(), scanner.token().line());
-        System.err.printf(message, args);
-        System.err.println();
+        Session.current().err().printf("%s:%d: error: ", scanner.fileName(), scanner.line());
+        Session.current().err().printf(message, args);
+        Session.current().err().println();
+        Session.current().addDiagnostic(new Diagnostic(Diagnostic.Kind.SYNTAX, scanner.fileName(),
+                scanner.line(), String.format(message, args)));
     }
 
     //////////////////////////////////////////////////
@@ -1587,6 +1615,9 @@ public class Parser {
 
     // Returns true if we are looking at an IDENTIFIER followed by a LPAREN, and false otherwise.
     private boolean seeIdentLParen() {
+        if (!see(IDENTIFIER)) {
+            return false;
+        }
         scanner.recordPosition();
         boolean result = have(IDENTIFIER) && see(LPAREN);
         scanner.returnToPosition();
@@ -1595,6 +1626,10 @@ public class Parser {
 
     // Returns true if we are looking at a cast (basic or reference), and false otherwise.
     private boolean seeCast() {
+        if (!see(LPAREN)) {
+            // Most unary expressions are not casts; rule them out without looking ahead.
+            return false;
+        }
         scanner.recordPosition();
         if (!have(LPAREN)) {
             scanner.returnToPosition();
@@ -1633,6 +1668,10 @@ public class Parser {
 
     // Returns true if we are looking at a local variable declaration, and false otherwise.
     private boolean seeLocalVariableDeclaration() {
+        if (!see(IDENTIFIER) && !seeBasicType()) {
+            // Most statements start with neither; rule them out without looking ahead.
+            return false;
+        }
         scanner.recordPosition();
         if (have(IDENTIFIER)) {
             // A qualified identifier is ok
@@ -1677,7 +1716,7 @@ public class Parser {
     private boolean seeReferenceType() {
         if (see(IDENTIFIER)) {
             return true;
-        } else {
+        } else if (seeBasicType()) {
             scanner.recordPosition();
             if (have(BOOLEAN) || have(CHAR) || have(DOUBLE) || have(LONG) || have(INT)) {
                 if (have(LBRACK) && see(RBRACK)) {
@@ -1692,9 +1731,127 @@ public class Parser {
 
     // Returns true if we are looking at a [] pair, and false otherwise.
     private boolean seeDims() {
+        if (!see(LBRACK)) {
+            return false;
+        }
         scanner.recordPosition();
         boolean result = have(LBRACK) && see(RBRACK);
         scanner.returnToPosition();
         return result;
     }
 }
+
+/**
+ * The extent of a class member among the tokens of its source file, as the parser found it: the
+ * positions of its first token and of the token just past it, how many syntax errors were found
+ * before it and within it, and whether the parser had recovered from any errors by the end of it.
+ * A member whose extent is known can be parsed again, on its own, once its tokens are edited (see
+ * IncrementalCompiler).
+ */
+class MemberSpan {
+    // The member.
+    private JMember member;
+
+    // Position of the first token of the member.
+    private int start;
+
+    // Position of the token just past the member.
+    private int end;
+
+    // Number of syntax errors found before the member.
+    private int errorsBefore;
+
+    // Number of syntax errors found within the member.
+    private int errors;
+
+    // Whether the parser had recovered from any errors by the end of the member.
+    private boolean isRecovered;
+
+    /**
+     * Constructs a MemberSpan.
+     *
+     * @param member       the member.
+     * @param start        position of the first token of the member.
+     * @param end          position of the token just past the member.
+     * @param errorsBefore number of syntax errors found before the member.
+     * @param errors       number of syntax errors found within the member.
+     * @param isRecovered  whether the parser had recovered by the end of the member.
+     */
+    public MemberSpan(JMember member, int start, int end, int errorsBefore, int errors,
+                      boolean isRecovered) {
+        this.member = member;
+        this.start = start;
+        this.end = end;
+        this.errorsBefore = errorsBefore;
+        this.errors = errors;
+        this.isRecovered = isRecovered;
+    }
+
+    /**
+     * Returns the member.
+     *
+     * @return the member.
+     */
+    public JMember member() {
+        return member;
+    }
+
+    /**
+     * Returns the position of the first token of the member.
+     *
+     * @return the position of the first token of the member.
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * Returns the position of the token just past the member.
+     *
+     * @return the position of the token just past the member.
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * Returns the number of syntax errors found before the member.
+     *
+     * @return the number of syntax errors found before the member.
+     */
+    public int errorsBefore() {
+        return errorsBefore;
+    }
+
+    /**
+     * Returns the number of syntax errors found within the member.
+     *
+     * @return the number of syntax errors found within the member.
+     */
+    public int errors() {
+        return errors;
+    }
+
+    /**
+     * Returns true if the parser had recovered from any errors by the end of the member, and false
+     * otherwise.
+     *
+     * @return whether the parser had recovered by the end of the member.
+     */
+    public boolean isRecovered() {
+        return isRecovered;
+    }
+
+    /**
+     * Returns the extent of the member once the tokens before it are edited: its positions
+     * shifted by the given amount, and the given number of syntax errors found before it.
+     *
+     * @param delta        amount by which the positions of the member's tokens shift.
+     * @param errorsBefore number of syntax errors found before the member.
+     * @return the extent of the member after the edit.
+     */
+    public MemberSpan shift(int delta, int errorsBefore) {
+        return new MemberSpan(member, start + delta, end + delta, errorsBefore, errors,
+                isRecovered);
+    }
+}
@@ -2,11 +2,14 @@
 
 package jminusminus;
 
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.util.Hashtable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 
 import static jminusminus.TokenKind.*;
 
@@ -18,16 +21,54 @@ class Scanner {
     public final static char EOFCH = CharReader.EOFCH;
 
     // Keywords in j--.
-    private Hashtable<String, TokenKind> reserved;
+    private static final TokenKind[] KEYWORDS = {
+        ABSTRACT, BOOLEAN, CHAR, CLASS, ELSE, EXTENDS, FALSE, IF, IMPORT, INSTANCEOF, INT, NEW,
+        NULL, PACKAGE, PRIVATE, PROTECTED, PUBLIC, RETURN, STATIC, SUPER, THIS, TRUE, VOID, WHILE,
+        BREAK, CASE, CATCH, CONTINUE, DEFAULT, DO, DOUBLE, FINALLY, FOR, IMPLEMENTS, INTERFACE,
+        LONG, SWITCH, THROW, THROWS, TRY
+    };
+
+    // Length of the longest keyword.
+    private static final int MAX_KEYWORD_LENGTH = 10;
+
+    // Size of keywordTable; a power of two, large enough for few collisions.
+    private static final int KEYWORD_TABLE_SIZE = 256;
+
+    // The keywords, in an open-addressed hash table indexed by the hash of their images (see
+    // keyword()).
+    private static final TokenKind[] keywordTable = new TokenKind[KEYWORD_TABLE_SIZE];
+
+    static {
+        for (TokenKind keyword : KEYWORDS) {
+            String image = keyword.image();
+            int i = keywordHash(image.toCharArray(), 0, image.length());
+            while (keywordTable[i] != null) {
+                i = (i + 1) & (KEYWORD_TABLE_SIZE - 1);
+            }
+            keywordTable[i] = keyword;
+        }
+    }
+
+    // Canonical strings for identifiers.
+    private NameTable names;
+
+    // Source characters, with new lines mapped to '\n' (see CharReader).
+    private char[] chars;
 
-    // Source characters.
-    private CharReader input;
+    // Number of source characters.
+    private int length;
+
+    // Offset of ch in chars.
+    private int pos;
 
     // Next unscanned character.
     private char ch;
 
-    // Whether a scanner error has been found.
-    private boolean isInError;
+    // Line number of the character after ch.
+    private int nextLine;
+
+    // Number of scanner errors found.
+    private int errorCount;
 
     // Source file name.
     private String fileName;
@@ -35,6 +76,9 @@ class Scanner {
     // Line number of current token.
     private int line;
 
+    // Offset of the first character of the current token.
+    private int tokenStart;
+
     /**
      * Constructs a Scanner from a file name.
      *
@@ -42,52 +86,52 @@ class Scanner {
      * @throws FileNotFoundException when the named file cannot be found.
      */
     public Scanner(String fileName) throws FileNotFoundException {
-        this.input = new CharReader(fileName);
+        CharReader input = new CharReader(fileName);
+        chars = input.chars();
+        length = input.length();
+        pos = -1;
+        nextLine = 1;
+        this.fileName = fileName;
+        names = Session.current().names();
+        errorCount = 0;
+
+        // Prime the pump.
+        nextCh();
+    }
+
+    /**
+     * Constructs a Scanner that scans the given characters (with new lines mapped to '\n', see
+     * CharReader) from the given offset on, which must be that of a token or of the white space
+     * or comments before one; the tokens scanned have the lines and offsets they have in the whole
+     * of the characters.
+     *
+     * @param fileName name of the source file, for diagnostics.
+     * @param chars    the source characters.
+     * @param length   number of source characters.
+     * @param start    offset at which scanning starts.
+     */
+    public Scanner(String fileName, char[] chars, int length, int start) {
+        this(fileName, chars, length, start, lineAt(chars, start));
+    }
+
+    /**
+     * Constructs a Scanner that scans the given characters from the given offset on, as above,
+     * given the line that offset is in.
+     *
+     * @param fileName name of the source file, for diagnostics.
+     * @param chars    the source characters.
+     * @param length   number of source characters.
+     * @param start    offset at which scanning starts.
+     * @param line     line of the character at that offset.
+     */
+    public Scanner(String fileName, char[] chars, int length, int start, int line) {
+        this.chars = chars;
+        this.length = length;
+        pos = start - 1;
+        nextLine = line;
         this.fileName = fileName;
-        isInError = false;
-
-        // Keywords in j--
-        reserved = new Hashtable<String, TokenKind>();
-        reserved.put(ABSTRACT.image(), ABSTRACT);
-        reserved.put(BOOLEAN.image(), BOOLEAN);
-        reserved.put(CHAR.image(), CHAR);
-        reserved.put(CLASS.image(), CLASS);
-        reserved.put(ELSE.image(), ELSE);
-        reserved.put(EXTENDS.image(), EXTENDS);
-        reserved.put(FALSE.image(), FALSE);
-        reserved.put(IF.image(), IF);
-        reserved.put(IMPORT.image(), IMPORT);
-        reserved.put(INSTANCEOF.image(), INSTANCEOF);
-        reserved.put(INT.image(), INT);
-        reserved.put(NEW.image(), NEW);
-        reserved.put(NULL.image(), NULL);
-        reserved.put(PACKAGE.image(), PACKAGE);
-        reserved.put(PRIVATE.image(), PRIVATE);
-        reserved.put(PROTECTED.image(), PROTECTED);
-        reserved.put(PUBLIC.image(), PUBLIC);
-        reserved.put(RETURN.image(), RETURN);
-        reserved.put(STATIC.image(), STATIC);
-        reserved.put(SUPER.image(), SUPER);
-        reserved.put(THIS.image(), THIS);
-        reserved.put(TRUE.image(), TRUE);
-        reserved.put(VOID.image(), VOID);
-        reserved.put(WHILE.image(), WHILE);
-        reserved.put(BREAK.image(), BREAK);
-        reserved.put(CASE.image(), CASE);
-        reserved.put(CATCH.image(), CATCH);
-        reserved.put(CONTINUE.image(), CONTINUE);
-        reserved.put(DEFAULT.image(), DEFAULT);
-        reserved.put(DO.image(), DO);
-        reserved.put(DOUBLE.image(), DOUBLE);
-        reserved.put(FINALLY.image(), FINALLY);
-        reserved.put(FOR.image(), FOR);
-        reserved.put(IMPLEMENTS.image(), IMPLEMENTS);
-        reserved.put(INTERFACE.image(), INTERFACE);
-        reserved.put(LONG.image(), LONG);
-        reserved.put(SWITCH.image(), SWITCH);
-        reserved.put(THROW.image(), THROW);
-        reserved.put(THROWS.image(), THROWS);
-        reserved.put(TRY.image(), TRY);
+        names = Session.current().names();
+        errorCount = 0;
 
         // Prime the pump.
         nextCh();
@@ -106,6 +150,7 @@ class Scanner {
                 nextCh();
             }
             if (ch == '/') {
+                tokenStart = pos;
                 nextCh();
                 if (ch == '/') {
                     // CharReader maps all new lines to '\n'.
@@ -133,7 +178,8 @@ class Scanner {
                 moreWhiteSpace = false;
             }
         }
-        line = input.line();
+        tokenStart = pos;
+        line = nextLine;
         switch (ch) {
             case ',':
                 nextCh();
@@ -306,8 +352,8 @@ class Scanner {
                     return new TokenInfo(CHAR_LITERAL, buffer.toString(), line);
                 } else {
                     // Expected a ' ; report error and try to recover.
-                    reportScannerError(ch + " found by scanner where closing ' was expected.");
-                    while (ch != '\'' && ch != ';' && ch != '\n') {
+                    reportScannerError("%c found by scanner where closing ' was expected.", ch);
+                    while (ch != '\'' && ch != ';' && ch != '\n' && ch != EOFCH) {
                         nextCh();
                     }
                     return new TokenInfo(CHAR_LITERAL, buffer.toString(), line);
@@ -386,16 +432,16 @@ class Scanner {
                 return new TokenInfo(INT_LITERAL, buffer.toString(), line);
             default:
                 if (isIdentifierStart(ch)) {
-                    buffer = new StringBuffer();
+                    int start = pos;
                     while (isIdentifierPart(ch)) {
-                        buffer.append(ch);
                         nextCh();
                     }
-                    String identifier = buffer.toString();
-                    if (reserved.containsKey(identifier)) {
-                        return new TokenInfo(reserved.get(identifier), line);
+                    TokenKind keyword = keyword(chars, start, pos - start);
+                    if (keyword != null) {
+                        return new TokenInfo(keyword, line);
                     } else {
-                        return new TokenInfo(IDENTIFIER, identifier, line);
+                        return new TokenInfo(IDENTIFIER, names.intern(chars, start, pos - start),
+                                line);
                     }
                 } else {
                     reportScannerError("Unidentified input token: '%c'", ch);
@@ -449,7 +495,16 @@ class Scanner {
      * @return true if an error has occurred, and false otherwise.
      */
     public boolean errorHasOccurred() {
-        return isInError;
+        return errorCount > 0;
+    }
+
+    /**
+     * Returns the number of errors found so far.
+     *
+     * @return the number of errors found so far.
+     */
+    public int errorCount() {
+        return errorCount;
     }
 
     /**
@@ -461,6 +516,24 @@ class Scanner {
         return fileName;
     }
 
+    /**
+     * Returns the offset in the source of the first character of the token last scanned.
+     *
+     * @return the offset of the start of the token last scanned.
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * Returns the offset in the source just past the last character of the token last scanned.
+     *
+     * @return the offset of the end of the token last scanned.
+     */
+    public int tokenEnd() {
+        return pos;
+    }
+
     // Scans and returns an escaped character.
     private String escape() {
         switch (ch) {
@@ -495,23 +568,76 @@ class Scanner {
         }
     }
 
+    // Returns the keyword occupying the given range of characters, or null if they are not a
+    // keyword. No string is created.
+    private static TokenKind keyword(char[] chars, int start, int length) {
+        if (length > MAX_KEYWORD_LENGTH) {
+            return null;
+        }
+        int i = keywordHash(chars, start, length);
+        for (TokenKind keyword = keywordTable[i]; keyword != null; keyword = keywordTable[i]) {
+            String image = keyword.image();
+            if (image.length() == length) {
+                int j = 0;
+                while (j < length && image.charAt(j) == chars[start + j]) {
+                    j++;
+                }
+                if (j == length) {
+                    return keyword;
+                }
+            }
+            i = (i + 1) & (KEYWORD_TABLE_SIZE - 1);
+        }
+        return null;
+    }
+
+    // Returns the line of the character at the given offset in the given characters.
+    private static int lineAt(char[] chars, int offset) {
+        int line = 1;
+        for (int i = 0; i < offset; i++) {
+            if (chars[i] == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    // Returns the index in keywordTable for the given range of characters.
+    private static int keywordHash(char[] chars, int start, int length) {
+        int hash = length;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return (hash ^ (hash >>> 8)) & (KEYWORD_TABLE_SIZE - 1);
+    }
+
     // Advances ch to the next character from input, and updates the line number.
     private void nextCh() {
-        line = input.line();
-        try {
-            ch = input.nextChar();
-        } catch (Exception e) {
-            reportScannerError("Unable to read characters from input");
+        line = nextLine;
+        if (++pos < length) {
+            ch = chars[pos];
+            if (ch == '\n') {
+                nextLine++;
+            }
+        } else {
+            if (pos == length && length > 0 && chars[length - 1] != '\n') {
+                // The end of file ends an unterminated last line, as with a LineNumberReader.
+                nextLine++;
+            }
+            pos = length;
+            ch = EOFCH;
         }
     }
 
     // Reports a lexcial error and records the fact that an error has occured. This fact can be
     // ascertained from the Scanner by sending it an errorHasOccurred message.
     private void reportScannerError(String message, Object... args) {
-        isInError = true;
-        System.err.printf("%s:%d: error: ", fileName, line);
-        System.err.printf(message, args);
-        System.err.println();
+        errorCount++;
+        Session.current().err().printf("%s:%d: error: ", fileName, line);
+        Session.current().err().printf(message, args);
+        Session.current().err().println();
+        Session.current().addDiagnostic(new Diagnostic(Diagnostic.Kind.LEXICAL, fileName, line,
+                String.format(message, args)));
     }
 
     // Returns true if the specified character is a l or L, and false otherwise.
@@ -552,47 +678,68 @@ class Scanner {
 }
 
 /**
- * A buffered character reader, which abstracts out differences between platforms, mapping all new
- * lines to '\n', and also keeps track of line numbers.
+ * The characters of a source file, read into memory in one go: files of up to a few megabytes are
+ * read in a single bulk read, and larger ones are memory-mapped. Since j-- sources are nearly always
+ * ASCII, their bytes are simply widened to characters, and only files with other characters are
+ * decoded (with the platform's default charset, as a FileReader would). All new lines are mapped
+ * to '\n', abstracting out differences between platforms, so the scanner can index the characters
+ * directly, counting lines as it goes.
  */
 class CharReader {
     // Representation of the end of file as a character.
     public final static char EOFCH = (char) -1;
 
-    // The underlying reader records line numbers.
-    private LineNumberReader lineNumberReader;
+    // Files at least this large (in bytes) are memory-mapped rather than read.
+    private static final long MAP_THRESHOLD = 4L << 20;
 
     // Name of the file that is being read.
     private String fileName;
 
+    // The characters of the file, with new lines mapped to '\n'.
+    private char[] chars;
+
+    // Number of characters in chars that belong to the file.
+    private int length;
+
     /**
-     * Constructs a CharReader from a file name.
+     * Constructs a CharReader from a file name, reading the whole file. The file may be one held
+     * in memory by the session (see Session.addSource()).
      *
      * @param fileName the name of the input file.
-     * @throws FileNotFoundException if the file is not found.
+     * @throws FileNotFoundException if the file is not found, or cannot be read.
      */
     public CharReader(String fileName) throws FileNotFoundException {
-        lineNumberReader = new LineNumberReader(new FileReader(fileName));
         this.fileName = fileName;
+        CharSequence source = Session.current().source(fileName);
+        if (source != null) {
+            chars = source.toString().toCharArray();
+        } else {
+            File file = Session.current().file(fileName);
+            try {
+                chars = read(file);
+            } catch (IOException e) {
+                throw new FileNotFoundException(file + " (" + e.getMessage() + ")");
+            }
+        }
+        length = mapNewLines(chars);
     }
 
     /**
-     * Scans and returns the next character.
+     * Returns the characters of the file; only the first length() of them belong to the file.
      *
-     * @return the character scanned.
-     * @throws IOException if an I/O error occurs.
+     * @return the characters of the file.
      */
-    public char nextChar() throws IOException {
-        return (char) lineNumberReader.read();
+    public char[] chars() {
+        return chars;
     }
 
     /**
-     * Returns the current line number in the source file.
+     * Returns the number of characters in the file.
      *
-     * @return the current line number in the source file.
+     * @return the number of characters in the file.
      */
-    public int line() {
-        return lineNumberReader.getLineNumber() + 1; // LineNumberReader counts lines from 0
+    public int length() {
+        return length;
     }
 
     /**
@@ -604,12 +751,65 @@ class CharReader {
         return fileName;
     }
 
-    /**
-     * Closes the file.
-     *
-     * @throws IOException if an I/O error occurs.
-     */
-    public void close() throws IOException {
-        lineNumberReader.close();
+    // Reads and returns the characters of the given file.
+    private static char[] read(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large");
+            }
+            ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // Keep reading until the buffer is full.
+                }
+                bytes.flip();
+            }
+            return decode(bytes);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Returns the characters encoded by the given bytes: widened directly if they are all ASCII,
+    // and decoded with the platform's default charset otherwise.
+    private static char[] decode(ByteBuffer bytes) {
+        int n = bytes.limit();
+        char[] chars = new char[n];
+        for (int i = 0; i < n; i++) {
+            byte b = bytes.get(i);
+            if (b < 0) {
+                CharBuffer decoded = Charset.defaultCharset().decode(bytes);
+                chars = new char[decoded.remaining()];
+                decoded.get(chars);
+                return chars;
+            }
+            chars[i] = (char) b;
+        }
+        return chars;
+    }
+
+    // Maps "\r\n" and "\r" to '\n' in place, and returns the number of characters left.
+    static int mapNewLines(char[] chars) {
+        int from = 0;
+        while (from < chars.length && chars[from] != '\r') {
+            from++;
+        }
+        int to = from;
+        while (from < chars.length) {
+            char c = chars[from++];
+            if (c == '\r') {
+                c = '\n';
+                if (from < chars.length && chars[from] == '\n') {
+                    from++;
+                }
+            }
+            chars[to++] = c;
+        }
+        return to;
     }
 }
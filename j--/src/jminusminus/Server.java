@@ -0,0 +1,284 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A compile server for j--. Most of the time bin/j-- takes to compile a few files goes into
+ * starting the JVM, loading the compiler and the Java classes the program imports, and running
+ * the scanner and parser before the JIT compiler has warmed up to them. The server pays for all
+ * that once: it listens on a port of the loopback interface and compiles each request, in a
+ * fresh Session on a thread of its own, just as Main would.
+ * <p>
+ * The compilations read and write files with the permissions of the user running the server, so
+ * the server serves only clients that can read a secret token it makes up when it starts. It
+ * writes the token to the file .j--server-&lt;port&gt; in the user's home directory, readable and
+ * writable by the user only, and deletes the file when it stops.
+ * <p>
+ * A request is the token, the client's working directory, and the command-line arguments for
+ * Main, one per line, followed by an empty line. A request with the wrong token is answered with
+ * an error and the exit status 1, and is otherwise ignored. The response streams back the output
+ * of the compilation as it is produced, a line at a time, each line tagged by its first
+ * character:
+ * <ul>
+ *   <li>'o' (or 'O' if the line is not terminated) for a line of standard output;</li>
+ *   <li>'e' (or 'E' if the line is not terminated) for a line of standard error;</li>
+ *   <li>'f' for the name of a file written by the compilation;</li>
+ *   <li>'x' for the exit status (0, or 1 if the compiler failed unexpectedly), which ends the
+ *   response.</li>
+ * </ul>
+ * A request whose only argument is -shutdown stops the server. The bin/j--client script is a
+ * client that takes the same arguments as bin/j--.
+ * <p>
+ * Classes imported by the programs are loaded from the server's class path. Those in zip and jar
+ * files, and in the JDK, are read once and shared by the compilations (a zip or jar file that
+ * changes is read afresh); those in directories are looked up afresh by each compilation.
+ */
+public class Server {
+    /**
+     * Port the server listens on, unless another one is given.
+     */
+    public static final int DEFAULT_PORT = 4451;
+
+    // Number of random bytes in a token.
+    private static final int TOKEN_BYTES = 32;
+
+    /**
+     * Entry point.
+     *
+     * @param args the command-line arguments: optionally, the port to listen on.
+     * @throws IOException if the server cannot listen on the port.
+     */
+    public static void main(String args[]) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final ServerSocket serverSocket =
+                new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        // The token is written only once the port is ours, so that a server started while
+        // another one is running on the port does not replace the token of the running one.
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        StringBuilder token = new StringBuilder();
+        for (byte b : random) {
+            token.append(String.format("%02x", b));
+        }
+        final byte[] tokenBytes = token.toString().getBytes(StandardCharsets.UTF_8);
+        Path tokenFile = Paths.get(System.getProperty("user.home"), ".j--server-" + port);
+        try {
+            writeToken(tokenFile, tokenBytes);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        System.out.println("j-- server listening on port " + port);
+        while (true) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // The server socket was closed by a -shutdown request.
+                break;
+            }
+            executor.execute(new Runnable() {
+                public void run() {
+                    serve(socket, serverSocket, tokenBytes);
+                }
+            });
+        }
+        executor.shutdown();
+        Files.deleteIfExists(tokenFile);
+    }
+
+    // Writes the given token to the given file (replacing any file there), readable and writable
+    // by the owner only.
+    private static void writeToken(Path file, byte[] token) throws IOException {
+        Files.deleteIfExists(file);
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system, so the permissions are set the way java.io.File can.
+            Files.createFile(file);
+            File f = file.toFile();
+            f.setReadable(false, false);
+            f.setWritable(false, false);
+            f.setReadable(true, true);
+            f.setWritable(true, true);
+        }
+        Files.write(file, token);
+    }
+
+    // Serves the request on the given connection, provided it comes with the given token.
+    private static void serve(Socket socket, ServerSocket serverSocket, byte[] token) {
+        try {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            String given = in.readLine();
+            if (given == null) {
+                return;
+            }
+            if (!MessageDigest.isEqual(token, given.getBytes(StandardCharsets.UTF_8))) {
+                TaggedLineOutputStream.writeLine(out, 'e', "j-- server: wrong token");
+                TaggedLineOutputStream.writeLine(out, 'x', "1");
+                out.flush();
+                return;
+            }
+            String directory = in.readLine();
+            ArrayList<String> args = new ArrayList<String>();
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("")) {
+                args.add(line);
+            }
+            if (directory == null) {
+                return;
+            }
+            if (args.size() == 1 && args.get(0).equals("-shutdown")) {
+                TaggedLineOutputStream.writeLine(out, 'x', "0");
+                out.flush();
+                serverSocket.close();
+                return;
+            }
+
+            TaggedLineOutputStream stdout = new TaggedLineOutputStream(out, 'o');
+            TaggedLineOutputStream stderr = new TaggedLineOutputStream(out, 'e');
+            Session session =
+                    new Session(new PrintStream(stdout, true), new PrintStream(stderr, true));
+            session.setDirectory(new File(directory));
+            int status = 0;
+            try {
+                Main.compile(args.toArray(new String[0]), session);
+            } catch (RuntimeException | Error e) {
+                // Report the failure as the JVM would for bin/j--.
+                session.err().print("Exception in thread \"main\" ");
+                e.printStackTrace(session.err());
+                status = 1;
+            }
+            session.out().flush();
+            session.err().flush();
+            stdout.close();
+            stderr.close();
+            for (File file : session.outputFiles()) {
+                TaggedLineOutputStream.writeLine(out, 'f', file.getPath());
+            }
+            TaggedLineOutputStream.writeLine(out, 'x', String.valueOf(status));
+            out.flush();
+        } catch (IOException e) {
+            // The client went away, so there is no one to report to.
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing more to do with the connection.
+            }
+        }
+    }
+}
+
+/**
+ * An output stream that forwards each line written to it to an underlying stream, prefixed by a
+ * tag character, as soon as the line is complete. The last line, if it's not terminated, is
+ * forwarded when the stream is closed, with its tag in upper case.
+ */
+class TaggedLineOutputStream extends OutputStream {
+    // The underlying stream.
+    private OutputStream out;
+
+    // The tag for lines.
+    private char tag;
+
+    // The line being written.
+    private byte[] line;
+
+    // Number of bytes in the line being written.
+    private int length;
+
+    /**
+     * Constructs a TaggedLineOutputStream.
+     *
+     * @param out the underlying stream.
+     * @param tag the tag for lines.
+     */
+    public TaggedLineOutputStream(OutputStream out, char tag) {
+        this.out = out;
+        this.tag = tag;
+        line = new byte[128];
+        length = 0;
+    }
+
+    /**
+     * Writes the tag and the given line (followed by a newline) to the given stream, and flushes
+     * it.
+     *
+     * @param out  the stream.
+     * @param tag  the tag.
+     * @param line the line.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void writeLine(OutputStream out, char tag, String line) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        writeLine(out, tag, bytes, bytes.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void write(int b) throws IOException {
+        if (b == '\n') {
+            writeLine(out, tag, line, length);
+            length = 0;
+            return;
+        }
+        if (length == line.length) {
+            byte[] bigger = new byte[line.length * 2];
+            System.arraycopy(line, 0, bigger, 0, length);
+            line = bigger;
+        }
+        line[length++] = (byte) b;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        if (length > 0) {
+            writeLine(out, Character.toUpperCase(tag), line, length);
+            length = 0;
+        }
+    }
+
+    // Writes the tag and the first length bytes of line (followed by a newline) to out, and
+    // flushes it.
+    private static void writeLine(OutputStream out, char tag, byte[] line, int length)
+            throws IOException {
+        synchronized (out) {
+            out.write(tag);
+            out.write(line, 0, length);
+            out.write('\n');
+            out.flush();
+        }
+    }
+}
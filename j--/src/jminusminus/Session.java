@@ -0,0 +1,528 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The state of a single compilation: the table of types, the number of physical registers
+ * available for allocation, the directory relative file names are resolved against, the streams
+ * diagnostics are written to, and whether an error has occurred. Compilations that use different
+ * sessions share no mutable state, and so may run side by side.
+ * <p>
+ * The compiler finds its session through the thread doing the work (see current()). Work on a
+ * single compilation may be spread across threads, one compilation unit per thread, using
+ * runAll(); each such thread then works in its own view of the session, which shares the state
+ * above but has its own current compilation unit, statement stack (for break and continue),
+ * string label counter, and buffered output streams.
+ */
+class Session {
+    // The session bound to each thread.
+    private static final ThreadLocal<Session> current = new ThreadLocal<Session>();
+
+    // The session this is a view of, or this if it's not a view.
+    private Session root;
+
+    // Maps type names to their Type representations.
+    private Hashtable<String, Type> types;
+
+    // The class path the symbols for the types are read from; null until it is first needed.
+    private CLPath classPath;
+
+    // Number of physical registers used for allocation, starting at T0.
+    private int physicalRegisterCount;
+
+    // Directory relative file names are resolved against; null for the current directory.
+    private File directory;
+
+    // Maps the names of source files held in memory to their contents.
+    private HashMap<String, CharSequence> sources;
+
+    // Canonical strings for the names scanned during the compilation.
+    private NameTable names;
+
+    // Files written by the compilation.
+    private ArrayList<File> outputFiles;
+
+    // Writes the classes generated into a JAR file, or null if they go into .class files.
+    private JarWriter jarWriter;
+
+    // Errors reported during compilation, in the order they were reported.
+    private ArrayList<Diagnostic> diagnostics;
+
+    // Timings of the phases of the compilation, or null if they are not being taken.
+    private Timings timings;
+
+    // Whether an error occurred during compilation.
+    private volatile boolean errorHasOccurred;
+
+    // Streams for output and diagnostics.
+    private PrintStream out, err;
+
+    // Current compilation unit.
+    private JCompilationUnit compilationUnit;
+
+    // Enclosing statements of the member being analyzed.
+    private Stack<JStatement> memberStack;
+
+    // For generating unique labels for strings in the SPIM data segment.
+    private int labelSuffix;
+
+    /**
+     * Constructs a session that writes to standard output and standard error.
+     */
+    public Session() {
+        this(System.out, System.err);
+    }
+
+    /**
+     * Constructs a session that writes to the given streams.
+     *
+     * @param out stream for output.
+     * @param err stream for diagnostics.
+     */
+    public Session(PrintStream out, PrintStream err) {
+        root = this;
+        types = new Hashtable<String, Type>(Type.builtinTypes());
+        physicalRegisterCount = NPhysicalRegister.DEFAULT_COUNT;
+        sources = new HashMap<String, CharSequence>();
+        names = new NameTable();
+        outputFiles = new ArrayList<File>();
+        diagnostics = new ArrayList<Diagnostic>();
+        errorHasOccurred = false;
+        this.out = out;
+        this.err = err;
+        memberStack = new Stack<JStatement>();
+    }
+
+    // Constructs a view of the given session that writes to the given streams.
+    private Session(Session session, PrintStream out, PrintStream err) {
+        root = session.root;
+        this.out = out;
+        this.err = err;
+        compilationUnit = session.compilationUnit;
+        memberStack = new Stack<JStatement>();
+    }
+
+    /**
+     * Returns the session bound to the calling thread, binding a new one if there is none.
+     *
+     * @return the session bound to the calling thread.
+     */
+    public static Session current() {
+        Session session = current.get();
+        if (session == null) {
+            session = new Session();
+            current.set(session);
+        }
+        return session;
+    }
+
+    /**
+     * Binds this session to the calling thread, and returns the session that was bound to it
+     * before (possibly null).
+     *
+     * @return the session that was bound to the calling thread before.
+     */
+    public Session bind() {
+        Session previous = current.get();
+        current.set(this);
+        return previous;
+    }
+
+    /**
+     * Unbinds this session from the calling thread, binding the given (previous) session instead.
+     *
+     * @param previous the session that was bound to the calling thread before this one.
+     */
+    public void unbind(Session previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * Runs the given tasks, typically one per compilation unit, using up to the given number of
+     * threads. With more than one thread, each task runs in its own view of this session, and
+     * the output of the tasks is replayed to this session's streams in the order of the tasks
+     * once they are all done, so the output does not depend on how the tasks were scheduled.
+     *
+     * @param threads the number of threads to use.
+     * @param tasks   the tasks to run.
+     */
+    public void runAll(int threads, ArrayList<Runnable> tasks) {
+        threads = Math.min(threads, tasks.size());
+        if (threads <= 1) {
+            Session previous = bind();
+            try {
+                for (Runnable task : tasks) {
+                    task.run();
+                }
+            } finally {
+                unbind(previous);
+            }
+            return;
+        }
+        ArrayList<ByteArrayOutputStream> outs = new ArrayList<ByteArrayOutputStream>();
+        ArrayList<ByteArrayOutputStream> errs = new ArrayList<ByteArrayOutputStream>();
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Runnable task : tasks) {
+                ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+                ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+                outs.add(outBytes);
+                errs.add(errBytes);
+                Session view = new Session(this, new PrintStream(outBytes, true),
+                        new PrintStream(errBytes, true));
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        Session previous = view.bind();
+                        try {
+                            task.run();
+                        } finally {
+                            view.out.flush();
+                            view.err.flush();
+                            view.unbind(previous);
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // Replay the output of the failed task too, as a single thread would have
+                    // written it before the failure.
+                    replay(outs, errs, i + 1);
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+            replay(outs, errs, futures.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the stream for output.
+     *
+     * @return the stream for output.
+     */
+    public PrintStream out() {
+        return out;
+    }
+
+    /**
+     * Returns the stream for diagnostics.
+     *
+     * @return the stream for diagnostics.
+     */
+    public PrintStream err() {
+        return err;
+    }
+
+    /**
+     * Sets the directory relative file names are resolved against.
+     *
+     * @param directory the directory; null for the current directory.
+     */
+    public void setDirectory(File directory) {
+        root.directory = directory;
+    }
+
+    /**
+     * Returns the file with the given name, resolved against this session's directory if the
+     * name is relative.
+     *
+     * @param name the file name.
+     * @return the file with the given name.
+     */
+    public File file(String name) {
+        File file = new File(name);
+        return root.directory == null || file.isAbsolute() ? file : new File(root.directory, name);
+    }
+
+    /**
+     * Adds a source file held in memory: reading the file with the given name gets the given
+     * contents, whether or not there is such a file in the file system.
+     *
+     * @param name     the file name.
+     * @param contents the contents of the file.
+     */
+    public void addSource(String name, CharSequence contents) {
+        synchronized (root.sources) {
+            root.sources.put(name, contents);
+        }
+    }
+
+    /**
+     * Returns the contents of the source file with the given name, reading the file unless it is
+     * held in memory already, in which case it is from then on (see addSource()). Every later
+     * reading of the file during the compilation then gets the very same contents, even if the
+     * file changes in the meantime.
+     *
+     * @param name the file name.
+     * @return the contents of the file.
+     * @throws FileNotFoundException if the file is not found, or cannot be read.
+     */
+    public CharSequence holdSource(String name) throws FileNotFoundException {
+        CharSequence contents = source(name);
+        if (contents == null) {
+            CharReader input = new CharReader(name);
+            contents = new String(input.chars(), 0, input.length());
+            synchronized (root.sources) {
+                if (root.sources.containsKey(name)) {
+                    return root.sources.get(name);
+                }
+                root.sources.put(name, contents);
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * Returns the contents of the source file with the given name if it is one held in memory
+     * (see addSource()), and null otherwise, in which case the file is to be read from the file
+     * system, resolved as by file().
+     *
+     * @param name the file name.
+     * @return the contents of the file, or null.
+     */
+    public CharSequence source(String name) {
+        synchronized (root.sources) {
+            return root.sources.get(name);
+        }
+    }
+
+    /**
+     * Returns the table of canonical strings for the names scanned during the compilation.
+     *
+     * @return the table of names.
+     */
+    public NameTable names() {
+        return root.names;
+    }
+
+    /**
+     * Records that the compilation wrote the given file.
+     *
+     * @param file the file written.
+     */
+    public void addOutputFile(File file) {
+        synchronized (root.outputFiles) {
+            root.outputFiles.add(file);
+        }
+    }
+
+    /**
+     * Returns the files written by the compilation so far.
+     *
+     * @return the files written by the compilation so far.
+     */
+    public ArrayList<File> outputFiles() {
+        synchronized (root.outputFiles) {
+            return new ArrayList<File>(root.outputFiles);
+        }
+    }
+
+    /**
+     * Returns the writer of the JAR file the classes generated go into, or null if they go into
+     * .class files.
+     *
+     * @return the JAR writer, or null.
+     */
+    public JarWriter jarWriter() {
+        return root.jarWriter;
+    }
+
+    /**
+     * Sets the writer of the JAR file the classes generated go into.
+     *
+     * @param jarWriter the JAR writer, or null for writing .class files.
+     */
+    public void setJarWriter(JarWriter jarWriter) {
+        root.jarWriter = jarWriter;
+    }
+
+    /**
+     * Records an error reported during the compilation. Reporting an error does not write it to
+     * the stream for diagnostics; that is up to the reporter.
+     *
+     * @param diagnostic the error.
+     */
+    public void addDiagnostic(Diagnostic diagnostic) {
+        synchronized (root.diagnostics) {
+            root.diagnostics.add(diagnostic);
+        }
+    }
+
+    /**
+     * Returns the errors reported during the compilation so far, in the order they were
+     * reported.
+     *
+     * @return the errors reported so far.
+     */
+    public ArrayList<Diagnostic> diagnostics() {
+        synchronized (root.diagnostics) {
+            return new ArrayList<Diagnostic>(root.diagnostics);
+        }
+    }
+
+    /**
+     * Returns the timings of the phases of the compilation, or null if they are not being taken.
+     *
+     * @return the timings, or null.
+     */
+    public Timings timings() {
+        return root.timings;
+    }
+
+    /**
+     * Sets the timings of the phases of the compilation.
+     *
+     * @param timings the timings, or null for not taking them.
+     */
+    public void setTimings(Timings timings) {
+        root.timings = timings;
+    }
+
+    /**
+     * Returns true if an error has occurred in this session, and false otherwise.
+     *
+     * @return true if an error has occurred in this session, and false otherwise.
+     */
+    public boolean errorHasOccurred() {
+        return root.errorHasOccurred;
+    }
+
+    /**
+     * Records that an error has occurred in this session if errorHasOccurred is true.
+     *
+     * @param errorHasOccurred whether an error has occurred.
+     */
+    public void reportErrors(boolean errorHasOccurred) {
+        if (errorHasOccurred) {
+            root.errorHasOccurred = true;
+        }
+    }
+
+    /**
+     * Returns the number of physical registers used for allocation.
+     *
+     * @return the number of physical registers used for allocation.
+     */
+    public int physicalRegisterCount() {
+        return root.physicalRegisterCount;
+    }
+
+    /**
+     * Sets the number of physical registers used for allocation, clamped to 1-18.
+     *
+     * @param count the number of physical registers.
+     */
+    public void setPhysicalRegisterCount(int count) {
+        root.physicalRegisterCount = Math.max(1, Math.min(18, count));
+    }
+
+    /**
+     * Returns the table mapping type names to their Type representations.
+     *
+     * @return the table mapping type names to their Type representations.
+     */
+    public Hashtable<String, Type> types() {
+        return root.types;
+    }
+
+    /**
+     * Returns the class path the symbols for the types are read from: the compiler's own, set up
+     * when it is first asked for. The directories on it are listed afresh by each session, while
+     * its zip and jar files and the run-time image are shared by all of them (see CLPath).
+     *
+     * @return the class path.
+     */
+    public CLPath classPath() {
+        synchronized (root) {
+            if (root.classPath == null) {
+                root.classPath = new CLPath();
+            }
+            return root.classPath;
+        }
+    }
+
+    /**
+     * Returns the current compilation unit.
+     *
+     * @return the current compilation unit.
+     */
+    public JCompilationUnit compilationUnit() {
+        return compilationUnit;
+    }
+
+    /**
+     * Sets the current compilation unit.
+     *
+     * @param compilationUnit the compilation unit.
+     */
+    public void setCompilationUnit(JCompilationUnit compilationUnit) {
+        this.compilationUnit = compilationUnit;
+    }
+
+    /**
+     * Returns the stack of statements enclosing the one being analyzed, within its member.
+     *
+     * @return the stack of enclosing statements.
+     */
+    public Stack<JStatement> memberStack() {
+        return memberStack;
+    }
+
+    /**
+     * Resets the counter for string labels.
+     */
+    public void resetLabelSuffix() {
+        labelSuffix = 0;
+    }
+
+    /**
+     * Returns the next suffix for string labels.
+     *
+     * @return the next suffix for string labels.
+     */
+    public int nextLabelSuffix() {
+        return labelSuffix++;
+    }
+
+    // Writes the buffered output of the first n tasks to this session's streams.
+    private void replay(ArrayList<ByteArrayOutputStream> outs,
+                        ArrayList<ByteArrayOutputStream> errs, int n) {
+        for (int i = 0; i < n; i++) {
+            out.print(outs.get(i).toString());
+            out.flush();
+            err.print(errs.get(i).toString());
+            err.flush();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Stack;
+
+/**
+ * Wall time, CPU time, and bytes allocated by each phase of a compilation (the -timings option).
+ * A phase is timed by bracketing it with begin() and end(); phases may nest, in which case the
+ * time and allocation of an inner phase (scanning within parsing, say) are not counted against
+ * the outer one. CPU time and allocation are measured for the thread doing the work, so when
+ * compilation units are compiled side by side (-j), the figures of all the threads add up, as do
+ * their wall times.
+ */
+class Timings {
+    // For measuring CPU time and allocation of the current thread.
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    // Maps phases, in the order they were first timed, to their wall time (ns), CPU time (ns),
+    // and bytes allocated.
+    private LinkedHashMap<String, long[]> phases;
+
+    // The phases being timed by each thread, innermost on top.
+    private ThreadLocal<Stack<Measurement>> running;
+
+    // When the timings started (ns).
+    private long start;
+
+    // File the timings are written to in JSON format, or null.
+    private String jsonFile;
+
+    /**
+     * Constructs a Timings object, starting the clock for the compilation as a whole.
+     *
+     * @param jsonFile file the timings are written to in JSON format, or null.
+     */
+    public Timings(String jsonFile) {
+        phases = new LinkedHashMap<String, long[]>();
+        running = new ThreadLocal<Stack<Measurement>>();
+        start = System.nanoTime();
+        this.jsonFile = jsonFile;
+    }
+
+    /**
+     * Begins timing the given phase, if timings are being taken in the session bound to the
+     * calling thread.
+     *
+     * @param phase the phase.
+     */
+    public static void begin(String phase) {
+        Timings timings = Session.current().timings();
+        if (timings != null) {
+            timings.push(phase);
+        }
+    }
+
+    /**
+     * Ends timing the phase most recently begun by the calling thread, if timings are being taken
+     * in the session bound to it.
+     */
+    public static void end() {
+        Timings timings = Session.current().timings();
+        if (timings != null) {
+            timings.pop();
+        }
+    }
+
+    /**
+     * Writes the timings to the given stream in a human-readable form, and to the JSON file if
+     * there is one.
+     *
+     * @param out the stream.
+     */
+    public void report(PrintStream out) {
+        long elapsed = System.nanoTime() - start;
+        long[] total = new long[3];
+        out.printf("%-16s %12s %12s %16s\n", "Phase", "Wall (ms)", "CPU (ms)", "Allocated (KB)");
+        synchronized (phases) {
+            for (String phase : phases.keySet()) {
+                long[] figures = phases.get(phase);
+                out.printf("%-16s %12.3f %12.3f %16d\n", phase, figures[0] / 1e6,
+                        figures[1] / 1e6, figures[2] / 1024);
+                for (int i = 0; i < 3; i++) {
+                    total[i] += figures[i];
+                }
+            }
+        }
+        out.printf("%-16s %12.3f %12.3f %16d\n", "total", total[0] / 1e6, total[1] / 1e6,
+                total[2] / 1024);
+        out.printf("%-16s %12.3f\n", "elapsed", elapsed / 1e6);
+        if (jsonFile != null) {
+            writeJSON(elapsed);
+        }
+    }
+
+    /**
+     * Returns the wall time (ns), CPU time (ns), and bytes allocated for each phase timed so far,
+     * in the order the phases were first timed.
+     *
+     * @return maps phases to their wall time, CPU time, and bytes allocated.
+     */
+    public LinkedHashMap<String, long[]> phases() {
+        LinkedHashMap<String, long[]> copy = new LinkedHashMap<String, long[]>();
+        synchronized (phases) {
+            for (String phase : phases.keySet()) {
+                copy.put(phase, phases.get(phase).clone());
+            }
+        }
+        return copy;
+    }
+
+    // Writes the timings to the JSON file.
+    private void writeJSON(long elapsed) {
+        File file = Session.current().file(jsonFile);
+        try {
+            PrintWriter out = new PrintWriter(file);
+            out.printf("{\n    \"elapsedNanos\": %d,\n    \"phases\": [", elapsed);
+            String separator = "\n";
+            synchronized (phases) {
+                for (String phase : phases.keySet()) {
+                    long[] figures = phases.get(phase);
+                    out.printf("%s        {\"name\": \"%s\", \"wallNanos\": %d, \"cpuNanos\": %d, " +
+                            "\"allocatedBytes\": %d}", separator, phase, figures[0], figures[1],
+                            figures[2]);
+                    separator = ",\n";
+                }
+            }
+            out.printf("\n    ]\n}\n");
+            out.close();
+        } catch (IOException e) {
+            Session.current().err().printf("Error: Cannot write to file %s\n", jsonFile);
+        }
+    }
+
+    // Begins timing the given phase on the calling thread.
+    private void push(String phase) {
+        Stack<Measurement> stack = running.get();
+        if (stack == null) {
+            stack = new Stack<Measurement>();
+            running.set(stack);
+        }
+        stack.push(new Measurement(phase));
+    }
+
+    // Ends timing the phase most recently begun on the calling thread, adding its figures, less
+    // those of the phases nested in it, to the phase's totals.
+    private void pop() {
+        Stack<Measurement> stack = running.get();
+        Measurement measurement = stack.pop();
+        long[] figures = measurement.figures();
+        if (!stack.isEmpty()) {
+            for (int i = 0; i < 3; i++) {
+                stack.peek().nested[i] += figures[i];
+            }
+        }
+        synchronized (phases) {
+            long[] totals = phases.get(measurement.phase);
+            if (totals == null) {
+                totals = new long[3];
+                phases.put(measurement.phase, totals);
+            }
+            for (int i = 0; i < 3; i++) {
+                totals[i] += figures[i] - measurement.nested[i];
+            }
+        }
+    }
+
+    // Returns the CPU time (ns) used by the calling thread so far, or 0 if it cannot be measured.
+    private static long cpuTime() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ?
+                threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    // Returns the bytes allocated by the calling thread so far, or 0 if it cannot be measured.
+    private static long allocatedBytes() {
+        return threadMXBean instanceof com.sun.management.ThreadMXBean ?
+                ((com.sun.management.ThreadMXBean) threadMXBean).getCurrentThreadAllocatedBytes()
+                : 0;
+    }
+
+    // A phase being timed on a thread.
+    private static class Measurement {
+        // The phase.
+        private String phase;
+
+        // Wall time, CPU time, and allocated bytes when the phase began.
+        private long[] start;
+
+        // Wall time, CPU time, and allocated bytes of the phases nested in this one.
+        private long[] nested;
+
+        // Constructs a measurement of the given phase, beginning now.
+        private Measurement(String phase) {
+            this.phase = phase;
+            nested = new long[3];
+            start = new long[] {System.nanoTime(), cpuTime(), allocatedBytes()};
+        }
+
+        // Returns the wall time, CPU time, and allocated bytes since the phase began.
+        private long[] figures() {
+            return new long[] {System.nanoTime() - start[0], cpuTime() - start[1],
+                    allocatedBytes() - start[2]};
+        }
+    }
+}
@@ -0,0 +1,297 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.util.ArrayList;
+
+/**
+ * The tokens of a source file, kept as parallel arrays (of kinds, source offsets and lengths, and
+ * lines) indexed by the position of the token in the file, rather than as TokenInfo objects. The
+ * tokens are scanned on demand, as they are first asked for, and are then kept for the rest of the
+ * parse, so that a LookaheadScanner can go back to any earlier token simply by its index. Only the
+ * tokens with semantic text (identifiers and literals) keep an image of their own; the image of
+ * every other token is that of its kind. Past the end of the file, the EOF token is repeated.
+ * <p>
+ * A buffer may also be filled by its owner, token by token, and have a run of its tokens replaced
+ * by others, scanned from an edited source (see IncrementalCompiler). The lexical errors found in
+ * scanning the tokens of such a buffer may be deferred to it, to be reported as the tokens they
+ * were found in are first asked for, just as the scanner would have reported them (see
+ * ParallelScanner).
+ */
+class TokenBuffer {
+    // Initial capacity of the buffer, in tokens.
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // The token kinds, indexed by ordinal.
+    private static final TokenKind[] KINDS = TokenKind.values();
+
+    // Ordinal of the EOF token kind.
+    private static final byte EOF_ORDINAL = (byte) TokenKind.EOF.ordinal();
+
+    // The underlying hand-written scanner; null if the buffer is filled by its owner.
+    private Scanner scanner;
+
+    // Ordinals of the token kinds.
+    private byte[] kinds;
+
+    // Offsets of the tokens in the source.
+    private int[] starts;
+
+    // Lengths of the tokens in the source.
+    private int[] lengths;
+
+    // Lines the tokens occur in.
+    private int[] lines;
+
+    // Images of the tokens with semantic text; null for the others.
+    private String[] images;
+
+    // Number of tokens scanned so far.
+    private int size;
+
+    // Lexical errors deferred to the buffer, and the indices of the tokens they were found in.
+    private ArrayList<Diagnostic> errors;
+    private ArrayList<Integer> errorTokens;
+
+    // Number of the deferred errors reported so far.
+    private int errorsReported;
+
+    // Index of the token the next deferred error was found in; MAX_VALUE if there is none.
+    private int nextErrorToken;
+
+    /**
+     * Constructs a TokenBuffer of the tokens scanned by the given scanner.
+     *
+     * @param scanner the scanner, or null for a buffer filled by its owner (see add()).
+     */
+    public TokenBuffer(Scanner scanner) {
+        this.scanner = scanner;
+        kinds = new byte[INITIAL_CAPACITY];
+        starts = new int[INITIAL_CAPACITY];
+        lengths = new int[INITIAL_CAPACITY];
+        lines = new int[INITIAL_CAPACITY];
+        images = new String[INITIAL_CAPACITY];
+        size = 0;
+        nextErrorToken = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Scans tokens, if need be, until the token with the given index has been scanned.
+     *
+     * @param index the index of the token.
+     */
+    public void fill(int index) {
+        while (size <= index) {
+            if (size > 0 && kinds[size - 1] == EOF_ORDINAL) {
+                add(kind(size - 1), null, starts[size - 1], starts[size - 1], lines[size - 1]);
+                continue;
+            }
+            if (size == kinds.length) {
+                grow();
+            }
+            Timings.begin("scan");
+            TokenInfo token = scanner.getNextToken();
+            Timings.end();
+            TokenKind kind = token.kind();
+            kinds[size] = (byte) kind.ordinal();
+            starts[size] = scanner.tokenStart();
+            lengths[size] = scanner.tokenEnd() - scanner.tokenStart();
+            lines[size] = token.line();
+            images[size] = token.image() == kind.image() ? null : token.image();
+            size++;
+        }
+        if (index >= nextErrorToken) {
+            reportErrors(index);
+        }
+    }
+
+    /**
+     * Defers the given lexical errors, found in scanning the tokens with the given indices (in
+     * order), to this buffer, to be reported as those tokens are first asked for (see fill()).
+     *
+     * @param errors      the errors.
+     * @param errorTokens the indices of the tokens they were found in.
+     */
+    public void deferErrors(ArrayList<Diagnostic> errors, ArrayList<Integer> errorTokens) {
+        this.errors = errors;
+        this.errorTokens = errorTokens;
+        errorsReported = 0;
+        nextErrorToken = errors.isEmpty() ? Integer.MAX_VALUE : errorTokens.get(0);
+    }
+
+    /**
+     * Returns true if any of the errors deferred to this buffer has been reported, and false
+     * otherwise.
+     *
+     * @return true if a deferred error has been reported, and false otherwise.
+     */
+    public boolean errorHasOccurred() {
+        return errorsReported > 0;
+    }
+
+    /**
+     * Adds the given token, which occupies the given range of the source, to the end of the
+     * buffer.
+     *
+     * @param token the token.
+     * @param start offset in the source of the first character of the token.
+     * @param end   offset in the source just past the last character of the token.
+     */
+    public void add(TokenInfo token, int start, int end) {
+        TokenKind kind = token.kind();
+        add(kind, token.image() == kind.image() ? null : token.image(), start, end, token.line());
+    }
+
+    /**
+     * Replaces the tokens with indices from from up to (but not including) to by the tokens of
+     * the given buffer, which were scanned from an edited source, and shifts the offsets and lines
+     * of the tokens after them by the given amounts, so that they are those of the edited source.
+     *
+     * @param from      index of the first token replaced.
+     * @param to        index just past the last token replaced.
+     * @param tokens    the replacement tokens.
+     * @param delta     amount by which the offsets of the tokens after them shift.
+     * @param lineDelta amount by which the lines of the tokens after them shift.
+     */
+    public void splice(int from, int to, TokenBuffer tokens, int delta, int lineDelta) {
+        int n = tokens.size;
+        int newSize = size - (to - from) + n;
+        while (kinds.length < newSize) {
+            grow();
+        }
+        System.arraycopy(kinds, to, kinds, from + n, size - to);
+        System.arraycopy(starts, to, starts, from + n, size - to);
+        System.arraycopy(lengths, to, lengths, from + n, size - to);
+        System.arraycopy(lines, to, lines, from + n, size - to);
+        System.arraycopy(images, to, images, from + n, size - to);
+        System.arraycopy(tokens.kinds, 0, kinds, from, n);
+        System.arraycopy(tokens.starts, 0, starts, from, n);
+        System.arraycopy(tokens.lengths, 0, lengths, from, n);
+        System.arraycopy(tokens.lines, 0, lines, from, n);
+        System.arraycopy(tokens.images, 0, images, from, n);
+        for (int i = from + n; i < newSize; i++) {
+            starts[i] += delta;
+            lines[i] += lineDelta;
+        }
+        for (int i = newSize; i < size; i++) {
+            images[i] = null;
+        }
+        size = newSize;
+    }
+
+    /**
+     * Returns the number of tokens scanned so far.
+     *
+     * @return the number of tokens scanned so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the kind of the token with the given index.
+     *
+     * @param index the index of a token scanned.
+     * @return the kind of the token.
+     */
+    public TokenKind kind(int index) {
+        return KINDS[kinds[index]];
+    }
+
+    /**
+     * Returns the image (semantic text) of the token with the given index.
+     *
+     * @param index the index of a token scanned.
+     * @return the image of the token.
+     */
+    public String image(int index) {
+        String image = images[index];
+        return image != null ? image : KINDS[kinds[index]].image();
+    }
+
+    /**
+     * Returns the line of the token with the given index.
+     *
+     * @param index the index of a token scanned.
+     * @return the line of the token.
+     */
+    public int line(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Returns the offset in the source of the token with the given index.
+     *
+     * @param index the index of a token scanned.
+     * @return the offset of the token.
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Returns the length in the source of the token with the given index.
+     *
+     * @param index the index of a token scanned.
+     * @return the length of the token.
+     */
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Returns the token with the given index, as a TokenInfo.
+     *
+     * @param index the index of a token scanned.
+     * @return the token.
+     */
+    public TokenInfo token(int index) {
+        return new TokenInfo(kind(index), image(index), lines[index]);
+    }
+
+    // Adds a token of the given kind and image (null for that of its kind), which occupies the
+    // given range of the source and is in the given line, to the end of the buffer.
+    private void add(TokenKind kind, String image, int start, int end, int line) {
+        if (size == kinds.length) {
+            grow();
+        }
+        kinds[size] = (byte) kind.ordinal();
+        starts[size] = start;
+        lengths[size] = end - start;
+        lines[size] = line;
+        images[size] = image;
+        size++;
+    }
+
+    // Reports the deferred errors found in the tokens up to the one with the given index, which
+    // have not been reported yet.
+    private void reportErrors(int index) {
+        while (errorsReported < errors.size() && errorTokens.get(errorsReported) <= index) {
+            Diagnostic error = errors.get(errorsReported++);
+            Session.current().err().println(error);
+            Session.current().addDiagnostic(error);
+        }
+        nextErrorToken = errorsReported < errors.size() ? errorTokens.get(errorsReported)
+                : Integer.MAX_VALUE;
+    }
+
+    // Doubles the capacity of the buffer.
+    private void grow() {
+        int capacity = kinds.length * 2;
+        byte[] newKinds = new byte[capacity];
+        int[] newStarts = new int[capacity];
+        int[] newLengths = new int[capacity];
+        int[] newLines = new int[capacity];
+        String[] newImages = new String[capacity];
+        System.arraycopy(kinds, 0, newKinds, 0, size);
+        System.arraycopy(starts, 0, newStarts, 0, size);
+        System.arraycopy(lengths, 0, newLengths, 0, size);
+        System.arraycopy(lines, 0, newLines, 0, size);
+        System.arraycopy(images, 0, newImages, 0, size);
+        kinds = newKinds;
+        starts = newStarts;
+        lengths = newLengths;
+        lines = newLines;
+        images = newImages;
+    }
+}
@@ -2,17 +2,20 @@
 
 package jminusminus;
 
-import java.lang.reflect.Array;
-import java.lang.reflect.Modifier;
-
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 
+import static jminusminus.CLConstants.*;
+
 /**
- * A class for representing j-- types. All types are represented underneath (in the classRep
- * field) by Java objects of type Class. These objects represent types in Java, so this should
- * ease our interfacing with existing Java classes.
+ * A class for representing j-- types. All types are represented underneath by their JVM
+ * descriptors, and class (and interface) types also by symbols (see ClassSymbol), which are read
+ * from the class path when they are first needed, or built by the compiler for the types it
+ * declares. The compiler so learns all it needs to know of the Java classes it interfaces with
+ * without loading them.
  * <p>
  * Class types (reference types that are represented by the identifiers introduced in class
  * declarations) are represented using TypeName. So for now, every TypeName represents a class.
@@ -22,91 +25,112 @@ import java.util.Hashtable;
  * to the same Type object. The resolve() method does this.
  */
 class Type {
-    // The Type's internal (Java) representation.
-    private Class<?> classRep;
+    // The Type's JVM descriptor.
+    private String descriptor;
+
+    // The Type's JVM name, Java name, and (for an array type) component type; null until they
+    // are first asked for.
+    private String jvmName;
+    private String name;
+    private Type componentType;
+
+    // The symbol for this (class or interface) type, once it has been looked up; null for other
+    // types, and for classes that are not found.
+    private volatile ClassSymbol symbol;
 
-    // Maps type names to their Type representations.
-    private static Hashtable<String, Type> types = new Hashtable<String, Type>();
+    // Whether the symbol for this type has been looked up.
+    private volatile boolean isSymbolLookedUp;
+
+    // The members declared in this type, indexed when they are first looked up: the methods by
+    // name (each name to its overloads), the fields by name, and the constructors. Null until
+    // then, and again whenever the symbol for this type is set.
+    private HashMap<String, ArrayList<Method>> methodsByName;
+    private HashMap<String, Field> fieldsByName;
+    private ArrayList<Constructor> constructors;
+
+    // Maps type names to the Type representations shared by all sessions; each session starts
+    // out its own table (see Session.types()) with these.
+    private static Hashtable<String, Type> builtinTypes = new Hashtable<String, Type>();
 
     /**
      * The int type.
      */
-    public final static Type INT = typeFor(int.class);
+    public final static Type INT = builtinTypeFor("I");
 
     /**
      * The long type.
      */
-    public final static Type LONG = typeFor(long.class);
+    public final static Type LONG = builtinTypeFor("J");
 
     /**
      * The double type.
      */
-    public final static Type DOUBLE = typeFor(double.class);
+    public final static Type DOUBLE = builtinTypeFor("D");
 
     /**
      * The char type.
      */
-    public final static Type CHAR = typeFor(char.class);
+    public final static Type CHAR = builtinTypeFor("C");
 
     /**
      * The boolean type.
      */
-    public final static Type BOOLEAN = typeFor(boolean.class);
+    public final static Type BOOLEAN = builtinTypeFor("Z");
 
     /**
      * The java.lang.Integer type.
      */
-    public final static Type BOXED_INT = typeFor(java.lang.Integer.class);
+    public final static Type BOXED_INT = builtinTypeFor("Ljava/lang/Integer;");
 
     /**
      * The java.lang.Character type.
      */
-    public final static Type BOXED_CHAR = typeFor(java.lang.Character.class);
+    public final static Type BOXED_CHAR = builtinTypeFor("Ljava/lang/Character;");
 
     /**
      * The java.lang.Integer type.
      */
-    public final static Type BOXED_DOUBLE = typeFor(java.lang.Double.class);
+    public final static Type BOXED_DOUBLE = builtinTypeFor("Ljava/lang/Double;");
 
     /**
      * The java.lang.Character type.
      */
-    public final static Type BOXED_LONG = typeFor(java.lang.Long.class);
+    public final static Type BOXED_LONG = builtinTypeFor("Ljava/lang/Long;");
 
     /**
      * The java.lang.Boolean type.
      */
-    public final static Type BOXED_BOOLEAN = typeFor(java.lang.Boolean.class);
+    public final static Type BOXED_BOOLEAN = builtinTypeFor("Ljava/lang/Boolean;");
 
     /**
      * The java.lang.String type.
      */
-    public static Type STRING = typeFor(java.lang.String.class);
+    public static Type STRING = builtinTypeFor("Ljava/lang/String;");
 
     /**
      * The java.lang.Object type.
      */
-    public static Type OBJECT = typeFor(java.lang.Object.class);
+    public static Type OBJECT = builtinTypeFor("Ljava/lang/Object;");
 
     /**
      * The void type.
      */
-    public final static Type VOID = typeFor(void.class);
+    public final static Type VOID = builtinTypeFor("V");
 
     /**
      * The null type.
      */
-    public final static Type NULLTYPE = new Type(java.lang.Object.class);
+    public final static Type NULLTYPE = new Type("Ljava/lang/Object;");
 
     /**
      * The "any" type (denotes wild expressions).
      */
-    public final static Type ANY = new Type(null);
+    public final static Type ANY = new Type("V");
 
     /**
      * A type marker indicating a constructor (having no return type).
      */
-    public final static Type CONSTRUCTOR = new Type(null);
+    public final static Type CONSTRUCTOR = new Type("V");
 
     /**
      * This constructor is to keep the compiler happy.
@@ -116,45 +140,109 @@ class Type {
     }
 
     /**
-     * Constructs and returns a representation for a type from its (Java) class representation,
-     * making sure there is a unique representation for each unique type.
+     * Constructs and returns a representation for a type from its JVM descriptor, making sure
+     * there is a unique representation for each unique type.
      *
-     * @param classRep the Java class representation.
-     * @return a type representation of classRep.
-     */
-    public static Type typeFor(Class<?> classRep) {
-        if (types.get(descriptorFor(classRep)) == null) {
-            types.put(descriptorFor(classRep), new Type(classRep));
+     * @param descriptor the JVM descriptor.
+     * @return a type representation of descriptor.
+     */
+    public static Type typeFor(String descriptor) {
+        Hashtable<String, Type> types = Session.current().types();
+        Type type = types.get(descriptor);
+        if (type == null) {
+            Type newType = new Type(descriptor);
+            type = types.putIfAbsent(descriptor, newType);
+            if (type == null) {
+                type = newType;
+            }
         }
-        return types.get(descriptorFor(classRep));
+        return type;
     }
 
     /**
-     * Returns the class representation for this type.
+     * Constructs and returns a representation for a class type from its symbol, making sure
+     * there is a unique representation for each unique type. If there already is one, it is
+     * returned as it is.
      *
-     * @return the class representation for this type.
+     * @param symbol the symbol for the class.
+     * @return a type representation of symbol.
+     */
+    public static Type typeFor(ClassSymbol symbol) {
+        Hashtable<String, Type> types = Session.current().types();
+        String descriptor = "L" + symbol.name() + ";";
+        synchronized (types) {
+            Type type = types.get(descriptor);
+            if (type == null) {
+                type = new Type(descriptor);
+                type.setSymbol(symbol);
+                types.put(descriptor, type);
+            }
+            return type;
+        }
+    }
+
+    /**
+     * Returns the representation for the class (or interface) type with the given fully
+     * qualified name, whose class is found on the class path, or null if there is no such class.
+     *
+     * @param name the fully qualified name of the class (eg, java.util.ArrayList).
+     * @return the representation for the class type, or null.
      */
-    public Class<?> classRep() {
-        return classRep;
+    public static Type classTypeFor(String name) {
+        Type type = typeFor("L" + name.replace('.', '/') + ";");
+        return type.symbol() == null ? null : type;
     }
 
     /**
-     * Sets the class representation of this type to the specified partial class.
+     * Returns the table mapping the names of the types shared by all sessions to their Type
+     * representations.
      *
-     * @param classRep the partial class.
+     * @return the table of types shared by all sessions.
      */
-    public void setClassRep(Class<?> classRep) {
-        this.classRep = classRep;
+    public static Hashtable<String, Type> builtinTypes() {
+        return builtinTypes;
     }
 
     /**
-     * Returns true if this type has the same descriptor as other, and false otherwise.
+     * Returns the symbol for this type, if it is a class (or interface) type whose class is
+     * found, and null otherwise. The symbol is looked up on the class path when it is first asked
+     * for, unless it has been set.
+     *
+     * @return the symbol for this type, or null.
+     */
+    public ClassSymbol symbol() {
+        if (!isSymbolLookedUp) {
+            if (descriptor.charAt(0) == 'L') {
+                symbol = Session.current().classPath().symbol(descriptor.substring(1,
+                        descriptor.length() - 1));
+            }
+            isSymbolLookedUp = true;
+        }
+        return symbol;
+    }
+
+    /**
+     * Sets the symbol for this type to the specified class symbol.
+     *
+     * @param symbol the class symbol.
+     */
+    public synchronized void setSymbol(ClassSymbol symbol) {
+        this.symbol = symbol;
+        isSymbolLookedUp = true;
+        methodsByName = null;
+        fieldsByName = null;
+        constructors = null;
+    }
+
+    /**
+     * Returns true if this type is the same as other, and false otherwise. Types are unique for
+     * the compilation (see typeFor()) once they are resolved, so this is a matter of identity.
      *
      * @param other the other type.
-     * @return true if this type has the same descriptor as other, and false otherwise.
+     * @return true if this type is the same as other, and false otherwise.
      */
     public boolean equals(Type other) {
-        return this.toDescriptor().equals(other.toDescriptor());
+        return this == other;
     }
 
     /**
@@ -163,7 +251,7 @@ class Type {
      * @return true if this is an array type, and false otherwise.
      */
     public boolean isArray() {
-        return classRep.isArray();
+        return descriptor.charAt(0) == '[';
     }
 
     /**
@@ -172,7 +260,10 @@ class Type {
      * @return an array type's component type.
      */
     public Type componentType() {
-        return typeFor(classRep.getComponentType());
+        if (componentType == null) {
+            componentType = typeFor(descriptor.substring(1));
+        }
+        return componentType;
     }
 
     /**
@@ -181,8 +272,28 @@ class Type {
      * @return this type's super type, or null.
      */
     public Type superClass() {
-        return classRep == null || classRep.getSuperclass() == null ? null :
-                typeFor(classRep.getSuperclass());
+        if (isArray()) {
+            return typeFor("Ljava/lang/Object;");
+        }
+        ClassSymbol symbol = symbol();
+        return symbol == null || symbol.superName() == null ? null :
+                typeFor("L" + symbol.superName() + ";");
+    }
+
+    /**
+     * Returns the interfaces this type implements (or extends, if it's an interface type).
+     *
+     * @return the interfaces this type implements.
+     */
+    public ArrayList<Type> interfaces() {
+        ArrayList<Type> interfaces = new ArrayList<Type>();
+        ClassSymbol symbol = symbol();
+        if (symbol != null) {
+            for (String name : symbol.interfaceNames()) {
+                interfaces.add(typeFor("L" + name + ";"));
+            }
+        }
+        return interfaces;
     }
 
     /**
@@ -191,7 +302,7 @@ class Type {
      * @return true if this is a primitive type, and false otherwise.
      */
     public boolean isPrimitive() {
-        return classRep.isPrimitive();
+        return descriptor.length() == 1;
     }
 
     /**
@@ -200,7 +311,7 @@ class Type {
      * @return true if this is an interface type, and false otherwise.
      */
     public boolean isInterface() {
-        return classRep.isInterface();
+        return (modifiers() & ACC_INTERFACE) != 0;
     }
 
     /**
@@ -218,7 +329,7 @@ class Type {
      * @return true of this type is declared final, and false otherwise.
      */
     public boolean isFinal() {
-        return Modifier.isFinal(classRep.getModifiers());
+        return (modifiers() & ACC_FINAL) != 0;
     }
 
     /**
@@ -227,7 +338,7 @@ class Type {
      * @return true of this type is declared abstract, and false otherwise.
      */
     public boolean isAbstract() {
-        return Modifier.isAbstract(classRep.getModifiers());
+        return (modifiers() & ACC_ABSTRACT) != 0;
     }
 
     /**
@@ -237,7 +348,46 @@ class Type {
      * @return true if this is a supertype of other, and false otherwise.
      */
     public boolean isJavaAssignableFrom(Type that) {
-        return this.classRep.isAssignableFrom(that.classRep);
+        if (this.equals(that)) {
+            return true;
+        }
+        if (this.isPrimitive() || that.isPrimitive()) {
+            return false;
+        }
+        if (that.isArray()) {
+            return this.isArray() ? this.componentType().isJavaAssignableFrom(that.componentType())
+                    : descriptor.equals("Ljava/lang/Object;") ||
+                    descriptor.equals("Ljava/lang/Cloneable;") ||
+                    descriptor.equals("Ljava/io/Serializable;");
+        }
+        if (this.isArray()) {
+            return false;
+        }
+        if (descriptor.equals("Ljava/lang/Object;")) {
+            return true;
+        }
+
+        // Search the super types of that, each once.
+        ArrayList<Type> superTypes = new ArrayList<Type>();
+        HashSet<String> visited = new HashSet<String>();
+        superTypes.add(that);
+        visited.add(that.toDescriptor());
+        for (int i = 0; i < superTypes.size(); i++) {
+            Type type = superTypes.get(i);
+            ArrayList<Type> next = type.interfaces();
+            if (type.superClass() != null) {
+                next.add(type.superClass());
+            }
+            for (Type superType : next) {
+                if (this.equals(superType)) {
+                    return true;
+                }
+                if (visited.add(superType.toDescriptor())) {
+                    superTypes.add(superType);
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -267,6 +417,22 @@ class Type {
         return abstractMethods;
     }
 
+    /**
+     * Returns a list of the methods declared in this type.
+     *
+     * @return a list of the methods declared in this type.
+     */
+    public ArrayList<Method> declaredMethods() {
+        ArrayList<Method> declaredMethods = new ArrayList<Method>();
+        ClassSymbol symbol = symbol();
+        if (symbol != null) {
+            for (MemberSymbol method : symbol.methods()) {
+                declaredMethods.add(new Method(this, method));
+            }
+        }
+        return declaredMethods;
+    }
+
     /**
      * Returns a list of this class' declared abstract methods.
      *
@@ -274,9 +440,9 @@ class Type {
      */
     private ArrayList<Method> declaredAbstractMethods() {
         ArrayList<Method> declaredAbstractMethods = new ArrayList<Method>();
-        for (java.lang.reflect.Method method : classRep.getDeclaredMethods()) {
-            if (Modifier.isAbstract(method.getModifiers())) {
-                declaredAbstractMethods.add(new Method(method));
+        for (Method method : declaredMethods()) {
+            if (method.isAbstract()) {
+                declaredAbstractMethods.add(method);
             }
         }
         return declaredAbstractMethods;
@@ -289,9 +455,9 @@ class Type {
      */
     private ArrayList<Method> declaredConcreteMethods() {
         ArrayList<Method> declaredConcreteMethods = new ArrayList<Method>();
-        for (java.lang.reflect.Method method : classRep.getDeclaredMethods()) {
-            if (!Modifier.isAbstract(method.getModifiers())) {
-                declaredConcreteMethods.add(new Method(method));
+        for (Method method : declaredMethods()) {
+            if (!method.isAbstract()) {
+                declaredConcreteMethods.add(method);
             }
         }
         return declaredConcreteMethods;
@@ -313,7 +479,7 @@ class Type {
                 return;
             }
         }
-        JAST.compilationUnit.reportSemanticError(line,
+        JAST.compilationUnit().reportSemanticError(line,
                 "Type %s doesn't match any of the expected types %s", this,
                 Arrays.toString(expectedTypes));
     }
@@ -327,7 +493,7 @@ class Type {
      */
     public void mustMatchExpected(int line, Type expectedType) {
         if (!matchesExpected(expectedType)) {
-            JAST.compilationUnit.reportSemanticError(line, "Type %s doesn't match type %s", this,
+            JAST.compilationUnit().reportSemanticError(line, "Type %s doesn't match type %s", this,
                     expectedType);
         }
     }
@@ -340,26 +506,8 @@ class Type {
      */
     public boolean matchesExpected(Type expected) {
         return this == Type.ANY || expected == Type.ANY ||
-                (this == Type.NULLTYPE && expected.isReference()) || this.equals(expected);
-    }
-
-    /**
-     * Returns true if the argument types match, and false otherwise.
-     *
-     * @param argTypes1 arguments (classReps) of one method.
-     * @param argTypes2 arguments (classReps) of another method.
-     * @return true if the argument types match, and false otherwise.
-     */
-    public static boolean argTypesMatch(Class<?>[] argTypes1, Class<?>[] argTypes2) {
-        if (argTypes1.length != argTypes2.length) {
-            return false;
-        }
-        for (int i = 0; i < argTypes1.length; i++) {
-            if (!Type.descriptorFor(argTypes1[i]).equals(Type.descriptorFor(argTypes2[i]))) {
-                return false;
-            }
-        }
-        return true;
+                (this == Type.NULLTYPE && expected.isReference()) ||
+                (expected == Type.NULLTYPE && this.isReference()) || this.equals(expected);
     }
 
     /**
@@ -368,7 +516,11 @@ class Type {
      * @return the simple (unqualified) name of this type.
      */
     public String simpleName() {
-        return classRep.getSimpleName();
+        if (isArray()) {
+            return componentType().simpleName() + "[]";
+        }
+        String name = toString();
+        return name.substring(Math.max(name.lastIndexOf('.'), name.lastIndexOf('$')) + 1);
     }
 
     /**
@@ -377,7 +529,10 @@ class Type {
      * @return a string representation of this type.
      */
     public String toString() {
-        return toJava(this.classRep);
+        if (name == null) {
+            name = toJava(descriptor);
+        }
+        return name;
     }
 
     /**
@@ -386,7 +541,7 @@ class Type {
      * @return the JVM descriptor of this type.
      */
     public String toDescriptor() {
-        return descriptorFor(classRep);
+        return descriptor;
     }
 
     /**
@@ -395,8 +550,11 @@ class Type {
      * @return the JVM representation of this type's name.
      */
     public String jvmName() {
-        return this.isArray() || this.isPrimitive() ?
-                this.toDescriptor() : classRep.getName().replace('.', '/');
+        if (jvmName == null) {
+            jvmName = this.isArray() || this.isPrimitive() ?
+                    this.toDescriptor() : descriptor.substring(1, descriptor.length() - 1);
+        }
+        return jvmName;
     }
 
     /**
@@ -420,55 +578,83 @@ class Type {
     }
 
     /**
-     * Finds and returns a method in this type having the given name and argument types, or null.
+     * Finds and returns the method in this type (declared in it or inherited from its super
+     * classes) having the given name that is the most specific one of those applicable to
+     * arguments of the given types, or null if there is no such method.
+     * <p>
+     * A method is applicable if each argument type is that of the parameter, or (for reference
+     * types) a subtype of it; a method taking exactly the argument types is always the most
+     * specific. A method overrides those it has the parameters of in the super classes.
      *
      * @param name     the method name.
      * @param argTypes the argument types.
-     * @return a method in this type having the given name and argument types, or null.
+     * @return the most specific applicable method, or null.
      */
     public Method methodFor(String name, Type[] argTypes) {
-        Class[] classes = new Class[argTypes.length];
-        for (int i = 0; i < argTypes.length; i++) {
-            classes[i] = argTypes[i].classRep;
-        }
-        Class cls = classRep;
-
-        // Search this class and all superclasses.
-        while (cls != null) {
-            java.lang.reflect.Method[] methods = cls.getDeclaredMethods();
-            for (java.lang.reflect.Method method : methods) {
-                if (method.getName().equals(name) && Type.argTypesMatch(classes,
-                        method.getParameterTypes())) {
-                    return new Method(method);
+        addDependency();
+        String parameters = parametersFor(argTypes);
+
+        // Search this class and all superclasses for a method taking exactly the argument
+        // types.
+        if (parameters != null) {
+            for (Type type = this; type != null; type = type.superClass()) {
+                for (Method method : type.methodsNamed(name)) {
+                    if (method.toDescriptor().startsWith(parameters)) {
+                        return method;
+                    }
                 }
             }
-            cls = cls.getSuperclass();
         }
 
-        return null;
+        // Otherwise, choose among the applicable methods.
+        return mostSpecific(inheritedMethodsNamed(name), argTypes);
     }
 
     /**
-     * Finds and returns a constructor in this type having the given argument types, or null.
+     * Finds and returns the constructor in this type that is the most specific one of those
+     * applicable to arguments of the given types (see methodFor()), or null if there is no such
+     * constructor.
      *
      * @param argTypes the argument types.
-     * @return a constructor in this type having the given argument types, or null.
+     * @return the most specific applicable constructor, or null.
      */
     public Constructor constructorFor(Type[] argTypes) {
-        Class[] classes = new Class[argTypes.length];
-        for (int i = 0; i < argTypes.length; i++) {
-            classes[i] = argTypes[i].classRep;
-        }
+        addDependency();
+        String parameters = parametersFor(argTypes);
 
         // Search only this class (we don't inherit constructors).
-        java.lang.reflect.Constructor[] constructors = classRep.getDeclaredConstructors();
-        for (java.lang.reflect.Constructor constructor : constructors) {
-            if (argTypesMatch(classes, constructor.getParameterTypes())) {
-                return new Constructor(constructor);
+        ArrayList<Constructor> constructors = declaredConstructors();
+        for (int i = 0; parameters != null && i < constructors.size(); i++) {
+            if (constructors.get(i).toDescriptor().startsWith(parameters)) {
+                return constructors.get(i);
             }
         }
+        return mostSpecific(constructors, argTypes);
+    }
 
-        return null;
+    /**
+     * Returns the methods in this type (declared in it or inherited from its super classes) having
+     * the given name that are applicable to arguments of the given types, and that no other
+     * applicable one is more specific than (see methodFor()). When methodFor() finds no method,
+     * these are the ones the call is ambiguous among, if there are more than one.
+     *
+     * @param name     the method name.
+     * @param argTypes the argument types.
+     * @return the applicable methods no other one is more specific than.
+     */
+    public ArrayList<Method> ambiguousMethodsFor(String name, Type[] argTypes) {
+        return maximallySpecific(inheritedMethodsNamed(name), argTypes);
+    }
+
+    /**
+     * Returns the constructors in this type that are applicable to arguments of the given types,
+     * and that no other applicable one is more specific than (see ambiguousMethodsFor()).
+     *
+     * @param argTypes the argument types.
+     * @return the applicable constructors no other one is more specific than.
+     */
+    public ArrayList<Constructor> ambiguousConstructorsFor(Type[] argTypes) {
+        return maximallySpecific(declaredConstructors(), argTypes);
     }
 
     /**
@@ -478,15 +664,12 @@ class Type {
      * @return a field in this type having the given name, or null.
      */
     public Field fieldFor(String name) {
-        Class<?> cls = classRep;
-        while (cls != null) {
-            java.lang.reflect.Field[] fields = cls.getDeclaredFields();
-            for (java.lang.reflect.Field field : fields) {
-                if (field.getName().equals(name)) {
-                    return new Field(field);
-                }
+        addDependency();
+        for (Type type = this; type != null; type = type.superClass()) {
+            Field field = type.fieldNamed(name);
+            if (field != null) {
+                return field;
             }
-            cls = cls.getSuperclass();
         }
         return null;
     }
@@ -501,9 +684,9 @@ class Type {
         if (argTypes.length == 0) {
             return "()";
         } else {
-            String str = "(" + argTypes[0].toString();
+            String str = "(" + argumentName(argTypes[0]);
             for (int i = 1; i < argTypes.length; i++) {
-                str += "," + argTypes[i];
+                str += "," + argumentName(argTypes[i]);
             }
             str += ")";
             return str;
@@ -518,36 +701,30 @@ class Type {
      * @return true if the member is accessible from this type, and false otherwise.
      */
     public boolean checkAccess(int line, Member member) {
-        if (!checkAccess(line, classRep, member.declaringType().classRep)) {
+        if (!checkAccess(line, this, member.declaringType())) {
             return false;
         }
         // The member must be either public, protected, or private.
         if (member.isPublic()) {
             return true;
         }
-        java.lang.Package p1 = classRep.getPackage();
-        java.lang.Package p2 = member.declaringType().classRep.getPackage();
-        if ((p1 == null ? "" : p1.getName()).equals((p2 == null ? "" : p2.getName()))) {
+        if (packageOf(this).equals(packageOf(member.declaringType()))) {
             return true;
         }
         if (member.isProtected()) {
-            if (classRep.getPackage().getName().equals(
-                    member.declaringType().classRep.getPackage().getName())
-                    || typeFor(member.getClass().getDeclaringClass())
-                    .isJavaAssignableFrom(this)) {
+            if (member.declaringType().isJavaAssignableFrom(this)) {
                 return true;
             } else {
-                JAST.compilationUnit.reportSemanticError(line,
+                JAST.compilationUnit().reportSemanticError(line,
                         "The protected member, " + member.name() + ", is not accessible.");
                 return false;
             }
         }
         if (member.isPrivate()) {
-            if (descriptorFor(classRep).equals(
-                    descriptorFor(member.member().getDeclaringClass()))) {
+            if (this.equals(member.declaringType())) {
                 return true;
             } else {
-                JAST.compilationUnit.reportSemanticError(line,
+                JAST.compilationUnit().reportSemanticError(line,
                         "The private member, " + member.name() + ", is not accessible.");
                 return false;
             }
@@ -557,7 +734,7 @@ class Type {
         if (packageName().equals(member.declaringType().packageName())) {
             return true;
         } else {
-            JAST.compilationUnit.reportSemanticError(line, "The member, " + member.name() +
+            JAST.compilationUnit().reportSemanticError(line, "The member, " + member.name() +
                     ", is not accessible because it's in a different package.");
             return false;
         }
@@ -577,7 +754,7 @@ class Type {
         if (targetType.isArray()) {
             return this.checkAccess(line, targetType.componentType());
         }
-        return checkAccess(line, classRep, targetType.classRep);
+        return checkAccess(line, this, targetType);
     }
 
     /**
@@ -590,15 +767,13 @@ class Type {
      * @return true if the referenced type is accessible from the referencing type, and false
      * otherwise.
      */
-    public static boolean checkAccess(int line, Class referencingType, Class type) {
-        java.lang.Package p1 = referencingType.getPackage();
-        java.lang.Package p2 = type.getPackage();
-        if (Modifier.isPublic(type.getModifiers()) ||
-                (p1 == null ? "" : p1.getName()).equals((p2 == null ? "" : p2.getName()))) {
+    public static boolean checkAccess(int line, Type referencingType, Type type) {
+        if ((type.modifiers() & ACC_PUBLIC) != 0 ||
+                packageOf(referencingType).equals(packageOf(type))) {
             return true;
         } else {
-            JAST.compilationUnit.reportSemanticError(line, "The type, " + type.getCanonicalName() +
-                    ", is not accessible from " + referencingType.getCanonicalName());
+            JAST.compilationUnit().reportSemanticError(line, "The type, " + type +
+                    ", is not accessible from " + referencingType);
             return false;
         }
     }
@@ -623,36 +798,276 @@ class Type {
     public static String signatureFor(String name, Type[] argTypes) {
         String signature = name + "(";
         if (argTypes.length > 0) {
-            signature += argTypes[0].toString();
+            signature += argumentName(argTypes[0]);
             for (int i = 1; i < argTypes.length; i++) {
-                signature += "," + argTypes[i].toString();
+                signature += "," + argumentName(argTypes[i]);
             }
         }
         signature += ")";
         return signature;
     }
 
-    // Constructs a representation for a type from its Java (Class) representation. Use typeFor()
-    // that maps types having like classReps to like Types.
-    private Type(Class<?> classRep) {
-        this.classRep = classRep;
+    /**
+     * Returns the signatures of the given methods or constructors, qualified by the types that
+     * declare them, for reporting ambiguous calls.
+     *
+     * @param members the methods or constructors.
+     * @return the signatures of the members, separated by commas.
+     */
+    public static String signaturesOf(ArrayList<? extends Member> members) {
+        String signatures = "";
+        for (Member member : members) {
+            String name = member.declaringType().toString();
+            if (member instanceof Method) {
+                name += "." + member.name();
+            }
+            String[] parameters = member.parameterDescriptors();
+            String signature = name + "(";
+            for (int i = 0; i < parameters.length; i++) {
+                signature += (i > 0 ? "," : "") + toJava(parameters[i]);
+            }
+            signatures += (signatures.isEmpty() ? "" : ", ") + signature + ")";
+        }
+        return signatures;
+    }
+
+    // Constructs a representation for a type from its JVM descriptor. Use typeFor() that maps
+    // types having like descriptors to like Types.
+    private Type(String descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    // Constructs and returns a representation, shared by all sessions, for a type from its JVM
+    // descriptor.
+    private static Type builtinTypeFor(String descriptor) {
+        Type type = new Type(descriptor);
+        builtinTypes.put(descriptor, type);
+        return type;
     }
 
-    // Returns the JVM descriptor of a type's class representation.
-    private static String descriptorFor(Class<?> classRep) {
-        return classRep == null ? "V" : classRep == void.class ? "V"
-                : classRep.isArray() ? "[" + descriptorFor(classRep.getComponentType())
-                : classRep.isPrimitive() ? (classRep == int.class ? "I"
-                : classRep == boolean.class ? "Z"
-                : classRep == char.class ? "C"
-                : classRep == long.class ? "J"
-                : classRep == double.class ? "D" : "?")
-                : "L" + classRep.getName().replace('.', '/') + ";";
+    // Records that the current compilation unit depends on this type.
+    private void addDependency() {
+        if (JAST.compilationUnit() != null) {
+            JAST.compilationUnit().addDependency(this);
+        }
+    }
+
+    // Returns the modifiers of this type, as access flags: those of its class, or, for a
+    // primitive or an array type, public, final, and abstract (as for their Java classes).
+    private int modifiers() {
+        if (isPrimitive() || isArray()) {
+            return ACC_PUBLIC | ACC_FINAL | ACC_ABSTRACT;
+        }
+        ClassSymbol symbol = symbol();
+        return symbol == null ? 0 : symbol.modifiers();
     }
 
-    // Returns the Java (and so j--) denotation for the specified type.
-    private static String toJava(Class classRep) {
-        return classRep.isArray() ? toJava(classRep.getComponentType()) + "[]" : classRep.getName();
+    // Returns the name of the package of the given class type; "" for the unnamed package, and
+    // for other types.
+    private static String packageOf(Type type) {
+        String name = type.isPrimitive() || type.isArray() ? "" : type.toString();
+        return name.lastIndexOf('.') == -1 ? "" : name.substring(0, name.lastIndexOf('.'));
+    }
+
+    // Indexes the members declared in this type, if they have not been indexed yet.
+    private synchronized void indexMembers() {
+        if (methodsByName != null) {
+            return;
+        }
+        HashMap<String, ArrayList<Method>> methodsByName = new HashMap<String, ArrayList<Method>>();
+        HashMap<String, Field> fieldsByName = new HashMap<String, Field>();
+        ArrayList<Constructor> constructors = new ArrayList<Constructor>();
+        ClassSymbol symbol = symbol();
+        if (symbol != null) {
+            for (MemberSymbol method : symbol.methods()) {
+                ArrayList<Method> overloads = methodsByName.get(method.name());
+                if (overloads == null) {
+                    overloads = new ArrayList<Method>();
+                    methodsByName.put(method.name(), overloads);
+                }
+                overloads.add(new Method(this, method));
+            }
+            for (MemberSymbol field : symbol.fields()) {
+                if (!fieldsByName.containsKey(field.name())) {
+                    fieldsByName.put(field.name(), new Field(this, field));
+                }
+            }
+            for (MemberSymbol constructor : symbol.constructors()) {
+                constructors.add(new Constructor(this, constructor));
+            }
+        }
+        this.fieldsByName = fieldsByName;
+        this.constructors = constructors;
+        this.methodsByName = methodsByName;
+    }
+
+    // Returns the overloads of the method with the given name declared in this type.
+    private synchronized ArrayList<Method> methodsNamed(String name) {
+        indexMembers();
+        ArrayList<Method> overloads = methodsByName.get(name);
+        return overloads == null ? new ArrayList<Method>() : overloads;
+    }
+
+    // Returns the field with the given name declared in this type, or null.
+    private synchronized Field fieldNamed(String name) {
+        indexMembers();
+        return fieldsByName.get(name);
+    }
+
+    // Returns the methods having the given name declared in this type or inherited from its super
+    // classes, leaving out those overridden.
+    private ArrayList<Method> inheritedMethodsNamed(String name) {
+        ArrayList<Method> candidates = new ArrayList<Method>();
+        HashSet<String> overridden = new HashSet<String>();
+        for (Type type = this; type != null; type = type.superClass()) {
+            for (Method method : type.methodsNamed(name)) {
+                String descriptor = method.toDescriptor();
+                if (overridden.add(descriptor.substring(0, descriptor.indexOf(')') + 1))) {
+                    candidates.add(method);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    // Returns the constructors declared in this type.
+    private synchronized ArrayList<Constructor> declaredConstructors() {
+        indexMembers();
+        return constructors;
+    }
+
+    // Returns the one of the given methods (or constructors) that is more specific than all the
+    // others applicable to arguments of the given types, or null if none is applicable, or if no
+    // one of them is more specific than the others (the call is ambiguous).
+    private static <T extends Member> T mostSpecific(ArrayList<T> candidates, Type[] argTypes) {
+        ArrayList<T> applicable = applicable(candidates, argTypes);
+        T best = null;
+        for (T candidate : applicable) {
+            if (best == null ||
+                    isMoreSpecific(candidate, best) && !isMoreSpecific(best, candidate)) {
+                best = candidate;
+            }
+        }
+        for (T candidate : applicable) {
+            if (!isMoreSpecific(best, candidate)) {
+                return null;
+            }
+        }
+        return best;
+    }
+
+    // Returns those of the given methods (or constructors) that are applicable to arguments of the
+    // given types.
+    private static <T extends Member> ArrayList<T> applicable(ArrayList<T> candidates,
+                                                              Type[] argTypes) {
+        ArrayList<T> applicable = new ArrayList<T>();
+        for (T candidate : candidates) {
+            String[] parameters = candidate.parameterDescriptors();
+            boolean isApplicable = parameters.length == argTypes.length;
+            for (int i = 0; isApplicable && i < parameters.length; i++) {
+                isApplicable = isConvertible(argTypes[i], parameters[i]);
+            }
+            if (isApplicable) {
+                applicable.add(candidate);
+            }
+        }
+        return applicable;
+    }
+
+    // Returns those of the given methods (or constructors) applicable to arguments of the given
+    // types that no other applicable one is more specific than.
+    private static <T extends Member> ArrayList<T> maximallySpecific(ArrayList<T> candidates,
+                                                                     Type[] argTypes) {
+        ArrayList<T> applicable = applicable(candidates, argTypes);
+        ArrayList<T> maximal = new ArrayList<T>();
+        for (T candidate : applicable) {
+            boolean isMaximal = true;
+            for (T other : applicable) {
+                if (other != candidate && isMoreSpecific(other, candidate) &&
+                        !isMoreSpecific(candidate, other)) {
+                    isMaximal = false;
+                    break;
+                }
+            }
+            if (isMaximal) {
+                maximal.add(candidate);
+            }
+        }
+        return maximal;
+    }
+
+    // Returns true if a value of the given type can be passed for a parameter with the given
+    // descriptor without a conversion in the code: if the type is that of the parameter, or (for
+    // reference types) a subtype of it; and false otherwise.
+    private static boolean isConvertible(Type type, String descriptor) {
+        if (type.toDescriptor().equals(descriptor)) {
+            return true;
+        }
+        if (type == Type.ANY || type.isPrimitive() || descriptor.length() == 1) {
+            return false;
+        }
+        return type == Type.NULLTYPE || typeFor(descriptor).isJavaAssignableFrom(type);
+    }
+
+    // Returns true if each parameter of the given method (or constructor) can be passed for the
+    // corresponding parameter of the other (see isConvertible()), and false otherwise.
+    private static boolean isMoreSpecific(Member member, Member other) {
+        String[] parameters = member.parameterDescriptors();
+        String[] otherParameters = other.parameterDescriptors();
+        for (int i = 0; i < parameters.length; i++) {
+            if (!isConvertible(typeFor(parameters[i]), otherParameters[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the start of the JVM descriptors of the methods (and constructors) taking exactly
+    // arguments of the given types: their parameter descriptors, in parentheses; or null if an
+    // argument is null, which is not exactly of any type.
+    private static String parametersFor(Type[] argTypes) {
+        StringBuilder parameters = new StringBuilder("(");
+        for (Type argType : argTypes) {
+            if (argType == Type.NULLTYPE) {
+                return null;
+            }
+            parameters.append(argType.toDescriptor());
+        }
+        return parameters.append(')').toString();
+    }
+
+    // Returns the name of the given argument type in signatures: that of the type, or null for the
+    // null type.
+    private static String argumentName(Type argType) {
+        return argType == Type.NULLTYPE ? "null" : argType.toString();
+    }
+
+    // Returns the Java (and so j--) denotation for the type with the specified JVM descriptor.
+    private static String toJava(String descriptor) {
+        switch (descriptor.charAt(0)) {
+            case 'I':
+                return "int";
+            case 'J':
+                return "long";
+            case 'D':
+                return "double";
+            case 'C':
+                return "char";
+            case 'Z':
+                return "boolean";
+            case 'B':
+                return "byte";
+            case 'S':
+                return "short";
+            case 'F':
+                return "float";
+            case 'V':
+                return "void";
+            case '[':
+                return toJava(descriptor.substring(1)) + "[]";
+            default:
+                return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+        }
     }
 }
 
@@ -720,18 +1135,18 @@ class TypeName extends Type {
     public Type resolve(Context context) {
         Type resolvedType = context.lookupType(name);
         if (resolvedType == null) {
-            // Try loading a type with the give fullname.
-            try {
-                resolvedType = typeFor(Class.forName(name));
+            // Try finding a type with the give fullname on the class path.
+            resolvedType = classTypeFor(name);
+            if (resolvedType != null) {
                 context.addType(line, resolvedType);
-            } catch (Exception e) {
-                JAST.compilationUnit.reportSemanticError(line, "Unable to locate %s", name);
+            } else {
+                JAST.compilationUnit().reportSemanticError(line, "Unable to locate %s", name);
                 resolvedType = Type.ANY;
             }
         }
         if (resolvedType != Type.ANY) {
             Type referencingType = ((JTypeDecl) (context.classContext.definition())).thisType();
-            Type.checkAccess(line, referencingType.classRep(), resolvedType.classRep());
+            Type.checkAccess(line, referencingType, resolvedType);
         }
         return resolvedType;
     }
@@ -739,7 +1154,7 @@ class TypeName extends Type {
 
 /**
  * A representation of an array type. It is built by the Parser to stand in for a Type until the
- * analyze() phase, at which point it is resolved to an actual Type object (having a Class that
+ * analyze() phase, at which point it is resolved to an actual Type object (having a descriptor that
  * identifies it).
  */
 class ArrayTypeName extends Type {
@@ -781,7 +1196,6 @@ class ArrayTypeName extends Type {
      */
     public Type resolve(Context context) {
         componentType = componentType.resolve(context);
-        Class classRep = Array.newInstance(componentType().classRep(), 0).getClass();
-        return Type.typeFor(classRep);
+        return Type.typeFor("[" + componentType.toDescriptor());
     }
 }
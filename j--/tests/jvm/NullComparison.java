@@ -0,0 +1,25 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+//
+// Tests comparisons with, and conditional expressions of, null.
+
+import java.lang.System;
+
+public class NullComparison {
+    // Entry point.
+    public static void main(String[] args) {
+        Object a = new Object();
+        Object b = null;
+        String c = "42";
+        System.out.println(a == null);
+        System.out.println(a != null);
+        System.out.println(null == b);
+        System.out.println(null != b);
+        System.out.println(c == null);
+        System.out.println(null == null);
+        Object d = a == null ? a : null;
+        System.out.println(d == null);
+        String e = c != null ? null : c;
+        System.out.println(e == null);
+        System.out.println((c == null ? null : c).length());
+    }
+}
@@ -0,0 +1,21 @@
+// Copyright 2012- Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+//
+// Tests calls to the public methods StringBuilder inherits from a class that is not public.
+
+import java.lang.StringBuilder;
+import java.lang.System;
+
+public class StringBuilderMethods {
+    // Entry point.
+    public static void main(String[] args) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Hello, World");
+        System.out.println(sb.length());
+        System.out.println(sb.charAt(7));
+        sb.setLength(5);
+        System.out.println(sb.toString());
+        sb.append('!');
+        System.out.println(sb.length());
+        System.out.println(sb.toString());
+    }
+}